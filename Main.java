@@ -11,9 +11,29 @@ import mines.sol.ea.cont.lights.*;
 
 public class Main {
 
+	private static final int OBS_PER_SHIFT = 10;	//observations per shift length in steady-state mode.
+	private static final int NUM_BATCHES = 20;		//number of batches in steady-state mode.
+
 	public static void main(String[] args) {
-		if (args.length < 4) {
-			throw new IllegalArgumentException(String.format("\nusage: ... Main filename numSamples runtime solIndex...\n" +
+		int offset = 0;
+		if (args.length >= 2 && args[0].equals("--seed")) {
+			try {
+				RandomStream.setMasterSeed(Long.parseLong(args[1]));
+				offset = 2;
+			}
+			catch (NumberFormatException nfe) {
+				throw new IllegalArgumentException(String.format("Illegal seed provided: %s",args[1]));
+			}
+		}
+		boolean steady = false;
+		if (args.length > offset && args[offset].equals("--steady")) {
+			steady = true;
+			offset++;
+		}
+		if (args.length - offset < 4) {
+			throw new IllegalArgumentException(String.format("\nusage: ... Main [--seed seed] [--steady] filename numSamples runtime solIndex...\n" +
+				"\tseed an optional integer master seed for all random streams\n" +
+				"\t--steady estimate throughput from one long simulation of numSamples shifts\n" +
 				"\tfilename the input file name\n" +
 				"\tnumSamples the integer number of to run simulations per solution\n" +
 				"\truntime the real-valued shift length per simulation\n" +
@@ -21,17 +41,19 @@ public class Main {
 		}
 		try {
 			Main main = new Main();
-			String file = args[0];
-			int numSamples = Integer.parseInt(args[1]);
-			double runtime = Double.parseDouble(args[2]);
-			int[] solIndexes = new int[args.length - 3];
-			for (int i=3; i<args.length; i++) {
-				solIndexes[i - 3] = Integer.parseInt(args[i]);
+			String file = args[offset];
+			int numSamples = Integer.parseInt(args[offset + 1]);
+			double runtime = Double.parseDouble(args[offset + 2]);
+			int[] solIndexes = new int[args.length - offset - 3];
+			for (int i=offset+3; i<args.length; i++) {
+				solIndexes[i - offset - 3] = Integer.parseInt(args[i]);
 			}
-			main.run(file,solIndexes,numSamples,runtime);
+			main.run(file,solIndexes,numSamples,runtime,steady);
 		}
 		catch (NumberFormatException nfe) {
-			throw new IllegalArgumentException(String.format("\nusage: ... Main filename numSamples runtime solIndex...\n" +
+			throw new IllegalArgumentException(String.format("\nusage: ... Main [--seed seed] [--steady] filename numSamples runtime solIndex...\n" +
+				"\tseed an optional integer master seed for all random streams\n" +
+				"\t--steady estimate throughput from one long simulation of numSamples shifts\n" +
 				"\tfilename the input file name\n" +
 				"\tnumSamples the integer number of to run simulations per solution\n" +
 				"\truntime the real-valued shift length per simulation\n" +
@@ -39,10 +61,11 @@ public class Main {
 		}
 	}
 
-	public void run(String file, int[] solIndexes, int numSamples, double runtime) {
+	public void run(String file, int[] solIndexes, int numSamples, double runtime, boolean steady) {
 		MineParameters4 params = new MineParameters4Shortest(file);
+		double shiftLength = (steady ? numSamples * runtime : runtime);
 		TimeDistribution tgen = new NormalTimes();
-		MineSimulator4 sim = new MineSimulator4(params,tgen);
+		int numWorkers = Math.max(1,Math.min(Runtime.getRuntime().availableProcessors(),numSamples));
 		for (int solIndex : solIndexes) {
 			Debugger.setDebug(true);
 			Solution4 sol;
@@ -66,13 +89,13 @@ public class Main {
 						HeuristicKind.MTTWT1,HeuristicKind.MTTWT2,HeuristicKind.MTSWT,HeuristicKind.MSWT};
 					HeuristicKind hKindUse = hKinds[solIndex % 7];
 					boolean allGreedy = (solIndex <= 6);
-					sol = new SingleCrusherGreedySolution(params,tgen,20,hKindUse,runtime,allGreedy);
+					sol = new SingleCrusherGreedySolution(params,tgen,20,hKindUse,shiftLength,allGreedy);
 					break;
 				}
 				case 14:
 				case 15: {
 					boolean allGreedy = (solIndex <= 14);
-					sol = new DISPATCHSolution(params,true,false,runtime,allGreedy);
+					sol = new DISPATCHSolution(params,true,false,shiftLength,allGreedy);
 					break;
 				}
 				case 16:
@@ -101,7 +124,7 @@ public class Main {
 					double improvement = 0.005;
 					double updateInterval = 15;
 					boolean allGreedy = (solIndex <= 16);
-					sol = new SingleCrusherContinuousEAFLListDispatchWTimerSolution(params,runtime,allGreedy,tgen)
+					sol = new SingleCrusherContinuousEAFLListDispatchWTimerSolution(params,shiftLength,allGreedy,tgen)
 						.setFitnessParams(lookAheadFactor,fitnessIndex)
 						.setXOParams(xoProb,xoKind)
 						.setMutationParams(vmProb,insertProb,deleteProb)
@@ -193,19 +216,29 @@ public class Main {
 					throw new IllegalArgumentException(String.format("Illegal solution index provided: %d",solIndex));
 				}
 			}
+			if (steady) {
+				System.out.printf("Preparing controller...\n");
+				SteadyStateEstimator estimator = new SteadyStateEstimator(params,tgen,sol);
+				Debugger.setDebug(false);
+				System.out.printf("Beginning simulation...\n");
+				estimator.run(shiftLength,runtime / OBS_PER_SHIFT,NUM_BATCHES);
+				double warmup = estimator.getWarmup() * runtime / OBS_PER_SHIFT;
+				System.out.printf("Simulation complete with warm-up of %f discarded\n",warmup);
+				System.out.printf("%s : mean-%f ci-%f\n\n",sol.getSolutionName(),estimator.getMean() * OBS_PER_SHIFT,
+					estimator.getHalfWidth() * OBS_PER_SHIFT);
+				continue;
+			}
 			System.out.printf("Preparing controller...\n");
-			sim.loadController(sol.getController());
+			ReplicationRunner runner = new ReplicationRunner(params,tgen,sol,numWorkers);
 			double[] samples = new double[numSamples];
 			double total = 0;
 			Debugger.setDebug(false);
 			System.out.printf("Beginning simulations...\n");
+			int[] empties = runner.run(numSamples,runtime);
 			for (int i=0; i<numSamples; i++) {
-				sim.initialise();
-				sim.simulate(runtime);
-				int numEmpties = sim.getEmpties();
-				samples[i] = numEmpties;
+				samples[i] = empties[i];
 				total += samples[i];
-				System.out.printf("Simulation %d complete with %d truckloads\n",i + 1,numEmpties);
+				System.out.printf("Simulation %d complete with %d truckloads\n",i + 1,empties[i]);
 			}
 			System.out.printf("%d simulations complete...\n",numSamples);
 			double average = total / numSamples;
@@ -0,0 +1,103 @@
+import mines.util.*;
+import mines.ea.gene.ArrayGenotype;
+import mines.ea.chrom.RollingChromosome;
+import mines.ea.op.selection.*;
+import java.util.*;
+
+public class SelectionBenchmark {
+
+	private static final int NUM_TRIALS = 5;	//number of timed trials per operator, after one warm-up trial.
+
+	public static void main(String[] args) {
+		if (args.length != 0 && args.length != 2) {
+			throw new IllegalArgumentException(String.format("\nusage: ... SelectionBenchmark [poolSize numPairs]\n" +
+				"\tpoolSize the integer number of chromosomes in the selection pool, e.g. 100\n" +
+				"\tnumPairs the integer number of parent pairs selected per trial, e.g. 100000\n"));
+		}
+		try {
+			int poolSize = (args.length == 2 ? Integer.parseInt(args[0]) : 100);
+			int numPairs = (args.length == 2 ? Integer.parseInt(args[1]) : 100000);
+			if (poolSize < 2 || numPairs <= 0) {
+				throw new IllegalArgumentException(String.format("Pool size of at least 2 and positive number of pairs required: %d %d",
+					poolSize,numPairs));
+			}
+			SelectionBenchmark benchmark = new SelectionBenchmark();
+			benchmark.run(poolSize,numPairs);
+		}
+		catch (NumberFormatException nfe) {
+			throw new IllegalArgumentException(String.format("\nusage: ... SelectionBenchmark [poolSize numPairs]\n" +
+				"\tpoolSize the integer number of chromosomes in the selection pool, e.g. 100\n" +
+				"\tnumPairs the integer number of parent pairs selected per trial, e.g. 100000\n"));
+		}
+	}
+
+	/**
+	 * Time each fitness proportionate selection operator on minimising pools with narrow and wide fitness spreads,
+	 * printing the mean time per selection and the share of selections of the best chromosome,
+	 * which should agree between operators.
+	 *
+	 * @param	poolSize	the number of chromosomes in the selection pool.
+	 * @param	numPairs	the number of parent pairs selected per trial.
+	 */
+	public void run(int poolSize, int numPairs) {
+		Random rng = new RandomStream();
+		String[] spreads = new String[]{"narrow","wide"};
+		for (String spread : spreads) {
+			ArrayList<RollingChromosome<ArrayGenotype>> pool = new ArrayList<>(poolSize);
+			for (int i=0; i<poolSize; i++) {
+				RollingChromosome<ArrayGenotype> rc = new RollingChromosome<>(new ArrayGenotype(new int[]{i}),1);
+				double fitness = (spread.equals("narrow") ? 1 + rng.nextDouble() : Math.pow(10,6 * rng.nextDouble() - 6));
+				rc.giveFitness(fitness);
+				pool.add(rc);
+			}
+			RollingChromosome<ArrayGenotype> best = pool.get(0);
+			for (RollingChromosome<ArrayGenotype> rc : pool) {
+				if (rc.getFitness() < best.getFitness()) {
+					best = rc;
+				}
+			}
+			System.out.printf("%s fitness spread from %g to %g:\n",spread,best.getFitness(),getWorst(pool).getFitness());
+			ArrayList<SelectionOperator<ArrayGenotype,RollingChromosome<ArrayGenotype>>> selectors = new ArrayList<>();
+			selectors.add(new FitnessProportionateReproductionOperator<ArrayGenotype,RollingChromosome<ArrayGenotype>>(false));
+			selectors.add(new FenwickProportionateReproductionOperator<ArrayGenotype,RollingChromosome<ArrayGenotype>>(false));
+			selectors.add(new AliasProportionateReproductionOperator<ArrayGenotype,RollingChromosome<ArrayGenotype>>(false));
+			for (SelectionOperator<ArrayGenotype,RollingChromosome<ArrayGenotype>> selector : selectors) {
+				long elapsed = 0;
+				long bestCount = 0;
+				for (int trial=0; trial<=NUM_TRIALS; trial++) {
+					long start = System.nanoTime();
+					selector.loadPool(pool);
+					for (int i=0; i<numPairs; i++) {
+						if (selector.performReproductionSelection(true) == best) {
+							bestCount++;
+						}
+						selector.performReproductionSelection(false);
+					}
+					if (trial > 0) {
+						elapsed += System.nanoTime() - start;
+					}
+				}
+				System.out.printf("\t%s : %.1fns per selection, best selected first in %.2f%% of pairs\n",
+					selector.getClass().getSimpleName(),(double) elapsed / (2.0 * numPairs * NUM_TRIALS),
+					100.0 * bestCount / ((NUM_TRIALS + 1.0) * numPairs));
+			}
+		}
+	}
+
+	/**
+	 * Get the chromosome with the highest fitness.
+	 *
+	 * @param	pool	the chromosomes.
+	 * @return	the chromosome.
+	 */
+	private RollingChromosome<ArrayGenotype> getWorst(List<RollingChromosome<ArrayGenotype>> pool) {
+		RollingChromosome<ArrayGenotype> worst = pool.get(0);
+		for (RollingChromosome<ArrayGenotype> rc : pool) {
+			if (rc.getFitness() > worst.getFitness()) {
+				worst = rc;
+			}
+		}
+		return worst;
+	}
+
+}
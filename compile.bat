@@ -2,4 +2,5 @@ mkdir classes
 call ant clean
 call ant compile
 javac -cp .;classes;lib/lpsolve55j.jar Main.java
+javac -cp .;classes SelectionBenchmark.java
 pause
\ No newline at end of file
@@ -0,0 +1,157 @@
+package mines.ea.alg;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A per-run limit on the wall-clock time and simulation events spent on fitness evaluations,
+ * for algorithms that must return a result within a fixed latency.
+ * The budget is checked between evaluations,
+ * and at least one evaluation is always allowed per run.
+ * Evaluations can be recorded from several threads.
+ * Also keeps the metrics of the last run,
+ * and the number of runs cut short by the budget.
+ */
+public class EvaluationBudget {
+
+	private long maxNanos;	//the maximum wall-clock time per run in nanoseconds, 0 if unlimited.
+	private long maxEvents;	//the maximum number of simulation events per run, 0 if unlimited.
+
+	private long startTime;				//the System.nanoTime() at the start of the current run.
+	private long elapsed;				//the wall-clock time of the last finished run in nanoseconds.
+	private AtomicLong numEvaluations;	//the number of evaluations in the current run.
+	private AtomicLong numEvents;		//the number of simulation events in the current run.
+	private volatile boolean exceeded;	//whether the current run has exceeded the budget.
+	private int numExceeded;			//the number of finished runs that exceeded the budget.
+
+	/**
+	 * Budget constructor.
+	 *
+	 * @param	maxNanos	the maximum wall-clock time per run in nanoseconds,
+	 *						0 if unlimited.
+	 * @param	maxEvents	the maximum number of simulation events per run,
+	 *						0 if unlimited.
+	 * @throws	IllegalArgumentException if either limit is negative.
+	 */
+	public EvaluationBudget(long maxNanos, long maxEvents) {
+		if (maxNanos < 0 || maxEvents < 0) {
+			throw new IllegalArgumentException(String.format("Non-negative budget required: %d %d",maxNanos,maxEvents));
+		}
+		this.maxNanos = maxNanos;
+		this.maxEvents = maxEvents;
+		numEvaluations = new AtomicLong();
+		numEvents = new AtomicLong();
+		elapsed = 0;
+		exceeded = false;
+		numExceeded = 0;
+	}
+
+	/**
+	 * Get whether the budget limits runs at all.
+	 *
+	 * @return	true if either limit is set,
+	 *			false otherwise.
+	 */
+	public boolean isLimited() {
+		return maxNanos > 0 || maxEvents > 0;
+	}
+
+	/**
+	 * Start a new run,
+	 * resetting the time and event counts.
+	 */
+	public void start() {
+		startTime = System.nanoTime();
+		numEvaluations.set(0);
+		numEvents.set(0);
+		exceeded = false;
+	}
+
+	/**
+	 * Record a completed evaluation.
+	 *
+	 * @param	events	the number of simulation events used by the evaluation.
+	 */
+	public void record(long events) {
+		numEvaluations.incrementAndGet();
+		numEvents.addAndGet(events);
+	}
+
+	/**
+	 * Get whether the current run has used its budget,
+	 * so no further evaluations should start.
+	 * Always false before the first evaluation of a run.
+	 *
+	 * @return	true if the time or event limit has been reached,
+	 *			false otherwise.
+	 */
+	public boolean isExpired() {
+		if (exceeded) {
+			return true;
+		}
+		if (numEvaluations.get() == 0) {
+			return false;
+		}
+		if ((maxNanos > 0 && System.nanoTime() - startTime >= maxNanos) || (maxEvents > 0 && numEvents.get() >= maxEvents)) {
+			exceeded = true;
+		}
+		return exceeded;
+	}
+
+	/**
+	 * Finish the current run,
+	 * recording its wall-clock time and whether it exceeded the budget.
+	 */
+	public void finish() {
+		elapsed = System.nanoTime() - startTime;
+		if (exceeded) {
+			numExceeded++;
+		}
+	}
+
+	/**
+	 * Get whether the last run was cut short by the budget.
+	 *
+	 * @return	true if the last run exceeded the budget,
+	 *			false otherwise.
+	 */
+	public boolean isExceeded() {
+		return exceeded;
+	}
+
+	/**
+	 * Get the number of runs cut short by the budget.
+	 *
+	 * @return	the number of finished runs that exceeded the budget.
+	 */
+	public int getNumExceeded() {
+		return numExceeded;
+	}
+
+	/**
+	 * Get the wall-clock time of the last finished run.
+	 *
+	 * @return	the elapsed time in nanoseconds.
+	 */
+	public long getElapsed() {
+		return elapsed;
+	}
+
+	/**
+	 * Get the number of evaluations in the last run.
+	 *
+	 * @return	the number of evaluations.
+	 */
+	public long getNumEvaluations() {
+		return numEvaluations.get();
+	}
+
+	/**
+	 * Get the number of simulation events used by evaluations in the last run.
+	 *
+	 * @return	the number of events.
+	 */
+	public long getNumEvents() {
+		return numEvents.get();
+	}
+
+}
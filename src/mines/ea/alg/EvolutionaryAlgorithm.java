@@ -16,6 +16,16 @@ public interface EvolutionaryAlgorithm<G extends Genotype> {
 	 */
 	public Chromosome<G> run();
 
+	/**
+	 * Run the evolutionary algorithm from an initial population seeded with the given genotypes,
+	 * such as the final population of a previous run adjusted to the current state,
+	 * with any remaining places filled randomly.
+	 * 
+	 * @param	seeds	the genotypes to include in the initial population.
+	 * @return	the best chromosome.
+	 */
+	public Chromosome<G> run(List<G> seeds);
+
 	/**
 	 * Get the population of the final generation of the last run of the EA.
 	 * 
@@ -16,6 +16,17 @@ public interface HeterogeneousCoevolutionaryAlgorithm<G extends Genotype, H exte
 	 */
 	public ChromosomePairing<G,H> run();
 
+	/**
+	 * Run the evolutionary algorithm from initial populations seeded with the given genotypes,
+	 * such as the final populations of a previous run adjusted to the current state,
+	 * with any remaining places filled randomly.
+	 * 
+	 * @param	seeds1	the genotypes to include in the initial population of the first genotype.
+	 * @param	seeds2	the genotypes to include in the initial population of the second genotype.
+	 * @return	the best observed pairing of chromosomes.
+	 */
+	public ChromosomePairing<G,H> run(List<G> seeds1, List<H> seeds2);
+
 	/**
 	 * Get a population of the first genotype of the final generation of the last run of the CEA.
 	 * 
@@ -0,0 +1,329 @@
+package mines.ea.alg;
+
+import mines.ea.gene.Genotype;
+import mines.ea.fitness.FitnessFunction;
+import mines.ea.fitness.FitnessFunctionFactory;
+import mines.ea.chrom.*;
+import mines.util.RandomStream;
+import mines.system.Debugger;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An island model of evolutionary algorithms.
+ * Each island is an independent RollingEvolutionaryAlgorithm run on its own thread,
+ * with its own copy of the fitness function and its own operators.
+ * Every migration interval,
+ * each island sends copies of its best chromosomes to other islands according to the migration topology,
+ * through lock-free queues,
+ * and replaces its worst chromosomes with the immigrants it has received since its last migration.
+ * As islands do not wait for each other,
+ * the immigrants received depend on thread scheduling,
+ * so results with migration are not reproducible.
+ */
+public class IslandEvolutionaryAlgorithm<G extends Genotype> implements EvolutionaryAlgorithm<G> {
+
+	/**
+	 * The migration of an island,
+	 * sending its best chromosomes to the queues of other islands,
+	 * and taking immigrants from its own queue.
+	 */
+	private class IslandMigration implements Migration<G> {
+
+		private int island;		//the index of the island.
+		private Random rng;		//RNG for random destinations.
+
+		/**
+		 * Migration constructor.
+		 *
+		 * @param	island	the index of the island.
+		 */
+		public IslandMigration(int island) {
+			this.island = island;
+			rng = new RandomStream();
+		}
+
+		/**
+		 * Exchange chromosomes with other islands if the generation is a multiple of the migration interval.
+		 * Up to the number of migrants of the best chromosomes are copied to each destination,
+		 * and the latest immigrants replace the worst chromosomes,
+		 * never replacing the best.
+		 *
+		 * @param	gen			the generation.
+		 * @param	population	the population of the island,
+		 *						sorted from best to worst.
+		 * @return	true if any immigrants were added,
+		 *			false otherwise.
+		 */
+		public boolean migrate(int gen, List<RollingChromosome<G>> population) {
+			if (migrationInterval == 0 || gen % migrationInterval != 0) {
+				return false;
+			}
+			int numEmigrants = Math.min(numMigrants,population.size());
+			for (int target : getDestinations()) {
+				ConcurrentLinkedQueue<RollingChromosome<G>> queue = inboxes.get(target);
+				for (int i=0; i<numEmigrants; i++) {
+					queue.add(new RollingChromosome<>(population.get(i)));
+				}
+			}
+			ArrayList<RollingChromosome<G>> immigrants = new ArrayList<>();
+			RollingChromosome<G> immigrant;
+			while ((immigrant = inboxes.get(island).poll()) != null) {
+				immigrants.add(immigrant);
+			}
+			int replace = Math.min(immigrants.size(),population.size() - 1);
+			for (int i=0; i<replace; i++) {
+				population.set(population.size() - 1 - i,immigrants.get(immigrants.size() - 1 - i));
+			}
+			numImmigrants.addAndGet(replace);
+			return replace > 0;
+		}
+
+		/**
+		 * Get the islands to send emigrants to in the current migration.
+		 *
+		 * @return	the island indexes.
+		 */
+		private List<Integer> getDestinations() {
+			switch (topology) {
+				case RING:
+					return Collections.singletonList((island + 1) % numIslands);
+				case COMPLETE:
+					List<Integer> all = new ArrayList<>(numIslands - 1);
+					for (int i=0; i<numIslands; i++) {
+						if (i != island) {
+							all.add(i);
+						}
+					}
+					return all;
+				case RANDOM:
+					int target = rng.nextInt(numIslands - 1);
+					return Collections.singletonList(target >= island ? target + 1 : target);
+				default:
+					throw new IllegalArgumentException(String.format("Unknown migration topology: %s",topology));
+			}
+		}
+	}
+
+	private int numIslands;					//number of islands.
+	private int migrationInterval;			//number of generations between migrations, 0 if no migration.
+	private int numMigrants;				//number of best chromosomes sent to each destination per migration.
+	private MigrationTopology topology;		//the islands each island sends emigrants to.
+
+	private FitnessFunctionFactory<G> ffFactory;	//factory for the fitness functions of the islands.
+	private IslandFactory<G> islandFactory;			//factory for the algorithms of the islands.
+	private boolean maximising;						//whether fitness is maximising or not.
+
+	private ArrayList<FitnessFunction<G>> islandFFs;								//the fitness function of each island.
+	private ArrayList<RollingEvolutionaryAlgorithm<G>> islands;						//the algorithm of each island.
+	private ArrayList<ConcurrentLinkedQueue<RollingChromosome<G>>> inboxes;			//the immigrants waiting for each island.
+	private ForkJoinPool pool;														//the threads running the islands.
+	private AtomicInteger numImmigrants;											//number of immigrants accepted in the last run.
+
+	private boolean initialised;	//whether this algorithm has been initialised yet.
+
+	/**
+	 * Constructor to set fundamental variables.
+	 * Some variables are set to default values and can be altered by other methods before initialisation.
+	 * Instances of this class cannot be used until initialisation.
+	 *
+	 * @param	ff				the fitness function.
+	 * @param	ffFactory		the factory for the fitness functions of the islands,
+	 *							which brings them up to date with the fitness function before each run.
+	 * @param	islandFactory	the factory for the algorithms of the islands.
+	 * @param	numIslands		the number of islands.
+	 * @throws	IllegalArgumentException	if numIslands is non-positive.
+	 */
+	public IslandEvolutionaryAlgorithm(FitnessFunction<G> ff, FitnessFunctionFactory<G> ffFactory, IslandFactory<G> islandFactory,
+		int numIslands) {
+		if (numIslands <= 0) {
+			throw new IllegalArgumentException(String.format("Positive number of islands required: %d",numIslands));
+		}
+		this.ffFactory = ffFactory;
+		this.islandFactory = islandFactory;
+		this.numIslands = numIslands;
+
+		maximising = ff.isMaximising();
+		migrationInterval = 10;
+		numMigrants = 1;
+		topology = MigrationTopology.RING;
+		numImmigrants = new AtomicInteger();
+
+		initialised = false;
+	}
+
+	/**
+	 * Set the migration parameters.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	migrationInterval	the number of generations between migrations,
+	 *								0 for isolated islands.
+	 * @param	numMigrants			the number of best chromosomes sent to each destination per migration.
+	 * @param	topology			the islands each island sends emigrants to.
+	 * @return	this object.
+	 * @throws	IllegalStateException		if already initialised.
+	 * @throws	IllegalArgumentException	if migrationInterval or numMigrants is negative.
+	 */
+	public IslandEvolutionaryAlgorithm<G> setMigrationParams(int migrationInterval, int numMigrants, MigrationTopology topology) {
+		if (!initialised) {
+			if (migrationInterval < 0 || numMigrants < 0) {
+				throw new IllegalArgumentException(String.format("Non-negative migration parameters required: %d %d",migrationInterval,
+					numMigrants));
+			}
+			this.migrationInterval = migrationInterval;
+			this.numMigrants = numMigrants;
+			this.topology = topology;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Algorithm already initialised");
+		}
+	}
+
+	/**
+	 * Initialise this object for use,
+	 * creating and initialising the algorithm of each island.
+	 * Can only be used once.
+	 *
+	 * @return	this object.
+	 * @throws	IllegalStateException if already initialised.
+	 */
+	public IslandEvolutionaryAlgorithm<G> initialise() {
+		if (!initialised) {
+			islandFFs = new ArrayList<>(numIslands);
+			islands = new ArrayList<>(numIslands);
+			inboxes = new ArrayList<>(numIslands);
+			for (int i=0; i<numIslands; i++) {
+				FitnessFunction<G> islandFF = ffFactory.newFitnessFunction();
+				islandFFs.add(islandFF);
+				RollingEvolutionaryAlgorithm<G> island = islandFactory.newIsland(islandFF);
+				if (numIslands > 1) {
+					island.setMigration(new IslandMigration(i));
+				}
+				islands.add(island.initialise());
+				inboxes.add(new ConcurrentLinkedQueue<RollingChromosome<G>>());
+			}
+			pool = new ForkJoinPool(numIslands);
+			initialised = true;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Algorithm already initialised");
+		}
+	}
+
+	/**
+	 * Run every island and return the best chromosome found by any island.
+	 *
+	 * @return	the best chromosome.
+	 * @throws	IllegalStateException if not initialised.
+	 * @see	run(List)
+	 */
+	public RollingChromosome<G> run() {
+		return run(Collections.<G>emptyList());
+	}
+
+	/**
+	 * Run every island from seeded initial populations and return the best chromosome found by any island.
+	 * The fitness function of each island is brought up to date first,
+	 * and the seeds are dealt to the islands in turn.
+	 * The islands terminate independently,
+	 * and the best chromosome is that of the first island with the best fitness.
+	 *
+	 * @param	seeds	the genotypes to include in the initial populations.
+	 * @return	the best chromosome.
+	 * @throws	IllegalStateException if not initialised,
+	 *			or if a run was interrupted.
+	 * @see	RollingEvolutionaryAlgorithm#run(List)
+	 */
+	public RollingChromosome<G> run(List<G> seeds) {
+		if (initialised) {
+			for (int i=0; i<numIslands; i++) {
+				ffFactory.synchronise(islandFFs.get(i));
+				inboxes.get(i).clear();
+			}
+			numImmigrants.set(0);
+			List<Callable<RollingChromosome<G>>> tasks = new ArrayList<>(numIslands);
+			for (int i=0; i<numIslands; i++) {
+				final RollingEvolutionaryAlgorithm<G> island = islands.get(i);
+				final List<G> islandSeeds = new ArrayList<>();
+				for (int j=i; j<seeds.size(); j+=numIslands) {
+					islandSeeds.add(seeds.get(j));
+				}
+				tasks.add(new Callable<RollingChromosome<G>>() {
+					public RollingChromosome<G> call() {
+						return island.run(islandSeeds);
+					}
+				});
+			}
+			RollingChromosome<G> best = null;
+			try {
+				for (Future<RollingChromosome<G>> f : pool.invokeAll(tasks)) {
+					RollingChromosome<G> islandBest = f.get();
+					if (best == null || (maximising ? islandBest.getFitness() > best.getFitness() :
+						islandBest.getFitness() < best.getFitness())) {
+						best = islandBest;
+					}
+				}
+			}
+			catch (InterruptedException ie) {
+				throw new IllegalStateException("Island run interrupted");
+			}
+			catch (ExecutionException ee) {
+				Throwable cause = ee.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				else {
+					throw new IllegalStateException(String.format("Island run failed: %s",cause));
+				}
+			}
+			Debugger.print(String.format("islands accepted %d immigrants\n",numImmigrants.get()));
+			return best;
+		}
+		else {
+			throw new IllegalStateException("Algorithm not initialised");
+		}
+	}
+
+	/**
+	 * Get the number of immigrants accepted by all islands in the last run.
+	 *
+	 * @return	the number of immigrants.
+	 */
+	public int getNumImmigrants() {
+		return numImmigrants.get();
+	}
+
+	/**
+	 * Get the algorithm of an island,
+	 * e.g. to inspect its budget.
+	 *
+	 * @param	index	the island index.
+	 * @return	the algorithm.
+	 */
+	public RollingEvolutionaryAlgorithm<G> getIsland(int index) {
+		return islands.get(index);
+	}
+
+	/**
+	 * Get the final populations of every island from the last run,
+	 * sorted from best to worst fitness.
+	 *
+	 * @return	a list of chromosomes from the final populations.
+	 */
+	public ArrayList<Chromosome<G>> getPopulation() {
+		ArrayList<Chromosome<G>> population = new ArrayList<>();
+		for (RollingEvolutionaryAlgorithm<G> island : islands) {
+			population.addAll(island.getPopulation());
+		}
+		Collections.sort(population,new Comparator<Chromosome<G>>() {
+			public int compare(Chromosome<G> c1, Chromosome<G> c2) {
+				return (maximising ? -1 : 1) * c1.compareTo(c2);
+			}
+		});
+		return population;
+	}
+
+}
@@ -0,0 +1,22 @@
+package mines.ea.alg;
+
+import mines.ea.gene.Genotype;
+import mines.ea.fitness.FitnessFunction;
+
+/**
+ * Factory for the islands of an island model,
+ * each an evolutionary algorithm with its own fitness function and operators.
+ */
+public interface IslandFactory<G extends Genotype> {
+
+	/**
+	 * Create an uninitialised evolutionary algorithm for an island,
+	 * sharing no operators or other mutable state with any other island.
+	 *
+	 * @param	ff	the fitness function of the island.
+	 * @return	a new algorithm,
+	 *			to be initialised by the island model.
+	 */
+	public RollingEvolutionaryAlgorithm<G> newIsland(FitnessFunction<G> ff);
+
+}
@@ -0,0 +1,26 @@
+package mines.ea.alg;
+
+import mines.ea.gene.Genotype;
+import mines.ea.chrom.RollingChromosome;
+import java.util.List;
+
+/**
+ * An exchange of chromosomes between the population of an evolutionary algorithm and other populations,
+ * e.g. between the islands of an island model.
+ */
+public interface Migration<G extends Genotype> {
+
+	/**
+	 * Exchange chromosomes at the end of a generation.
+	 * Emigrants should be copied before they are shared,
+	 * and immigrants can replace members of the population.
+	 *
+	 * @param	gen			the generation.
+	 * @param	population	the population,
+	 *						sorted from best to worst.
+	 * @return	true if the population was changed,
+	 *			false otherwise.
+	 */
+	public boolean migrate(int gen, List<RollingChromosome<G>> population);
+
+}
@@ -0,0 +1,11 @@
+package mines.ea.alg;
+
+/**
+ * Possible migration topologies between islands:
+ * RING sends emigrants to the next island,
+ * COMPLETE sends emigrants to every other island,
+ * and RANDOM sends emigrants to a random other island each migration.
+ */
+public enum MigrationTopology {
+	RING, COMPLETE, RANDOM
+}
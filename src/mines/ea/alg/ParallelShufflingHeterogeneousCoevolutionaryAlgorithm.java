@@ -3,12 +3,16 @@ package mines.ea.alg;
 import mines.ea.gene.Genotype;
 import mines.ea.gene.build.GenotypeBuilder;
 import mines.ea.fitness.CoevolutionaryHeterogeneousFitnessFunction;
+import mines.ea.fitness.CoevolutionaryHeterogeneousFitnessFunctionFactory;
 import mines.ea.op.selection.SelectionOperator;
 import mines.ea.chrom.*;
 import mines.ea.op.gene.GeneticOperator;
 import mines.util.DoubleList;
+import mines.util.IntList;
+import mines.util.RandomStream;
 import mines.system.Debugger;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * A two-population coevolutionary algorithm using parallel shuffling for collaboration selection.
@@ -16,6 +20,8 @@ import java.util.*;
  * both populations reproduce,
  * then the selection pools of both genotypes are randomly sorted to be paired.
  * Fitness of a chromosome is the best fitness of a pairing it has participated in.
+ * Pairings can be evaluated on several threads,
+ * each with its own copy of the fitness function.
  *
  * Based on parallel shuffling method proposed in:
  *
@@ -28,12 +34,57 @@ public class ParallelShufflingHeterogeneousCoevolutionaryAlgorithm<G extends Gen
 
 	private static final int DEBUG_INTERVAL = 10;	//the period between debugging messages.
 
+	/**
+	 * A pairing of genotypes used as a key of the sample cache,
+	 * equal to another pairing with equal genotypes.
+	 */
+	private static class PairingKey<G extends Genotype, H extends Genotype> {
+
+		private G first;	//the first genotype.
+		private H second;	//the second genotype.
+
+		/**
+		 * Key constructor.
+		 *
+		 * @param	first	the first genotype.
+		 * @param	second	the second genotype.
+		 */
+		public PairingKey(G first, H second) {
+			this.first = first;
+			this.second = second;
+		}
+
+		/**
+		 * Tests equality of both genotypes.
+		 *
+		 * @param	o	the Object to compare to.
+		 * @return	true if equal, false otherwise.
+		 */
+		public boolean equals(Object o) {
+			if (!(o instanceof PairingKey)) {
+				return false;
+			}
+			PairingKey<?,?> other = (PairingKey<?,?>) o;
+			return first.equals(other.first) && second.equals(other.second);
+		}
+
+		/**
+		 * Get a hash code combining both genotypes.
+		 *
+		 * @return	the hash code.
+		 */
+		public int hashCode() {
+			return 31 * first.hashCode() + second.hashCode();
+		}
+	}
+
 	private int minNumCollaborators;	//the minimum number of collaborations for each chromosome per round.
 	private int popSize1;				//surviving population size of first genotype.
 	private int popSize2;				//surviving population size of second genotype.
 	private int numOffspring1;			//number of offspring per generation of first genotype.
 	private int numOffspring2;			//number of offspring per generation of second genotype.
 	private int maxGen;					//maximum number of generations.
+	private int maxWarmGen;				//maximum number of generations of seeded runs.
 	private int conCutoff;				//number of generations allowed without required improvement.
 	private double improvement;			//required improvement.
 	private boolean allowSurvivors;		//whether to allow non-elite chromosomes to survive between generations.
@@ -54,6 +105,26 @@ public class ParallelShufflingHeterogeneousCoevolutionaryAlgorithm<G extends Gen
 
 	private ArrayList<OptimisticChromosome<G>> population1;	//current population of first chromosomes.
 	private ArrayList<OptimisticChromosome<H>> population2;	//current population of second chromosomes.
+	private ChromosomePairing<G,H> best;					//best observed pairing in the current run.
+	private double bestFitness;								//fitness of the best observed pairing in the current run.
+
+	/*
+	 * Parallel evaluation variables.
+	 */
+	private int numWorkers;															//number of threads used for fitness evaluation.
+	private CoevolutionaryHeterogeneousFitnessFunctionFactory<G,H> ffFactory;		//factory for the fitness functions of additional workers.
+	private ArrayList<CoevolutionaryHeterogeneousFitnessFunction<G,H>> workerFFs;	//the fitness function of each worker, starting with ff.
+	private ForkJoinPool pool;														//the threads used for fitness evaluation, null if serial.
+
+	/*
+	 * Sample caching variables.
+	 */
+	private boolean cacheSamples;							//whether repeated pairings reuse the fitness of their first evaluation in the run.
+	private HashMap<PairingKey<G,H>,Double> sampleCache;	//the fitness of each pairing evaluated in the current run.
+	private int cacheVersion;								//the state version of the fitness function the cached samples were taken from.
+	private int numReused;									//number of cached samples reused in the last run.
+
+	private EvaluationBudget budget;	//the time and simulation event limits of each run.
 
 	private boolean initialised;	//whether this algorithm has been initialised yet.
 
@@ -90,7 +161,7 @@ public class ParallelShufflingHeterogeneousCoevolutionaryAlgorithm<G extends Gen
 		this.operator1 = operator1;
 		this.operator2 = operator2;
 
-		rng = new Random();
+		rng = new RandomStream();
 		maximising = ff.isMaximising();
 
 		popSize1 = 100;
@@ -98,9 +169,14 @@ public class ParallelShufflingHeterogeneousCoevolutionaryAlgorithm<G extends Gen
 		numOffspring1 = 100;
 		numOffspring2 = 100;
 		maxGen = 999;
+		maxWarmGen = Integer.MAX_VALUE;
 		conCutoff = 99;
 		improvement = 0.0;
 		allowSurvivors = true;
+		numWorkers = 1;
+		ffFactory = null;
+		cacheSamples = false;
+		budget = new EvaluationBudget(0,0);
 
 		initialised = false;
 	}
@@ -165,6 +241,105 @@ public class ParallelShufflingHeterogeneousCoevolutionaryAlgorithm<G extends Gen
 		}
 	}
 
+	/**
+	 * Set the maximum number of generations of seeded runs,
+	 * which usually start close to convergence.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	maxWarmGen	the maximum number of generations when seeded.
+	 * @return	this object.
+	 * @throws	IllegalStateException		if already initialised.
+	 * @throws	IllegalArgumentException	if maxWarmGen is non-positive.
+	 */
+	public ParallelShufflingHeterogeneousCoevolutionaryAlgorithm<G,H> setWarmStartParams(int maxWarmGen) {
+		if (!initialised) {
+			if (maxWarmGen <= 0) {
+				throw new IllegalArgumentException(String.format("Positive number of generations required: %d",maxWarmGen));
+			}
+			this.maxWarmGen = maxWarmGen;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Algorithm already initialised");
+		}
+	}
+
+	/**
+	 * Set the parameters for evaluating pairings on several threads.
+	 * Each worker evaluates fitness with its own copy of the fitness function,
+	 * brought up to date by the factory at the start of each run.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	ffFactory	the factory for fitness functions of additional workers.
+	 * @param	numWorkers	the number of worker threads.
+	 * @return	this object.
+	 * @throws	IllegalStateException		if already initialised.
+	 * @throws	IllegalArgumentException	if a non-positive number of workers is given.
+	 */
+	public ParallelShufflingHeterogeneousCoevolutionaryAlgorithm<G,H> setParallelParams(
+		CoevolutionaryHeterogeneousFitnessFunctionFactory<G,H> ffFactory, int numWorkers) {
+		if (!initialised) {
+			if (numWorkers <= 0) {
+				throw new IllegalArgumentException(String.format("Positive number of workers required: %d",numWorkers));
+			}
+			this.ffFactory = ffFactory;
+			this.numWorkers = numWorkers;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Algorithm already initialised");
+		}
+	}
+
+	/**
+	 * Set whether fitness samples are cached within each run.
+	 * When caching,
+	 * the fitness of each pairing of genotypes is kept until the end of the run,
+	 * and a pairing of genotypes already evaluated gives its cached fitness to both chromosomes instead of being evaluated again,
+	 * at the cost of reusing a sample from an earlier round.
+	 * The cache is emptied whenever the state version of the fitness function changes.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	cacheSamples	whether to cache fitness samples.
+	 * @return	this object.
+	 * @throws	IllegalStateException	if already initialised.
+	 * @see	CoevolutionaryHeterogeneousFitnessFunction#getStateVersion()
+	 */
+	public ParallelShufflingHeterogeneousCoevolutionaryAlgorithm<G,H> setCacheParams(boolean cacheSamples) {
+		if (!initialised) {
+			this.cacheSamples = cacheSamples;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Algorithm already initialised");
+		}
+	}
+
+	/**
+	 * Set the deadline parameters for anytime operation.
+	 * The limits are checked between evaluations,
+	 * and once either is reached the run stops and returns the best pairing observed so far.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	maxNanos	the maximum wall-clock time of each run in nanoseconds,
+	 *						0 if unlimited.
+	 * @param	maxEvents	the maximum number of simulation events of each run,
+	 *						0 if unlimited.
+	 * @return	this object.
+	 * @throws	IllegalStateException		if already initialised.
+	 * @throws	IllegalArgumentException	if either limit is negative.
+	 * @see	EvaluationBudget
+	 */
+	public ParallelShufflingHeterogeneousCoevolutionaryAlgorithm<G,H> setDeadlineParams(long maxNanos, long maxEvents) {
+		if (!initialised) {
+			budget = new EvaluationBudget(maxNanos,maxEvents);
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Algorithm already initialised");
+		}
+	}
+
 	/**
 	 * Initialise this object for use.
 	 * Can only be used once.
@@ -175,6 +350,13 @@ public class ParallelShufflingHeterogeneousCoevolutionaryAlgorithm<G extends Gen
 	public ParallelShufflingHeterogeneousCoevolutionaryAlgorithm<G,H> initialise() {
 		if (!initialised) {
 			maxPopSize = Math.max(popSize1,popSize2);
+			workerFFs = new ArrayList<>(numWorkers);
+			workerFFs.add(ff);
+			for (int i=1; i<numWorkers; i++) {
+				workerFFs.add(ffFactory.newFitnessFunction());
+			}
+			pool = (numWorkers > 1 ? new ForkJoinPool(numWorkers) : null);
+			sampleCache = (cacheSamples ? new HashMap<PairingKey<G,H>,Double>() : null);
 			initialised = true;
 			return this;
 		}
@@ -199,54 +381,66 @@ public class ParallelShufflingHeterogeneousCoevolutionaryAlgorithm<G extends Gen
 	 * then chromosomes are chosen for survival.
 	 * The algorithm terminates if the maximum generation is reached,
 	 * or less than the required improvement is seen for several generations.
+	 * If a deadline is set,
+	 * the algorithm also terminates once the time or simulation events of the run are used,
+	 * keeping the populations of the last complete generation.
+	 * If samples are cached,
+	 * pairings of genotypes already evaluated in the run reuse their cached fitness.
 	 *
 	 * @return	the best observed chromosome pairing.
 	 * @throws	IllegalStateException if not initialised.
 	 */
 	public ChromosomePairing<G,H> run() {
+		return run(Collections.<G>emptyList(),Collections.<H>emptyList());
+	}
+
+	/**
+	 * Run the coevolutionary algorithm from seeded initial populations and return the best observed pairing of chromosomes.
+	 * The seeds replace the first random chromosomes of each initial population,
+	 * and are evaluated again.
+	 * If any seeds are given,
+	 * the number of generations is limited by the maximum for seeded runs.
+	 *
+	 * @param	seeds1	the genotypes to include in the initial population of the first genotype.
+	 * @param	seeds2	the genotypes to include in the initial population of the second genotype.
+	 * @return	the best observed chromosome pairing.
+	 * @throws	IllegalStateException if not initialised.
+	 * @see	run()
+	 */
+	public ChromosomePairing<G,H> run(List<G> seeds1, List<H> seeds2) {
 		if (initialised) {
+			for (int i=1; i<numWorkers; i++) {
+				ffFactory.synchronise(workerFFs.get(i));
+			}
+			if (sampleCache != null) {
+				sampleCache.clear();
+				cacheVersion = ff.getStateVersion();
+			}
+			numReused = 0;
 			population1 = new ArrayList<>(popSize1);
 			for (int i=0; i<popSize1; i++) {
-				G randGen = gBuilder1.getRandomGenotype(rng);
-				OptimisticChromosome<G> randChrom = new OptimisticChromosome<>(randGen,maximising);
-				randChrom.incrementAge();
-				population1.add(randChrom);
+				G initGen = (i < seeds1.size() ? seeds1.get(i) : gBuilder1.getRandomGenotype(rng));
+				OptimisticChromosome<G> initChrom = new OptimisticChromosome<>(initGen,maximising);
+				initChrom.incrementAge();
+				population1.add(initChrom);
 			}
 			population2 = new ArrayList<>(popSize2);
 			for (int i=0; i<popSize2; i++) {
-				H randGen = gBuilder2.getRandomGenotype(rng);
-				OptimisticChromosome<H> randChrom = new OptimisticChromosome<>(randGen,maximising);
-				randChrom.incrementAge();
-				population2.add(randChrom);
+				H initGen = (i < seeds2.size() ? seeds2.get(i) : gBuilder2.getRandomGenotype(rng));
+				OptimisticChromosome<H> initChrom = new OptimisticChromosome<>(initGen,maximising);
+				initChrom.incrementAge();
+				population2.add(initChrom);
 			}
+			int lastGen = (seeds1.isEmpty() && seeds2.isEmpty() ? maxGen : Math.min(maxGen,maxWarmGen));
 			DoubleList allBestFitnesses = new DoubleList();
 			int gen = 0;
-			ChromosomePairing<G,H> best = null;
-			double bestFitness = (maximising ? 0 : Double.MAX_VALUE);
-			for (int i=0; i<minNumCollaborators; i++) {
-				Collections.shuffle(population1);
-				Collections.shuffle(population2);
-				for (int j=0; j<maxPopSize; j++) {
-					OptimisticChromosome<G> c1 = population1.get((maxPopSize * i + j) % popSize1);
-					OptimisticChromosome<H> c2 = population2.get((maxPopSize * i + j) % popSize2);
-					double fitness = ff.getFitness(c1.getGenotype(),c2.getGenotype());
-					c1.giveFitness(fitness);
-					c2.giveFitness(fitness);
-					if (maximising) {
-						if (fitness > bestFitness) {
-							best = new ChromosomePairing<>(c1,c2);
-							bestFitness = fitness;
-						}
-					}
-					else if (fitness < bestFitness) {
-						best = new ChromosomePairing<>(c1,c2);
-						bestFitness = fitness;
-					}
-				}
-			}
+			best = null;
+			bestFitness = (maximising ? 0 : Double.MAX_VALUE);
+			budget.start();
+			evaluatePairings(population1,population2,gen);
 			allBestFitnesses.add(bestFitness);
 			Debugger.print(String.format("%d-%f-%s\n",gen,bestFitness,best));
-			for (gen=1; gen<maxGen; gen++) {
+			for (gen=1; gen<lastGen && !budget.isExpired(); gen++) {
 				ArrayList<OptimisticChromosome<G>> selectionPool1 = new ArrayList<>();
 				selectorReproduction1.loadPool(population1);
 				ArrayList<G> offspring1 = operator1.performOperation(selectorReproduction1,numOffspring1);
@@ -261,7 +455,6 @@ public class ParallelShufflingHeterogeneousCoevolutionaryAlgorithm<G extends Gen
 						selectionPool1.add(survivor);
 					}
 				}
-				int poolSize1 = selectionPool1.size();
 				ArrayList<OptimisticChromosome<H>> selectionPool2 = new ArrayList<>();
 				selectorReproduction2.loadPool(population2);
 				ArrayList<H> offspring2 = operator2.performOperation(selectorReproduction2,numOffspring2);
@@ -276,28 +469,9 @@ public class ParallelShufflingHeterogeneousCoevolutionaryAlgorithm<G extends Gen
 						selectionPool2.add(survivor);
 					}
 				}
-				int poolSize2 = selectionPool2.size();
-				int maxPoolSize = Math.max(poolSize1,poolSize2);
-				for (int i=0; i<minNumCollaborators; i++) {
-					Collections.shuffle(selectionPool1);
-					Collections.shuffle(selectionPool2);
-					for (int j=0; j<maxPoolSize; j++) {
-						OptimisticChromosome<G> c1 = selectionPool1.get((maxPoolSize * i + j) % poolSize1);
-						OptimisticChromosome<H> c2 = selectionPool2.get((maxPoolSize * i + j) % poolSize2);
-						double fitness = ff.getFitness(c1.getGenotype(),c2.getGenotype());
-						c1.giveFitness(fitness);
-						c2.giveFitness(fitness);
-						if (maximising) {
-							if (fitness > bestFitness) {
-								best = new ChromosomePairing<>(c1,c2);
-								bestFitness = fitness;
-							}
-						}
-						else if (fitness < bestFitness) {
-							best = new ChromosomePairing<>(c1,c2);
-							bestFitness = fitness;
-						}
-					}
+				evaluatePairings(selectionPool1,selectionPool2,gen);
+				if (budget.isExceeded()) {
+					break;
 				}
 				selectorSurvival1.loadPool(selectionPool1);
 				population1.clear();
@@ -320,6 +494,13 @@ public class ParallelShufflingHeterogeneousCoevolutionaryAlgorithm<G extends Gen
 					Debugger.print(String.format("%d-%f-%s\n",gen,bestFitness,best));
 				}
 			}
+			budget.finish();
+			if (budget.isExceeded()) {
+				Debugger.print(String.format("%d-deadline exceeded after %d evaluations\n",gen,budget.getNumEvaluations()));
+			}
+			if (sampleCache != null) {
+				Debugger.print(String.format("%d-reused %d cached samples\n",gen,numReused));
+			}
 			Debugger.print(String.format("%d-%f-%s\n",gen,bestFitness,best));
 			return best;
 		}
@@ -328,6 +509,201 @@ public class ParallelShufflingHeterogeneousCoevolutionaryAlgorithm<G extends Gen
 		}
 	}
 
+	/**
+	 * Pair chromosomes from two pools by parallel shuffling and evaluate the pairings,
+	 * giving the fitness of each pairing to both chromosomes,
+	 * and updating the best observed pairing.
+	 * Every shuffle is performed before evaluation,
+	 * so the pairings do not depend on the number of workers.
+	 * With several workers,
+	 * pairing i is evaluated by worker i modulo the number of workers,
+	 * and the best pairing of the round is the first pairing with the best fitness,
+	 * as if the pairings were evaluated in order.
+	 * Evaluations stop once the budget is used,
+	 * leaving later pairings unevaluated.
+	 * If samples are cached,
+	 * pairings found in the cache before evaluation starts are not evaluated,
+	 * and the evaluated pairings are added to the cache in order afterwards,
+	 * so results also do not depend on thread scheduling when caching.
+	 *
+	 * @param	pool1	the chromosomes of the first genotype.
+	 * @param	pool2	the chromosomes of the second genotype.
+	 * @param	gen		the generation,
+	 *					used as the comparison round.
+	 * @throws	IllegalStateException if an evaluation was interrupted.
+	 */
+	private void evaluatePairings(List<OptimisticChromosome<G>> pool1, List<OptimisticChromosome<H>> pool2, final int gen) {
+		int poolSize1 = pool1.size();
+		int poolSize2 = pool2.size();
+		int maxPoolSize = Math.max(poolSize1,poolSize2);
+		final int numPairings = minNumCollaborators * maxPoolSize;
+		final ArrayList<OptimisticChromosome<G>> pairs1 = new ArrayList<>(numPairings);
+		final ArrayList<OptimisticChromosome<H>> pairs2 = new ArrayList<>(numPairings);
+		for (int i=0; i<minNumCollaborators; i++) {
+			Collections.shuffle(pool1,rng);
+			Collections.shuffle(pool2,rng);
+			for (int j=0; j<maxPoolSize; j++) {
+				pairs1.add(pool1.get((maxPoolSize * i + j) % poolSize1));
+				pairs2.add(pool2.get((maxPoolSize * i + j) % poolSize2));
+			}
+		}
+		final double[] fitnesses = new double[numPairings];
+		final boolean[] known = (sampleCache != null ? new boolean[numPairings] : null);
+		IntList reused = new IntList();
+		if (sampleCache != null) {
+			if (cacheVersion != ff.getStateVersion()) {
+				sampleCache.clear();
+				cacheVersion = ff.getStateVersion();
+			}
+			for (int i=0; i<numPairings; i++) {
+				Double cached = sampleCache.get(new PairingKey<>(pairs1.get(i).getGenotype(),pairs2.get(i).getGenotype()));
+				if (cached != null) {
+					fitnesses[i] = cached;
+					known[i] = true;
+					reused.add(i);
+				}
+			}
+		}
+		int top = -1;
+		if (pool == null) {
+			top = evaluatePairings(ff,pairs1,pairs2,fitnesses,known,gen,0,1);
+		}
+		else {
+			List<Callable<Integer>> tasks = new ArrayList<>(numWorkers);
+			for (int i=0; i<numWorkers; i++) {
+				final CoevolutionaryHeterogeneousFitnessFunction<G,H> wff = workerFFs.get(i);
+				final int worker = i;
+				tasks.add(new Callable<Integer>() {
+					public Integer call() {
+						return evaluatePairings(wff,pairs1,pairs2,fitnesses,known,gen,worker,numWorkers);
+					}
+				});
+			}
+			try {
+				for (Future<Integer> f : pool.invokeAll(tasks)) {
+					int index = f.get();
+					if (index >= 0 && (top < 0 || isBetter(fitnesses[index],fitnesses[top]) || 
+						(fitnesses[index] == fitnesses[top] && index < top))) {
+						top = index;
+					}
+				}
+			}
+			catch (InterruptedException ie) {
+				throw new IllegalStateException("Fitness evaluation interrupted");
+			}
+			catch (ExecutionException ee) {
+				Throwable cause = ee.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				else {
+					throw new IllegalStateException(String.format("Fitness evaluation failed: %s",cause));
+				}
+			}
+		}
+		if (sampleCache != null) {
+			for (int j=0; j<reused.size(); j++) {
+				int index = reused.get(j);
+				pairs1.get(index).giveFitness(fitnesses[index]);
+				pairs2.get(index).giveFitness(fitnesses[index]);
+				if (top < 0 || isBetter(fitnesses[index],fitnesses[top]) || (fitnesses[index] == fitnesses[top] && index < top)) {
+					top = index;
+				}
+			}
+			numReused += reused.size();
+			for (int i=0; i<numPairings; i++) {
+				if (known[i]) {
+					PairingKey<G,H> key = new PairingKey<>(pairs1.get(i).getGenotype(),pairs2.get(i).getGenotype());
+					if (!sampleCache.containsKey(key)) {
+						sampleCache.put(key,fitnesses[i]);
+					}
+				}
+			}
+		}
+		if (top >= 0 && isBetter(fitnesses[top],bestFitness)) {
+			best = new ChromosomePairing<>(pairs1.get(top),pairs2.get(top));
+			bestFitness = fitnesses[top];
+		}
+	}
+
+	/**
+	 * Evaluate every stride-th pairing from a starting index,
+	 * giving the fitness of each pairing to both chromosomes,
+	 * until the budget is used.
+	 * Pairings with known fitness are skipped,
+	 * and evaluated pairings are marked as known.
+	 *
+	 * @param	wff			the fitness function to use.
+	 * @param	pairs1		the first chromosome of each pairing.
+	 * @param	pairs2		the second chromosome of each pairing.
+	 * @param	fitnesses	the array to store the fitness of each pairing.
+	 * @param	known		whether the fitness of each pairing is known,
+	 *						null if samples are not cached.
+	 * @param	gen			the generation.
+	 * @param	start		the first pairing index.
+	 * @param	stride		the distance between evaluated pairing indexes.
+	 * @return	the index of the first evaluated pairing with the best fitness,
+	 *			-1 if none were evaluated.
+	 */
+	private int evaluatePairings(CoevolutionaryHeterogeneousFitnessFunction<G,H> wff, List<OptimisticChromosome<G>> pairs1, 
+		List<OptimisticChromosome<H>> pairs2, double[] fitnesses, boolean[] known, int gen, int start, int stride) {
+		int top = -1;
+		for (int i=start; i<fitnesses.length && !budget.isExpired(); i+=stride) {
+			if (known != null && known[i]) {
+				continue;
+			}
+			OptimisticChromosome<G> c1 = pairs1.get(i);
+			OptimisticChromosome<H> c2 = pairs2.get(i);
+			wff.setScenario(gen,0);
+			long events = wff.getNumEvents();
+			double fitness = wff.getFitness(c1.getGenotype(),c2.getGenotype());
+			budget.record(wff.getNumEvents() - events);
+			c1.giveFitness(fitness);
+			c2.giveFitness(fitness);
+			fitnesses[i] = fitness;
+			if (known != null) {
+				known[i] = true;
+			}
+			if (top < 0 || isBetter(fitness,fitnesses[top])) {
+				top = i;
+			}
+		}
+		return top;
+	}
+
+	/**
+	 * Get whether a fitness is strictly better than another.
+	 *
+	 * @param	f	the fitness.
+	 * @param	g	the fitness to compare to.
+	 * @return	true if f is better than g,
+	 *			false otherwise.
+	 */
+	private boolean isBetter(double f, double g) {
+		return (maximising ? f > g : f < g);
+	}
+
+	/**
+	 * Get the number of cached samples reused by repeated pairings in the last run of the CEA.
+	 *
+	 * @return	the number of reused samples,
+	 *			0 if samples are not cached.
+	 */
+	public int getNumReusedSamples() {
+		return numReused;
+	}
+
+	/**
+	 * Get the budget of each run,
+	 * which also holds the time and simulation events used by the last run,
+	 * and the number of runs that exceeded it.
+	 *
+	 * @return	the evaluation budget.
+	 */
+	public EvaluationBudget getBudget() {
+		return budget;
+	}
+
 	/**
 	 * Get the population of the first genotype of the final generation of the last run of the CEA.
 	 * 
@@ -3,18 +3,31 @@ package mines.ea.alg;
 import mines.ea.gene.Genotype;
 import mines.ea.gene.build.GenotypeBuilder;
 import mines.ea.fitness.FitnessFunction;
+import mines.ea.fitness.FitnessFunctionFactory;
 import mines.ea.op.selection.SelectionOperator;
+import mines.ea.op.selection.RankedSurvivalOperator;
 import mines.ea.chrom.*;
 import mines.ea.op.gene.GeneticOperator;
+import mines.ea.op.gene.AdaptiveOperator;
 import mines.util.DoubleList;
+import mines.util.DoubleQueue;
+import mines.util.IntList;
+import mines.util.StudentT;
+import mines.util.RandomStream;
 import mines.system.Debugger;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * An evolutionary algorithm for stochastic fitness functions.
  * Fitness is maintained as a rolling average,
  * by continuously adding fitness evaluations to a fitness bucket,
  * and removing old values from the bucket.
+ * The population is held in a population store created by the genotype builder,
+ * which keeps genes, fitness buckets and ages in primitive arrays,
+ * and sorts and truncates the population as a permutation of slots.
+ * Chromosome views of the store are given to the selection and genetic operators,
+ * and the genotypes they use are released at the end of each run.
  */
 public class RollingEvolutionaryAlgorithm<G extends Genotype> implements EvolutionaryAlgorithm<G> {
 
@@ -26,6 +39,7 @@ public class RollingEvolutionaryAlgorithm<G extends Genotype> implements Evoluti
 	private int resampleRate;		//number of generations between reevaluations.
 	private int resampleSize;		//number of evaluations per reevaluation period.
 	private int maxGen;				//maximum number of generations.
+	private int maxWarmGen;			//maximum number of generations of seeded runs.
 	private int conCutoff;			//number of generations allowed without required improvement.
 	private double improvement;		//required improvement.
 	private double elitism;			//portion of best chromosomes guaranteed to survive.
@@ -36,12 +50,38 @@ public class RollingEvolutionaryAlgorithm<G extends Genotype> implements Evoluti
 	private SelectionOperator<G,RollingChromosome<G>> selectorReproduction;	//selection operator for reproduction.
 	private SelectionOperator<G,RollingChromosome<G>> selectorSurvival;		//selection operator for survival.
 	private GeneticOperator<G> operator;									//mutation and crossover operator.
+	private AdaptiveOperator<G> adaptiveOperator;							//the operator if it is adaptive, null otherwise.
 
-	private Random rng;						//RNG.
-	private Comparator<Chromosome> comp;	//fitness comparison.
-	private boolean maximising;				//whether fitness is maximising or not.
+	private Random rng;				//RNG.
+	private boolean maximising;		//whether fitness is maximising or not.
+	private boolean truncating;		//whether survival selection keeps the best of the selection pool.
 
-	private ArrayList<RollingChromosome<G>> population;	//current population.
+	private PopulationStore<G> store;	//the current population, sorted from best to worst between generations.
+
+	/*
+	 * Parallel evaluation variables.
+	 */
+	private int numWorkers;								//number of threads used for fitness evaluation.
+	private FitnessFunctionFactory<G> ffFactory;		//factory for the fitness functions of additional workers.
+	private ArrayList<FitnessFunction<G>> workerFFs;	//the fitness function of each worker, starting with ff.
+	private ForkJoinPool pool;							//the threads used for fitness evaluation, null if serial.
+
+	/*
+	 * Racing variables.
+	 */
+	private int raceMinSamples;			//number of samples before offspring can be eliminated, 0 if not racing.
+	private IntList savedEvaluations;	//number of evaluations saved by racing in each generation of the last run.
+
+	/*
+	 * Sample caching variables.
+	 */
+	private boolean cacheSamples;				//whether new chromosomes reuse the samples of genotypes already evaluated in the run.
+	private HashMap<G,DoubleQueue> sampleCache;	//the latest samples of each genotype evaluated in the current run.
+	private int cacheVersion;					//the state version of the fitness function the cached samples were taken from.
+	private int numReused;						//number of cached samples reused in the last run.
+
+	private EvaluationBudget budget;	//the time and simulation event limits of each run.
+	private Migration<G> migration;		//the exchange of chromosomes with other populations, null if none.
 
 	private boolean initialised;	//whether this algorithm has been initialised yet.
 
@@ -56,6 +96,7 @@ public class RollingEvolutionaryAlgorithm<G extends Genotype> implements Evoluti
 	 * @param	selectorSurvival		the selection operator for survival.
 	 * @param	operator				the mutation and crossover operator.
 	 */
+	@SuppressWarnings("unchecked")
 	public RollingEvolutionaryAlgorithm(GenotypeBuilder<G> gBuilder, FitnessFunction<G> ff, 
 		SelectionOperator<G,RollingChromosome<G>> selectorReproduction, SelectionOperator<G,RollingChromosome<G>> selectorSurvival, 
 		GeneticOperator<G> operator) {
@@ -64,15 +105,12 @@ public class RollingEvolutionaryAlgorithm<G extends Genotype> implements Evoluti
 		this.selectorReproduction = selectorReproduction;
 		this.selectorSurvival = selectorSurvival;
 		this.operator = operator;
+		adaptiveOperator = (operator instanceof AdaptiveOperator ? (AdaptiveOperator<G>) operator : null);
 
-		rng = new Random();
+		rng = new RandomStream();
 		maximising = ff.isMaximising();
-		comp = new Comparator<Chromosome>() {
-			public int compare(Chromosome c1, Chromosome c2) {
-				int diff = (maximising ? -1 : 1) * c1.compareTo(c2);
-				return (diff == 0 ? (c2.getAge() - c1.getAge()) : diff);
-			}
-		};
+		truncating = (selectorSurvival instanceof RankedSurvivalOperator &&
+			((RankedSurvivalOperator<G,RollingChromosome<G>>) selectorSurvival).isMaximising() == maximising);
 
 		popSize = 100;
 		numOffspring = 100;
@@ -80,10 +118,17 @@ public class RollingEvolutionaryAlgorithm<G extends Genotype> implements Evoluti
 		resampleRate = 0;
 		resampleSize = 0;
 		maxGen = 999;
+		maxWarmGen = Integer.MAX_VALUE;
 		conCutoff = 99;
 		improvement = 0.0;
 		elitism = 0.0;
 		allowSurvivors = false;
+		numWorkers = 1;
+		ffFactory = null;
+		raceMinSamples = 0;
+		cacheSamples = false;
+		budget = new EvaluationBudget(0,0);
+		migration = null;
 
 		initialised = false;
 	}
@@ -148,6 +193,158 @@ public class RollingEvolutionaryAlgorithm<G extends Genotype> implements Evoluti
 		}
 	}
 
+	/**
+	 * Set the maximum number of generations of seeded runs,
+	 * which usually start close to convergence.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	maxWarmGen	the maximum number of generations when seeded.
+	 * @return	this object.
+	 * @throws	IllegalStateException		if already initialised.
+	 * @throws	IllegalArgumentException	if maxWarmGen is non-positive.
+	 */
+	public RollingEvolutionaryAlgorithm<G> setWarmStartParams(int maxWarmGen) {
+		if (!initialised) {
+			if (maxWarmGen <= 0) {
+				throw new IllegalArgumentException(String.format("Positive number of generations required: %d",maxWarmGen));
+			}
+			this.maxWarmGen = maxWarmGen;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Algorithm already initialised");
+		}
+	}
+
+	/**
+	 * Set the parameters for evaluating new chromosomes on several threads.
+	 * Each worker evaluates fitness with its own copy of the fitness function,
+	 * brought up to date by the factory at the start of each run.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	ffFactory	the factory for fitness functions of additional workers.
+	 * @param	numWorkers	the number of worker threads.
+	 * @return	this object.
+	 * @throws	IllegalStateException		if already initialised.
+	 * @throws	IllegalArgumentException	if a non-positive number of workers is given.
+	 */
+	public RollingEvolutionaryAlgorithm<G> setParallelParams(FitnessFunctionFactory<G> ffFactory, int numWorkers) {
+		if (!initialised) {
+			if (numWorkers <= 0) {
+				throw new IllegalArgumentException(String.format("Positive number of workers required: %d",numWorkers));
+			}
+			this.ffFactory = ffFactory;
+			this.numWorkers = numWorkers;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Algorithm already initialised");
+		}
+	}
+
+	/**
+	 * Set the racing parameters.
+	 * When racing,
+	 * offspring are sampled one scenario at a time after the minimum number of samples,
+	 * and stop being sampled once a one-sided Welch t-test at the 97.5% level shows them to be worse
+	 * than the chromosome on the survival boundary of the current population.
+	 * Eliminated offspring remain in the selection pool with partially filled buckets.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	minSamples	the number of samples before offspring can be eliminated,
+	 *						0 to fill every fitness bucket.
+	 * @return	this object.
+	 * @throws	IllegalStateException		if already initialised.
+	 * @throws	IllegalArgumentException	if minSamples is negative or 1.
+	 */
+	public RollingEvolutionaryAlgorithm<G> setRacingParams(int minSamples) {
+		if (!initialised) {
+			if (minSamples < 0 || minSamples == 1) {
+				throw new IllegalArgumentException(String.format("At least two samples required before racing: %d",minSamples));
+			}
+			raceMinSamples = minSamples;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Algorithm already initialised");
+		}
+	}
+
+	/**
+	 * Set whether fitness samples are cached within each run.
+	 * When caching,
+	 * the latest samples of each genotype,
+	 * up to the bucket size,
+	 * are kept until the end of the run,
+	 * and a new chromosome for a genotype already evaluated starts with its cached samples,
+	 * only being evaluated for the rest of its bucket.
+	 * This saves evaluations of offspring that duplicate earlier chromosomes,
+	 * at the cost of reusing samples from earlier rounds.
+	 * The cache is emptied whenever the state version of the fitness function changes.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	cacheSamples	whether to cache fitness samples.
+	 * @return	this object.
+	 * @throws	IllegalStateException	if already initialised.
+	 * @see	FitnessFunction#getStateVersion()
+	 */
+	public RollingEvolutionaryAlgorithm<G> setCacheParams(boolean cacheSamples) {
+		if (!initialised) {
+			this.cacheSamples = cacheSamples;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Algorithm already initialised");
+		}
+	}
+
+	/**
+	 * Set the deadline parameters for anytime operation.
+	 * The limits are checked between evaluations,
+	 * and once either is reached the run stops and returns the best chromosome of the last complete generation.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	maxNanos	the maximum wall-clock time of each run in nanoseconds,
+	 *						0 if unlimited.
+	 * @param	maxEvents	the maximum number of simulation events of each run,
+	 *						0 if unlimited.
+	 * @return	this object.
+	 * @throws	IllegalStateException		if already initialised.
+	 * @throws	IllegalArgumentException	if either limit is negative.
+	 * @see	EvaluationBudget
+	 */
+	public RollingEvolutionaryAlgorithm<G> setDeadlineParams(long maxNanos, long maxEvents) {
+		if (!initialised) {
+			budget = new EvaluationBudget(maxNanos,maxEvents);
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Algorithm already initialised");
+		}
+	}
+
+	/**
+	 * Set the exchange of chromosomes with other populations,
+	 * which is offered the sorted population at the end of each generation,
+	 * e.g. by an island model.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	migration	the migration,
+	 *						null for none.
+	 * @return	this object.
+	 * @throws	IllegalStateException	if already initialised.
+	 * @see	IslandEvolutionaryAlgorithm
+	 */
+	public RollingEvolutionaryAlgorithm<G> setMigration(Migration<G> migration) {
+		if (!initialised) {
+			this.migration = migration;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Algorithm already initialised");
+		}
+	}
+
 	/**
 	 * Set the termination parameters with improvement of 0.
 	 * Can only be used before initialisation.
@@ -193,7 +390,14 @@ public class RollingEvolutionaryAlgorithm<G extends Genotype> implements Evoluti
 	 */
 	public RollingEvolutionaryAlgorithm<G> initialise() {
 		if (!initialised) {
-			population = null;
+			store = gBuilder.newPopulationStore(popSize + numOffspring,bucketSize,maximising);
+			workerFFs = new ArrayList<>(numWorkers);
+			workerFFs.add(ff);
+			for (int i=1; i<numWorkers; i++) {
+				workerFFs.add(ffFactory.newFitnessFunction());
+			}
+			pool = (numWorkers > 1 ? new ForkJoinPool(numWorkers) : null);
+			sampleCache = (cacheSamples ? new HashMap<G,DoubleQueue>() : null);
 			initialised = true;
 			return this;
 		}
@@ -212,75 +416,145 @@ public class RollingEvolutionaryAlgorithm<G extends Genotype> implements Evoluti
 	 * produce offspring by the genetic operator,
 	 * and create a new population by selection and elitism.
 	 * New chromosomes have their fitness buckets filled,
+	 * or raced against the survival boundary when racing,
 	 * and surviving chromosomes receive new evaluations every resampling period.
 	 * The algorithm terminates if the maximum generation is reached,
 	 * or less than the required improvement is seen for several generations.
+	 * If a deadline is set,
+	 * the algorithm also terminates once the time or simulation events of the run are used,
+	 * discarding the incomplete generation.
+	 * If the initial population is incomplete,
+	 * chromosomes without any evaluations are discarded.
+	 * If samples are cached,
+	 * new chromosomes start with the samples cached for their genotype in the run.
+	 * If a migration is set,
+	 * it can replace members of each new population before the best chromosome is found.
+	 * If the genetic operator is adaptive,
+	 * it is given the evaluated offspring of each generation as feedback.
 	 *
 	 * @return	the best chromosome.
 	 * @throws	IllegalStateException if not initialised.
 	 */
 	public RollingChromosome<G> run() {
+		return run(Collections.<G>emptyList());
+	}
+
+	/**
+	 * Run the evolutionary algorithm from a seeded initial population and return the best chromosome.
+	 * The seeds replace the first random chromosomes of the initial population,
+	 * and receive new fitness buckets.
+	 * If any seeds are given,
+	 * the number of generations is limited by the maximum for seeded runs.
+	 *
+	 * @param	seeds	the genotypes to include in the initial population.
+	 * @return	the best chromosome.
+	 * @throws	IllegalStateException if not initialised.
+	 * @see	run()
+	 */
+	public RollingChromosome<G> run(List<G> seeds) {
 		if (initialised) {
-			population = new ArrayList<>(popSize);
+			for (int i=1; i<numWorkers; i++) {
+				ffFactory.synchronise(workerFFs.get(i));
+			}
+			if (sampleCache != null) {
+				sampleCache.clear();
+				cacheVersion = ff.getStateVersion();
+			}
+			numReused = 0;
+			store.clear();
 			for (int i=0; i<popSize; i++) {
-				G randGen = gBuilder.getRandomGenotype(rng);
-				RollingChromosome<G> randChrom = new RollingChromosome<>(randGen,bucketSize);
-				for (int j=0; j<bucketSize; j++) {
-					randChrom.giveFitness(ff.getFitness(randGen));
+				G initGen = (i < seeds.size() ? seeds.get(i) : gBuilder.getRandomGenotype(rng));
+				newChromosome(initGen);
+			}
+			savedEvaluations = new IntList();
+			budget.start();
+			int[] initial = store.getSlots(0,store.size());
+			sample(initial,initial.length,0,0,bucketSize);
+			int numSampled = 0;
+			for (int slot : initial) {
+				if (store.getNumSamples(slot) > 0) {
+					store.incrementAge(slot);
+					initial[numSampled] = slot;
+					numSampled++;
 				}
-				randChrom.incrementAge();
-				population.add(randChrom);
 			}
-			Collections.sort(population,comp);
+			store.retain(0,initial,numSampled);
+			int lastGen = (seeds.isEmpty() ? maxGen : Math.min(maxGen,maxWarmGen));
+			store.sort();
 			DoubleList allBestFitnesses = new DoubleList();
-			RollingChromosome<G> best = population.get(0);
-			double allGensBestFitness = best.getFitness();
+			double allGensBestFitness = store.getFitness(store.getSlot(0));
 			allBestFitnesses.add(allGensBestFitness);
 			int gen = 0;
-			Debugger.print(String.format("%d-%s\n",gen,best));
-			for (gen=1; gen<=maxGen; gen++) {
-				ArrayList<RollingChromosome<G>> nextPopulation = new ArrayList<>(popSize);
-				int currentPopSize = population.size();
+			Debugger.print(String.format("%d-%s\n",gen,store.getView(store.getSlot(0))));
+			for (gen=1; gen<=lastGen && !budget.isExpired(); gen++) {
+				int currentPopSize = store.size();
 				int survive = Math.max(1,(int) (elitism * currentPopSize));
 				for (int i=0; i<survive; i++) {
-					RollingChromosome<G> add = population.get(i);
-					if (resampleRate > 0 && add.getAge() % resampleRate == 0) {
-						for (int j=0; j<resampleSize; j++) {
-							add.giveFitness(ff.getFitness(add.getGenotype()));
-						}
+					int slot = store.getSlot(i);
+					if (resampleRate > 0 && store.getAge(slot) % resampleRate == 0) {
+						resample(slot,gen);
 					}
-					add.incrementAge();
-					nextPopulation.add(add);
+					store.incrementAge(slot);
 				}
-				selectorReproduction.loadPool(population);
+				selectorReproduction.loadPool(store.getViews(0,currentPopSize));
 				ArrayList<G> offspring = operator.performOperation(selectorReproduction,numOffspring);
-				ArrayList<RollingChromosome<G>> selectionPool = new ArrayList<>();
-				for (G g : offspring) {
-					RollingChromosome<G> rc = new RollingChromosome<>(g,bucketSize);
-					for (int i=0; i<bucketSize; i++) {
-						rc.giveFitness(ff.getFitness(g));
-					}
-					rc.incrementAge();
-					selectionPool.add(rc);
+				int[] children = new int[offspring.size()];
+				for (int i=0; i<children.length; i++) {
+					children[i] = newChromosome(offspring.get(i));
+				}
+				int saved = 0;
+				if (raceMinSamples > 0) {
+					saved = race(children,gen,store.getSlot(Math.min(popSize,currentPopSize) - 1));
+				}
+				else {
+					sample(children,children.length,gen,0,bucketSize);
+				}
+				if (budget.isExceeded()) {
+					store.truncate(currentPopSize);
+					store.sort();
+					break;
 				}
+				savedEvaluations.add(saved);
+				if (adaptiveOperator != null) {
+					adaptiveOperator.giveFeedback(store.getViews(currentPopSize,store.size()));
+				}
+				for (int slot : children) {
+					store.incrementAge(slot);
+				}
+				int[] selectionPool = Arrays.copyOf(children,children.length + (allowSurvivors ? currentPopSize - survive : 0));
 				if (allowSurvivors) {
 					for (int i=survive; i<currentPopSize; i++) {
-						RollingChromosome<G> survivor = population.get(i);
-						if (resampleRate > 0 && survivor.getAge() % resampleRate == 0) {
-							for (int j=0; j<resampleSize; j++) {
-								survivor.giveFitness(ff.getFitness(survivor.getGenotype()));
-							}
+						int survivor = store.getSlot(i);
+						if (resampleRate > 0 && store.getAge(survivor) % resampleRate == 0) {
+							resample(survivor,gen);
 						}
-						survivor.incrementAge();
-						selectionPool.add(survivor);
+						store.incrementAge(survivor);
+						selectionPool[children.length + i - survive] = survivor;
+					}
+				}
+				store.retain(survive,selectionPool,selectionPool.length);
+				if (truncating) {
+					store.sort(survive,store.size());
+					store.truncate(popSize);
+				}
+				else {
+					selectorSurvival.loadPool(store.getViews(survive,store.size()));
+					List<RollingChromosome<G>> selected = selectorSurvival.performSurvivalSelection(popSize - survive);
+					int[] survivors = new int[selected.size()];
+					for (int i=0; i<survivors.length; i++) {
+						survivors[i] = ((StoredChromosome<G>) selected.get(i)).getSlot();
 					}
+					store.retain(survive,survivors,survivors.length);
 				}
-				selectorSurvival.loadPool(selectionPool);
-				nextPopulation.addAll(selectorSurvival.performSurvivalSelection(popSize - survive));
-				population = nextPopulation;
-				Collections.sort(population,comp);
-				best = population.get(0);
-				double currentBestFitness = best.getFitness();
+				store.sort();
+				if (migration != null) {
+					ArrayList<RollingChromosome<G>> population = store.getViews(0,store.size());
+					if (migration.migrate(gen,population)) {
+						store.setPopulation(population);
+						store.sort();
+					}
+				}
+				double currentBestFitness = store.getFitness(store.getSlot(0));
 				if ((maximising && currentBestFitness > allGensBestFitness) || (!maximising && currentBestFitness < allGensBestFitness)) {
 					allGensBestFitness = currentBestFitness;
 				}
@@ -296,9 +570,24 @@ public class RollingEvolutionaryAlgorithm<G extends Genotype> implements Evoluti
 					}
 				}
 				if (gen % DEBUG_INTERVAL == 0) {
-					Debugger.print(String.format("%d(%f)-%s\n",gen,allGensBestFitness,best));
+					Debugger.print(String.format("%d(%f)-%s\n",gen,allGensBestFitness,store.getView(store.getSlot(0))));
+					if (raceMinSamples > 0) {
+						Debugger.print(String.format("%d-saved %d evaluations\n",gen,saved));
+					}
+					if (adaptiveOperator != null) {
+						Debugger.print(String.format("%d-credit %s\n",gen,adaptiveOperator.getCreditSummary()));
+					}
 				}
 			}
+			budget.finish();
+			if (budget.isExceeded()) {
+				Debugger.print(String.format("%d-deadline exceeded after %d evaluations\n",gen,budget.getNumEvaluations()));
+			}
+			if (sampleCache != null) {
+				Debugger.print(String.format("%d-reused %d cached samples\n",gen,numReused));
+			}
+			RollingChromosome<G> best = store.copy(store.getSlot(0));
+			store.releaseGenotypes();
 			Debugger.print(String.format("%d-%s\n",gen,best));
 			return best;
 		}
@@ -307,13 +596,280 @@ public class RollingEvolutionaryAlgorithm<G extends Genotype> implements Evoluti
 		}
 	}
 
+	/**
+	 * Add a chromosome to the end of the population with an empty fitness bucket,
+	 * or with the samples cached for its genotype if samples are cached.
+	 *
+	 * @param	genome	the genotype.
+	 * @return	the slot of the new chromosome.
+	 */
+	private int newChromosome(G genome) {
+		int slot = store.add(genome);
+		if (sampleCache != null) {
+			if (cacheVersion != ff.getStateVersion()) {
+				sampleCache.clear();
+				cacheVersion = ff.getStateVersion();
+			}
+			DoubleQueue cached = sampleCache.get(genome);
+			if (cached != null) {
+				for (int i=0; i<cached.size(); i++) {
+					store.giveFitness(slot,cached.get(i));
+				}
+				numReused += cached.size();
+			}
+		}
+		return slot;
+	}
+
+	/**
+	 * Give a fitness sample to a chromosome,
+	 * and add it to the cached samples of its genotype if samples are cached.
+	 *
+	 * @param	slot	the slot of the chromosome.
+	 * @param	genome	the genotype of the chromosome.
+	 * @param	f		the fitness sample.
+	 */
+	private void giveFitness(int slot, G genome, double f) {
+		store.giveFitness(slot,f);
+		if (sampleCache != null) {
+			DoubleQueue cached = sampleCache.get(genome);
+			if (cached == null) {
+				cached = new DoubleQueue();
+				sampleCache.put(genome,cached);
+			}
+			cached.add(f);
+			if (cached.size() > bucketSize) {
+				cached.poll();
+			}
+		}
+	}
+
+	/**
+	 * Fill the fitness buckets of new chromosomes by racing them against a reference chromosome.
+	 * Each chromosome receives the minimum number of samples,
+	 * then further samples until its bucket is full or it is dominated by the reference.
+	 *
+	 * @param	slots		the slots of the chromosomes to evaluate.
+	 * @param	round		the comparison round.
+	 * @param	reference	the slot of the chromosome to race against.
+	 * @return	the number of evaluations saved by eliminating dominated chromosomes.
+	 * @throws	IllegalStateException if an evaluation was interrupted.
+	 */
+	private int race(int[] slots, int round, int reference) {
+		int first = Math.min(raceMinSamples,bucketSize);
+		sample(slots,slots.length,round,0,first);
+		int refSamples = store.getNumSamples(reference);
+		double refMean = store.getFitness(reference);
+		double refVar = store.getVariance(reference) / refSamples;
+		int[] racing = Arrays.copyOf(slots,slots.length);
+		int numRacing = racing.length;
+		int saved = 0;
+		for (int i=first; i<bucketSize && numRacing > 0 && !budget.isExceeded(); i++) {
+			int numLeft = 0;
+			for (int j=0; j<numRacing; j++) {
+				if (isDominated(racing[j],refMean,refVar,refSamples - 1)) {
+					saved += bucketSize - i;
+				}
+				else {
+					racing[numLeft] = racing[j];
+					numLeft++;
+				}
+			}
+			numRacing = numLeft;
+			sample(racing,numRacing,round,i,i + 1);
+		}
+		return saved;
+	}
+
+	/**
+	 * Get whether a chromosome is worse than a reference by a one-sided Welch t-test at the 97.5% level.
+	 *
+	 * @param	slot	the slot of the chromosome.
+	 * @param	refMean	the mean fitness of the reference.
+	 * @param	refVar	the variance of the mean fitness of the reference.
+	 * @param	refDF	the degrees of freedom of the reference variance.
+	 * @return	true if the chromosome is significantly worse,
+	 *			false otherwise.
+	 */
+	private boolean isDominated(int slot, double refMean, double refVar, int refDF) {
+		double fitness = store.getFitness(slot);
+		double diff = (maximising ? refMean - fitness : fitness - refMean);
+		if (diff <= 0) {
+			return false;
+		}
+		int n = store.getNumSamples(slot);
+		double var = store.getVariance(slot) / n;
+		double se2 = var + refVar;
+		if (se2 == 0) {
+			return true;
+		}
+		double denom = (n > 1 ? var * var / (n - 1) : 0) + (refDF > 0 ? refVar * refVar / refDF : 0);
+		double df = (denom > 0 ? se2 * se2 / denom : Double.POSITIVE_INFINITY);
+		return diff > StudentT.quantile975(Math.max(1,df)) * Math.sqrt(se2);
+	}
+
+	/**
+	 * Give a surviving chromosome new fitness samples,
+	 * until the resampling size or the budget is reached.
+	 *
+	 * @param	slot	the slot of the chromosome to reevaluate.
+	 * @param	round	the comparison round.
+	 */
+	private void resample(int slot, int round) {
+		G genome = store.getGenotype(slot);
+		for (int i=0; i<resampleSize && !budget.isExpired(); i++) {
+			ff.setScenario(round,i);
+			giveFitness(slot,genome,evaluate(ff,genome));
+		}
+	}
+
+	/**
+	 * Evaluate a genotype and record the evaluation against the budget.
+	 *
+	 * @param	wff		the fitness function to use.
+	 * @param	genome	the genotype to evaluate.
+	 * @return	the fitness of the genotype.
+	 */
+	private double evaluate(FitnessFunction<G> wff, G genome) {
+		long events = wff.getNumEvents();
+		double fitness = wff.getFitness(genome);
+		budget.record(wff.getNumEvents() - events);
+		return fitness;
+	}
+
+	/**
+	 * Give new chromosomes a range of fitness samples,
+	 * using scenario i of the round for the ith evaluation of each chromosome.
+	 * Chromosomes already holding i samples,
+	 * from the sample cache,
+	 * skip the evaluation of scenario i.
+	 * With several workers,
+	 * chromosome i is evaluated by worker i modulo the number of workers,
+	 * and evaluations are given to chromosomes in order once all are complete,
+	 * so results do not depend on thread scheduling.
+	 * Evaluations stop once the budget is used,
+	 * leaving later samples missing.
+	 *
+	 * @param	slots		the slots of the chromosomes to evaluate.
+	 * @param	numSlots	the number of slots to evaluate.
+	 * @param	round		the comparison round.
+	 * @param	from		the first scenario, inclusive.
+	 * @param	to			the last scenario, exclusive.
+	 * @throws	IllegalStateException if an evaluation was interrupted.
+	 */
+	private void sample(final int[] slots, int numSlots, final int round, final int from, final int to) {
+		final ArrayList<G> genomes = new ArrayList<>(numSlots);
+		for (int i=0; i<numSlots; i++) {
+			genomes.add(store.getGenotype(slots[i]));
+		}
+		if (pool == null) {
+			for (int i=0; i<numSlots; i++) {
+				for (int j=Math.max(from,store.getNumSamples(slots[i])); j<to; j++) {
+					if (budget.isExpired()) {
+						return;
+					}
+					ff.setScenario(round,j);
+					giveFitness(slots[i],genomes.get(i),evaluate(ff,genomes.get(i)));
+				}
+			}
+			return;
+		}
+		final double[][] samples = new double[numSlots][to - from];
+		final int[] numSamples = new int[samples.length];
+		final int[] start = new int[samples.length];
+		for (int i=0; i<samples.length; i++) {
+			start[i] = Math.max(from,store.getNumSamples(slots[i]));
+		}
+		List<Callable<Void>> tasks = new ArrayList<>(numWorkers);
+		for (int i=0; i<numWorkers; i++) {
+			final FitnessFunction<G> wff = workerFFs.get(i);
+			final int worker = i;
+			tasks.add(new Callable<Void>() {
+				public Void call() {
+					for (int j=worker; j<samples.length; j+=numWorkers) {
+						for (int k=start[j]; k<to; k++) {
+							if (budget.isExpired()) {
+								return null;
+							}
+							wff.setScenario(round,k);
+							samples[j][numSamples[j]] = evaluate(wff,genomes.get(j));
+							numSamples[j]++;
+						}
+					}
+					return null;
+				}
+			});
+		}
+		try {
+			for (Future<Void> f : pool.invokeAll(tasks)) {
+				f.get();
+			}
+		}
+		catch (InterruptedException ie) {
+			throw new IllegalStateException("Fitness evaluation interrupted");
+		}
+		catch (ExecutionException ee) {
+			Throwable cause = ee.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			else {
+				throw new IllegalStateException(String.format("Fitness evaluation failed: %s",cause));
+			}
+		}
+		for (int i=0; i<samples.length; i++) {
+			for (int j=0; j<numSamples[i]; j++) {
+				giveFitness(slots[i],genomes.get(i),samples[i][j]);
+			}
+		}
+	}
+
+	/**
+	 * Get the number of evaluations saved by racing in each generation of the last run of the EA.
+	 *
+	 * @return	an array of saved evaluations,
+	 *			where index i is generation i + 1.
+	 */
+	public int[] getSavedEvaluations() {
+		int[] saved = new int[savedEvaluations.size()];
+		for (int i=0; i<saved.length; i++) {
+			saved[i] = savedEvaluations.get(i);
+		}
+		return saved;
+	}
+
+	/**
+	 * Get the number of cached samples reused by new chromosomes in the last run of the EA.
+	 *
+	 * @return	the number of reused samples,
+	 *			0 if samples are not cached.
+	 */
+	public int getNumReusedSamples() {
+		return numReused;
+	}
+
+	/**
+	 * Get the budget of each run,
+	 * which also holds the time and simulation events used by the last run,
+	 * and the number of runs that exceeded it.
+	 *
+	 * @return	the evaluation budget.
+	 */
+	public EvaluationBudget getBudget() {
+		return budget;
+	}
+
 	/**
 	 * Get the population of the final generation of the last run of the EA.
 	 * 
 	 * @return	a list of chromosomes from the final population.
 	 */
 	public ArrayList<Chromosome<G>> getPopulation() {
-		return new ArrayList<>(population);
+		ArrayList<Chromosome<G>> population = new ArrayList<>(store.size());
+		for (int i=0; i<store.size(); i++) {
+			population.add(store.copy(store.getSlot(i)));
+		}
+		return population;
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,638 @@
+package mines.ea.alg;
+
+import mines.ea.gene.Genotype;
+import mines.ea.gene.build.GenotypeBuilder;
+import mines.ea.fitness.FitnessFunction;
+import mines.ea.fitness.FitnessFunctionFactory;
+import mines.ea.op.selection.SelectionOperator;
+import mines.ea.chrom.*;
+import mines.ea.op.gene.GeneticOperator;
+import mines.util.DoubleList;
+import mines.util.RandomStream;
+import mines.system.Debugger;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.*;
+
+/**
+ * An asynchronous steady-state evolutionary algorithm for stochastic fitness functions.
+ * Each worker repeatedly takes the next offspring,
+ * fills its fitness bucket with its own copy of the fitness function,
+ * and inserts it into the population in place of the worst chromosome,
+ * without waiting for the other workers,
+ * so slow evaluations do not leave other workers idle.
+ * Breeding and the population are guarded by separate locks,
+ * each held only briefly between evaluations.
+ * As offspring are bred from the population as it stands when they are taken,
+ * results with several workers depend on thread scheduling and are not reproducible.
+ */
+public class SteadyStateEvolutionaryAlgorithm<G extends Genotype> implements EvolutionaryAlgorithm<G> {
+
+	private static final int DEBUG_INTERVAL = 10;	//the period between debugging messages.
+	private static final int MIN_PARENTS = 3;		//the most parents used by a genetic operator for one offspring.
+
+	private int popSize;			//population size.
+	private int bucketSize;			//size of fitness bucket.
+	private int maxGen;				//maximum number of generations.
+	private int maxWarmGen;			//maximum number of generations of seeded runs.
+	private int conCutoff;			//number of generations allowed without required improvement.
+	private double improvement;		//required improvement.
+
+	private GenotypeBuilder<G> gBuilder;									//random genotype generator.
+	private FitnessFunction<G> ff;											//fitness function.
+	private SelectionOperator<G,RollingChromosome<G>> selectorReproduction;	//selection operator for reproduction.
+	private GeneticOperator<G> operator;									//mutation and crossover operator.
+
+	private Random rng;								//RNG.
+	private Comparator<RollingChromosome<G>> comp;	//fitness comparison.
+	private boolean maximising;						//whether fitness is maximising or not.
+
+	/*
+	 * Worker variables.
+	 */
+	private int numWorkers;								//number of threads evaluating offspring.
+	private FitnessFunctionFactory<G> ffFactory;		//factory for the fitness functions of additional workers.
+	private ArrayList<FitnessFunction<G>> workerFFs;	//the fitness function of each worker, starting with ff.
+	private ForkJoinPool pool;							//the worker threads, null if serial.
+
+	/*
+	 * Breeding variables, guarded by the breeding lock.
+	 */
+	private ReentrantLock breedLock;		//lock for the reproduction operators and the queues of genotypes.
+	private ArrayDeque<G> initialQueue;		//the initial genotypes not yet taken by a worker.
+	private ArrayDeque<G> offspringQueue;	//the bred genotypes not yet taken by a worker.
+	private int numBorn;					//number of offspring taken by workers in the current run.
+	private int maxBorn;					//maximum number of offspring in the current run.
+
+	/*
+	 * Population variables, guarded by the population lock.
+	 */
+	private ReentrantLock populationLock;				//lock for the population.
+	private Condition populated;						//signalled whenever a chromosome is inserted or a worker stops.
+	private ArrayList<RollingChromosome<G>> population;	//current population, sorted from best to worst.
+	private int numInitialPending;						//number of initial chromosomes not yet inserted or discarded.
+	private int numInserted;							//number of offspring inserted in the current run.
+	private DoubleList allBestFitnesses;				//the best fitness after the initial population and each generation.
+
+	private volatile boolean stopped;	//whether the current run has converged or a worker has failed.
+	private AtomicLong busyNanos;		//the wall-clock time spent evaluating by all workers in the last run.
+	private EvaluationBudget budget;	//the time and simulation event limits of each run.
+
+	private boolean initialised;	//whether this algorithm has been initialised yet.
+
+	/**
+	 * Constructor to set fundamental variables.
+	 * Some variables are set to default values and can be altered by other methods before initialisation.
+	 * Instances of this class cannot be used until initialisation.
+	 *
+	 * @param	gBuilder				the random genotype generator.
+	 * @param	ff						the fitness function.
+	 * @param	selectorReproduction	the selection operator for reproduction.
+	 * @param	operator				the mutation and crossover operator.
+	 */
+	public SteadyStateEvolutionaryAlgorithm(GenotypeBuilder<G> gBuilder, FitnessFunction<G> ff,
+		SelectionOperator<G,RollingChromosome<G>> selectorReproduction, GeneticOperator<G> operator) {
+		this.gBuilder = gBuilder;
+		this.ff = ff;
+		this.selectorReproduction = selectorReproduction;
+		this.operator = operator;
+
+		rng = new RandomStream();
+		maximising = ff.isMaximising();
+		comp = new Comparator<RollingChromosome<G>>() {
+			public int compare(RollingChromosome<G> c1, RollingChromosome<G> c2) {
+				int diff = (maximising ? -1 : 1) * c1.compareTo(c2);
+				return (diff == 0 ? (c2.getAge() - c1.getAge()) : diff);
+			}
+		};
+
+		popSize = 100;
+		bucketSize = 1;
+		maxGen = 999;
+		maxWarmGen = Integer.MAX_VALUE;
+		conCutoff = 99;
+		improvement = 0.0;
+		numWorkers = 1;
+		ffFactory = null;
+		budget = new EvaluationBudget(0,0);
+		busyNanos = new AtomicLong();
+
+		initialised = false;
+	}
+
+	/**
+	 * Set the population size.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	popSize	the population size.
+	 * @return	this object.
+	 * @throws	IllegalStateException		if already initialised.
+	 * @throws	IllegalArgumentException	if a non-positive population size is given.
+	 */
+	public SteadyStateEvolutionaryAlgorithm<G> setStrategyParams(int popSize) {
+		if (!initialised) {
+			if (popSize <= 0) {
+				throw new IllegalArgumentException(String.format("Positive population size required: %d",popSize));
+			}
+			this.popSize = popSize;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Algorithm already initialised");
+		}
+	}
+
+	/**
+	 * Set the fitness bucket size,
+	 * the number of samples given to each chromosome before it is inserted.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	bucketSize	the fitness bucket size.
+	 * @return	this object.
+	 * @throws	IllegalStateException		if already initialised.
+	 * @throws	IllegalArgumentException	if non-positive bucket size is given.
+	 */
+	public SteadyStateEvolutionaryAlgorithm<G> setSamplingParams(int bucketSize) {
+		if (!initialised) {
+			if (bucketSize <= 0) {
+				throw new IllegalArgumentException(String.format("Positive fitness bucket size required: %d",bucketSize));
+			}
+			this.bucketSize = bucketSize;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Algorithm already initialised");
+		}
+	}
+
+	/**
+	 * Set the maximum number of generations of seeded runs,
+	 * which usually start close to convergence.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	maxWarmGen	the maximum number of generations when seeded.
+	 * @return	this object.
+	 * @throws	IllegalStateException		if already initialised.
+	 * @throws	IllegalArgumentException	if maxWarmGen is non-positive.
+	 */
+	public SteadyStateEvolutionaryAlgorithm<G> setWarmStartParams(int maxWarmGen) {
+		if (!initialised) {
+			if (maxWarmGen <= 0) {
+				throw new IllegalArgumentException(String.format("Positive number of generations required: %d",maxWarmGen));
+			}
+			this.maxWarmGen = maxWarmGen;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Algorithm already initialised");
+		}
+	}
+
+	/**
+	 * Set the parameters for evaluating offspring on several threads.
+	 * Each worker evaluates fitness with its own copy of the fitness function,
+	 * brought up to date by the factory at the start of each run.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	ffFactory	the factory for fitness functions of additional workers.
+	 * @param	numWorkers	the number of worker threads.
+	 * @return	this object.
+	 * @throws	IllegalStateException		if already initialised.
+	 * @throws	IllegalArgumentException	if a non-positive number of workers is given.
+	 */
+	public SteadyStateEvolutionaryAlgorithm<G> setParallelParams(FitnessFunctionFactory<G> ffFactory, int numWorkers) {
+		if (!initialised) {
+			if (numWorkers <= 0) {
+				throw new IllegalArgumentException(String.format("Positive number of workers required: %d",numWorkers));
+			}
+			this.ffFactory = ffFactory;
+			this.numWorkers = numWorkers;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Algorithm already initialised");
+		}
+	}
+
+	/**
+	 * Set the deadline parameters for anytime operation.
+	 * The limits are checked between evaluations,
+	 * and once either is reached the run stops and returns the best chromosome inserted so far,
+	 * discarding offspring with incomplete fitness buckets.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	maxNanos	the maximum wall-clock time of each run in nanoseconds,
+	 *						0 if unlimited.
+	 * @param	maxEvents	the maximum number of simulation events of each run,
+	 *						0 if unlimited.
+	 * @return	this object.
+	 * @throws	IllegalStateException		if already initialised.
+	 * @throws	IllegalArgumentException	if either limit is negative.
+	 * @see	EvaluationBudget
+	 */
+	public SteadyStateEvolutionaryAlgorithm<G> setDeadlineParams(long maxNanos, long maxEvents) {
+		if (!initialised) {
+			budget = new EvaluationBudget(maxNanos,maxEvents);
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Algorithm already initialised");
+		}
+	}
+
+	/**
+	 * Set the termination parameters with improvement of 0.
+	 * Can only be used before initialisation.
+	 *
+	 * @see	setTerminationParams(int,int,double)
+	 */
+	public SteadyStateEvolutionaryAlgorithm<G> setTerminationParams(int maxGen, int conCutoff) {
+		return setTerminationParams(maxGen,conCutoff,0.0);
+	}
+
+	/**
+	 * Set the termination parameters,
+	 * where a generation is a population size of inserted offspring.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	maxGen		the maximum number of generations.
+	 * @param	conCutoff	the number of generations allowed without required improvement.
+	 * @param	improvement	the required improvement.
+	 * @return	this object.
+	 * @throws	IllegalStateException		if already initialised.
+	 * @throws	IllegalArgumentException	if improvement is negative.
+	 */
+	public SteadyStateEvolutionaryAlgorithm<G> setTerminationParams(int maxGen, int conCutoff, double improvement) {
+		if (!initialised) {
+			this.maxGen = maxGen;
+			this.conCutoff = conCutoff;
+			if (improvement < 0) {
+				throw new IllegalArgumentException(String.format("Non-negative improvement required: %f",improvement));
+			}
+			this.improvement = improvement;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Algorithm already initialised");
+		}
+	}
+
+	/**
+	 * Initialise this object for use.
+	 * Can only be used once.
+	 *
+	 * @return	this object.
+	 * @throws	IllegalStateException if already initialised.
+	 */
+	public SteadyStateEvolutionaryAlgorithm<G> initialise() {
+		if (!initialised) {
+			population = new ArrayList<>(popSize + 1);
+			workerFFs = new ArrayList<>(numWorkers);
+			workerFFs.add(ff);
+			for (int i=1; i<numWorkers; i++) {
+				workerFFs.add(ffFactory.newFitnessFunction());
+			}
+			pool = (numWorkers > 1 ? new ForkJoinPool(numWorkers) : null);
+			breedLock = new ReentrantLock();
+			populationLock = new ReentrantLock();
+			populated = populationLock.newCondition();
+			initialQueue = new ArrayDeque<>();
+			offspringQueue = new ArrayDeque<>();
+			initialised = true;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Algorithm already initialised");
+		}
+	}
+
+	/**
+	 * Run the evolutionary algorithm and return the best chromosome.
+	 * The operation is as follows:
+	 * Each worker first takes chromosomes of the random initial population,
+	 * then offspring produced by the genetic operator from the current population.
+	 * Each chromosome has its fitness bucket filled by the worker that took it,
+	 * using scenario i of its generation for the ith evaluation,
+	 * where offspring belong to the generation they were taken in,
+	 * and the initial population to generation 0.
+	 * It is then inserted into the population,
+	 * and once the population is full the worst chromosome is removed,
+	 * so the best chromosome is never lost.
+	 * Breeding waits only until the population holds enough parents.
+	 * The algorithm terminates once the maximum generation of offspring has been taken,
+	 * or less than the required improvement is seen for several generations.
+	 * If a deadline is set,
+	 * the algorithm also terminates once the time or simulation events of the run are used,
+	 * discarding offspring with incomplete fitness buckets.
+	 * Initial chromosomes without any evaluations are discarded.
+	 *
+	 * @return	the best chromosome.
+	 * @throws	IllegalStateException if not initialised.
+	 */
+	public RollingChromosome<G> run() {
+		return run(Collections.<G>emptyList());
+	}
+
+	/**
+	 * Run the evolutionary algorithm from a seeded initial population and return the best chromosome.
+	 * The seeds replace the first random chromosomes of the initial population,
+	 * and receive new fitness buckets.
+	 * If any seeds are given,
+	 * the number of generations is limited by the maximum for seeded runs.
+	 *
+	 * @param	seeds	the genotypes to include in the initial population.
+	 * @return	the best chromosome.
+	 * @throws	IllegalStateException if not initialised,
+	 *			or if a run was interrupted.
+	 * @see	run()
+	 */
+	public RollingChromosome<G> run(List<G> seeds) {
+		if (initialised) {
+			for (int i=1; i<numWorkers; i++) {
+				ffFactory.synchronise(workerFFs.get(i));
+			}
+			initialQueue.clear();
+			offspringQueue.clear();
+			for (int i=0; i<popSize; i++) {
+				initialQueue.add(i < seeds.size() ? seeds.get(i) : gBuilder.getRandomGenotype(rng));
+			}
+			int lastGen = (seeds.isEmpty() ? maxGen : Math.min(maxGen,maxWarmGen));
+			maxBorn = (int) Math.min(Integer.MAX_VALUE,(long) Math.max(0,lastGen) * popSize);
+			numBorn = 0;
+			population.clear();
+			numInitialPending = popSize;
+			numInserted = 0;
+			allBestFitnesses = new DoubleList();
+			stopped = false;
+			busyNanos.set(0);
+			budget.start();
+			if (pool == null) {
+				work(ff);
+			}
+			else {
+				List<Callable<Void>> tasks = new ArrayList<>(numWorkers);
+				for (int i=0; i<numWorkers; i++) {
+					final FitnessFunction<G> wff = workerFFs.get(i);
+					tasks.add(new Callable<Void>() {
+						public Void call() {
+							work(wff);
+							return null;
+						}
+					});
+				}
+				try {
+					for (Future<Void> f : pool.invokeAll(tasks)) {
+						f.get();
+					}
+				}
+				catch (InterruptedException ie) {
+					throw new IllegalStateException("Fitness evaluation interrupted");
+				}
+				catch (ExecutionException ee) {
+					Throwable cause = ee.getCause();
+					if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					}
+					else {
+						throw new IllegalStateException(String.format("Fitness evaluation failed: %s",cause));
+					}
+				}
+			}
+			budget.finish();
+			int gen = numInserted / popSize;
+			if (budget.isExceeded()) {
+				Debugger.print(String.format("%d-deadline exceeded after %d evaluations\n",gen,budget.getNumEvaluations()));
+			}
+			Debugger.print(String.format("%d-inserted %d offspring at %.1f%% worker utilisation\n",gen,numInserted,
+				100 * getUtilisation()));
+			RollingChromosome<G> best = population.get(0);
+			Debugger.print(String.format("%d-%s\n",gen,best));
+			return best;
+		}
+		else {
+			throw new IllegalStateException("Algorithm not initialised");
+		}
+	}
+
+	/**
+	 * Take, evaluate and insert chromosomes until the run terminates.
+	 * If the worker fails,
+	 * the run is stopped so that other workers do not wait for its chromosome.
+	 *
+	 * @param	wff	the fitness function of the worker.
+	 */
+	private void work(FitnessFunction<G> wff) {
+		boolean failed = true;
+		try {
+			while (true) {
+				G genome;
+				int round;
+				boolean initial;
+				breedLock.lock();
+				try {
+					if (stopped || budget.isExpired()) {
+						failed = false;
+						return;
+					}
+					if (!initialQueue.isEmpty()) {
+						genome = initialQueue.poll();
+						round = 0;
+						initial = true;
+					}
+					else {
+						if (numBorn >= maxBorn || (offspringQueue.isEmpty() && !breed())) {
+							failed = false;
+							return;
+						}
+						genome = offspringQueue.poll();
+						round = numBorn / popSize + 1;
+						numBorn++;
+						initial = false;
+					}
+				}
+				finally {
+					breedLock.unlock();
+				}
+				RollingChromosome<G> rc = new RollingChromosome<>(genome,bucketSize);
+				for (int i=0; i<bucketSize && !budget.isExpired(); i++) {
+					wff.setScenario(round,i);
+					long start = System.nanoTime();
+					rc.giveFitness(evaluate(wff,genome));
+					busyNanos.addAndGet(System.nanoTime() - start);
+				}
+				insert(rc,initial);
+			}
+		}
+		finally {
+			if (failed) {
+				populationLock.lock();
+				try {
+					stopped = true;
+					populated.signalAll();
+				}
+				finally {
+					populationLock.unlock();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Produce offspring from a snapshot of the current population,
+	 * waiting until it holds enough parents or no more initial chromosomes can arrive.
+	 * Must be called holding the breeding lock.
+	 *
+	 * @return	true if offspring were added to the offspring queue,
+	 *			false if the run stopped or the population is too small to breed from.
+	 * @throws	IllegalStateException if interrupted while waiting.
+	 */
+	private boolean breed() {
+		ArrayList<RollingChromosome<G>> parents;
+		populationLock.lock();
+		try {
+			int minParents = Math.min(popSize,MIN_PARENTS);
+			while (population.size() < minParents && numInitialPending > 0 && !stopped) {
+				populated.await();
+			}
+			if (population.size() < minParents || stopped) {
+				return false;
+			}
+			parents = new ArrayList<>(population);
+		}
+		catch (InterruptedException ie) {
+			throw new IllegalStateException("Breeding interrupted");
+		}
+		finally {
+			populationLock.unlock();
+		}
+		selectorReproduction.loadPool(parents);
+		offspringQueue.addAll(operator.performOperation(selectorReproduction,1));
+		return !offspringQueue.isEmpty();
+	}
+
+	/**
+	 * Insert an evaluated chromosome into the population,
+	 * removing the worst chromosome if the population is over full,
+	 * and check for convergence at the end of each generation.
+	 * Offspring with incomplete fitness buckets,
+	 * and initial chromosomes without any evaluations,
+	 * are discarded.
+	 *
+	 * @param	rc		the chromosome.
+	 * @param	initial	whether the chromosome is from the initial population.
+	 */
+	private void insert(RollingChromosome<G> rc, boolean initial) {
+		populationLock.lock();
+		try {
+			if (initial) {
+				numInitialPending--;
+			}
+			if (rc.getNumSamples() == bucketSize || (initial && rc.getNumSamples() > 0)) {
+				rc.incrementAge();
+				int index = Collections.binarySearch(population,rc,comp);
+				population.add(index < 0 ? -index - 1 : index,rc);
+				if (population.size() > popSize) {
+					population.remove(population.size() - 1);
+				}
+				if (!initial) {
+					numInserted++;
+				}
+			}
+			if (initial && numInitialPending == 0 && !population.isEmpty()) {
+				recordBest(0);
+			}
+			else if (!initial && numInserted % popSize == 0 && rc.getNumSamples() == bucketSize) {
+				recordBest(numInserted / popSize);
+			}
+			populated.signalAll();
+		}
+		finally {
+			populationLock.unlock();
+		}
+	}
+
+	/**
+	 * Record the best fitness at the end of a generation,
+	 * and stop the run if it has converged.
+	 * Must be called holding the population lock.
+	 *
+	 * @param	gen	the generation.
+	 */
+	private void recordBest(int gen) {
+		RollingChromosome<G> best = population.get(0);
+		double bestFitness = best.getFitness();
+		allBestFitnesses.add(bestFitness);
+		if (bestFitness == 0 && !maximising) {
+			stopped = true;
+		}
+		int size = allBestFitnesses.size();
+		if (size > conCutoff + 1) {
+			double oldFitness = allBestFitnesses.get(size - 1 - conCutoff);
+			double ratio = (maximising ? bestFitness / oldFitness : oldFitness / bestFitness);
+			if (ratio <= 1 + improvement) {
+				stopped = true;
+			}
+		}
+		if (gen > 0 && gen % DEBUG_INTERVAL == 0) {
+			Debugger.print(String.format("%d(%f)-%s\n",gen,bestFitness,best));
+		}
+	}
+
+	/**
+	 * Evaluate a genotype and record the evaluation against the budget.
+	 *
+	 * @param	wff		the fitness function to use.
+	 * @param	genome	the genotype to evaluate.
+	 * @return	the fitness of the genotype.
+	 */
+	private double evaluate(FitnessFunction<G> wff, G genome) {
+		long events = wff.getNumEvents();
+		double fitness = wff.getFitness(genome);
+		budget.record(wff.getNumEvents() - events);
+		return fitness;
+	}
+
+	/**
+	 * Get the portion of the wall-clock time of the last run that the workers spent evaluating fitness,
+	 * rather than breeding, inserting or waiting.
+	 *
+	 * @return	the utilisation between 0 and 1,
+	 *			0 if no run has finished.
+	 */
+	public double getUtilisation() {
+		long elapsed = budget.getElapsed();
+		return (elapsed > 0 ? (double) busyNanos.get() / ((double) elapsed * numWorkers) : 0);
+	}
+
+	/**
+	 * Get the number of offspring inserted into the population in the last run of the EA.
+	 *
+	 * @return	the number of offspring.
+	 */
+	public int getNumInserted() {
+		return numInserted;
+	}
+
+	/**
+	 * Get the budget of each run,
+	 * which also holds the time and simulation events used by the last run,
+	 * and the number of runs that exceeded it.
+	 *
+	 * @return	the evaluation budget.
+	 */
+	public EvaluationBudget getBudget() {
+		return budget;
+	}
+
+	/**
+	 * Get the population at the end of the last run of the EA,
+	 * sorted from best to worst fitness.
+	 *
+	 * @return	a list of chromosomes from the final population.
+	 */
+	public ArrayList<Chromosome<G>> getPopulation() {
+		return new ArrayList<Chromosome<G>>(population);
+	}
+
+}
@@ -61,6 +61,16 @@ public class Chromosome<G extends Genotype> implements Comparable<Chromosome> {
 		age++;
 	}
 
+	/**
+	 * Set the age of this chromosome,
+	 * e.g. when copying a chromosome that has already survived.
+	 *
+	 * @param	age	the new age.
+	 */
+	void setAge(int age) {
+		this.age = age;
+	}
+
 	/**
 	 * Get the genotype of this chromosome.
 	 *
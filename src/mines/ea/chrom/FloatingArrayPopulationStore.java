@@ -0,0 +1,68 @@
+package mines.ea.chrom;
+
+import mines.ea.gene.FloatingArrayGenotype;
+import java.util.Arrays;
+
+/**
+ * A population store of FloatingArrayGenotypes of a fixed length,
+ * holding the genes of all slots in one double array of slot rows by genome length columns.
+ */
+public class FloatingArrayPopulationStore extends PopulationStore<FloatingArrayGenotype> {
+
+	private int genomeLength;	//the number of genes of each chromosome.
+	private double[] genes;		//the genes of each slot, genomeLength entries per slot.
+
+	/**
+	 * Store constructor.
+	 *
+	 * @param	capacity		the initial number of slots.
+	 * @param	genomeLength	the number of genes of each chromosome.
+	 * @param	bucketSize		the size of each fitness bucket.
+	 * @param	maximising		whether fitness is maximising or not.
+	 * @throws	IllegalArgumentException	if the capacity or bucket size is non-positive,
+	 *										or the genome length is negative.
+	 */
+	public FloatingArrayPopulationStore(int capacity, int genomeLength, int bucketSize, boolean maximising) {
+		super(capacity,bucketSize,maximising);
+		if (genomeLength < 0) {
+			throw new IllegalArgumentException(String.format("Non-negative genome length required: %d",genomeLength));
+		}
+		this.genomeLength = genomeLength;
+		genes = new double[capacity * genomeLength];
+	}
+
+	/**
+	 * Check that a genotype has the genome length.
+	 *
+	 * @param	genome	the genotype.
+	 * @throws	IllegalArgumentException if the genotype has the wrong length.
+	 */
+	@Override
+	protected void checkGenotype(FloatingArrayGenotype genome) {
+		if (genome.size() != genomeLength) {
+			throw new IllegalArgumentException(String.format("Genotype of length %d required: %d",genomeLength,genome.size()));
+		}
+	}
+
+	@Override
+	protected void setGenes(int slot, FloatingArrayGenotype genome) {
+		genome.getArray(genes,slot * genomeLength);
+	}
+
+	@Override
+	protected void growGenes(int capacity) {
+		genes = Arrays.copyOf(genes,capacity * genomeLength);
+	}
+
+	/**
+	 * Create a genotype from the genes of a slot.
+	 *
+	 * @param	slot	the slot.
+	 * @return	a new genotype.
+	 */
+	@Override
+	protected FloatingArrayGenotype createGenotype(int slot) {
+		return new FloatingArrayGenotype(genes,slot * genomeLength,genomeLength);
+	}
+
+}
@@ -0,0 +1,67 @@
+package mines.ea.chrom;
+
+import mines.ea.gene.Genotype;
+import java.util.*;
+
+/**
+ * A population store for any kind of genotype,
+ * holding a reference to the genotype of each slot instead of its genes.
+ * Fitness, age and the population order are still stored as primitive columns.
+ *
+ * @param	<G>	the type of genotypes.
+ */
+public class ObjectPopulationStore<G extends Genotype> extends PopulationStore<G> {
+
+	private ArrayList<G> genomes;	//the genotype of each slot, null if unoccupied.
+
+	/**
+	 * Store constructor.
+	 *
+	 * @param	capacity	the initial number of slots.
+	 * @param	bucketSize	the size of each fitness bucket.
+	 * @param	maximising	whether fitness is maximising or not.
+	 * @throws	IllegalArgumentException	if the capacity or bucket size is non-positive.
+	 */
+	public ObjectPopulationStore(int capacity, int bucketSize, boolean maximising) {
+		super(capacity,bucketSize,maximising);
+		genomes = new ArrayList<>(Collections.<G>nCopies(capacity,null));
+	}
+
+	/**
+	 * Any genotype can be stored.
+	 *
+	 * @param	genome	the genotype.
+	 */
+	@Override
+	protected void checkGenotype(G genome) {
+	}
+
+	@Override
+	protected void setGenes(int slot, G genome) {
+		genomes.set(slot,genome);
+	}
+
+	@Override
+	protected void clearGenes(int slot) {
+		genomes.set(slot,null);
+	}
+
+	@Override
+	protected void growGenes(int capacity) {
+		while (genomes.size() < capacity) {
+			genomes.add(null);
+		}
+	}
+
+	/**
+	 * Get the stored genotype of a slot.
+	 *
+	 * @param	slot	the slot.
+	 * @return	the genotype.
+	 */
+	@Override
+	protected G createGenotype(int slot) {
+		return genomes.get(slot);
+	}
+
+}
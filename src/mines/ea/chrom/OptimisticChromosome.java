@@ -1,14 +1,18 @@
 package mines.ea.chrom;
 
 import mines.ea.gene.Genotype;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A chromosome where current fitness is best given.
+ * Fitness can be given concurrently from several threads,
+ * as the fitness is held as the bits of a double and updated by compare-and-set.
  */
 public class OptimisticChromosome<G extends Genotype> extends Chromosome<G> {
 
-	private boolean isSet;		//whether the fitness has been set.
-	private double fitness;		//fitness of the chromosome.
+	private static final long UNSET = Double.doubleToRawLongBits(Double.NaN);	//the fitness bits before any fitness is given.
+
+	private AtomicLong fitness;	//bits of the fitness of the chromosome, UNSET if not set.
 	private boolean maximising;	//whether fitness is maximising.
 
 	/**
@@ -20,8 +24,7 @@ public class OptimisticChromosome<G extends Genotype> extends Chromosome<G> {
 	 */
 	public OptimisticChromosome(G genome, boolean maximising) {
 		super(genome);
-		isSet = false;
-		fitness = 0;
+		fitness = new AtomicLong(UNSET);
 		this.maximising = maximising;
 	}
 
@@ -36,13 +39,13 @@ public class OptimisticChromosome<G extends Genotype> extends Chromosome<G> {
 		if (f < 0) {
 			throw new IllegalArgumentException(String.format("Non-negative fitness required: %f",f));
 		}
-		fitness = f;
-		isSet = true;
+		fitness.set(Double.doubleToLongBits(f));
 	}
 
 	/**
 	 * Offer a new fitness value,
 	 * setting the fitness to be the better of the old and new values.
+	 * Safe to use concurrently.
 	 *
 	 * @param	f	the new fitness
 	 * @throws	IllegalArgumentException	if f is negative.
@@ -51,26 +54,31 @@ public class OptimisticChromosome<G extends Genotype> extends Chromosome<G> {
 		if (f < 0) {
 			throw new IllegalArgumentException(String.format("Non-negative fitness required: %f",f));
 		}
-		if (!isSet) {
-			fitness = f;
-		}
-		else if (maximising) {
-			fitness = Math.max(fitness,f);
-		}
-		else {
-			fitness = Math.min(fitness,f);
+		long bits = Double.doubleToLongBits(f);
+		while (true) {
+			long old = fitness.get();
+			if (old != UNSET) {
+				int diff = Double.compare(Double.longBitsToDouble(old),f);
+				if (maximising ? diff >= 0 : diff <= 0) {
+					return;
+				}
+			}
+			if (fitness.compareAndSet(old,bits)) {
+				return;
+			}
 		}
-		isSet = true;
 	}
 
 	/**
 	 * Get the fitness value of this chromosome.
 	 *
-	 * @return	the current fitness.
+	 * @return	the current fitness,
+	 *			or 0 if not set.
 	 */
 	@Override
 	public double getFitness() {
-		return fitness;
+		long bits = fitness.get();
+		return (bits == UNSET ? 0 : Double.longBitsToDouble(bits));
 	}
 
-}
\ No newline at end of file
+}
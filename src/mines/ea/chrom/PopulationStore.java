@@ -0,0 +1,667 @@
+package mines.ea.chrom;
+
+import mines.ea.gene.Genotype;
+import java.util.*;
+
+/**
+ * A population of chromosomes with rolling fitness buckets,
+ * stored as primitive columns indexed by slot instead of as chromosome objects.
+ * Subclasses hold the genes of each slot,
+ * and the fitness buckets of all slots share one array of samples.
+ * Fitness follows the same rolling average as RollingChromosome.
+ * The population is a primitive permutation of the occupied slots,
+ * which is sorted, selected and truncated without creating chromosomes,
+ * and RollingChromosome views of slots are only created for operators that take chromosomes.
+ * Genotypes requested from the store are kept until their slot is emptied or the genotypes are released,
+ * so that operators working on the same population share one genotype per slot,
+ * while a store that is not in use only holds primitive arrays.
+ * Slots are added when the store is full.
+ *
+ * @param	<G>	the type of genotypes.
+ * @see	StoredChromosome
+ */
+public abstract class PopulationStore<G extends Genotype> {
+
+	private int capacity;		//the number of slots.
+	private int bucketSize;		//the size of each fitness bucket.
+	private boolean maximising;	//whether fitness is maximising or not.
+
+	private double[] samples;	//the fitness bucket of each slot as a circular buffer, bucketSize entries per slot.
+	private int[] first;		//the position of the oldest sample in the bucket of each slot.
+	private int[] numSamples;	//the number of samples in the bucket of each slot.
+	private double[] totals;	//the sum of the bucket of each slot.
+	private double[] squares;	//the sum of squares of the bucket of each slot.
+	private int[] ages;			//the age of each slot.
+	private boolean[] occupied;	//whether each slot holds a chromosome.
+	private int[] marks;		//the last selection each slot was marked in.
+	private int mark;			//the current selection.
+
+	private int[] free;		//the unoccupied slots.
+	private int numFree;	//the number of unoccupied slots.
+	private int[] order;	//the occupied slots in population order.
+	private int[] merged;	//working array for sorting.
+	private int size;		//the number of occupied slots.
+
+	private ArrayList<StoredChromosome<G>> views;	//the view of each slot, null until requested.
+	private ArrayList<G> genotypes;					//the genotype of each slot, null until requested or after release.
+
+	/**
+	 * Store constructor.
+	 *
+	 * @param	capacity	the initial number of slots.
+	 * @param	bucketSize	the size of each fitness bucket.
+	 * @param	maximising	whether fitness is maximising or not.
+	 * @throws	IllegalArgumentException	if the capacity or bucket size is non-positive.
+	 */
+	protected PopulationStore(int capacity, int bucketSize, boolean maximising) {
+		if (capacity <= 0 || bucketSize <= 0) {
+			throw new IllegalArgumentException(String.format("Positive capacity and bucket size required: %d %d",capacity,bucketSize));
+		}
+		this.capacity = capacity;
+		this.bucketSize = bucketSize;
+		this.maximising = maximising;
+
+		samples = new double[capacity * bucketSize];
+		first = new int[capacity];
+		numSamples = new int[capacity];
+		totals = new double[capacity];
+		squares = new double[capacity];
+		ages = new int[capacity];
+		occupied = new boolean[capacity];
+		marks = new int[capacity];
+		mark = 0;
+		free = new int[capacity];
+		order = new int[capacity];
+		merged = new int[capacity];
+		views = new ArrayList<>(Collections.<StoredChromosome<G>>nCopies(capacity,null));
+		genotypes = new ArrayList<>(Collections.<G>nCopies(capacity,null));
+		clear();
+	}
+
+	/**
+	 * Check that the genes of a genotype can be stored.
+	 *
+	 * @param	genome	the genotype.
+	 * @throws	IllegalArgumentException if the genotype cannot be stored.
+	 */
+	protected abstract void checkGenotype(G genome);
+
+	/**
+	 * Store the genes of a checked genotype in a slot.
+	 *
+	 * @param	slot	the slot.
+	 * @param	genome	the genotype.
+	 */
+	protected abstract void setGenes(int slot, G genome);
+
+	/**
+	 * Forget the genes of a slot that has been emptied.
+	 *
+	 * @param	slot	the slot.
+	 */
+	protected void clearGenes(int slot) {
+	}
+
+	/**
+	 * Make room for the genes of more slots.
+	 *
+	 * @param	capacity	the new number of slots.
+	 */
+	protected abstract void growGenes(int capacity);
+
+	/**
+	 * Create a genotype from the genes of a slot.
+	 *
+	 * @param	slot	the slot.
+	 * @return	the genotype.
+	 */
+	protected abstract G createGenotype(int slot);
+
+	/**
+	 * Get the genotype of a slot,
+	 * which is created from the stored genes if it is not already held.
+	 *
+	 * @param	slot	the slot.
+	 * @return	the genotype.
+	 * @throws	IllegalArgumentException if the slot is unoccupied.
+	 */
+	public G getGenotype(int slot) {
+		check(slot);
+		G genome = genotypes.get(slot);
+		if (genome == null) {
+			genome = createGenotype(slot);
+			genotypes.set(slot,genome);
+		}
+		return genome;
+	}
+
+	/**
+	 * Stop holding the genotypes of the occupied slots,
+	 * e.g. at the end of a run,
+	 * leaving only their genes.
+	 */
+	public void releaseGenotypes() {
+		Collections.fill(genotypes,null);
+	}
+
+	/**
+	 * Add a chromosome with the genes of a genotype,
+	 * an empty fitness bucket and age 0,
+	 * to the end of the population.
+	 *
+	 * @param	genome	the genotype.
+	 * @return	the slot of the chromosome.
+	 * @throws	IllegalArgumentException if the genotype cannot be stored.
+	 */
+	public int add(G genome) {
+		checkGenotype(genome);
+		int slot = take(genome);
+		order[size] = slot;
+		size++;
+		return slot;
+	}
+
+	/**
+	 * Remove every chromosome.
+	 */
+	public void clear() {
+		for (int i=0; i<capacity; i++) {
+			if (occupied[i]) {
+				clearGenes(i);
+			}
+			occupied[i] = false;
+			free[i] = capacity - 1 - i;
+		}
+		numFree = capacity;
+		size = 0;
+		releaseGenotypes();
+	}
+
+	/**
+	 * Empty the fitness bucket of a slot and insert a single value.
+	 *
+	 * @param	slot	the slot.
+	 * @param	f		the new fitness.
+	 * @throws	IllegalArgumentException	if f is negative or the slot is unoccupied.
+	 */
+	public void setFitness(int slot, double f) {
+		check(slot);
+		if (f < 0) {
+			throw new IllegalArgumentException(String.format("Non-negative fitness required: %f",f));
+		}
+		first[slot] = 0;
+		numSamples[slot] = 1;
+		samples[slot * bucketSize] = f;
+		totals[slot] = f;
+		squares[slot] = f * f;
+	}
+
+	/**
+	 * Enter a single value into the fitness bucket of a slot.
+	 * The oldest value will be removed if the bucket is full.
+	 *
+	 * @param	slot	the slot.
+	 * @param	f		the new value.
+	 * @throws	IllegalArgumentException	if f is negative or the slot is unoccupied.
+	 */
+	public void giveFitness(int slot, double f) {
+		check(slot);
+		if (f < 0) {
+			throw new IllegalArgumentException(String.format("Non-negative fitness required: %f",f));
+		}
+		int base = slot * bucketSize;
+		totals[slot] += f;
+		squares[slot] += f * f;
+		if (numSamples[slot] == bucketSize) {
+			double old = samples[base + first[slot]];
+			totals[slot] -= old;
+			squares[slot] -= old * old;
+			samples[base + first[slot]] = f;
+			first[slot] = (first[slot] + 1) % bucketSize;
+		}
+		else {
+			samples[base + (first[slot] + numSamples[slot]) % bucketSize] = f;
+			numSamples[slot]++;
+		}
+	}
+
+	/**
+	 * Get the average of the fitness bucket of a slot.
+	 *
+	 * @param	slot	the slot.
+	 * @return	the current fitness.
+	 */
+	public double getFitness(int slot) {
+		return totals[slot] / numSamples[slot];
+	}
+
+	/**
+	 * Get the number of values in the fitness bucket of a slot.
+	 *
+	 * @param	slot	the slot.
+	 * @return	the number of fitness samples.
+	 */
+	public int getNumSamples(int slot) {
+		return numSamples[slot];
+	}
+
+	/**
+	 * Get the sample variance of the fitness bucket of a slot.
+	 *
+	 * @param	slot	the slot.
+	 * @return	the unbiased variance of the fitness samples,
+	 *			or 0 if there are fewer than two.
+	 */
+	public double getVariance(int slot) {
+		int n = numSamples[slot];
+		if (n < 2) {
+			return 0;
+		}
+		double mean = totals[slot] / n;
+		return Math.max(0,(squares[slot] - n * mean * mean) / (n - 1));
+	}
+
+	/**
+	 * Get the age of a slot.
+	 *
+	 * @param	slot	the slot.
+	 * @return	the current age.
+	 */
+	public int getAge(int slot) {
+		return ages[slot];
+	}
+
+	/**
+	 * Increment the age of a slot by 1.
+	 *
+	 * @param	slot	the slot.
+	 */
+	public void incrementAge(int slot) {
+		ages[slot]++;
+	}
+
+	/**
+	 * Sort the population from best to worst fitness,
+	 * with older chromosomes first among equal fitness.
+	 *
+	 * @see	sort(int,int)
+	 */
+	public void sort() {
+		sort(0,size);
+	}
+
+	/**
+	 * Sort a range of places in the population from best to worst fitness,
+	 * with older chromosomes first among equal fitness.
+	 * A stable bottom-up merge sort of the slot permutation is used,
+	 * so chromosomes that compare equal keep their order.
+	 *
+	 * @param	from	the first place, inclusive.
+	 * @param	to		the last place, exclusive.
+	 */
+	public void sort(int from, int to) {
+		int[] src = order;
+		int[] dest = merged;
+		for (int width=1; width<to - from; width*=2) {
+			for (int lo=from; lo<to; lo+=2*width) {
+				int mid = Math.min(lo + width,to);
+				int hi = Math.min(lo + 2 * width,to);
+				int i = lo;
+				int j = mid;
+				for (int k=lo; k<hi; k++) {
+					if (i < mid && (j >= hi || compare(src[i],src[j]) <= 0)) {
+						dest[k] = src[i];
+						i++;
+					}
+					else {
+						dest[k] = src[j];
+						j++;
+					}
+				}
+			}
+			int[] temp = src;
+			src = dest;
+			dest = temp;
+		}
+		if (src != order) {
+			System.arraycopy(src,from,order,from,to - from);
+		}
+	}
+
+	/**
+	 * Remove the chromosomes after a number of places in the population,
+	 * e.g. the worst after sorting.
+	 *
+	 * @param	n	the number of chromosomes to keep.
+	 */
+	public void truncate(int n) {
+		while (size > n) {
+			size--;
+			release(order[size]);
+		}
+	}
+
+	/**
+	 * Replace the places from a point in the population with a selection of the slots in those places,
+	 * removing the chromosomes of slots not selected.
+	 *
+	 * @param	from	the first place to replace.
+	 * @param	slots	the selected slots in their new order.
+	 * @param	n		the number of selected slots.
+	 * @throws	IllegalArgumentException	if a slot is selected twice,
+	 *										or is not in the places replaced.
+	 */
+	public void retain(int from, int[] slots, int n) {
+		mark++;
+		for (int i=0; i<n; i++) {
+			int slot = slots[i];
+			check(slot);
+			if (marks[slot] == mark) {
+				throw new IllegalArgumentException(String.format("Slot selected twice: %d",slot));
+			}
+			marks[slot] = mark;
+		}
+		int found = 0;
+		for (int i=from; i<size; i++) {
+			if (marks[order[i]] == mark) {
+				found++;
+			}
+		}
+		if (found != n) {
+			throw new IllegalArgumentException(String.format("Selected %d slots from place %d: %d found",n,from,found));
+		}
+		for (int i=from; i<size; i++) {
+			if (marks[order[i]] != mark) {
+				release(order[i]);
+			}
+		}
+		System.arraycopy(slots,0,order,from,n);
+		size = from + n;
+	}
+
+	/**
+	 * Replace the population with a list of chromosomes,
+	 * e.g. one given to operators as views and then changed.
+	 * Views of this store keep their slots,
+	 * other chromosomes are copied into new slots with their fitness buckets and ages,
+	 * and the chromosomes of slots not in the list are removed.
+	 *
+	 * @param	chroms	the new population.
+	 * @throws	IllegalArgumentException	if a view is in the list twice,
+	 *										or a chromosome cannot be stored.
+	 */
+	public void setPopulation(List<? extends RollingChromosome<G>> chroms) {
+		mark++;
+		for (RollingChromosome<G> rc : chroms) {
+			int slot = getOwnSlot(rc);
+			if (slot >= 0) {
+				if (marks[slot] == mark) {
+					throw new IllegalArgumentException(String.format("Slot included twice: %d",slot));
+				}
+				marks[slot] = mark;
+			}
+			else {
+				checkGenotype(rc.getGenotype());
+				if (rc.getNumSamples() > bucketSize) {
+					throw new IllegalArgumentException(String.format("At most %d fitness samples required: %d",bucketSize,
+						rc.getNumSamples()));
+				}
+			}
+		}
+		for (int i=0; i<size; i++) {
+			if (marks[order[i]] != mark) {
+				release(order[i]);
+			}
+		}
+		int[] newOrder = new int[chroms.size()];
+		for (int i=0; i<newOrder.length; i++) {
+			RollingChromosome<G> rc = chroms.get(i);
+			int slot = getOwnSlot(rc);
+			if (slot < 0) {
+				slot = take(rc.getGenotype());
+				int n = rc.getNumSamples();
+				for (int j=0; j<n; j++) {
+					samples[slot * bucketSize + j] = rc.getSample(j);
+				}
+				numSamples[slot] = n;
+				totals[slot] = rc.getTotalFitness();
+				squares[slot] = rc.getTotalSquares();
+				ages[slot] = rc.getAge();
+			}
+			newOrder[i] = slot;
+		}
+		System.arraycopy(newOrder,0,order,0,newOrder.length);
+		size = newOrder.length;
+	}
+
+	/**
+	 * Get the slot at a place in the population.
+	 *
+	 * @param	place	the place,
+	 *					0 for the best after sorting.
+	 * @return	the slot.
+	 * @throws	IndexOutOfBoundsException if the place is not less than the size.
+	 */
+	public int getSlot(int place) {
+		if (place >= size) {
+			throw new IndexOutOfBoundsException(String.format("Place %d of %d",place,size));
+		}
+		return order[place];
+	}
+
+	/**
+	 * Get the slots in a range of places in the population.
+	 *
+	 * @param	from	the first place, inclusive.
+	 * @param	to		the last place, exclusive.
+	 * @return	an array of slots.
+	 */
+	public int[] getSlots(int from, int to) {
+		return Arrays.copyOfRange(order,from,to);
+	}
+
+	/**
+	 * Get the view of a slot,
+	 * which is created once and reused for every chromosome stored in the slot.
+	 *
+	 * @param	slot	the slot.
+	 * @return	the view.
+	 */
+	public StoredChromosome<G> getView(int slot) {
+		StoredChromosome<G> view = views.get(slot);
+		if (view == null) {
+			view = new StoredChromosome<>(this,slot);
+			views.set(slot,view);
+		}
+		return view;
+	}
+
+	/**
+	 * Get the views of a range of places in the population,
+	 * e.g. to load into a selection operator.
+	 *
+	 * @param	from	the first place, inclusive.
+	 * @param	to		the last place, exclusive.
+	 * @return	a list of views.
+	 */
+	public ArrayList<RollingChromosome<G>> getViews(int from, int to) {
+		ArrayList<RollingChromosome<G>> out = new ArrayList<>(to - from);
+		for (int i=from; i<to; i++) {
+			out.add(getView(order[i]));
+		}
+		return out;
+	}
+
+	/**
+	 * Create a chromosome independent of the store,
+	 * with the genotype, fitness bucket and age of a slot,
+	 * e.g. to keep after the slot is reused.
+	 *
+	 * @param	slot	the slot.
+	 * @return	a new chromosome.
+	 */
+	public RollingChromosome<G> copy(int slot) {
+		RollingChromosome<G> rc = new RollingChromosome<>(getView(slot));
+		rc.setAge(ages[slot]);
+		return rc;
+	}
+
+	/**
+	 * Get the number of chromosomes.
+	 *
+	 * @return	the size.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Get the size of each fitness bucket.
+	 *
+	 * @return	the maximum number of fitnesses in each fitness bucket.
+	 */
+	public int getBucketSize() {
+		return bucketSize;
+	}
+
+	/**
+	 * Get a value of the fitness bucket of a slot.
+	 *
+	 * @param	slot	the slot.
+	 * @param	index	the index of the value,
+	 *					0 for the oldest.
+	 * @return	the fitness sample.
+	 */
+	double getSample(int slot, int index) {
+		return samples[slot * bucketSize + (first[slot] + index) % bucketSize];
+	}
+
+	/**
+	 * Get the sum of the fitness bucket of a slot.
+	 *
+	 * @param	slot	the slot.
+	 * @return	the total fitness.
+	 */
+	double getTotalFitness(int slot) {
+		return totals[slot];
+	}
+
+	/**
+	 * Get the sum of squares of the fitness bucket of a slot.
+	 *
+	 * @param	slot	the slot.
+	 * @return	the total of squared fitnesses.
+	 */
+	double getTotalSquares(int slot) {
+		return squares[slot];
+	}
+
+	/**
+	 * Check that a slot is occupied.
+	 *
+	 * @param	slot	the slot.
+	 * @throws	IllegalArgumentException if the slot is unoccupied.
+	 */
+	protected void check(int slot) {
+		if (!occupied[slot]) {
+			throw new IllegalArgumentException(String.format("Unoccupied slot: %d",slot));
+		}
+	}
+
+	/**
+	 * Occupy a free slot with the genes of a checked genotype,
+	 * an empty fitness bucket and age 0,
+	 * adding slots if the store is full.
+	 * The slot is not added to the population.
+	 *
+	 * @param	genome	the genotype.
+	 * @return	the slot.
+	 */
+	private int take(G genome) {
+		if (numFree == 0) {
+			grow();
+		}
+		numFree--;
+		int slot = free[numFree];
+		setGenes(slot,genome);
+		genotypes.set(slot,genome);
+		first[slot] = 0;
+		numSamples[slot] = 0;
+		totals[slot] = 0;
+		squares[slot] = 0;
+		ages[slot] = 0;
+		occupied[slot] = true;
+		return slot;
+	}
+
+	/**
+	 * Return a slot to the unoccupied slots.
+	 *
+	 * @param	slot	the slot.
+	 */
+	private void release(int slot) {
+		occupied[slot] = false;
+		clearGenes(slot);
+		genotypes.set(slot,null);
+		free[numFree] = slot;
+		numFree++;
+	}
+
+	/**
+	 * Double the number of slots.
+	 */
+	private void grow() {
+		int newCapacity = capacity * 2;
+		samples = Arrays.copyOf(samples,newCapacity * bucketSize);
+		first = Arrays.copyOf(first,newCapacity);
+		numSamples = Arrays.copyOf(numSamples,newCapacity);
+		totals = Arrays.copyOf(totals,newCapacity);
+		squares = Arrays.copyOf(squares,newCapacity);
+		ages = Arrays.copyOf(ages,newCapacity);
+		occupied = Arrays.copyOf(occupied,newCapacity);
+		marks = Arrays.copyOf(marks,newCapacity);
+		free = Arrays.copyOf(free,newCapacity);
+		order = Arrays.copyOf(order,newCapacity);
+		merged = new int[newCapacity];
+		for (int slot=newCapacity - 1; slot>=capacity; slot--) {
+			free[numFree] = slot;
+			numFree++;
+			views.add(null);
+			genotypes.add(null);
+		}
+		growGenes(newCapacity);
+		capacity = newCapacity;
+	}
+
+	/**
+	 * Get the slot of a chromosome if it is a view of this store.
+	 *
+	 * @param	rc	the chromosome.
+	 * @return	the slot,
+	 *			or -1 if the chromosome is not a view of an occupied slot of this store.
+	 */
+	private int getOwnSlot(RollingChromosome<G> rc) {
+		if (rc instanceof StoredChromosome) {
+			StoredChromosome<G> view = (StoredChromosome<G>) rc;
+			if (view.getStore() == this && occupied[view.getSlot()]) {
+				return view.getSlot();
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Compare two slots by fitness and then age.
+	 *
+	 * @param	slot1	the first slot.
+	 * @param	slot2	the second slot.
+	 * @return	negative if the first slot should come first,
+	 *			positive if the second slot should come first,
+	 *			0 if they are equal.
+	 */
+	private int compare(int slot1, int slot2) {
+		int diff = (maximising ? -1 : 1) * Double.compare(getFitness(slot1),getFitness(slot2));
+		return (diff == 0 ? (ages[slot2] - ages[slot1]) : diff);
+	}
+
+}
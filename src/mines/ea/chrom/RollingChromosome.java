@@ -10,6 +10,7 @@ public class RollingChromosome<G extends Genotype> extends Chromosome<G> {
 
 	private DoubleQueue fitnesses;	//the current fitness bucket.
 	private double totalFitness;	//the sum of the fitness bucket.
+	private double totalSquares;	//the sum of squares of the fitness bucket.
 	private int bucketSize;			//the size of the fitness bucket.
 
 	/**
@@ -24,9 +25,38 @@ public class RollingChromosome<G extends Genotype> extends Chromosome<G> {
 		super(genome);
 		fitnesses = new DoubleQueue();
 		totalFitness = 0;
+		totalSquares = 0;
 		this.bucketSize = bucketSize;
 	}
 
+	/**
+	 * Constructs a chromosome with age 0,
+	 * with the genotype and a copy of the fitness bucket of another chromosome.
+	 *
+	 * @param	other	the chromosome to copy.
+	 */
+	public RollingChromosome(RollingChromosome<G> other) {
+		super(other.getGenotype());
+		fitnesses = new DoubleQueue();
+		for (int i=0; i<other.getNumSamples(); i++) {
+			fitnesses.add(other.getSample(i));
+		}
+		totalFitness = other.getTotalFitness();
+		totalSquares = other.getTotalSquares();
+		bucketSize = other.getBucketSize();
+	}
+
+	/**
+	 * Constructs a chromosome without a genotype or fitness bucket of its own,
+	 * for views of chromosomes held elsewhere,
+	 * which must override every method using them.
+	 *
+	 * @see	StoredChromosome
+	 */
+	RollingChromosome() {
+		super(null);
+	}
+
 	/**
 	 * Empty the fitness bucket and insert a single value.
 	 *
@@ -41,6 +71,7 @@ public class RollingChromosome<G extends Genotype> extends Chromosome<G> {
 		fitnesses.clear();
 		fitnesses.add(f);
 		totalFitness = f;
+		totalSquares = f * f;
 	}
 
 	/**
@@ -56,9 +87,11 @@ public class RollingChromosome<G extends Genotype> extends Chromosome<G> {
 		}
 		fitnesses.add(f);
 		totalFitness += f;
+		totalSquares += f * f;
 		while (fitnesses.size() > bucketSize) {
 			double old = fitnesses.poll();
 			totalFitness -= old;
+			totalSquares -= old * old;
 		}
 	}
 
@@ -72,4 +105,66 @@ public class RollingChromosome<G extends Genotype> extends Chromosome<G> {
 		return totalFitness / fitnesses.size();
 	}
 
+	/**
+	 * Get the number of values in the fitness bucket.
+	 *
+	 * @return	the number of fitness samples.
+	 */
+	public int getNumSamples() {
+		return fitnesses.size();
+	}
+
+	/**
+	 * Get the sample variance of the fitness bucket.
+	 *
+	 * @return	the unbiased variance of the fitness samples,
+	 *			or 0 if there are fewer than two.
+	 */
+	public double getVariance() {
+		int n = fitnesses.size();
+		if (n < 2) {
+			return 0;
+		}
+		double mean = totalFitness / n;
+		return Math.max(0,(totalSquares - n * mean * mean) / (n - 1));
+	}
+
+	/**
+	 * Get a value of the fitness bucket.
+	 *
+	 * @param	index	the index of the value,
+	 *					0 for the oldest.
+	 * @return	the fitness sample.
+	 */
+	double getSample(int index) {
+		return fitnesses.get(index);
+	}
+
+	/**
+	 * Get the sum of the fitness bucket.
+	 *
+	 * @return	the total fitness.
+	 */
+	double getTotalFitness() {
+		return totalFitness;
+	}
+
+	/**
+	 * Get the sum of squares of the fitness bucket.
+	 *
+	 * @return	the total of squared fitnesses.
+	 */
+	double getTotalSquares() {
+		return totalSquares;
+	}
+
+	/**
+	 * Get the size of the fitness bucket.
+	 *
+	 * @return	the maximum number of fitnesses in the fitness bucket.
+	 */
+	int getBucketSize() {
+		return bucketSize;
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,188 @@
+package mines.ea.chrom;
+
+import mines.ea.gene.Genotype;
+
+/**
+ * A flyweight chromosome viewing a slot of a population store,
+ * for use with selection and genetic operators.
+ * Fitness and age are read from and written to the store,
+ * and the genotype is the one held by the store,
+ * so the view holds no chromosome state of its own.
+ *
+ * @param	<G>	the type of genotypes.
+ * @see	PopulationStore
+ */
+public class StoredChromosome<G extends Genotype> extends RollingChromosome<G> {
+
+	private PopulationStore<G> store;	//the store holding the chromosome.
+	private int slot;					//the slot of the chromosome in the store.
+
+	/**
+	 * Constructs a view of a slot of a store.
+	 *
+	 * @param	store	the store.
+	 * @param	slot	the slot.
+	 */
+	StoredChromosome(PopulationStore<G> store, int slot) {
+		super();
+		this.store = store;
+		this.slot = slot;
+	}
+
+	/**
+	 * Get the store viewed.
+	 *
+	 * @return	the store.
+	 */
+	public PopulationStore<G> getStore() {
+		return store;
+	}
+
+	/**
+	 * Get the slot viewed.
+	 *
+	 * @return	the slot.
+	 */
+	public int getSlot() {
+		return slot;
+	}
+
+	/**
+	 * Get the average of the fitness bucket of the slot.
+	 *
+	 * @return	the current fitness.
+	 */
+	@Override
+	public double getFitness() {
+		return store.getFitness(slot);
+	}
+
+	/**
+	 * Get the age of the slot.
+	 *
+	 * @return	the current age.
+	 */
+	@Override
+	public int getAge() {
+		return store.getAge(slot);
+	}
+
+	/**
+	 * Empty the fitness bucket of the slot and insert a single value.
+	 *
+	 * @param	f	the new fitness.
+	 * @throws	IllegalArgumentException	if f is negative or the slot is unoccupied.
+	 */
+	@Override
+	public void setFitness(double f) {
+		store.setFitness(slot,f);
+	}
+
+	/**
+	 * Enter a single value into the fitness bucket of the slot.
+	 *
+	 * @param	f	the new value.
+	 * @throws	IllegalArgumentException	if f is negative or the slot is unoccupied.
+	 */
+	@Override
+	public void giveFitness(double f) {
+		store.giveFitness(slot,f);
+	}
+
+	/**
+	 * Increment the age of the slot by 1.
+	 */
+	@Override
+	public void incrementAge() {
+		store.incrementAge(slot);
+	}
+
+	/**
+	 * Get the genotype of the slot.
+	 *
+	 * @return	the genotype.
+	 */
+	@Override
+	public G getGenotype() {
+		return store.getGenotype(slot);
+	}
+
+	/**
+	 * Get the number of values in the fitness bucket of the slot.
+	 *
+	 * @return	the number of fitness samples.
+	 */
+	@Override
+	public int getNumSamples() {
+		return store.getNumSamples(slot);
+	}
+
+	/**
+	 * Get the sample variance of the fitness bucket of the slot.
+	 *
+	 * @return	the unbiased variance of the fitness samples,
+	 *			or 0 if there are fewer than two.
+	 */
+	@Override
+	public double getVariance() {
+		return store.getVariance(slot);
+	}
+
+	/**
+	 * Tests equality of genotypes.
+	 *
+	 * @param	other	the Object to compare to.
+	 * @return	true if equal, false otherwise.
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if (o instanceof Chromosome) {
+			return ((Chromosome<?>) o).getGenotype().equals(getGenotype());
+		}
+		return false;
+	}
+
+	/**
+	 * Get the hash code of the genotype.
+	 *
+	 * @return	the hash code.
+	 */
+	@Override
+	public int hashCode() {
+		return getGenotype().hashCode();
+	}
+
+	/**
+	 * Get a string format of this chromosome.
+	 *
+	 * @return	a String of the form Aa-Ff-Gg,
+	 *			where a is the age,
+	 *			f is the fitness,
+	 *			and g is a string form of the genotype.
+	 */
+	@Override
+	public String toString() {
+		return String.format("A%d-F%f-G%s",getAge(),getFitness(),getGenotype().toString());
+	}
+
+	@Override
+	double getSample(int index) {
+		return store.getSample(slot,index);
+	}
+
+	@Override
+	double getTotalFitness() {
+		return store.getTotalFitness(slot);
+	}
+
+	@Override
+	double getTotalSquares() {
+		return store.getTotalSquares(slot);
+	}
+
+	@Override
+	int getBucketSize() {
+		return store.getBucketSize();
+	}
+
+}
@@ -23,4 +23,41 @@ public interface CoevolutionaryHeterogeneousFitnessFunction<G extends Genotype,
 	 *			false otherwise.
 	 */
 	public boolean isMaximising();
+
+	/**
+	 * Select the scenario of subsequent evaluations,
+	 * for fitness functions using common random numbers,
+	 * so that evaluations of the same scenario in the same round share random values.
+	 * Does nothing by default.
+	 *
+	 * @param	round		the comparison round,
+	 *						e.g. a generation.
+	 * @param	scenario	the scenario index within the round.
+	 */
+	public default void setScenario(int round, int scenario) {}
+
+	/**
+	 * Get the number of simulation events processed by this fitness function,
+	 * so that algorithms can limit the simulation effort of a run.
+	 * Returns 0 by default,
+	 * for fitness functions that do not simulate.
+	 *
+	 * @return	the number of events processed since construction.
+	 */
+	public default long getNumEvents() {
+		return 0;
+	}
+
+	/**
+	 * Get the version of the state evaluations are made from,
+	 * which changes whenever the state changes,
+	 * so that algorithms can tell when cached fitness samples are out of date.
+	 * Returns 0 by default,
+	 * for fitness functions without changing state.
+	 *
+	 * @return	the version number.
+	 */
+	public default int getStateVersion() {
+		return 0;
+	}
 }
\ No newline at end of file
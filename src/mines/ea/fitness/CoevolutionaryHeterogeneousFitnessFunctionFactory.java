@@ -0,0 +1,28 @@
+package mines.ea.fitness;
+
+import mines.ea.gene.Genotype;
+
+/**
+ * Factory for copies of a stateful coevolutionary fitness function,
+ * used to evaluate pairings on several threads,
+ * with each thread owning its own copy.
+ */
+public interface CoevolutionaryHeterogeneousFitnessFunctionFactory<G extends Genotype, H extends Genotype> {
+
+	/**
+	 * Create a new fitness function that shares no mutable state with any other.
+	 *
+	 * @return	a new fitness function.
+	 */
+	public CoevolutionaryHeterogeneousFitnessFunction<G,H> newFitnessFunction();
+
+	/**
+	 * Bring a fitness function created by this factory up to date,
+	 * so that it evaluates pairings in the same way as the original fitness function.
+	 * Used before each run of an algorithm.
+	 * Does nothing by default.
+	 *
+	 * @param	copy	a fitness function created by this factory.
+	 */
+	public default void synchronise(CoevolutionaryHeterogeneousFitnessFunction<G,H> copy) {}
+}
@@ -0,0 +1,28 @@
+package mines.ea.fitness;
+
+import mines.ea.gene.Genotype;
+
+/**
+ * Factory for copies of a stateful fitness function,
+ * used to evaluate fitness on several threads,
+ * with each thread owning its own copy.
+ */
+public interface FitnessFunctionFactory<G extends Genotype> {
+
+	/**
+	 * Create a new fitness function that shares no mutable state with any other.
+	 *
+	 * @return	a new fitness function.
+	 */
+	public FitnessFunction<G> newFitnessFunction();
+
+	/**
+	 * Bring a fitness function created by this factory up to date,
+	 * so that it evaluates genotypes in the same way as the original fitness function.
+	 * Used before each run of an algorithm.
+	 * Does nothing by default.
+	 *
+	 * @param	copy	a fitness function created by this factory.
+	 */
+	public default void synchronise(FitnessFunction<G> copy) {}
+}
@@ -0,0 +1,89 @@
+package mines.ea.fitness.sim.cont;
+
+import mines.util.DoubleList;
+import mines.sim.KernelCheckpoint;
+
+/**
+ * A copy of the current simulation of a SimFitnessFunction4 between events,
+ * including its statistics,
+ * so that the simulation can be resumed exactly from the point it was saved.
+ * Subclasses with additional simulation state can extend this class.
+ *
+ * @see	SimFitnessFunction4#saveCheckpoint(SimCheckpoint)
+ * @see	SimFitnessFunction4#loadCheckpoint(SimCheckpoint)
+ */
+public class SimCheckpoint {
+
+	KernelCheckpoint kernel;	//the state of the simulation.
+
+	/*
+	 * Statistics of the simulation.
+	 */
+	double[] lastServiceStart;				//time of last service start for each truck.
+	double[] serviceWaitingTime;			//total time spent waiting in service queues for each truck.
+	double[] lastWaitStart;					//starting time of last wait for each truck.
+	double[] serviceAvailableTime;			//for each truck, the time the machine of its last service became available.
+	double[] lastFillEnd;					//last service completion for each shovel.
+	double[] lastEmptyEnd;					//last service completion for each crusher location.
+	double[] roadWaitingTime;				//total time spent waiting at passing points for each truck.
+	double[] shovelWaitingTime;				//total idle time of shovels.
+	int[] dispatched;						//number of dispatches for each truck.
+	int successfulFills;					//number of completed services at shovels.
+	double shovelIdleOre;					//maximum truckloads wasted by shovel idle times.
+	int successfulEmpties;					//number of completed services at crushers.
+	int[] successfulFillsFromCrusher;		//number of completed services at shovels per dispatching location.
+	double truckIdle;						//maximum truckloads wasted by truck idle times.
+	DoubleList completeCycles;				//cycle times of completed cycles.
+	double[] lastCrusherChange;				//last time number of active crushers changed at each location.
+	double crusherIdleOre;					//maximum truckloads wasted by crusher idle times.
+	double[] individualTruckWaitingTime;	//total waiting times of each truck.
+
+	/**
+	 * Checkpoint constructor.
+	 *
+	 * @param	kernel			an empty kernel checkpoint.
+	 * @param	numTrucks		the number of trucks.
+	 * @param	numShovels		the number of shovels.
+	 * @param	numCrusherLocs	the number of crusher locations.
+	 */
+	protected SimCheckpoint(KernelCheckpoint kernel, int numTrucks, int numShovels, int numCrusherLocs) {
+		this.kernel = kernel;
+		lastServiceStart = new double[numTrucks];
+		serviceWaitingTime = new double[numTrucks];
+		lastWaitStart = new double[numTrucks];
+		serviceAvailableTime = new double[numTrucks];
+		lastFillEnd = new double[numShovels];
+		lastEmptyEnd = new double[numCrusherLocs];
+		roadWaitingTime = new double[numTrucks];
+		shovelWaitingTime = new double[numShovels];
+		dispatched = new int[numTrucks];
+		successfulFillsFromCrusher = new int[numCrusherLocs];
+		completeCycles = new DoubleList();
+		lastCrusherChange = new double[numCrusherLocs];
+		individualTruckWaitingTime = new double[numTrucks];
+	}
+
+	/**
+	 * Create a checkpoint that takes over the storage of an empty checkpoint,
+	 * used by subclasses that extend the checkpoint of their superclass.
+	 *
+	 * @param	base	the empty checkpoint, which should not be used afterwards.
+	 */
+	protected SimCheckpoint(SimCheckpoint base) {
+		kernel = base.kernel;
+		lastServiceStart = base.lastServiceStart;
+		serviceWaitingTime = base.serviceWaitingTime;
+		lastWaitStart = base.lastWaitStart;
+		serviceAvailableTime = base.serviceAvailableTime;
+		lastFillEnd = base.lastFillEnd;
+		lastEmptyEnd = base.lastEmptyEnd;
+		roadWaitingTime = base.roadWaitingTime;
+		shovelWaitingTime = base.shovelWaitingTime;
+		dispatched = base.dispatched;
+		successfulFillsFromCrusher = base.successfulFillsFromCrusher;
+		completeCycles = base.completeCycles;
+		lastCrusherChange = base.lastCrusherChange;
+		individualTruckWaitingTime = base.individualTruckWaitingTime;
+	}
+
+}
@@ -10,21 +10,6 @@ import java.util.*;
  */
 public abstract class SimFitnessFunction4 {
 
-	private static class LightChange implements Comparable<LightChange> {
-
-		int road;
-		double time;
-
-		public LightChange(int road, double time) {
-			this.road = road;
-			this.time = time;
-		}
-
-		public int compareTo(LightChange other) {
-			return Double.compare(this.time,other.time);
-		}
-	}
-
 	private static class Tuple implements Comparable<Tuple> {
 
 		int t;
@@ -49,71 +34,123 @@ public abstract class SimFitnessFunction4 {
 		}
 	}
 
-	private static final double EPSILON = 1e-6;	//small value.
+	/**
+	 * Supplies the routing decisions and light timings of the subclass to the kernel,
+	 * and collects the statistics of the current simulation.
+	 */
+	private class KernelHooks implements RoutePolicy, LightPolicy, StatisticsSink {
+
+		public int nextRoute(int tid) {
+			return SimFitnessFunction4.this.nextRoute(tid);
+		}
+
+		public double nextLight(int road, TrafficLight change, boolean scheduled) {
+			return getNextLight(road,change);
+		}
+
+		public void waitStarted(int tid, double time) {
+			lastWaitStart[tid] = time;
+		}
+
+		public void lightWaitEnded(int tid, double time) {
+			roadWaitingTime[tid] += time - lastWaitStart[tid];
+			truckIdle += (time - lastWaitStart[tid]) * (totalCrushingRate / numTrucks);
+			individualTruckWaitingTime[tid] += (time - lastWaitStart[tid]);
+		}
+
+		public void serviceStarted(int tid, int machine, boolean atShovel, double time) {
+			lastServiceStart[tid] = time;
+			serviceWaitingTime[tid] += time - lastWaitStart[tid];
+			truckIdle += (time - lastWaitStart[tid]) * (totalCrushingRate / numTrucks);
+			individualTruckWaitingTime[tid] += (time - lastWaitStart[tid]);
+			if (atShovel) {
+				serviceAvailableTime[tid] = lastFillEnd[machine];
+				shovelWaitingTime[machine] += time - lastFillEnd[machine];
+				shovelIdleOre += (time - lastFillEnd[machine]) / fillTimesMean[machine];
+			}
+			else {
+				serviceAvailableTime[tid] = lastEmptyEnd[machine];
+			}
+		}
+
+		public void serviceEnded(int tid, int machine, boolean atShovel, double time) {
+			if (atShovel) {
+				lastFillEnd[machine] = time;
+				if (dispatched[tid] > 0) {
+					successfulFills++;
+					successfulFillsFromCrusher[kernel.getAssignedCrusher(tid)]++;
+				}
+			}
+			else {
+				lastEmptyEnd[machine] = time;
+				if (dispatched[tid] > 0) {
+					successfulEmpties++;
+				}
+				completeCycles.add(time - kernel.getDispatchTime(tid));
+			}
+		}
+
+		public void crusherChanged(int cid, int numEmptying, double time) {
+			crusherIdleOre += (time - lastCrusherChange[cid]) * (numCrushers[cid] - numEmptying) / emptyTimesMean[cid];
+			lastCrusherChange[cid] = time;
+		}
+
+		public void routed(int tid, int route, boolean toShovel, double time) {
+			if (toShovel) {
+				dispatched[tid]++;
+				if (commonRandomNumbers) {
+					reseedTruck(tid,dispatched[tid]);
+				}
+			}
+		}
+
+		public void beforeDispatch(int tid) {
+			SimFitnessFunction4.this.beforeDispatch(tid);
+		}
+	}
 
 	/*
 	 * Simulation parameters.
 	 */
-	private int numTrucks;					//number of trucks.
-	private int numShovels;					//number of shovels.
-	private int numCrusherLocs;				//number of crusher locations.
-	private int[] numCrushers;				//number of crushers at each location.
-	private int numRoads;					//number of roads.
-	private double[] emptyTimesMean;		//average emptying times for crushers at each location.
-	private double[] emptyTimesSD;			//standard deviations of emptying times for crushers at each location.
-	private double[] fillTimesMean;			//average filling times for each shovel.
-	private double[] fillTimesSD;			//standard deviations of filling times for each shovel.
-	private double[][] roadTravelTimesMean;	//average travelling times on each road in both directions.
-	private double[][] roadTravelTimesSD;	//standard deviations of travelling time on each road in both directions.
-	private double fullSlowdown;			//travel time increase for travelling full.
-	private boolean[] isOneWay;				//whether each road is one-lane.
+	private int numTrucks;				//number of trucks.
+	private int numShovels;				//number of shovels.
+	private int numCrusherLocs;			//number of crusher locations.
+	private int[] numCrushers;			//number of crushers at each location.
+	private int numRoads;				//number of roads.
+	private double[] emptyTimesMean;	//average emptying times for crushers at each location.
+	private double[] emptyTimesSD;		//standard deviations of emptying times for crushers at each location.
+	private double[] fillTimesMean;		//average filling times for each shovel.
+	private double[] fillTimesSD;		//standard deviations of filling times for each shovel.
+	private double fullSlowdown;		//travel time increase for travelling full.
 
 	/*
 	 * Route specifications.
 	 */
-	private int numRoutes;				//number of routes.
-	private int[][] routeRoads;			//list of roads comprising each route.
-	private int[][] routeDirections;	//list of directions travelled on each road in each route.
-	private int[] routeLengths;			//number of roads in each route.
-	private int[] routeShovels;			//the shovel at the end of each route.
-	private int[] routeCrushers;		//the crusher at the start of each route.
+	private int numRoutes;			//number of routes.
+	private int[] routeShovels;		//the shovel at the end of each route.
+	private int[] routeCrushers;	//the crusher at the start of each route.
 
 	/*
 	 * Additional derived parameters.
 	 */
-	private int numOneWay;					//number of one-lane roads.
-	private int[] lightIndexes;				//indexes of light associated with one-lane roads.
-	private IntList reverseLightIndexes;	//indexes of roads associated with lights.
-	private int[] defaultRoute;				//default route out of each crusher.
-	private int[] initialCrushers;			//initial location of each truck.
-	private double totalCrushingRate;		//net rate of all crushers.
+	private int numOneWay;				//number of one-lane roads.
+	private int[] initialCrushers;		//initial location of each truck.
+	private double totalCrushingRate;	//net rate of all crushers.
 
 	private TimeDistribution tgen;	//the distribution used for generating all stochastic values.
 
 	/*
-	 * Current simulation variables.
+	 * Common random numbers variables.
 	 */
-	private double currTime;								//current time in current simulation.
-	private PriorityQueue<Transition> eventQueue;			//upcoming non-instant transitions in current simulation.
-	private ShortPriorityQueue<Transition> instantQueue;	//upcoming instant transitions in current simulation.
-	private TruckLocation[] truckLocs;						//current locations of each truck in current simulation.
-	private int[] assignedShovel;							//current assigned shovel for each truck in current simulation.
-	private int[] assignedCrusher;							//current assigned crusher for each truck in current simulation.
-	private int[] assignedRoute;							//current assigned route for each truck in current simulation.
-	private int[] routePoint;								//current route index for each truck in current simulation.
-	private IntQueue[] crusherQueues;						//queues for each crusher location in current simulation.
-	private IntQueue[] shovelQueues;						//queues for each shovel in current simulation.
-	private int[] numEmptying;								//number of crushers active at each crusher location in current simulation.
-	private boolean[] shovelInUse;							//whether each shovel is in use in current simulation.
-	private TrafficLight[] lights;							//state of each traffic light in current simulation.
-	private IntQueue[][] lightQueues;						//queues for each traffic light in current simulation.
-	private IntQueue[][] roadQueues;						//order of trucks on each road in current simulation.
-	private ShortPriorityQueue<LightChange> lightSchedule;	//upcoming changes from green lights in current simulation.
-	private boolean[] greedyMode;							//whether each light is set to greedy rules in current simulation.
-	private double[][] roadAvailable;						//the minimum possible arrival time for each road end in current simulation.
-	private int[][] roadPriority;							//priority values used for transitions to preserve order.
-	private int numEmpties;									//number of empties completed in current simulation.
-	private int numUnused;									//number of trucks in unused state in current simulation.
+	private boolean commonRandomNumbers;	//whether each truck uses its own stream reseeded per scenario and cycle.
+	private RandomStream crnStream;			//the stream used to draw scenario seeds.
+	private long crnSeed;					//the scenario seed for the stored state.
+	private int crnRound;					//the current comparison round.
+	private int crnScenario;				//the scenario used by the next simulation.
+	private long scenarioSeed;				//the seed of the scenario of the current simulation.
+
+	private SimulationKernel kernel;	//the simulation.
+	private NetworkLayout layout;		//flattened roads and routes of the simulation.
 
 	/*
 	 * Stored state variables.
@@ -134,23 +171,18 @@ public abstract class SimFitnessFunction4 {
 	/*
 	 * Variables related to the stored state allowing for quick reinitialisation of simulation.
 	 */
+	private SimState stored;							//snapshot of the stored state that each simulation is initialised from.
+	private boolean exactState;							//whether the snapshot was copied from a simulator rather than reconstructed.
+	private boolean readyExact;							//whether the readied snapshot was copied from a simulator.
 	private ArrayList<Transition> eventQueueStored;		//initial non-instant transitions from stored state.
 	private ArrayList<Transition> instantQueueStored;	//initial instant transitions from stored state.
-	private IntQueue[] crusherQueuesStored;				//queues for each crusher location from stored state.
-	private IntQueue[] shovelQueuesStored;				//queues for each shovel from stored state.
-	private int[] numEmptyingStored;					//number of active crushers from stored state.
-	private boolean[] shovelInUseStored;				//whether each shovel is active in stored state.
-	private IntQueue[][] lightQueuesStored;				//queues for each traffic light from stored state.
-	private IntQueue[][] roadQueuesStored;				//order of trucks on each road from stored state.
-	private int[][] roadPriorityStored;					//initial priority values from stored state.
-	private double[][] roadProgress;					//used in reinitialisation.
 
 	/*
 	 * Statistics for current simulation.
 	 */
-	private double[] lastServiceStart;				//time of last service start for each truck in current simulation.
-	private double[] serviceWaitingTime;			//total time spent waiting in service queues for each truck in current simulation.
-	private double[] lastWaitStart;					//starting time of last wait for each truck in current simulation.
+	private double[] lastServiceStart;		//time of last service start for each truck in current simulation.
+	private double[] serviceWaitingTime;	//total time spent waiting in service queues for each truck in current simulation.
+	private double[] lastWaitStart;			//starting time of last wait for each truck in current simulation.
 	private double[] serviceAvailableTime;
 	//for each truck in current simulation, for its last service the time that machine became available prior to the service.
 	private double[] lastFillEnd;					//last service completion for each shovel in current simulation
@@ -164,13 +196,14 @@ public abstract class SimFitnessFunction4 {
 	private int[] successfulFillsFromCrusher;		//number of completed services at shovels per dispatching location in current simulation.
 	private double truckIdle;						//maximum truckloads wasted by truck idle times in current simulation.
 	private double[] simDispatchTime;				//time of last dispatch for each truck in stored state.
-	private double[] dispatchTime;					//time of last dispatch for each truck in current simulation.
 	private DoubleList completeCycles;				//cycle times of completed cycles in current simulation.
 	private double[] lastCrusherChange;				//last time number of active crushers changed at each location in current simulation.
 	private double crusherIdleOre;					//maximum truckloads wasted by crusher idle times in current simulation.
 	private double[] individualTruckWaitingTime;	//total waiting times of each truck in current simulation.
 
-	private boolean isReady;	//whether the stored state is unchanged since the last simulation.
+	private boolean isReady;		//whether the stored state is unchanged since the last simulation.
+	private int stateVersion;		//the number of times the stored state has been updated or copied.
+	private boolean resumed;		//whether the current simulation was resumed from a checkpoint.
 
 	/**
 	 * Simulator constructor.
@@ -195,7 +228,8 @@ public abstract class SimFitnessFunction4 {
 	 * @param routeLengths			an array of the number of roads in each route.
 	 * @param routeShovels			an array of the shovel at the end of each route.
 	 * @param routeCrushers			an array of the crusher at the start of each route.
-	 * @param tgen					a TimeDistrubtion specifying the distribution used for generating all stochastic values.
+	 * @param tgen					a TimeDistrubtion specifying the distribution used for generating all stochastic values,
+	 *								which is split so that each fitness function has its own random stream.
 	 */
 	public SimFitnessFunction4(int numTrucks, int numShovels, int numCrusherLocs, int[] numCrushers, int numRoads, 
 		double[] emptyTimesMean, double[] emptyTimesSD, double[] fillTimesMean, double[] fillTimesSD, double[][] roadTravelTimesMean, 
@@ -210,87 +244,29 @@ public abstract class SimFitnessFunction4 {
 		this.emptyTimesSD = emptyTimesSD;
 		this.fillTimesMean = fillTimesMean;
 		this.fillTimesSD = fillTimesSD;
-		this.roadTravelTimesMean = roadTravelTimesMean;
-		this.roadTravelTimesSD = roadTravelTimesSD;
 		this.fullSlowdown = fullSlowdown;
-		this.isOneWay = isOneWay;
 
 		this.numRoutes = numRoutes;
-		this.routeRoads = routeRoads;
-		this.routeLengths = routeLengths;
 		this.routeShovels = routeShovels;
 		this.routeCrushers = routeCrushers;
-		this.routeDirections = routeDirections;
 
-		numOneWay = 0;
-		lightIndexes = new int[numRoads];
-		reverseLightIndexes = new IntList();
-		for (int i=0; i<numRoads; i++) {
-			if (isOneWay[i]) {
-				lightIndexes[i] = numOneWay;
-				reverseLightIndexes.add(i);
-				numOneWay++;
-			}
-			else {
-				lightIndexes[i] = -1;
-			}
-		}
-		defaultRoute = new int[numCrusherLocs];
-		for (int i=0; i<numCrusherLocs; i++) {
-			defaultRoute[i] = -1;
-		}
-		for (int i=0; i<numRoutes; i++) {
-			if (defaultRoute[routeCrushers[i]] < 0) {
-				defaultRoute[routeCrushers[i]] = i;
-			}
-		}
-		for (int i=0; i<numCrusherLocs; i++) {
-			if (defaultRoute[i] < 0) {
-				throw new IllegalArgumentException(String.format("No routes out of crusher %d",i));
-			}
-		}
+		KernelHooks hooks = new KernelHooks();
+		kernel = new SimulationKernel(numTrucks,numShovels,numCrusherLocs,numCrushers,numRoads,emptyTimesMean,emptyTimesSD,fillTimesMean,
+			fillTimesSD,roadTravelTimesMean,roadTravelTimesSD,fullSlowdown,isOneWay,numRoutes,routeRoads,routeDirections,routeLengths,
+			routeShovels,routeCrushers,hooks,hooks,hooks);
+		layout = kernel.getLayout();
+		numOneWay = layout.getNumOneWay();
 		initialCrushers = null;
 		totalCrushingRate = 0;
 		for (int i=0; i<numCrusherLocs; i++) {
 			totalCrushingRate += numCrushers[i] / emptyTimesMean[i];
 		}
 
-		this.tgen = tgen;
-
-		eventQueue = new PriorityQueue<>();
-		instantQueue = new ShortPriorityQueue<>();
-		truckLocs = new TruckLocation[numTrucks];
-		assignedShovel = new int[numTrucks];
-		assignedCrusher = new int[numTrucks];
-		assignedRoute = new int[numTrucks];
-		routePoint = new int[numTrucks];
-		crusherQueues = new IntQueue[numCrusherLocs];
-		for (int i=0; i<numCrusherLocs; i++) {
-			crusherQueues[i] = new IntQueue();
-		}
-		shovelQueues = new IntQueue[numShovels];
-		for (int i=0; i<numShovels; i++) {
-			shovelQueues[i] = new IntQueue();
-		}
-		numEmptying = new int[numCrusherLocs];
-		shovelInUse = new boolean[numShovels];
-		lights = new TrafficLight[numOneWay];
-		lightQueues = new IntQueue[numOneWay][2];
-		for (int i=0; i<numOneWay; i++) {
-			for (int j=0; j<2; j++) {
-				lightQueues[i][j] = new IntQueue();
-			}
-		}
-		roadQueues = new IntQueue[numRoads][2];
-		for (int i=0; i<numRoads; i++) {
-			for (int j=0; j<2; j++) {
-				roadQueues[i][j] = new IntQueue();
-			}
-		}
-		lightSchedule = new ShortPriorityQueue<>();
-		greedyMode = new boolean[numOneWay];
-		roadAvailable = new double[numRoads][2];
-		roadPriority = new int[numRoads][2];
+		this.tgen = tgen.split();
+		kernel.setTimeDistribution(this.tgen);
+		commonRandomNumbers = false;
+		crnStream = new RandomStream();
+		crnSeed = crnStream.nextLong();
 
 		simLocs = new TruckLocation[numTrucks];
 		simAShovel = new int[numTrucks];
@@ -303,32 +279,10 @@ public abstract class SimFitnessFunction4 {
 		simGreedyMode = new boolean[numOneWay];
 		simLastTransition = new int[numTrucks];
 
+		stored = new SimState(numTrucks,numShovels,numCrusherLocs,numRoads,numOneWay);
+		exactState = false;
 		eventQueueStored = new ArrayList<>();
 		instantQueueStored = new ArrayList<>();
-		crusherQueuesStored = new IntQueue[numCrusherLocs];
-		for (int i=0; i<numCrusherLocs; i++) {
-			crusherQueuesStored[i] = new IntQueue();
-		}
-		shovelQueuesStored = new IntQueue[numShovels];
-		for (int i=0; i<numShovels; i++) {
-			shovelQueuesStored[i] = new IntQueue();
-		}
-		numEmptyingStored = new int[numCrusherLocs];
-		shovelInUseStored = new boolean[numShovels];
-		lightQueuesStored = new IntQueue[numOneWay][2];
-		for (int i=0; i<numOneWay; i++) {
-			for (int j=0; j<2; j++) {
-				lightQueuesStored[i][j] = new IntQueue();
-			}
-		}
-		roadQueuesStored = new IntQueue[numRoads][2];
-		for (int i=0; i<numRoads; i++) {
-			for (int j=0; j<2; j++) {
-				roadQueuesStored[i][j] = new IntQueue();
-			}
-		}
-		roadPriorityStored = new int[numRoads][2];
-		roadProgress = new double[numRoads][2];
 
 		lastServiceStart = new double[numTrucks];
 		serviceWaitingTime = new double[numTrucks];
@@ -341,12 +295,13 @@ public abstract class SimFitnessFunction4 {
 		dispatched = new int[numTrucks];
 		successfulFillsFromCrusher = new int[numCrusherLocs];
 		simDispatchTime = new double[numTrucks];
-		dispatchTime = new double[numTrucks];
 		completeCycles = new DoubleList();
 		lastCrusherChange = new double[numCrusherLocs];
 		individualTruckWaitingTime = new double[numTrucks];
 
 		isReady = false;
+		stateVersion = 0;
+		resumed = false;
 	}
 
 	/**
@@ -369,6 +324,36 @@ public abstract class SimFitnessFunction4 {
 		// this.initialCrushers = initialCrushers;
 	}
 
+	/**
+	 * Set whether to use common random numbers.
+	 * If used,
+	 * each truck draws random values from its own stream,
+	 * reseeded from the current scenario at the start of each cycle,
+	 * so that simulations of the same scenario share random values between the candidates being compared.
+	 *
+	 * @param	commonRandomNumbers	whether to use common random numbers.
+	 */
+	public void setCommonRandomNumbers(boolean commonRandomNumbers) {
+		this.commonRandomNumbers = commonRandomNumbers;
+		if (!commonRandomNumbers) {
+			kernel.setTimeDistribution(tgen);
+		}
+	}
+
+	/**
+	 * Select the scenario of the next simulation when using common random numbers.
+	 * Each subsequent simulation uses the following scenario.
+	 * Scenario seeds are redrawn whenever the stored state changes.
+	 *
+	 * @param	round		the comparison round,
+	 *						e.g. a decision or a generation.
+	 * @param	scenario	the scenario index within the round.
+	 */
+	public void setScenario(int round, int scenario) {
+		crnRound = round;
+		crnScenario = scenario;
+	}
+
 	/**
 	 * Get the next route for the given truck.
 	 * 
@@ -419,16 +404,25 @@ public abstract class SimFitnessFunction4 {
 			simGreedyMode[i] = true;
 		}
 		simTransitionCount = 0;
+		exactState = false;
 		isReady = false;
+		stateVersion++;
 	}
 
 	/**
 	 * Update the stored state for the trucks.
 	 * Should be used after each transition.
+	 * If the change provides a snapshot of the simulator state,
+	 * simulations are initialised from that exact state,
+	 * otherwise the state is reconstructed from the truck locations and progress values.
 	 * 
 	 * @param	change	a StateChange specifying the transition that occurred.
 	 */
 	public void event(StateChange change) {
+		exactState = change.hasState();
+		if (exactState) {
+			change.copyState(stored);
+		}
 		simTime = change.getTime();
 		int truck = change.getTruck();
 		simLocs[truck] = change.getTarget();
@@ -447,11 +441,14 @@ public abstract class SimFitnessFunction4 {
 		}
 
 		isReady = false;
+		stateVersion++;
 	}
 
 	/**
 	 * Update the stored state for the traffic lights.
 	 * Should be used after each change in traffic lights.
+	 * Simulations are initialised by reconstructing the state until the next transition,
+	 * as the effects of a light change on the trucks are not known until then.
 	 * 
 	 * @param	light		the road which changed light state.
 	 * @param	change		the new TrafficLight value.
@@ -461,7 +458,7 @@ public abstract class SimFitnessFunction4 {
 	 *						null if unchanged from previous updates.
 	 */
 	public void lightEvent(int road, TrafficLight change, double time, double schedule, double[] progress) {
-		int light = lightIndexes[road];
+		int light = kernel.getLightIndex(road);
 		simLights[light] = change;
 		simTime = time;
 		simLightSchedule[light] = schedule;
@@ -471,7 +468,9 @@ public abstract class SimFitnessFunction4 {
 				simProgress[i] = progress[i];
 			}
 		}
+		exactState = false;
 		isReady = false;
+		stateVersion++;
 	}
 
 	/**
@@ -481,105 +480,173 @@ public abstract class SimFitnessFunction4 {
 	 * @see isReady()
 	 */
 	protected void ready() {
+		if (!exactState) {
+			reconstructState();
+		}
+		loadStoredTransitions();
+		readyExact = exactState;
+		crnSeed = crnStream.nextLong();
+		isReady = true;
+	}
+
+	/**
+	 * Copy the stored state of another fitness function for the same problem,
+	 * so that simulations from this function start from the same state,
+	 * e.g. to evaluate fitness on several threads.
+	 * The other function is readied if required,
+	 * and its scenario seeds are shared when using common random numbers.
+	 * Subclasses with additional stored state should extend this method.
+	 *
+	 * @param	source	the fitness function to copy from.
+	 */
+	public void copyStoredState(SimFitnessFunction4 source) {
+		if (!source.isReady) {
+			source.ready();
+		}
+		simTime = source.simTime;
+		System.arraycopy(source.simLocs,0,simLocs,0,numTrucks);
+		System.arraycopy(source.simAShovel,0,simAShovel,0,numTrucks);
+		System.arraycopy(source.simACrusher,0,simACrusher,0,numTrucks);
+		System.arraycopy(source.simARoute,0,simARoute,0,numTrucks);
+		System.arraycopy(source.simRoutePoint,0,simRoutePoint,0,numTrucks);
+		System.arraycopy(source.simProgress,0,simProgress,0,numTrucks);
+		System.arraycopy(source.simDispatchTime,0,simDispatchTime,0,numTrucks);
+		System.arraycopy(source.simLastTransition,0,simLastTransition,0,numTrucks);
+		System.arraycopy(source.simLights,0,simLights,0,numOneWay);
+		System.arraycopy(source.simLightSchedule,0,simLightSchedule,0,numOneWay);
+		System.arraycopy(source.simGreedyMode,0,simGreedyMode,0,numOneWay);
+		simTransitionCount = source.simTransitionCount;
+		initialCrushers = source.initialCrushers;
+		setCommonRandomNumbers(source.commonRandomNumbers);
+		source.stored.copyInto(stored);
+		exactState = source.exactState;
+		loadStoredTransitions();
+		readyExact = source.readyExact;
+		crnSeed = source.crnSeed;
+		isReady = true;
+		stateVersion++;
+	}
+
+	/**
+	 * Split the pending transitions of the stored snapshot into instant and timed transitions,
+	 * with timed transitions ordered by priority.
+	 */
+	private void loadStoredTransitions() {
+		instantQueueStored.clear();
+		eventQueueStored.clear();
+		double time = stored.getTime();
+		int numTransitions = stored.getNumTransitions();
+		for (int i=0; i<numTransitions; i++) {
+			int tid = stored.getTransitionTruck(i);
+			TruckLocation source = stored.getTransitionSource(i);
+			TruckLocation target = stored.getTransitionTarget(i);
+			int priority = stored.getTransitionPriority(i);
+			if (stored.isTransitionTimed(i)) {
+				eventQueueStored.add(new Transition(tid,0,source,target,priority));
+			}
+			else {
+				instantQueueStored.add(new Transition(tid,time,source,target,priority));
+			}
+		}
+		Collections.sort(eventQueueStored);
+	}
+
+	/**
+	 * Reconstructs the stored snapshot from the stored truck locations and progress values,
+	 * used when the stored state was not copied from a simulator.
+	 * Trucks sharing a queue are ordered by progress,
+	 * then by the order of their most recent transitions.
+	 */
+	private void reconstructState() {
 		ArrayList<Tuple> progressList = new ArrayList<>(numTrucks);
 		for (int i=0; i<numTrucks; i++) {
 			progressList.add(new Tuple(i,simProgress[i],simLastTransition[i]));
 		}
 		Collections.sort(progressList);
-		instantQueueStored.clear();
-		eventQueueStored.clear();
+		stored.clear();
+		stored.setTime(simTime);
+		for (int i=0; i<numTrucks; i++) {
+			stored.setTruck(i,simLocs[i],simARoute[i],simRoutePoint[i],simAShovel[i],simACrusher[i]);
+		}
+		stored.setProgress(simProgress);
+		stored.setDispatchTimes(simDispatchTime);
 		for (int i=0; i<numCrusherLocs; i++) {
-			crusherQueuesStored[i].clear();
-			numEmptyingStored[i] = 0;
+			stored.setNumEmptying(i,0);
 		}
 		for (int i=0; i<numShovels; i++) {
-			shovelQueuesStored[i].clear();
-			shovelInUseStored[i] = false;
+			stored.setShovelInUse(i,false);
 		}
 		for (int i=0; i<numOneWay; i++) {
-			for (int j=0; j<2; j++) {
-				lightQueuesStored[i][j].clear();
-			}
+			stored.setLight(i,simLights[i],simLightSchedule[i],simGreedyMode[i]);
 		}
 		for (int i=0; i<numRoads; i++) {
 			for (int j=0; j<2; j++) {
-				roadPriorityStored[i][j] = Integer.MIN_VALUE;
-				roadQueuesStored[i][j].clear();
+				stored.setRoadPriority(i,j,Integer.MIN_VALUE);
 			}
 		}
 		for (Tuple p : progressList) {
 			int tid = p.t;
 			int point = simRoutePoint[tid];
 			int route = simARoute[tid];
-			int road;
-			int dir;
-			if (point < 0) {
-				road = routeRoads[route][0];
-				dir = routeDirections[route][0];
-			}
-			else if (point < routeLengths[route]) {
-				road = routeRoads[route][point];
-				dir = routeDirections[route][point];
-			}
-			else {
-				road = routeRoads[route][routeLengths[route] - 1];
-				dir = routeDirections[route][routeLengths[route] - 1];
-			}
+			int length = layout.getRouteLength(route);
+			int end = layout.getRoadEnd(route,Math.max(0,Math.min(point,length - 1)));
+			int road = end >> 1;
+			int dir = end & 1;
 			int sid = simAShovel[tid];
 			int cid = simACrusher[tid];
 			switch (simLocs[tid]) {
 				case WAITING: {
-					instantQueueStored.add(new Transition(tid,simTime,TruckLocation.WAITING,TruckLocation.WAITING,getPriority(tid,
-						TruckLocation.WAITING)));
+					stored.addTransition(tid,TruckLocation.WAITING,TruckLocation.WAITING,kernel.getPriority(tid,TruckLocation.WAITING),false);
 					break;
 				}
 				case TRAVEL_TO_SHOVEL: {
 					TruckLocation nextLoc;
-					if (point == routeLengths[route] - 1) {
+					if (point == length - 1) {
 						nextLoc = TruckLocation.APPROACHING_SHOVEL;
 					}
-					else if (isOneWay[routeRoads[route][point + 1]]) {
+					else if (layout.isOneWay(layout.getRoad(route,point + 1))) {
 						nextLoc = TruckLocation.APPROACHING_TL_CS;
 					}
 					else {
 						nextLoc = TruckLocation.TRAVEL_TO_SHOVEL;
 					}
-					eventQueueStored.add(new Transition(tid,0,TruckLocation.TRAVEL_TO_SHOVEL,nextLoc,roadPriorityStored[road][dir]));
-					roadPriorityStored[road][dir]++;
-					roadQueuesStored[road][dir].add(tid);
+					stored.addTransition(tid,TruckLocation.TRAVEL_TO_SHOVEL,nextLoc,stored.getRoadPriority(road,dir),true);
+					stored.incrementRoadPriority(road,dir);
+					stored.addToQueue(stored.roadQueue(road,dir),tid);
 					break;
 				}
 				case APPROACHING_TL_CS: {
-					instantQueueStored.add(new Transition(tid,simTime,TruckLocation.APPROACHING_TL_CS,TruckLocation.APPROACHING_TL_CS,
-						getPriority(tid,TruckLocation.APPROACHING_TL_CS)));
+					stored.addTransition(tid,TruckLocation.APPROACHING_TL_CS,TruckLocation.APPROACHING_TL_CS,kernel.getPriority(tid,
+						TruckLocation.APPROACHING_TL_CS),false);
 					if (point > 0) {
-						roadQueuesStored[routeRoads[route][point - 1]][/*dir*/routeDirections[route][point - 1]].addFront(tid);
+						int prev = layout.getRoadEnd(route,point - 1);
+						stored.addToQueueFront(stored.roadQueue(prev >> 1,prev & 1),tid);
 					}
 					break;
 				}
 				case STOPPED_AT_TL_CS: {
-					lightQueuesStored[lightIndexes[road]][dir].add(tid);
+					stored.addToQueue(stored.lightQueue(kernel.getLightIndex(road),dir),tid);
 					break;
 				}
 				case APPROACHING_SHOVEL: {
-					instantQueueStored.add(new Transition(tid,simTime,TruckLocation.APPROACHING_SHOVEL,TruckLocation.APPROACHING_SHOVEL,
-						getPriority(tid,TruckLocation.APPROACHING_SHOVEL)));
-					roadQueuesStored[road][dir].addFront(tid);
+					stored.addTransition(tid,TruckLocation.APPROACHING_SHOVEL,TruckLocation.APPROACHING_SHOVEL,kernel.getPriority(tid,
+						TruckLocation.APPROACHING_SHOVEL),false);
+					stored.addToQueueFront(stored.roadQueue(road,dir),tid);
 					break;
 				}
 				case WAITING_AT_SHOVEL: {
-					shovelQueuesStored[sid].add(tid);
+					stored.addToQueue(stored.shovelQueue(sid),tid);
 					break;
 				}
 				case FILLING: {
-					shovelInUseStored[sid] = true;
-					eventQueueStored.add(new Transition(tid,0,TruckLocation.FILLING,TruckLocation.LEAVING_SHOVEL,getPriority(tid,
-						TruckLocation.LEAVING_SHOVEL)));
+					stored.setShovelInUse(sid,true);
+					stored.addTransition(tid,TruckLocation.FILLING,TruckLocation.LEAVING_SHOVEL,kernel.getPriority(tid,
+						TruckLocation.LEAVING_SHOVEL),true);
 					break;
 				}
 				case LEAVING_SHOVEL: {
-					instantQueueStored.add(new Transition(tid,simTime,TruckLocation.LEAVING_SHOVEL,TruckLocation.LEAVING_SHOVEL,
-						getPriority(tid,TruckLocation.LEAVING_SHOVEL)));
+					stored.addTransition(tid,TruckLocation.LEAVING_SHOVEL,TruckLocation.LEAVING_SHOVEL,kernel.getPriority(tid,
+						TruckLocation.LEAVING_SHOVEL),false);
 					break;
 				}
 				case TRAVEL_TO_CRUSHER: {
@@ -587,65 +654,64 @@ public abstract class SimFitnessFunction4 {
 					if (point == 0) {
 						nextLoc = TruckLocation.APPROACHING_CRUSHER;
 					}
-					else if (isOneWay[routeRoads[route][point - 1]]) {
+					else if (layout.isOneWay(layout.getRoad(route,point - 1))) {
 						nextLoc = TruckLocation.APPROACHING_TL_SS;
 					}
 					else {
 						nextLoc = TruckLocation.TRAVEL_TO_CRUSHER;
 					}
-					eventQueueStored.add(new Transition(tid,0,TruckLocation.TRAVEL_TO_CRUSHER,nextLoc,roadPriorityStored[road][1 - dir]));
-					roadPriorityStored[road][1 - dir]++;
-					roadQueuesStored[road][1 - dir].add(tid);
+					stored.addTransition(tid,TruckLocation.TRAVEL_TO_CRUSHER,nextLoc,stored.getRoadPriority(road,1 - dir),true);
+					stored.incrementRoadPriority(road,1 - dir);
+					stored.addToQueue(stored.roadQueue(road,1 - dir),tid);
 					break;
 				}
 				case APPROACHING_TL_SS: {
-					instantQueueStored.add(new Transition(tid,simTime,TruckLocation.APPROACHING_TL_SS,TruckLocation.APPROACHING_TL_SS,
-						getPriority(tid,TruckLocation.APPROACHING_TL_SS)));
-					if (point < routeLengths[route] - 1) {
-						roadQueuesStored[routeRoads[route][point + 1]][1 - /*dir*/routeDirections[route][point + 1]].addFront(tid);
+					stored.addTransition(tid,TruckLocation.APPROACHING_TL_SS,TruckLocation.APPROACHING_TL_SS,kernel.getPriority(tid,
+						TruckLocation.APPROACHING_TL_SS),false);
+					if (point < length - 1) {
+						int prev = layout.getRoadEnd(route,point + 1) ^ 1;
+						stored.addToQueueFront(stored.roadQueue(prev >> 1,prev & 1),tid);
 					}
 					break;
 				}
 				case STOPPED_AT_TL_SS: {
-					lightQueuesStored[lightIndexes[road]][1 - dir].add(tid);
+					stored.addToQueue(stored.lightQueue(kernel.getLightIndex(road),1 - dir),tid);
 					break;
 				}
 				case APPROACHING_CRUSHER: {
-					instantQueueStored.add(new Transition(tid,simTime,TruckLocation.APPROACHING_CRUSHER,TruckLocation.APPROACHING_CRUSHER,
-						getPriority(tid,TruckLocation.APPROACHING_CRUSHER)));
-					roadQueuesStored[road][1 - dir].addFront(tid);
+					stored.addTransition(tid,TruckLocation.APPROACHING_CRUSHER,TruckLocation.APPROACHING_CRUSHER,kernel.getPriority(tid,
+						TruckLocation.APPROACHING_CRUSHER),false);
+					stored.addToQueueFront(stored.roadQueue(road,1 - dir),tid);
 					break;
 				}
 				case WAITING_AT_CRUSHER: {
-					crusherQueuesStored[cid].add(tid);
+					stored.addToQueue(stored.crusherQueue(cid),tid);
 					break;
 				}
 				case EMPTYING: {
-					numEmptyingStored[cid]++;
-					eventQueueStored.add(new Transition(tid,0,TruckLocation.EMPTYING,TruckLocation.WAITING,getPriority(tid,
-						TruckLocation.WAITING)));
+					stored.setNumEmptying(cid,stored.getNumEmptying(cid) + 1);
+					stored.addTransition(tid,TruckLocation.EMPTYING,TruckLocation.WAITING,kernel.getPriority(tid,
+						TruckLocation.WAITING),true);
 					break;
 				}
 			}
 		}
 		for (int i=0; i<numShovels; i++) {
-			if (!shovelInUseStored[i] && !shovelQueuesStored[i].isEmpty()) {
-				int head = shovelQueuesStored[i].poll();
-				instantQueueStored.add(new Transition(head,simTime,TruckLocation.WAITING_AT_SHOVEL,TruckLocation.FILLING,getPriority(head,
-					TruckLocation.FILLING)));
-				shovelInUseStored[i] = true;
+			if (!stored.isShovelInUse(i) && !stored.isQueueEmpty(stored.shovelQueue(i))) {
+				int head = stored.pollQueue(stored.shovelQueue(i));
+				stored.addTransition(head,TruckLocation.WAITING_AT_SHOVEL,TruckLocation.FILLING,kernel.getPriority(head,TruckLocation.FILLING),
+					false);
+				stored.setShovelInUse(i,true);
 			}
 		}
 		for (int i=0; i<numCrusherLocs; i++) {
-			while (numEmptyingStored[i] < numCrushers[i] && !crusherQueuesStored[i].isEmpty()) {
-				int head = crusherQueuesStored[i].poll();
-				instantQueueStored.add(new Transition(head,simTime,TruckLocation.WAITING_AT_CRUSHER,TruckLocation.EMPTYING,getPriority(
-					head,TruckLocation.EMPTYING)));
-				numEmptyingStored[i]++;
+			while (stored.getNumEmptying(i) < numCrushers[i] && !stored.isQueueEmpty(stored.crusherQueue(i))) {
+				int head = stored.pollQueue(stored.crusherQueue(i));
+				stored.addTransition(head,TruckLocation.WAITING_AT_CRUSHER,TruckLocation.EMPTYING,kernel.getPriority(head,TruckLocation.EMPTYING),
+					false);
+				stored.setNumEmptying(i,stored.getNumEmptying(i) + 1);
 			}
 		}
-		Collections.sort(eventQueueStored);
-		isReady = true;
 	}
 
 	/**
@@ -656,149 +722,53 @@ public abstract class SimFitnessFunction4 {
 	 * @see isReady()
 	 */
 	protected void reReady() {
-		currTime = simTime;
-		reTruckInfo();
-		reMachineInfo();
-		reRoadInfo();
-		reEventInfo();
-		numEmpties = 0;
-		resetStatistics();
-	}
-
-	/**
-	 * Initialises truck information.
-	 */
-	private void reTruckInfo() {
-		System.arraycopy(simLocs,0,truckLocs,0,numTrucks);
-		System.arraycopy(simAShovel,0,assignedShovel,0,numTrucks);
-		System.arraycopy(simACrusher,0,assignedCrusher,0,numTrucks);
-		System.arraycopy(simARoute,0,assignedRoute,0,numTrucks);
-		System.arraycopy(simRoutePoint,0,routePoint,0,numTrucks);
-		numUnused = 0;
-	}
-
-	/**
-	 * Initialises crusher and shovel information.
-	 */
-	private void reMachineInfo() {
-		for (int i=0; i<numCrusherLocs; i++) {
-			crusherQueues[i].clear();
-			crusherQueues[i].addAll(crusherQueuesStored[i]);
+		kernel.restore(stored);
+		reRandomInfo();
+		for (Transition t : instantQueueStored) {
+			kernel.addTransition(t.getIndex(),t.getSource(),t.getTarget(),t.getPriority());
 		}
-		System.arraycopy(numEmptyingStored,0,numEmptying,0,numCrusherLocs);
-		for (int i=0; i<numShovels; i++) {
-			shovelQueues[i].clear();
-			shovelQueues[i].addAll(shovelQueuesStored[i]);
+		for (Transition t : eventQueueStored) {
+			int tid = t.getIndex();
+			kernel.resumeTransition(tid,t.getSource(),t.getTarget(),t.getPriority(),stored.getProgress(tid));
 		}
-		System.arraycopy(shovelInUseStored,0,shovelInUse,0,numShovels);
+		resetStatistics();
+		resumed = false;
 	}
 
 	/**
-	 * Initialises road information.
+	 * Initialises the random stream of each truck if using common random numbers.
 	 */
-	private void reRoadInfo() {
-		lightSchedule.clear();
-		System.arraycopy(simLights,0,lights,0,numOneWay);
-		System.arraycopy(simGreedyMode,0,greedyMode,0,numOneWay);
-		for (int i=0; i<numOneWay; i++) {
-			for (int j=0; j<2; j++) {
-				lightQueues[i][j].clear();
-				lightQueues[i][j].addAll(lightQueuesStored[i][j]);
-			}
-			if (lights[i] == TrafficLight.GR || lights[i] == TrafficLight.RG) {
-				if (!greedyMode[i]) {
-					lightSchedule.add(new LightChange(reverseLightIndexes.get(i),simLightSchedule[i]));
-				}
-			}
-		}
-		for (int i=0; i<numRoads; i++) {
-			for (int j=0; j<2; j++) {
-				roadQueues[i][j].clear();
-				roadQueues[i][j].addAll(roadQueuesStored[i][j]);
+	private void reRandomInfo() {
+		if (commonRandomNumbers) {
+			scenarioSeed = RandomStream.mix(RandomStream.mix(crnSeed,crnRound),crnScenario);
+			crnScenario++;
+			for (int i=0; i<numTrucks; i++) {
+				reseedTruck(i,0);
 			}
-			Arrays.fill(roadAvailable[i],currTime);
-			System.arraycopy(roadPriorityStored[i],0,roadPriority[i],0,2);
-			Arrays.fill(roadProgress[i],1.0);
 		}
 	}
 
 	/**
-	 * Initialises event information.
+	 * Reseed the random stream of a truck for a cycle of the current scenario.
+	 *
+	 * @param	tid		the truck index.
+	 * @param	cycle	the cycle index.
 	 */
-	private void reEventInfo() {
-		instantQueue.clear();
-		instantQueue.addAll(instantQueueStored);
-		eventQueue.clear();
-		for (Transition t : eventQueueStored) {
-			int tid = t.getIndex();
-			TruckLocation source = t.getSource();
-			TruckLocation target = t.getTarget();
-			int priority = t.getPriority();
-			int route = assignedRoute[tid];
-			int point = routePoint[tid];
-			int road = -1;
-			int dir = -1;
-			if (point >= 0 && point < routeLengths[route]) {
-				road = routeRoads[route][point];
-				dir = routeDirections[route][point];
-			}
-			int sid = assignedShovel[tid];
-			int cid = assignedCrusher[tid];
-			double progress = simProgress[tid];
-			if (progress < 0 || progress > 1) {
-				throw new IllegalStateException("Illegal progress value found");
-			}
-			switch (source) {
-				case TRAVEL_TO_SHOVEL: {
-					if (roadProgress[road][dir] - progress > EPSILON) {
-						double travelTime = tgen.nextTime(roadTravelTimesMean[road][dir],roadTravelTimesSD[road][dir]) * (1 - progress);
-						roadAvailable[road][dir] = Math.max(roadAvailable[road][dir],currTime + travelTime);
-					}
-					roadProgress[road][dir] = progress;
-					eventQueue.add(new Transition(tid,roadAvailable[road][dir],source,target,priority));
-					routePoint[tid]++;
-					break;
-				}
-				case FILLING: {
-					double finish = currTime + tgen.nextTime(fillTimesMean[sid],fillTimesSD[sid]) * (1 - progress);
-					eventQueue.add(new Transition(tid,finish,source,target,priority));
-					break;
-				}
-				case TRAVEL_TO_CRUSHER: {
-					if (roadProgress[road][1 - dir] - progress > EPSILON) {
-						double travelTime = tgen.nextTime(roadTravelTimesMean[road][1 - dir],roadTravelTimesSD[road][1 - dir]) * 
-							(1 - progress) * fullSlowdown;
-						roadAvailable[road][1 - dir] = Math.max(roadAvailable[road][1 - dir],currTime + travelTime);
-					}
-					roadProgress[road][1 - dir] = progress;
-					eventQueue.add(new Transition(tid,roadAvailable[road][1 - dir],source,target,priority));
-					routePoint[tid]--;
-					break;
-				}
-				case EMPTYING: {
-					double emptyTime = tgen.nextTime(emptyTimesMean[cid],emptyTimesSD[cid]) * (1 - progress);
-					double finish = currTime + emptyTime;
-					eventQueue.add(new Transition(tid,finish,source,target,priority));
-					break;
-				}
-				default: {
-					throw new IllegalStateException(String.format("Stored non-instant event is invalid: %s",t));
-				}
-			}
-		}
+	private void reseedTruck(int tid, int cycle) {
+		kernel.setTimeDistribution(tid,tgen.withStream(new RandomStream(RandomStream.mix(RandomStream.mix(scenarioSeed,tid),cycle))));
 	}
 
 	/**
 	 * Initialises statistics.
 	 */
 	private void resetStatistics() {
+		double currTime = kernel.getTime();
 		Arrays.fill(lastServiceStart,currTime);
 		Arrays.fill(serviceWaitingTime,0);
 		Arrays.fill(lastWaitStart,currTime);
 		Arrays.fill(serviceAvailableTime,currTime);
 		Arrays.fill(roadWaitingTime,0);
 		Arrays.fill(dispatched,0);
-		System.arraycopy(simDispatchTime,0,dispatchTime,0,numTrucks);
 		Arrays.fill(lastEmptyEnd,currTime);
 		Arrays.fill(lastCrusherChange,currTime);
 		Arrays.fill(successfulFillsFromCrusher,0);
@@ -820,667 +790,177 @@ public abstract class SimFitnessFunction4 {
 	 * @param	runtime	the termination time of the simulation.
 	 */
 	public void simulate(double runtime) {
-		for (int i=0; i<numOneWay; i++) {
-			checkLights(reverseLightIndexes.get(i));
-		}
-		while (numUnused < numTrucks) {
-			Transition next = peekNextEvent();
-			if (next == null || (!lightSchedule.isEmpty() && lightSchedule.peek().time <= next.getTime())) {
-				if (lightSchedule.peek().time > runtime) {
-					break;
-				}
-				updateLights();
-				continue;
-			}
-			else if (next.getTime() > runtime) {
-				break;
-			}
-			if (!singleEvent()) {
-				break;
-			}
-		}
-	}
-
-	/**
-	 * Move the simulation forward by one transition.
-	 * 
-	 * @return	false if a termination request is received, true otherwise.
-	 * @throws	IllegalStateException	if a simulation error occurred,
-	 *									e.g. illegal route index, 
-	 *									approaching non-existent traffic lights,
-	 *									illegal traffic light state,
-	 *									illegal transition.
-	 */
-	private boolean singleEvent() {
-		Transition next = getNextEvent();
-		if (next.getTime() < currTime) {
-			throw new IllegalStateException("Negative time step");
-		}
-		currTime = next.getTime();
-		int tid = next.getIndex();
-		TruckLocation tOrigin = next.getSource();
-		TruckLocation tDest = next.getTarget();
-		if (tOrigin == truckLocs[tid]) {
-			switch (tDest) {
-				case WAITING: {
-					if (tOrigin == TruckLocation.EMPTYING) {
-						updateCrusher(assignedCrusher[tid]);
-						if (dispatched[tid] > 0) {
-							successfulEmpties++;
-						}
-						completeCycles.add(currTime - dispatchTime[tid]);
-					}
-					if (!getRoute(tid,true)) {
-						return false;
-					}
-					dispatched[tid]++;
-					dispatchTime[tid] = currTime;
-					break;
-				}
-				case TRAVEL_TO_SHOVEL: {
-					int road = routeRoads[assignedRoute[tid]][routePoint[tid]];
-					if (isOneWay[road]) {
-						roadWaitingTime[tid] += currTime - lastWaitStart[tid];
-						truckIdle += (currTime - lastWaitStart[tid]) * (totalCrushingRate / numTrucks);
-						individualTruckWaitingTime[tid] += (currTime - lastWaitStart[tid]);
-					}
-					else {
-						clearedRoad(tid,true);
-					}
-					eventQueue.add(preventCollisions(tid,true));
-					routePoint[tid]++;
-					break;
-				}
-				case APPROACHING_TL_CS: {
-					clearedRoad(tid,true);
-					arrivedAtLights(tid,true);
-					lastWaitStart[tid] = currTime;
-					break;
-				}
-				case STOPPED_AT_TL_CS: {
-					stoppedAtLights(tid);
-					break;
-				}
-				case APPROACHING_SHOVEL: {
-					clearedRoad(tid,true);
-					int sid = assignedShovel[tid];
-					TruckLocation nextLoc;
-					if (shovelInUse[sid]) {
-						nextLoc = TruckLocation.WAITING_AT_SHOVEL;
-						shovelQueues[sid].add(tid);
-					}
-					else {
-						nextLoc = TruckLocation.FILLING;
-						shovelInUse[sid] = true;
-					}
-					instantQueue.add(new Transition(tid,currTime,tDest,nextLoc,getPriority(tid,nextLoc)));
-					lastWaitStart[tid] = currTime;
-					break;
-				}
-				case WAITING_AT_SHOVEL: {
-					break;
-				}
-				case FILLING: {
-					int sid = assignedShovel[tid];
-					double fillTime = tgen.nextTime(fillTimesMean[sid],fillTimesSD[sid]);
-					eventQueue.add(new Transition(tid,currTime + fillTime,tDest,TruckLocation.LEAVING_SHOVEL,getPriority(tid,
-						TruckLocation.LEAVING_SHOVEL)));
-					lastServiceStart[tid] = currTime;
-					serviceWaitingTime[tid] += currTime - lastWaitStart[tid];
-					truckIdle += (currTime - lastWaitStart[tid]) * (totalCrushingRate / numTrucks);
-					individualTruckWaitingTime[tid] += (currTime - lastWaitStart[tid]);
-					serviceAvailableTime[tid] = lastFillEnd[sid];
-					shovelWaitingTime[sid] += currTime - lastFillEnd[sid];
-					shovelIdleOre += (currTime - lastFillEnd[sid]) / fillTimesMean[sid];
-					break;
-				}
-				case LEAVING_SHOVEL: {
-					int sid = assignedShovel[tid];
-					if (tOrigin == TruckLocation.FILLING) {
-						if (shovelQueues[sid].isEmpty()) {
-							shovelInUse[sid] = false;
-						}
-						else {
-							int head = shovelQueues[sid].poll();
-							instantQueue.add(new Transition(head,currTime,TruckLocation.WAITING_AT_SHOVEL,TruckLocation.FILLING,
-								getPriority(head,TruckLocation.FILLING)));
-						}
-						lastFillEnd[sid] = currTime;
-						if (dispatched[tid] > 0) {
-							successfulFills++;
-							successfulFillsFromCrusher[assignedCrusher[tid]]++;
-						}
-					}
-					if (!getRoute(tid,false)) {
-						return false;
-					}
-					break;
-				}
-				case TRAVEL_TO_CRUSHER: {
-					int road = routeRoads[assignedRoute[tid]][routePoint[tid]];
-					if (isOneWay[road]) {
-						roadWaitingTime[tid] += currTime - lastWaitStart[tid];
-						truckIdle += (currTime - lastWaitStart[tid]) * (totalCrushingRate / numTrucks);
-						individualTruckWaitingTime[tid] += (currTime - lastWaitStart[tid]);
-					}
-					else {
-						clearedRoad(tid,false);
-					}
-					eventQueue.add(preventCollisions(tid,false));
-					routePoint[tid]--;
-					break;
-				}
-				case APPROACHING_TL_SS: {
-					clearedRoad(tid,false);
-					arrivedAtLights(tid,false);
-					lastWaitStart[tid] = currTime;
-					break;
-				}
-				case STOPPED_AT_TL_SS: {
-					stoppedAtLights(tid);
-					break;
-				}
-				case APPROACHING_CRUSHER: {
-					clearedRoad(tid,false);
-					int cid = assignedCrusher[tid];
-					TruckLocation nextLoc;
-					if (numEmptying[cid] < numCrushers[cid]) {
-						nextLoc = TruckLocation.EMPTYING;
-						crusherIdleOre += (currTime - lastCrusherChange[cid]) * (numCrushers[cid] - numEmptying[cid]) / emptyTimesMean[cid];
-						numEmptying[cid]++;
-						lastCrusherChange[cid] = currTime;
-					}
-					else {
-						nextLoc = TruckLocation.WAITING_AT_CRUSHER;
-						crusherQueues[cid].add(tid);
-					}
-					instantQueue.add(new Transition(tid,currTime,tDest,nextLoc,getPriority(tid,nextLoc)));
-					lastWaitStart[tid] = currTime;
-					break;
-				}
-				case WAITING_AT_CRUSHER: {
-					break;
-				}
-				case EMPTYING: {
-					int cid = assignedCrusher[tid];
-					double emptyTime = tgen.nextTime(emptyTimesMean[cid],emptyTimesSD[cid]);
-					eventQueue.add(new Transition(tid,currTime + emptyTime,tDest,TruckLocation.WAITING,getPriority(tid,
-						TruckLocation.WAITING)));
-					lastServiceStart[tid] = currTime;
-					serviceWaitingTime[tid] += currTime - lastWaitStart[tid];
-					truckIdle += (currTime - lastWaitStart[tid]) * (totalCrushingRate / numTrucks);
-					individualTruckWaitingTime[tid] += (currTime - lastWaitStart[tid]);
-					serviceAvailableTime[tid] = lastEmptyEnd[cid];
-					break;
-				}
-				case UNUSED: {
-					numUnused++;
-					lastWaitStart[tid] = currTime;
-					break;
-				}
-				default: {
-					throw new IllegalStateException(String.format("Truck has entered illegal state: %s",tDest));
-				}
-			}
-			truckLocs[tid] = tDest;
+		if (!readyExact && !resumed) {
+			kernel.checkLights();
 		}
-		else {
-			throw new IllegalStateException(String.format("Transition occurred from %s to %s when truck is in %s",tOrigin,tDest,
-				truckLocs[tid]));
-		}
-		return true;
+		kernel.simulate(runtime);
 	}
 
 	/**
-	 * Used after a truck has finished emptying at a crusher location.
+	 * Set whether the subclass is notified before each dispatch from a crusher in the current simulation.
 	 *
-	 * @param	cid	the crusher location.
+	 * @param	notifyDispatches	whether to notify the subclass.
+	 * @see	beforeDispatch(int)
 	 */
-	private void updateCrusher(int cid) {
-		if (crusherQueues[cid].isEmpty()) {
-			crusherIdleOre += (currTime - lastCrusherChange[cid]) * (numCrushers[cid] - numEmptying[cid]) / emptyTimesMean[cid];
-			numEmptying[cid]--;
-			lastCrusherChange[cid] = currTime;
-		}
-		else {
-			int head = crusherQueues[cid].poll();
-			instantQueue.add(new Transition(head,currTime,TruckLocation.WAITING_AT_CRUSHER,TruckLocation.EMPTYING,getPriority(head,
-				TruckLocation.EMPTYING)));
-		}
-		numEmpties++;
-		lastEmptyEnd[cid] = currTime;
+	protected void setDispatchNotification(boolean notifyDispatches) {
+		kernel.setDispatchNotification(notifyDispatches);
 	}
 
 	/**
-	 * Used when a truck needs a new destination.
+	 * Used between events when the next transition will request a route for a truck at a crusher,
+	 * if dispatch notification is enabled,
+	 * e.g. to save a checkpoint before the routing decision.
+	 * Does nothing by default.
 	 *
-	 * @param	tid			the truck index.
-	 * @param	toShovel	whether the truck is heading towards a shovel.
-	 * @return	false if the simulation should terminate,
-	 *			true otherwise.
+	 * @param	tid	the index of the truck about to require routing.
 	 */
-	private boolean getRoute(int tid, boolean toShovel) {
-		int route = nextRoute(tid);
-		int[] routeMachines;
-		int mid;
-		TruckLocation origin;
-		if (toShovel) {
-			routeMachines = routeCrushers;
-			mid = assignedCrusher[tid];
-			origin = TruckLocation.WAITING;
-		}
-		else {
-			routeMachines = routeShovels;
-			mid = assignedShovel[tid];
-			origin = TruckLocation.LEAVING_SHOVEL;
-		}
-		if (route < 0) {
-			if (route == -2) {
-				instantQueue.add(new Transition(tid,currTime,origin,TruckLocation.UNUSED,getPriority(tid,TruckLocation.UNUSED)));
-				return true;
-			}
-			return false;
-		}
-		if (routeMachines[route] != mid) {
-			throw new IllegalStateException(String.format("Illegal route supplied: %d at %s %d",route,(toShovel ? "crusher" : "shovel"),
-				mid));
-		}
-		assignedRoute[tid] = route;
-		assignedCrusher[tid] = routeCrushers[route];
-		assignedShovel[tid] = routeShovels[route];
-		TruckLocation target;
-		if (toShovel) {
-			routePoint[tid] = 0;
-			target = (isOneWay[routeRoads[route][0]] ? TruckLocation.APPROACHING_TL_CS : TruckLocation.TRAVEL_TO_SHOVEL);
-		}
-		else {
-			routePoint[tid] = routeLengths[route] - 1;
-			target = (isOneWay[routeRoads[route][routePoint[tid]]] ? TruckLocation.APPROACHING_TL_SS : TruckLocation.TRAVEL_TO_CRUSHER);
-		}
-		instantQueue.add(new Transition(tid,currTime,origin,target,getPriority(tid,target)));
-		return true;
-	}
-
-	/**
-	 * Used after a truck has completed a travel transition.
-	 *
-	 * @param	tid			the index of the truck that cleared a road.
-	 * @param	toShovel	whether the truck was heading towards a shovel or not.
-	 * @throws	IllegalStateException if this truck cleared a road before a truck ahead of it.
-	 */
-	private void clearedRoad(int tid, boolean toShovel) {
-		int route = assignedRoute[tid];
-		int startPoint = (toShovel ? 0 : routeLengths[route] - 1);
-		int point = routePoint[tid];
-		int off = (toShovel ? -1 : 1);
-		if (point != startPoint) {
-			int dir = routeDirections[route][point + off];
-			int to = (toShovel ? dir : 1 - dir);
-			int prevRoad = routeRoads[route][point + off];
-			int front = roadQueues[prevRoad][to].poll();
-			if (front != tid) {
-				throw new IllegalStateException("Trucks out of order");
-			}
-			if (isOneWay[prevRoad]) {
-				checkLights(prevRoad);
-			}
-		}
-	}
-
-	/**
-	 * Get the priority for a transition.
-	 * Should only affect event order when a non-random time distribution is used.
-	 * Should not be used for travel transitions --
-	 * those are controlled by using the roadPriority variable.
-	 * 
-	 * @param	tid		the index of the truck to transition.
-	 * @param	dest	the destination TruckLocation of the transition.
-	 * @return	the priority of the transition.
-	 * @throws	IllegalArgumentException if dest is illegal.
-	 */
-	private int getPriority(int tid, TruckLocation dest) {
-		switch (dest) {
-			case WAITING: {
-				return numTrucks * 4 + tid;
-			}
-			case APPROACHING_TL_CS: {
-				return numTrucks * 3 + tid;
-			}
-			case STOPPED_AT_TL_CS: {
-				return tid;
-			}
-			case TRAVEL_TO_SHOVEL: {
-				return numTrucks + tid;
-			}
-			case APPROACHING_SHOVEL: {
-				return numTrucks * 5 + tid;
-			}
-			case WAITING_AT_SHOVEL: {
-				return numTrucks * 2 + tid;
-			}
-			case FILLING: {
-				return numTrucks * 2 + tid;
-			}
-			case LEAVING_SHOVEL: {
-				return numTrucks * 4 + tid;
-			}
-			case TRAVEL_TO_CRUSHER: {
-				return numTrucks + tid;
-			}
-			case APPROACHING_TL_SS: {
-				return numTrucks * 3 + tid;
-			}
-			case STOPPED_AT_TL_SS: {
-				return tid;
-			}
-			case APPROACHING_CRUSHER: {
-				return numTrucks * 5 + tid;
-			}
-			case WAITING_AT_CRUSHER: {
-				return numTrucks * 2 + tid;
-			}
-			case EMPTYING: {
-				return numTrucks * 2 + tid;
-			}
-			case UNUSED: {
-				return -1;
-			}
-			default: {
-				throw new IllegalArgumentException(String.format("Truck cannot transition to: %s",dest));
-			}
-		}
-	}
+	protected void beforeDispatch(int tid) {}
 
 	/**
-	 * Used when a traffic arrives at traffic lights.
+	 * Create an empty checkpoint for the simulations of this fitness function.
+	 * Subclasses with additional simulation state should extend this method and the save and load methods.
 	 *
-	 * @param	tid			the index of the truck that cleared a road.
-	 * @param	toShovel	whether the truck was heading towards a shovel or not.
+	 * @return	a new SimCheckpoint.
 	 */
-	private void arrivedAtLights(int tid, boolean toShovel) {
-		int road = routeRoads[assignedRoute[tid]][routePoint[tid]];
-		if (!isOneWay[road]) {
-			throw new IllegalStateException(String.format("Arrived at lights for two-way road %d",road));
-		}
-		int dir = routeDirections[assignedRoute[tid]][routePoint[tid]];
-		TruckLocation stopTarget;
-		TruckLocation travelTarget;
-		TruckLocation origin;
-		if (toShovel) {
-			origin = TruckLocation.APPROACHING_TL_CS;
-			stopTarget = TruckLocation.STOPPED_AT_TL_CS;
-			travelTarget = TruckLocation.TRAVEL_TO_SHOVEL;
-		}
-		else {
-			dir = 1 - dir;
-			origin = TruckLocation.APPROACHING_TL_SS;
-			stopTarget = TruckLocation.STOPPED_AT_TL_SS;
-			travelTarget = TruckLocation.TRAVEL_TO_CRUSHER;
-		}
-		int lIndex = lightIndexes[road];
-		switch (lights[lIndex]) {
-			case RR:
-			case YR:
-			case RY: {
-				instantQueue.add(new Transition(tid,currTime,origin,stopTarget,getPriority(tid,stopTarget)));
-				lightQueues[lIndex][dir].add(tid);
-				break;
-			}
-			case RG: {
-				if (dir == 0) {
-					instantQueue.add(new Transition(tid,currTime,origin,stopTarget,getPriority(tid,stopTarget)));
-					lightQueues[lIndex][dir].add(tid);
-					if (greedyMode[lIndex]) {
-						lights[lIndex] = TrafficLight.RY;
-					}
-				}
-				else {
-					instantQueue.add(new Transition(tid,currTime,origin,travelTarget,getPriority(tid,travelTarget)));
-				}
-				break;
-			}
-			case GR: {
-				if (dir == 0) {
-					instantQueue.add(new Transition(tid,currTime,origin,travelTarget,getPriority(tid,travelTarget)));
-				}
-				else {
-					instantQueue.add(new Transition(tid,currTime,origin,stopTarget,getPriority(tid,stopTarget)));
-					lightQueues[lIndex][dir].add(tid);
-					if (greedyMode[lIndex]) {
-						lights[lIndex] = TrafficLight.YR;
-					}
-				}
-				break;
-			}
-			default: {
-				throw new IllegalStateException(String.format("Illegal light configuration: %s",lights[lIndex]));
-			}
-		}
+	protected SimCheckpoint newCheckpoint() {
+		return new SimCheckpoint(kernel.newCheckpoint(),numTrucks,numShovels,numCrusherLocs);
 	}
 
 	/**
-	 * Used when a traffic stops at traffic lights.
+	 * Copy the current simulation and its statistics into a checkpoint.
+	 * Only supported when using common random numbers,
+	 * as the random stream of each truck is rebuilt from the scenario when the checkpoint is loaded.
+	 * Should only be used between events.
 	 *
-	 * @param	tid			the index of the truck that cleared a road.
+	 * @param	target	the checkpoint to overwrite.
+	 * @throws	IllegalStateException if not using common random numbers.
+	 * @see	beforeDispatch(int)
 	 */
-	private void stoppedAtLights(int tid) {
-		int road = routeRoads[assignedRoute[tid]][routePoint[tid]];
-		int lIndex = lightIndexes[road];
-		if (greedyMode[lIndex]) {
-			checkLights(road);
-		}
+	protected void saveCheckpoint(SimCheckpoint target) {
+		if (!commonRandomNumbers) {
+			throw new IllegalStateException("Checkpoints require common random numbers");
+		}
+		kernel.saveCheckpoint(target.kernel);
+		System.arraycopy(lastServiceStart,0,target.lastServiceStart,0,numTrucks);
+		System.arraycopy(serviceWaitingTime,0,target.serviceWaitingTime,0,numTrucks);
+		System.arraycopy(lastWaitStart,0,target.lastWaitStart,0,numTrucks);
+		System.arraycopy(serviceAvailableTime,0,target.serviceAvailableTime,0,numTrucks);
+		System.arraycopy(lastFillEnd,0,target.lastFillEnd,0,numShovels);
+		System.arraycopy(lastEmptyEnd,0,target.lastEmptyEnd,0,numCrusherLocs);
+		System.arraycopy(roadWaitingTime,0,target.roadWaitingTime,0,numTrucks);
+		System.arraycopy(shovelWaitingTime,0,target.shovelWaitingTime,0,numShovels);
+		System.arraycopy(dispatched,0,target.dispatched,0,numTrucks);
+		target.successfulFills = successfulFills;
+		target.shovelIdleOre = shovelIdleOre;
+		target.successfulEmpties = successfulEmpties;
+		System.arraycopy(successfulFillsFromCrusher,0,target.successfulFillsFromCrusher,0,numCrusherLocs);
+		target.truckIdle = truckIdle;
+		target.completeCycles.clear();
+		target.completeCycles.addAll(completeCycles);
+		System.arraycopy(lastCrusherChange,0,target.lastCrusherChange,0,numCrusherLocs);
+		target.crusherIdleOre = crusherIdleOre;
+		System.arraycopy(individualTruckWaitingTime,0,target.individualTruckWaitingTime,0,numTrucks);
 	}
 
 	/**
-	 * Check whether traffic lights on a road are yellow and should change state.
-	 * Used after a truck clears a one-lane road.
+	 * Resume the current simulation from a checkpoint saved in the same scenario,
+	 * after the simulator has been initialised.
+	 * The random stream of each truck is reseeded for its current cycle,
+	 * and advanced past the values drawn before the checkpoint,
+	 * so that the rest of the simulation is identical to continuing from the point the checkpoint was saved.
+	 * The next call to simulate continues without rechecking the lights.
 	 *
-	 * @param	road	the road index.
+	 * @param	source	the checkpoint.
+	 * @throws	IllegalStateException if not using common random numbers.
+	 * @see	reReady()
 	 */
-	private void checkLights(int road) {
-		if (roadQueues[road][0].isEmpty() && roadQueues[road][1].isEmpty()) {
-			int side;
-			int lIndex = lightIndexes[road];
-			switch (lights[lIndex]) {
-				case YR: {
-					lights[lIndex] = TrafficLight.RG;
-					side = 1;
-					break;
-				}
-				case RY: {
-					lights[lIndex] = TrafficLight.GR;
-					side = 0;
-					break;
-				}
-				default: {
-					return;
-				}
-			}
-			int size = lightQueues[lIndex][side].size();
-			for (int i=0; i<size; i++) {
-				int front = lightQueues[lIndex][side].poll();
-				roadPriority[road][side]++;
-				TruckLocation origin;
-				TruckLocation target;
-				switch (truckLocs[front]) {
-					case APPROACHING_TL_SS:
-					case STOPPED_AT_TL_SS: {
-						origin = TruckLocation.STOPPED_AT_TL_SS;
-						target = TruckLocation.TRAVEL_TO_CRUSHER;
-						break;
-					}
-					case APPROACHING_TL_CS:
-					case STOPPED_AT_TL_CS: {
-						origin = TruckLocation.STOPPED_AT_TL_CS;
-						target = TruckLocation.TRAVEL_TO_SHOVEL;
-						break;
-					}
-					default: {
-						throw new IllegalStateException("Truck is at light queue but not stopped");
-					}
-				}
-				instantQueue.add(new Transition(front,currTime,origin,target,roadPriority[road][side]));
-			}
-			double lightTime = getNextLight(road,lights[lIndex]);
-			if (lightTime < 0) {
-				throw new RuntimeException("Negative light schedule");
-			}
-			else if (lightTime == 0) {
-				greedyMode[lIndex] = true;
-				if (!lightQueues[lIndex][1 - side].isEmpty()) {
-					switch (lights[lIndex]) {
-						case GR: {
-							lights[lIndex] = TrafficLight.YR;
-							break;
-						}
-						case RG: {
-							lights[lIndex] = TrafficLight.RY;
-							break;
-						}
-						default: {
-							throw new IllegalStateException("Lights not green after change");
-						}
-					}
-					if (size == 0) {
-						checkLights(road);
-					}
-				}
-			}
-			else {
-				lightSchedule.add(new LightChange(road,currTime + lightTime));
-				greedyMode[lIndex] = false;
-			}
+	protected void loadCheckpoint(SimCheckpoint source) {
+		if (!commonRandomNumbers) {
+			throw new IllegalStateException("Checkpoints require common random numbers");
+		}
+		kernel.loadCheckpoint(source.kernel);
+		System.arraycopy(source.lastServiceStart,0,lastServiceStart,0,numTrucks);
+		System.arraycopy(source.serviceWaitingTime,0,serviceWaitingTime,0,numTrucks);
+		System.arraycopy(source.lastWaitStart,0,lastWaitStart,0,numTrucks);
+		System.arraycopy(source.serviceAvailableTime,0,serviceAvailableTime,0,numTrucks);
+		System.arraycopy(source.lastFillEnd,0,lastFillEnd,0,numShovels);
+		System.arraycopy(source.lastEmptyEnd,0,lastEmptyEnd,0,numCrusherLocs);
+		System.arraycopy(source.roadWaitingTime,0,roadWaitingTime,0,numTrucks);
+		System.arraycopy(source.shovelWaitingTime,0,shovelWaitingTime,0,numShovels);
+		System.arraycopy(source.dispatched,0,dispatched,0,numTrucks);
+		successfulFills = source.successfulFills;
+		shovelIdleOre = source.shovelIdleOre;
+		successfulEmpties = source.successfulEmpties;
+		System.arraycopy(source.successfulFillsFromCrusher,0,successfulFillsFromCrusher,0,numCrusherLocs);
+		truckIdle = source.truckIdle;
+		completeCycles.clear();
+		completeCycles.addAll(source.completeCycles);
+		System.arraycopy(source.lastCrusherChange,0,lastCrusherChange,0,numCrusherLocs);
+		crusherIdleOre = source.crusherIdleOre;
+		System.arraycopy(source.individualTruckWaitingTime,0,individualTruckWaitingTime,0,numTrucks);
+		for (int i=0; i<numTrucks; i++) {
+			int draws = kernel.getNumDraws(i);
+			reseedTruck(i,dispatched[i]);
+			kernel.skipDraws(i,draws);
 		}
+		resumed = true;
 	}
 
 	/**
-	 * Advance the simulation to the next scheduled light change.
+	 * Get the number of empties.
+	 * 
+	 * @return	the number of empties.
 	 */
-	private void updateLights() {
-		LightChange change = lightSchedule.poll();
-		int road = change.road;
-		int lIndex = lightIndexes[road];
-		if (change.time < currTime) {
-			throw new IllegalStateException("Negative time step");
-		}
-		currTime = change.time;
-		TrafficLight yellow;
-		switch (lights[lIndex]) {
-			case GR: {
-				yellow = TrafficLight.YR;
-				break;
-			}
-			case RG: {
-				yellow = TrafficLight.RY;
-				break;
-			}
-			default: {
-				throw new IllegalStateException("Light change scheduled for non-green light");
-			}
-		}
-		double lightTime = getNextLight(road,yellow);
-		if (lightTime > 0) {
-			lightSchedule.add(new LightChange(road,currTime + lightTime));
-		}
-		else if (lightTime == 0) {
-			lights[lIndex] = yellow;
-			checkLights(road);
-		}
-		else {
-			throw new RuntimeException("Negative light schedule");
-		}
+	public int getNumEmpties() {
+		return kernel.getNumEmpties();
 	}
 
 	/**
-	 * Removes and returns the next upcoming transition.
+	 * Get the number of simulation events processed by this fitness function.
 	 * 
-	 * @return	the next Transition.
+	 * @return	the number of transitions simulated since construction.
 	 */
-	private Transition getNextEvent() {
-		if (!instantQueue.isEmpty()) {
-			return instantQueue.poll();
-		}
-		else {
-			return eventQueue.poll();
-		}
+	public long getNumEvents() {
+		return kernel.getNumEvents();
 	}
 
 	/**
-	 * Returns but does not remove the next upcoming transition.
-	 * 
-	 * @return	the next Transition.
+	 * @return	true if ready() has been called once since the simulation was last updated.
+	 * @see	ready()
 	 */
-	private Transition peekNextEvent() {
-		if (!instantQueue.isEmpty()) {
-			return instantQueue.peek();
-		}
-		else {
-			return eventQueue.peek();
-		}
+	protected boolean isReady() {
+		return isReady;
 	}
 
 	/**
-	 * Creates a transition with adjusted travel time and priority to prevent overtaking.
-	 * 
-	 * @param	tid			the index of the transitioning truck.
-	 * @param	toShovel	whether the truck is heading to a shovel or not.
-	 * @return	a Transition.
+	 * Get the version of the stored state,
+	 * which changes whenever the stored state is updated or copied from another fitness function,
+	 * e.g. to invalidate results cached for an earlier state.
+	 *
+	 * @return	the version number.
 	 */
-	private Transition preventCollisions(int tid, boolean toShovel) {
-		int point = routePoint[tid];
-		int route = assignedRoute[tid];
-		int road = routeRoads[route][point];
-		int dir = routeDirections[route][point];
-		int to = (toShovel ? dir : 1 - dir);
-		double travelTime = tgen.nextTime(roadTravelTimesMean[road][to],roadTravelTimesSD[road][to]) * (toShovel ? 1 : fullSlowdown);
-		double actualArrival = Math.max(currTime + travelTime,roadAvailable[road][to]);
-		roadAvailable[road][to] = actualArrival;
-		TruckLocation travelLoc;
-		TruckLocation targetLoc;
-		if (toShovel) {
-			travelLoc = TruckLocation.TRAVEL_TO_SHOVEL;
-			if (point == routeLengths[route] - 1) {
-				targetLoc = TruckLocation.APPROACHING_SHOVEL;
-			}
-			else if (isOneWay[routeRoads[route][point + 1]]) {
-				targetLoc = TruckLocation.APPROACHING_TL_CS;
-			}
-			else {
-				targetLoc = TruckLocation.TRAVEL_TO_SHOVEL;
-			}
-		}
-		else {
-			travelLoc = TruckLocation.TRAVEL_TO_CRUSHER;
-			if (point == 0) {
-				targetLoc = TruckLocation.APPROACHING_CRUSHER;
-			}
-			else if (isOneWay[routeRoads[route][point - 1]]) {
-				targetLoc = TruckLocation.APPROACHING_TL_SS;
-			}
-			else {
-				targetLoc = TruckLocation.TRAVEL_TO_CRUSHER;
-			}
-		}
-		roadPriority[road][to]++;
-		roadQueues[road][to].add(tid);
-		return new Transition(tid,actualArrival,travelLoc,targetLoc,roadPriority[road][to]);
+	public int getStateVersion() {
+		return stateVersion;
 	}
 
 	/**
-	 * Get the number of empties.
-	 * 
-	 * @return	the number of empties.
+	 * Get whether common random numbers are used.
+	 *
+	 * @return	true if each truck uses its own stream reseeded per scenario and cycle,
+	 *			false otherwise.
 	 */
-	public int getNumEmpties() {
-		return numEmpties;
+	protected boolean isCommonRandomNumbers() {
+		return commonRandomNumbers;
 	}
 
 	/**
-	 * @return	true if ready() has been called once since the simulation was last updated.
-	 * @see	ready()
+	 * Get the seed of the scenario of the current simulation when using common random numbers,
+	 * which identifies the random values used by the simulation.
+	 *
+	 * @return	the scenario seed.
 	 */
-	protected boolean isReady() {
-		return isReady;
+	protected long getScenarioSeed() {
+		return scenarioSeed;
 	}
 
 	/**
@@ -1509,7 +989,7 @@ public abstract class SimFitnessFunction4 {
 	 * @return	the location.
 	 */
 	protected TruckLocation getTruckLoc(int tid) {
-		return truckLocs[tid];
+		return kernel.getTruckLocation(tid);
 	}
 
 	/**
@@ -1519,7 +999,7 @@ public abstract class SimFitnessFunction4 {
 	 * @return	the route index.
 	 */
 	protected int getAssignedRoute(int tid) {
-		return assignedRoute[tid];
+		return kernel.getAssignedRoute(tid);
 	}
 
 	/**
@@ -1528,7 +1008,7 @@ public abstract class SimFitnessFunction4 {
 	 * @return	the current simulation time.
 	 */
 	protected double getCurrentTime() {
-		return currTime;
+		return kernel.getTime();
 	}
 
 	/**
@@ -1538,7 +1018,7 @@ public abstract class SimFitnessFunction4 {
 	 * @return	the crusher index.
 	 */
 	protected int getAssignedCrusher(int tid) {
-		return assignedCrusher[tid];
+		return kernel.getAssignedCrusher(tid);
 	}
 
 	/**
@@ -1548,7 +1028,7 @@ public abstract class SimFitnessFunction4 {
 	 * @return	the shovel index.
 	 */
 	protected int getAssignedShovel(int tid) {
-		return assignedShovel[tid];
+		return kernel.getAssignedShovel(tid);
 	}
 
 	/**
@@ -1635,7 +1115,7 @@ public abstract class SimFitnessFunction4 {
 	 *			or -1 if the road is two-lane.
 	 */
 	protected int getLightIndex(int road) {
-		return lightIndexes[road];
+		return kernel.getLightIndex(road);
 	}
 
 	/**
@@ -1751,8 +1231,9 @@ public abstract class SimFitnessFunction4 {
 	protected double getCrusherIdleOre(double endtime) {
 		double out = crusherIdleOre;
 		for (int i=0; i<numCrusherLocs; i++) {
-			if (numEmptying[i] < numCrushers[i]) {
-				out += (endtime - lastCrusherChange[i]) * (numCrushers[i] - numEmptying[i]) / emptyTimesMean[i];
+			int numEmptying = kernel.getNumEmptying(i);
+			if (numEmptying < numCrushers[i]) {
+				out += (endtime - lastCrusherChange[i]) * (numCrushers[i] - numEmptying) / emptyTimesMean[i];
 			}
 		}
 		return out;
@@ -1774,7 +1255,7 @@ public abstract class SimFitnessFunction4 {
 	protected double getTruckIdle(double endtime) {
 		double out = truckIdle;
 		for (int i=0; i<numTrucks; i++) {
-			switch (truckLocs[i]) {
+			switch (kernel.getTruckLocation(i)) {
 				case STOPPED_AT_TL_CS:
 				case WAITING_AT_SHOVEL:
 				case STOPPED_AT_TL_SS:
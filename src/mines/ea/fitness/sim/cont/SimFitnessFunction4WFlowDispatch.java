@@ -171,6 +171,28 @@ public abstract class SimFitnessFunction4WFlowDispatch extends SimFitnessFunctio
 		super.event(change);
 	}
 
+	/**
+	 * Copy the stored state of another fitness function for the same problem,
+	 * including the stored FCS schedule.
+	 *
+	 * @param	source	the fitness function to copy from.
+	 */
+	@Override
+	public void copyStoredState(SimFitnessFunction4 source) {
+		super.copyStoredState(source);
+		SimFitnessFunction4WFlowDispatch other = (SimFitnessFunction4WFlowDispatch) source;
+		int numCrusherLocs = getNumCrusherLocs();
+		int numShovels = getNumShovels();
+		for (int i=0; i<numCrusherLocs; i++) {
+			simUpcomingDests[i].clear();
+			simUpcomingDests[i].addAll(other.simUpcomingDests[i]);
+		}
+		for (int i=0; i<numShovels; i++) {
+			simUpcomingReturns[i].clear();
+			simUpcomingReturns[i].addAll(other.simUpcomingReturns[i]);
+		}
+	}
+
 	/**
 	 * Readies the simulator for initialisation based on the stored state.
 	 * Should be run once if the stored state has changed.
@@ -11,6 +11,25 @@ import mines.sol.lp.FlowCycleLightTimerController;
  */
 public abstract class SimFitnessFunction4WTimer extends SimFitnessFunction4 {
 
+	/**
+	 * A checkpoint that also holds the number of changes to green for each light.
+	 */
+	private static class TimerCheckpoint extends SimCheckpoint {
+
+		private int[] lightChanges;	//the number of changes to green for each light.
+
+		/**
+		 * Checkpoint constructor.
+		 *
+		 * @param	base		an empty checkpoint of the superclass.
+		 * @param	numOneWay	the number of one-lane roads.
+		 */
+		public TimerCheckpoint(SimCheckpoint base, int numOneWay) {
+			super(base);
+			lightChanges = new int[numOneWay];
+		}
+	}
+
 	private double[][] lightSchedule;	//the cyclic light schedule.
 
 	private int[] simLightChanges;	//the number of changes to green for each light in stored state.
@@ -128,6 +147,19 @@ public abstract class SimFitnessFunction4WTimer extends SimFitnessFunction4 {
 		}
 	}
 
+	/**
+	 * Copy the stored state of another fitness function for the same problem,
+	 * including the number of changes to green.
+	 *
+	 * @param	source	the fitness function to copy from.
+	 */
+	@Override
+	public void copyStoredState(SimFitnessFunction4 source) {
+		super.copyStoredState(source);
+		int[] sourceChanges = ((SimFitnessFunction4WTimer) source).simLightChanges;
+		System.arraycopy(sourceChanges,0,simLightChanges,0,getNumOneWay());
+	}
+
 	/**
 	 * Readies the simulator for initialisation based on the stored state.
 	 * Should be run once if the stored state has changed.
@@ -139,4 +171,33 @@ public abstract class SimFitnessFunction4WTimer extends SimFitnessFunction4 {
 		System.arraycopy(simLightChanges,0,lightChanges,0,numOneWay);
 	}
 
+	@Override
+	protected SimCheckpoint newCheckpoint() {
+		return new TimerCheckpoint(super.newCheckpoint(),getNumOneWay());
+	}
+
+	/**
+	 * Copy the current simulation and its statistics into a checkpoint,
+	 * including the number of changes to green.
+	 *
+	 * @param	target	a checkpoint created by this fitness function.
+	 */
+	@Override
+	protected void saveCheckpoint(SimCheckpoint target) {
+		super.saveCheckpoint(target);
+		System.arraycopy(lightChanges,0,((TimerCheckpoint) target).lightChanges,0,getNumOneWay());
+	}
+
+	/**
+	 * Resume the current simulation from a checkpoint,
+	 * including the number of changes to green.
+	 *
+	 * @param	source	a checkpoint created by this fitness function.
+	 */
+	@Override
+	protected void loadCheckpoint(SimCheckpoint source) {
+		super.loadCheckpoint(source);
+		System.arraycopy(((TimerCheckpoint) source).lightChanges,0,lightChanges,0,getNumOneWay());
+	}
+
 }
\ No newline at end of file
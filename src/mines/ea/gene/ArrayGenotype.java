@@ -1,5 +1,6 @@
 package mines.ea.gene;
 
+import mines.util.Fingerprint;
 import java.util.*;
 
 /**
@@ -7,7 +8,8 @@ import java.util.*;
  */
 public class ArrayGenotype implements Genotype {
 
-	private int[] string;	//genotype array.
+	private int[] string;		//genotype array.
+	private long fingerprint;	//fingerprint of the genotype array.
 
 	/**
 	 * Genotype constructor.
@@ -16,6 +18,20 @@ public class ArrayGenotype implements Genotype {
 	 */
 	public ArrayGenotype(int[] string) {
 		this.string = Arrays.copyOf(string,string.length);
+		fingerprint = Fingerprint.of(this.string);
+	}
+
+	/**
+	 * Genotype constructor from a range of an array,
+	 * e.g. a row of a gene matrix.
+	 *
+	 * @param	source	the array holding the genes.
+	 * @param	offset	the index of the first gene.
+	 * @param	length	the number of genes.
+	 */
+	public ArrayGenotype(int[] source, int offset, int length) {
+		this.string = Arrays.copyOfRange(source,offset,offset + length);
+		fingerprint = Fingerprint.of(this.string);
 	}
 
 	/**
@@ -27,7 +43,8 @@ public class ArrayGenotype implements Genotype {
 	 */
 	public boolean equals(Object other) {
 		if (other instanceof ArrayGenotype) {
-			return Arrays.equals(((ArrayGenotype) other).string,this.string);
+			ArrayGenotype otherGenome = (ArrayGenotype) other;
+			return otherGenome.fingerprint == fingerprint && Arrays.equals(otherGenome.string,this.string);
 		}
 		return false;
 	}
@@ -42,12 +59,22 @@ public class ArrayGenotype implements Genotype {
 	}
 
 	/**
-	 * Get the hash code for the genotype array.
+	 * Get the hash code for the genotype array,
+	 * derived from its fingerprint.
 	 *
 	 * @return	the hash code.
 	 */
 	public int hashCode() {
-		return Arrays.hashCode(string);
+		return Fingerprint.toHashCode(fingerprint);
+	}
+
+	/**
+	 * Get the fingerprint of the genotype array.
+	 *
+	 * @return	the fingerprint.
+	 */
+	public long getFingerprint() {
+		return fingerprint;
 	}
 
 	/**
@@ -77,6 +104,17 @@ public class ArrayGenotype implements Genotype {
 		System.arraycopy(string,0,dest,0,string.length);
 	}
 
+	/**
+	 * Copy the genotype array onto a range of an array,
+	 * e.g. a row of a gene matrix.
+	 *
+	 * @param	dest	the array to copy onto.
+	 * @param	offset	the index to copy the first gene to.
+	 */
+	public void getArray(int[] dest, int offset) {
+		System.arraycopy(string,0,dest,offset,string.length);
+	}
+
 	/**
 	 * Get the number of genes.
 	 *
@@ -85,4 +123,22 @@ public class ArrayGenotype implements Genotype {
 	public int size() {
 		return string.length;
 	}
+
+	/**
+	 * Create a genotype with the genes rotated left,
+	 * so that the first genes move to the end.
+	 *
+	 * @param	shift	the number of positions to rotate by.
+	 * @return	a rotated ArrayGenotype.
+	 */
+	public ArrayGenotype rotate(int shift) {
+		int length = string.length;
+		int[] rotated = new int[length];
+		if (length > 0) {
+			shift = Math.floorMod(shift,length);
+			System.arraycopy(string,shift,rotated,0,length - shift);
+			System.arraycopy(string,0,rotated,length - shift,shift);
+		}
+		return new ArrayGenotype(rotated);
+	}
 }
\ No newline at end of file
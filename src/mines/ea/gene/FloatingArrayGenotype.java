@@ -1,5 +1,6 @@
 package mines.ea.gene;
 
+import mines.util.Fingerprint;
 import java.util.*;
 
 /**
@@ -8,6 +9,7 @@ import java.util.*;
 public class FloatingArrayGenotype implements Genotype {
 
 	private double[] string;	//genotype array.
+	private long fingerprint;	//fingerprint of the genotype array.
 
 	/**
 	 * Genotype constructor.
@@ -16,6 +18,20 @@ public class FloatingArrayGenotype implements Genotype {
 	 */
 	public FloatingArrayGenotype(double[] string) {
 		this.string = Arrays.copyOf(string,string.length);
+		fingerprint = Fingerprint.of(this.string);
+	}
+
+	/**
+	 * Genotype constructor from a range of an array,
+	 * e.g. a row of a gene matrix.
+	 *
+	 * @param	source	the array holding the genes.
+	 * @param	offset	the index of the first gene.
+	 * @param	length	the number of genes.
+	 */
+	public FloatingArrayGenotype(double[] source, int offset, int length) {
+		this.string = Arrays.copyOfRange(source,offset,offset + length);
+		fingerprint = Fingerprint.of(this.string);
 	}
 
 	/**
@@ -27,7 +43,8 @@ public class FloatingArrayGenotype implements Genotype {
 	 */
 	public boolean equals(Object other) {
 		if (other instanceof FloatingArrayGenotype) {
-			return Arrays.equals(((FloatingArrayGenotype) other).string,this.string);
+			FloatingArrayGenotype otherGenome = (FloatingArrayGenotype) other;
+			return otherGenome.fingerprint == fingerprint && Arrays.equals(otherGenome.string,this.string);
 		}
 		return false;
 	}
@@ -42,12 +59,22 @@ public class FloatingArrayGenotype implements Genotype {
 	}
 
 	/**
-	 * Get the hash code for the genotype array.
+	 * Get the hash code for the genotype array,
+	 * derived from its fingerprint.
 	 *
 	 * @return	the hash code.
 	 */
 	public int hashCode() {
-		return Arrays.hashCode(string);
+		return Fingerprint.toHashCode(fingerprint);
+	}
+
+	/**
+	 * Get the fingerprint of the genotype array.
+	 *
+	 * @return	the fingerprint.
+	 */
+	public long getFingerprint() {
+		return fingerprint;
 	}
 
 	/**
@@ -67,4 +94,47 @@ public class FloatingArrayGenotype implements Genotype {
 	public double[] getArray() {
 		return Arrays.copyOf(string,string.length);
 	}
+
+	/**
+	 * Copy the genotype array onto a range of an array,
+	 * e.g. a row of a gene matrix.
+	 *
+	 * @param	dest	the array to copy onto.
+	 * @param	offset	the index to copy the first gene to.
+	 */
+	public void getArray(double[] dest, int offset) {
+		System.arraycopy(string,0,dest,offset,string.length);
+	}
+
+	/**
+	 * Get the number of genes.
+	 *
+	 * @return	the genotype length.
+	 */
+	public int size() {
+		return string.length;
+	}
+
+	/**
+	 * Create a genotype with consecutive segments of genes each rotated left,
+	 * so that the first genes of each segment move to the end of the segment.
+	 *
+	 * @param	lengths	the number of genes in each segment.
+	 * @param	shifts	the number of positions to rotate each segment by.
+	 * @return	a rotated FloatingArrayGenotype.
+	 */
+	public FloatingArrayGenotype rotate(int[] lengths, int[] shifts) {
+		double[] rotated = Arrays.copyOf(string,string.length);
+		int start = 0;
+		for (int i=0; i<lengths.length; i++) {
+			int length = lengths[i];
+			if (length > 0) {
+				int shift = Math.floorMod(shifts[i],length);
+				System.arraycopy(string,start + shift,rotated,start,length - shift);
+				System.arraycopy(string,start,rotated,start + length - shift,shift);
+			}
+			start += length;
+		}
+		return new FloatingArrayGenotype(rotated);
+	}
 }
\ No newline at end of file
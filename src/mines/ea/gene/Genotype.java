@@ -30,6 +30,17 @@ public interface Genotype {
 	 */
 	public int hashCode();
 
+	/**
+	 * Get a 64-bit fingerprint based on the gene values,
+	 * computed once at construction.
+	 * Equal genotypes must have equal fingerprints,
+	 * and unequal genotypes should collide rarely.
+	 *
+	 * @return	the fingerprint.
+	 * @see	GenotypeSet
+	 */
+	public long getFingerprint();
+
 	/**
 	 * Get the string form of the gene values.
 	 *
@@ -0,0 +1,120 @@
+package mines.ea.gene;
+
+import mines.util.Fingerprint;
+import java.util.Arrays;
+
+/**
+ * An open-addressing set of genotypes keyed by their fingerprints,
+ * which are held in a primitive array so that most probes compare only longs.
+ * Genotypes are only compared in full when their fingerprints match.
+ * The set can be cleared and reused without reallocating its tables.
+ *
+ * @param	<G>	the type of genotypes.
+ */
+public class GenotypeSet<G extends Genotype> {
+
+	private long[] fingerprints;	//the fingerprint of each slot.
+	private Genotype[] genomes;		//the genotype of each slot, null if empty.
+	private int size;				//the number of genotypes.
+
+	/**
+	 * Create an empty set.
+	 */
+	public GenotypeSet() {
+		fingerprints = new long[16];
+		genomes = new Genotype[16];
+		size = 0;
+	}
+
+	/**
+	 * Add a genotype if an equal genotype is not already in the set.
+	 *
+	 * @param	genome	the genotype.
+	 * @return	true if the genotype was added,
+	 *			false if it was already in the set.
+	 */
+	public boolean add(G genome) {
+		long fingerprint = genome.getFingerprint();
+		int slot = find(genome,fingerprint);
+		if (genomes[slot] != null) {
+			return false;
+		}
+		fingerprints[slot] = fingerprint;
+		genomes[slot] = genome;
+		size++;
+		if (2 * size > genomes.length) {
+			grow();
+		}
+		return true;
+	}
+
+	/**
+	 * Get whether an equal genotype is in the set.
+	 *
+	 * @param	genome	the genotype.
+	 * @return	true if the set contains the genotype,
+	 *			false otherwise.
+	 */
+	public boolean contains(G genome) {
+		return genomes[find(genome,genome.getFingerprint())] != null;
+	}
+
+	/**
+	 * Remove all genotypes,
+	 * keeping the tables for reuse.
+	 */
+	public void clear() {
+		if (size > 0) {
+			Arrays.fill(genomes,null);
+			size = 0;
+		}
+	}
+
+	/**
+	 * Get the number of genotypes.
+	 *
+	 * @return	the size.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Find the slot holding a genotype by linear probing,
+	 * or the empty slot where it would be added.
+	 *
+	 * @param	genome		the genotype.
+	 * @param	fingerprint	the fingerprint of the genotype.
+	 * @return	the slot index.
+	 */
+	private int find(Genotype genome, long fingerprint) {
+		int mask = genomes.length - 1;
+		int slot = Fingerprint.toHashCode(fingerprint) & mask;
+		while (genomes[slot] != null && (fingerprints[slot] != fingerprint || !genomes[slot].equals(genome))) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Double the capacity of the tables and reinsert every genotype.
+	 */
+	private void grow() {
+		long[] oldFingerprints = fingerprints;
+		Genotype[] oldGenomes = genomes;
+		fingerprints = new long[oldGenomes.length * 2];
+		genomes = new Genotype[oldGenomes.length * 2];
+		int mask = genomes.length - 1;
+		for (int i=0; i<oldGenomes.length; i++) {
+			if (oldGenomes[i] != null) {
+				int slot = Fingerprint.toHashCode(oldFingerprints[i]) & mask;
+				while (genomes[slot] != null) {
+					slot = (slot + 1) & mask;
+				}
+				fingerprints[slot] = oldFingerprints[i];
+				genomes[slot] = oldGenomes[i];
+			}
+		}
+	}
+
+}
@@ -1,6 +1,8 @@
 package mines.ea.gene.build;
 
 import mines.ea.gene.Genotype;
+import mines.ea.chrom.PopulationStore;
+import mines.ea.chrom.ObjectPopulationStore;
 import java.util.Random;
 
 /**
@@ -15,4 +17,17 @@ public interface GenotypeBuilder<G extends Genotype> {
 	 * @return	a random genotype.
 	 */
 	public G getRandomGenotype(Random rng);
+
+	/**
+	 * Create an empty population store for genotypes of this builder.
+	 * By default the store holds a reference to each genotype.
+	 *
+	 * @param	capacity	the initial number of chromosomes.
+	 * @param	bucketSize	the size of each fitness bucket.
+	 * @param	maximising	whether fitness is maximising or not.
+	 * @return	a new population store.
+	 */
+	public default PopulationStore<G> newPopulationStore(int capacity, int bucketSize, boolean maximising) {
+		return new ObjectPopulationStore<>(capacity,bucketSize,maximising);
+	}
 }
\ No newline at end of file
@@ -2,6 +2,8 @@ package mines.ea.gene.build.array;
 
 import mines.ea.gene.ArrayGenotype;
 import mines.ea.gene.build.GenotypeBuilder;
+import mines.ea.chrom.PopulationStore;
+import mines.ea.chrom.ArrayPopulationStore;
 import java.util.*;
 
 /**
@@ -38,4 +40,18 @@ public class BoundedArrayBuilder implements GenotypeBuilder<ArrayGenotype> {
 		}
 		return new ArrayGenotype(array);
 	}
+
+	/**
+	 * Create an empty population store holding the genes of all chromosomes in one array,
+	 * as genotypes of this builder have a fixed length.
+	 *
+	 * @param	capacity	the initial number of chromosomes.
+	 * @param	bucketSize	the size of each fitness bucket.
+	 * @param	maximising	whether fitness is maximising or not.
+	 * @return	a new population store.
+	 */
+	@Override
+	public PopulationStore<ArrayGenotype> newPopulationStore(int capacity, int bucketSize, boolean maximising) {
+		return new ArrayPopulationStore(capacity,length,bucketSize,maximising);
+	}
 }
\ No newline at end of file
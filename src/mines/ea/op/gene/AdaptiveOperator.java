@@ -0,0 +1,30 @@
+package mines.ea.op.gene;
+
+import mines.ea.gene.Genotype;
+import mines.ea.chrom.Chromosome;
+import java.util.List;
+
+/**
+ * Reproduction operators that adapt how often each of their methods is applied,
+ * from the fitness of the offspring each method produced.
+ */
+public interface AdaptiveOperator<G extends Genotype> extends GeneticOperator<G> {
+
+	/**
+	 * Credit the methods that produced the offspring of the last operation,
+	 * once the offspring have been evaluated.
+	 *
+	 * @param	offspring	chromosomes of the genotypes produced by the last operation,
+	 *						in the order they were produced.
+	 */
+	public void giveFeedback(List<? extends Chromosome<G>> offspring);
+
+	/**
+	 * Get a summary of the credit given to each method.
+	 *
+	 * @return	a String with the number of offspring,
+	 *			total credit and current probability of each method.
+	 */
+	public String getCreditSummary();
+
+}
@@ -2,13 +2,16 @@ package mines.ea.op.gene.array;
 
 import mines.ea.op.gene.*;
 import mines.ea.gene.ArrayGenotype;
+import mines.ea.gene.GenotypeSet;
 import mines.ea.op.selection.*;
 import mines.ea.chrom.*;
+import mines.util.RandomStream;
 import java.util.*;
-import java.util.concurrent.*;
 
 /**
  * Reproduction operators for fixed-length integer genotypes treated as lists.
+ * Offspring are produced in reusable gene arrays,
+ * so an operator must not be shared between threads.
  */
 public class BoundedListOperator implements GeneticOperator<ArrayGenotype> {
 
@@ -22,6 +25,12 @@ public class BoundedListOperator implements GeneticOperator<ArrayGenotype> {
 	private double deleteProb;					//the probability of deletion mutation.
 	private double flipProb;					//the probability of flip mutation.
 	private boolean allowDuplicateOffspring;	//whether to allow duplicate offspring.
+	private RandomStream rng;					//the RNG.
+
+	private int[][] parentStrings;				//workspace for the gene arrays of the parents of each crossover.
+	private int[][] childStrings;				//workspace for the gene arrays of the children of each crossover.
+	private int[] scratch;						//workspace for shifting genes during insertion mutation.
+	private GenotypeSet<ArrayGenotype> seen;	//the offspring produced by the current operation.
 
 	private boolean initialised;	//whether this operator has been initialised yet.
 
@@ -44,6 +53,11 @@ public class BoundedListOperator implements GeneticOperator<ArrayGenotype> {
 		deleteProb = 0.01;
 		flipProb = 0;
 		allowDuplicateOffspring = false;
+		rng = new RandomStream();
+		parentStrings = new int[2][length];
+		childStrings = new int[2][length];
+		scratch = new int[length];
+		seen = new GenotypeSet<>();
 
 		initialised = false;
 	}
@@ -159,6 +173,9 @@ public class BoundedListOperator implements GeneticOperator<ArrayGenotype> {
 	 * Flip mutation swaps adjacent genes,
 	 * each with a specified probability.
 	 *
+	 * Crossover and mutation are applied in place to the workspace of this operator,
+	 * and a genotype is only created for each finished child.
+	 *
 	 * @param	selector		the selection operator with the pool of parent chromosomes.
 	 * @param	numOffspring	the number of children to create.
 	 * @return	an ArrayList of children chromosomes.
@@ -168,20 +185,20 @@ public class BoundedListOperator implements GeneticOperator<ArrayGenotype> {
 	public ArrayList<ArrayGenotype> performOperation(SelectionOperator<ArrayGenotype,? extends Chromosome<ArrayGenotype>> selector, 
 		int numOffspring) {
 		if (initialised) {
-			HashSet<ArrayGenotype> seen = new HashSet<>();
+			seen.clear();
 			ArrayList<ArrayGenotype> out = new ArrayList<>(numOffspring);
 			while (out.size() < numOffspring) {
-				ArrayGenotype[] parents = new ArrayGenotype[]{selector.performReproductionSelection(true).getGenotype(),
-					selector.performReproductionSelection(false).getGenotype()};
-				ArrayGenotype[] children = new ArrayGenotype[2];
-				if (ThreadLocalRandom.current().nextDouble() < xoProb) {
+				selector.performReproductionSelection(true).getGenotype().getArray(parentStrings[0]);
+				selector.performReproductionSelection(false).getGenotype().getArray(parentStrings[1]);
+				int[][] strings = childStrings;
+				if (rng.nextDouble() < xoProb) {
 					switch (xoKind) {
 						case SINGLE_POINT: {
-							performSinglePointCrossover(parents,children);
+							crossSinglePoint(parentStrings,childStrings);
 							break;
 						}
 						case UNIFORM: {
-							performUniformCrossover(parents,children);
+							crossUniform(parentStrings,childStrings);
 							break;
 						}
 						default: {
@@ -190,31 +207,30 @@ public class BoundedListOperator implements GeneticOperator<ArrayGenotype> {
 					}
 				}
 				else {
-					for (int i=0; i<2; i++) {
-						children[i] = parents[i].clone();
-					}
+					strings = parentStrings;
 				}
 				for (int i=0; i<2; i++) {
 					if (deleteProb > 0) {
-						children[i] = performDeletions(children[i]);
+						deleteGenes(strings[i]);
 					}
 					if (vmProb > 0) {
-						children[i] = performValueMutation(children[i]);
+						mutateValues(strings[i]);
 					}
 					if (flipProb > 0) {
-						children[i] = performFlips(children[i]);
+						flipGenes(strings[i]);
 					}
 					if (insertProb > 0) {
-						children[i] = performInsertions(children[i]);
+						insertGenes(strings[i]);
 					}
+					ArrayGenotype child = new ArrayGenotype(strings[i]);
 					if (!allowDuplicateOffspring) {
-						if (!seen.contains(children[i]) && !selector.contains(children[i])) {
-							out.add(children[i]);
-							seen.add(children[i]);
+						if (!seen.contains(child) && !selector.contains(child)) {
+							out.add(child);
+							seen.add(child);
 						}
 					}
 					else {
-						out.add(children[i]);
+						out.add(child);
 					}
 				}
 			}
@@ -236,15 +252,9 @@ public class BoundedListOperator implements GeneticOperator<ArrayGenotype> {
 		for (int i=0; i<2; i++) {
 			pStrings[i] = parents[i].getArray();
 		}
-		int split = ThreadLocalRandom.current().nextInt(length - 1) + 1;
 		int[][] cStrings = new int[2][length];
+		crossSinglePoint(pStrings,cStrings);
 		for (int i=0; i<2; i++) {
-			for (int j=0; j<split; j++) {
-				cStrings[i][j] = pStrings[i][j];
-			}
-			for (int j=split; j<length; j++) {
-				cStrings[i][j] = pStrings[1 - i][j];
-			}
 			children[i] = new ArrayGenotype(cStrings[i]);
 		}
 	}
@@ -261,11 +271,7 @@ public class BoundedListOperator implements GeneticOperator<ArrayGenotype> {
 			pStrings[i] = parents[i].getArray();
 		}
 		int[][] cStrings = new int[2][length];
-		for (int i=0; i<length; i++) {
-			int first = ThreadLocalRandom.current().nextInt(2);
-			cStrings[0][i] = pStrings[first][i];
-			cStrings[1][i] = pStrings[1 - first][i];
-		}
+		crossUniform(pStrings,cStrings);
 		for (int i=0; i<2; i++) {
 			children[i] = new ArrayGenotype(cStrings[i]);
 		}
@@ -283,11 +289,7 @@ public class BoundedListOperator implements GeneticOperator<ArrayGenotype> {
 			return parent;
 		}
 		int[] childString = parent.getArray();
-		for (int i=0; i<length; i++) {
-			if (ThreadLocalRandom.current().nextDouble() < vmProb) {
-				childString[i] = (childString[i] + ThreadLocalRandom.current().nextInt(maxValue - 1) + 1) % maxValue;
-			}
-		}
+		mutateValues(childString);
 		return new ArrayGenotype(childString);
 	}
 
@@ -303,19 +305,9 @@ public class BoundedListOperator implements GeneticOperator<ArrayGenotype> {
 		if (insertProb <= 0) {
 			return parent;
 		}
-		int[] pString = parent.getArray();
-		int[] cString = new int[length];
-		int look = 0;
-		for (int i=0; i<length; i++) {
-			if (ThreadLocalRandom.current().nextDouble() < insertProb) {
-				cString[i] = ThreadLocalRandom.current().nextInt(maxValue);
-			}
-			else {
-				cString[i] = pString[look];
-				look++;
-			}
-		}
-		return new ArrayGenotype(cString);
+		int[] childString = parent.getArray();
+		insertGenes(childString);
+		return new ArrayGenotype(childString);
 	}
 
 	/**
@@ -331,16 +323,7 @@ public class BoundedListOperator implements GeneticOperator<ArrayGenotype> {
 			return parent;
 		}
 		int[] childString = parent.getArray();
-		int place = 0;
-		for (int i=0; i<length; i++) {
-			if (ThreadLocalRandom.current().nextDouble() > deleteProb) {
-				childString[place] = childString[i];
-				place++;
-			}
-		}
-		for (int i=place; i<length; i++) {
-			childString[i] = ThreadLocalRandom.current().nextInt(maxValue);
-		}
+		deleteGenes(childString);
 		return new ArrayGenotype(childString);
 	}
 
@@ -356,14 +339,107 @@ public class BoundedListOperator implements GeneticOperator<ArrayGenotype> {
 			return parent;
 		}
 		int[] childString = parent.getArray();
+		flipGenes(childString);
+		return new ArrayGenotype(childString);
+	}
+
+	/**
+	 * Write the children of single point crossover of two gene arrays.
+	 *
+	 * @param	pStrings	the 2 parent gene arrays.
+	 * @param	cStrings	the 2 arrays to write the children to.
+	 */
+	private void crossSinglePoint(int[][] pStrings, int[][] cStrings) {
+		int split = rng.nextInt(length - 1) + 1;
+		for (int i=0; i<2; i++) {
+			System.arraycopy(pStrings[i],0,cStrings[i],0,split);
+			System.arraycopy(pStrings[1 - i],split,cStrings[i],split,length - split);
+		}
+	}
+
+	/**
+	 * Write the children of uniform crossover of two gene arrays.
+	 *
+	 * @param	pStrings	the 2 parent gene arrays.
+	 * @param	cStrings	the 2 arrays to write the children to.
+	 */
+	private void crossUniform(int[][] pStrings, int[][] cStrings) {
+		for (int i=0; i<length; i++) {
+			int first = rng.nextInt(2);
+			cStrings[0][i] = pStrings[first][i];
+			cStrings[1][i] = pStrings[1 - first][i];
+		}
+	}
+
+	/**
+	 * Randomly alter gene values in place,
+	 * with a specified probability per gene.
+	 *
+	 * @param	string	the gene array.
+	 */
+	private void mutateValues(int[] string) {
+		for (int i=0; i<length; i++) {
+			if (rng.nextDouble() < vmProb) {
+				string[i] = (string[i] + rng.nextInt(maxValue - 1) + 1) % maxValue;
+			}
+		}
+	}
+
+	/**
+	 * Insert random genes in place,
+	 * with a specified probability per gene position,
+	 * dropping the final gene per insertion.
+	 *
+	 * @param	string	the gene array.
+	 */
+	private void insertGenes(int[] string) {
+		System.arraycopy(string,0,scratch,0,length);
+		int look = 0;
+		for (int i=0; i<length; i++) {
+			if (rng.nextDouble() < insertProb) {
+				string[i] = rng.nextInt(maxValue);
+			}
+			else {
+				string[i] = scratch[look];
+				look++;
+			}
+		}
+	}
+
+	/**
+	 * Delete genes in place,
+	 * with a specified probability per gene position,
+	 * filling the final positions with random genes per deletion.
+	 *
+	 * @param	string	the gene array.
+	 */
+	private void deleteGenes(int[] string) {
+		int place = 0;
+		for (int i=0; i<length; i++) {
+			if (rng.nextDouble() > deleteProb) {
+				string[place] = string[i];
+				place++;
+			}
+		}
+		for (int i=place; i<length; i++) {
+			string[i] = rng.nextInt(maxValue);
+		}
+	}
+
+	/**
+	 * Swap adjacent genes in place,
+	 * with a specified probability per gene position.
+	 *
+	 * @param	string	the gene array.
+	 */
+	private void flipGenes(int[] string) {
 		for (int i=0; i<length - 1; i++) {
-			if (ThreadLocalRandom.current().nextDouble() < flipProb) {
-				int temp = childString[i];
-				childString[i] = childString[i + 1];
-				childString[i + 1] = temp;
+			if (rng.nextDouble() < flipProb) {
+				int temp = string[i];
+				string[i] = string[i + 1];
+				string[i + 1] = temp;
 			}
 		}
-		return new ArrayGenotype(childString);
 	}
 
 }
\ No newline at end of file
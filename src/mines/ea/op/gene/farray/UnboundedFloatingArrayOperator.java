@@ -2,10 +2,11 @@ package mines.ea.op.gene.farray;
 
 import mines.ea.op.gene.*;
 import mines.ea.gene.FloatingArrayGenotype;
+import mines.ea.gene.GenotypeSet;
 import mines.ea.op.selection.*;
 import mines.ea.chrom.*;
+import mines.util.*;
 import java.util.*;
-import java.util.concurrent.*;
 
 /**
  * Reproduction operators for fixed-length real-coded genotypes.
@@ -19,8 +20,14 @@ import java.util.concurrent.*;
  * Herrera, F., Lozano, M., & Sánchez, A. M. (2003). 
  * A taxonomy for the crossover operator for real-coded genetic algorithms: An experimental study. 
  * International Journal of Intelligent Systems, 18(3), 309-338.
+ *
+ * Adaptive selection of crossover methods uses probability matching, as described in:
+ *
+ * Thierens, D. (2005).
+ * An adaptive pursuit strategy for allocating operator probabilities.
+ * Proceedings of the 7th Annual Conference on Genetic and Evolutionary Computation, 1539-1546.
  */
-public class UnboundedFloatingArrayOperator implements GeneticOperator<FloatingArrayGenotype> {
+public class UnboundedFloatingArrayOperator implements AdaptiveOperator<FloatingArrayGenotype> {
 
 	/* The available crossover methods */
 	public static final CrossoverKind[] allXOKinds = new CrossoverKind[]{CrossoverKind.SINGLE_POINT,CrossoverKind.UNIFORM,
@@ -35,6 +42,20 @@ public class UnboundedFloatingArrayOperator implements GeneticOperator<FloatingA
 	private double vmProb;						//mutation probability per gene.
 	private double mStrength;					//the standard deviation for the gaussian mutation.
 	private boolean allowDuplicateOffspring;	//whether to allow duplicate offspring.
+	private RandomStream rng;					//the RNG.
+
+	private GenotypeSet<FloatingArrayGenotype> seen;	//the offspring produced by the current operation.
+
+	private boolean adaptive;		//whether crossover methods are chosen by their credit rather than uniformly.
+	private double adaptationRate;	//the weight of the latest rewards in the quality of a crossover method.
+	private double minShare;		//the share of the uniform probability each crossover method keeps.
+	private double[] qualities;		//the estimated reward of each crossover method.
+	private double[] probs;			//the current probability of each crossover method.
+	private int[] numApplied;		//the number of offspring credited to each crossover method.
+	private double[] totalCredit;	//the total reward credited to each crossover method.
+	private IntList outKinds;		//the crossover method of each offspring of the last operation, -1 if none.
+	private DoubleList outParents;	//the fitness of the best parent of each offspring of the last operation.
+	private boolean maximising;		//whether the fitness of chromosomes is maximising.
 
 	private boolean initialised;	//whether this operator has been initialised yet.
 
@@ -60,6 +81,14 @@ public class UnboundedFloatingArrayOperator implements GeneticOperator<FloatingA
 		vmProb = 1.0;
 		mStrength = 0.05;
 		allowDuplicateOffspring = false;
+		rng = new RandomStream();
+		seen = new GenotypeSet<>();
+		adaptive = false;
+		adaptationRate = 0.3;
+		minShare = 0.2;
+		outKinds = new IntList();
+		outParents = new DoubleList();
+		this.maximising = maximising;
 
 		initialised = false;
 	}
@@ -70,7 +99,8 @@ public class UnboundedFloatingArrayOperator implements GeneticOperator<FloatingA
 	 *
 	 * @param	xoProb	the crossover probability.
 	 * @param	xoKinds	an array of the crossover methods -
-	 *					for each crossover, a method is uniformly chosen from this.
+	 *					for each crossover, a method is chosen from this,
+	 *					uniformly unless adaptive.
 	 * @return	this object.
 	 * @throws	IllegalStateException		if already initialised.
 	 * @see	getAvailableCrossoverKinds()
@@ -86,6 +116,39 @@ public class UnboundedFloatingArrayOperator implements GeneticOperator<FloatingA
 		}
 	}
 
+	/**
+	 * Set the adaptive crossover parameters,
+	 * enabling adaptive selection of crossover methods.
+	 * Each crossover method is credited with the relative fitness improvement of its offspring over their best parent,
+	 * and the quality of each method is updated towards its average reward after each operation.
+	 * Methods are then chosen with probability proportional to their quality,
+	 * while keeping a share of the uniform probability so that no method is abandoned.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	adaptationRate	the weight of the latest rewards in the quality of a method,
+	 *							between 0 exclusive and 1 inclusive.
+	 * @param	minShare		the share of the uniform probability each method keeps,
+	 *							between 0 and 1.
+	 * @return	this object.
+	 * @throws	IllegalStateException		if already initialised.
+	 * @throws	IllegalArgumentException	if the rate or share is out of range.
+	 */
+	public UnboundedFloatingArrayOperator setAdaptiveParams(double adaptationRate, double minShare) {
+		if (!initialised) {
+			if (!(adaptationRate > 0 && adaptationRate <= 1) || !(minShare >= 0 && minShare <= 1)) {
+				throw new IllegalArgumentException(String.format("Adaptation rate in (0,1] and share in [0,1] required: %f %f",
+					adaptationRate,minShare));
+			}
+			adaptive = true;
+			this.adaptationRate = adaptationRate;
+			this.minShare = minShare;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Operator already initialised");
+		}
+	}
+
 	/**
 	 * Set the mutation parameters.
 	 * Can only be used before initialisation.
@@ -133,6 +196,11 @@ public class UnboundedFloatingArrayOperator implements GeneticOperator<FloatingA
 	 */
 	public UnboundedFloatingArrayOperator initialise() {
 		if (!initialised) {
+			qualities = new double[xoKinds.length];
+			probs = new double[xoKinds.length];
+			numApplied = new int[xoKinds.length];
+			totalCredit = new double[xoKinds.length];
+			Arrays.fill(probs,1.0 / xoKinds.length);
 			initialised = true;
 			return this;
 		}
@@ -161,7 +229,8 @@ public class UnboundedFloatingArrayOperator implements GeneticOperator<FloatingA
 	 * heuristic, quadratic, laplace, 
 	 * geometric, simulated binary, 
 	 * or min/max.
-	 * Each crossover chooses uniformly a crossover method from the provided methods.
+	 * Each crossover chooses a crossover method from the provided methods,
+	 * uniformly or by credit if adaptive.
 	 *
 	 * Value mutation alters the value of genes,
 	 * by adding normally distributed random values,
@@ -176,90 +245,71 @@ public class UnboundedFloatingArrayOperator implements GeneticOperator<FloatingA
 	public ArrayList<FloatingArrayGenotype> performOperation(
 		SelectionOperator<FloatingArrayGenotype,? extends Chromosome<FloatingArrayGenotype>> selector, int numOffspring) {
 		if (initialised) {
-			HashSet<FloatingArrayGenotype> seen = new HashSet<>();
+			seen.clear();
+			outKinds.clear();
+			outParents.clear();
 			ArrayList<FloatingArrayGenotype> out = new ArrayList<>(numOffspring);
 			while (out.size() < numOffspring) {
 				FloatingArrayGenotype[] children;
-				if (ThreadLocalRandom.current().nextDouble() < xoProb) {
-					CrossoverKind xoUse = xoKinds[ThreadLocalRandom.current().nextInt(xoKinds.length)];
+				int kind;
+				Chromosome<FloatingArrayGenotype> best;
+				if (rng.nextDouble() < xoProb) {
+					kind = chooseCrossoverKind();
+					CrossoverKind xoUse = xoKinds[kind];
+					Chromosome<FloatingArrayGenotype> parent0 = selector.performReproductionSelection(true);
+					Chromosome<FloatingArrayGenotype> parent1 = selector.performReproductionSelection(false);
+					best = (comp.compare(parent0,parent1) <= 0 ? parent0 : parent1);
+					FloatingArrayGenotype[] parents = new FloatingArrayGenotype[]{parent0.getGenotype(),parent1.getGenotype()};
 					switch (xoUse) {
 						case SINGLE_POINT: {
-							FloatingArrayGenotype[] parents = new FloatingArrayGenotype[]{
-								selector.performReproductionSelection(true).getGenotype(),
-								selector.performReproductionSelection(false).getGenotype()};
 							children = performSinglePointCrossover(parents);
 							break;
 						}
 						case UNIFORM: {
-							FloatingArrayGenotype[] parents = new FloatingArrayGenotype[]{
-								selector.performReproductionSelection(true).getGenotype(),
-								selector.performReproductionSelection(false).getGenotype()};
 							children = performUniformCrossover(parents);
 							break;
 						}
 						case AVERAGE: {
-							FloatingArrayGenotype[] parents = new FloatingArrayGenotype[]{
-								selector.performReproductionSelection(true).getGenotype(),
-								selector.performReproductionSelection(false).getGenotype()};
 							children = new FloatingArrayGenotype[]{performAverageCrossover(parents)};
 							break;
 						}
 						case LINEAR: {
-							FloatingArrayGenotype[] parents = new FloatingArrayGenotype[]{
-								selector.performReproductionSelection(true).getGenotype(),
-								selector.performReproductionSelection(false).getGenotype()};
 							children = performLinearCrossover(parents);
 							break;
 						}
 						case WHOLE_ARITHMETIC: {
-							FloatingArrayGenotype[] parents = new FloatingArrayGenotype[]{
-								selector.performReproductionSelection(true).getGenotype(),
-								selector.performReproductionSelection(false).getGenotype()};
 							children = performWholeArithmeticCrossover(parents);
 							break;
 						}
 						case BLX_A: {
-							FloatingArrayGenotype[] parents = new FloatingArrayGenotype[]{
-								selector.performReproductionSelection(true).getGenotype(),
-								selector.performReproductionSelection(false).getGenotype()};
 							children = new FloatingArrayGenotype[]{performBLXCrossover(parents)};
 							break;
 						}
 						case HEURISTIC: {
-							children = new FloatingArrayGenotype[]{performHeuristicCrossover(selector.performReproductionSelection(true),
-								selector.performReproductionSelection(false))};
+							children = new FloatingArrayGenotype[]{performHeuristicCrossover(parent0,parent1)};
 							break;
 						}
 						case QUADRATIC: {
-							children = new FloatingArrayGenotype[]{performQuadraticCrossover(selector.performReproductionSelection(true),
-								selector.performReproductionSelection(false),selector.performReproductionSelection(false))};
+							Chromosome<FloatingArrayGenotype> parent2 = selector.performReproductionSelection(false);
+							if (comp.compare(parent2,best) < 0) {
+								best = parent2;
+							}
+							children = new FloatingArrayGenotype[]{performQuadraticCrossover(parent0,parent1,parent2)};
 							break;
 						}
 						case LAPLACE: {
-							FloatingArrayGenotype[] parents = new FloatingArrayGenotype[]{
-								selector.performReproductionSelection(true).getGenotype(),
-								selector.performReproductionSelection(false).getGenotype()};
 							children = performLaplaceCrossover(parents);
 							break;
 						}
 						case GEOMETRIC: {
-							FloatingArrayGenotype[] parents = new FloatingArrayGenotype[]{
-								selector.performReproductionSelection(true).getGenotype(),
-								selector.performReproductionSelection(false).getGenotype()};
 							children = performGeometricCrossover(parents);
 							break;
 						}
 						case SIMULATED_BINARY: {
-							FloatingArrayGenotype[] parents = new FloatingArrayGenotype[]{
-								selector.performReproductionSelection(true).getGenotype(),
-								selector.performReproductionSelection(false).getGenotype()};
 							children = performSimulatedBinaryCrossover(parents);
 							break;
 						}
 						case MIN_MAX: {
-							FloatingArrayGenotype[] parents = new FloatingArrayGenotype[]{
-								selector.performReproductionSelection(true).getGenotype(),
-								selector.performReproductionSelection(false).getGenotype()};
 							children = performMinMaxCrossover(parents);
 							break;
 						}
@@ -269,21 +319,22 @@ public class UnboundedFloatingArrayOperator implements GeneticOperator<FloatingA
 					}
 				}
 				else {
-					children = new FloatingArrayGenotype[]{selector.performReproductionSelection(true).getGenotype().clone()};
+					kind = -1;
+					best = selector.performReproductionSelection(true);
+					children = new FloatingArrayGenotype[]{best.getGenotype().clone()};
 				}
 				for (int i=0; i<children.length; i++) {
 					if (vmProb > 0) {
 						children[i] = performValueMutation(children[i]);
 					}
-					if (!allowDuplicateOffspring) {
-						if (!seen.contains(children[i]) && !selector.contains(children[i])) {
-							out.add(children[i]);
+					if (allowDuplicateOffspring || (!seen.contains(children[i]) && !selector.contains(children[i]))) {
+						out.add(children[i]);
+						outKinds.add(kind);
+						outParents.add(best.getFitness());
+						if (!allowDuplicateOffspring) {
 							seen.add(children[i]);
 						}
 					}
-					else {
-						out.add(children[i]);
-					}
 				}
 			}
 			return out;
@@ -293,6 +344,116 @@ public class UnboundedFloatingArrayOperator implements GeneticOperator<FloatingA
 		}
 	}
 
+	/**
+	 * Credit the crossover methods that produced the offspring of the last operation,
+	 * with the relative fitness improvement of each offspring over its best parent,
+	 * and update the probability of each method if adaptive.
+	 * Offspring produced without crossover or without any evaluations are not credited.
+	 *
+	 * @param	offspring	chromosomes of the genotypes produced by the last operation,
+	 *						in the order they were produced.
+	 * @throws	IllegalArgumentException	if the number of chromosomes does not match the last operation.
+	 */
+	public void giveFeedback(List<? extends Chromosome<FloatingArrayGenotype>> offspring) {
+		if (offspring.size() != outKinds.size()) {
+			throw new IllegalArgumentException(String.format("Feedback for %d offspring required: %d",outKinds.size(),offspring.size()));
+		}
+		double[] rewards = new double[xoKinds.length];
+		int[] counts = new int[xoKinds.length];
+		for (int i=0; i<outKinds.size(); i++) {
+			int kind = outKinds.get(i);
+			double fitness = offspring.get(i).getFitness();
+			if (kind >= 0 && fitness >= 0) {
+				double reward = getReward(outParents.get(i),fitness);
+				rewards[kind] += reward;
+				counts[kind]++;
+				numApplied[kind]++;
+				totalCredit[kind] += reward;
+			}
+		}
+		for (int i=0; i<xoKinds.length; i++) {
+			if (counts[i] > 0) {
+				qualities[i] += adaptationRate * (rewards[i] / counts[i] - qualities[i]);
+			}
+		}
+		if (adaptive) {
+			double totalQuality = 0;
+			for (int i=0; i<xoKinds.length; i++) {
+				totalQuality += qualities[i];
+			}
+			for (int i=0; i<xoKinds.length; i++) {
+				probs[i] = (totalQuality > 0 ? minShare / xoKinds.length + (1 - minShare) * qualities[i] / totalQuality :
+					1.0 / xoKinds.length);
+			}
+		}
+		outKinds.clear();
+		outParents.clear();
+	}
+
+	/**
+	 * Get a summary of the credit given to each crossover method.
+	 *
+	 * @return	a String of the form K:nN,cC,pP for each method,
+	 *			where K is the method,
+	 *			N is the number of offspring credited,
+	 *			C is the total credit,
+	 *			and P is the current probability.
+	 */
+	public String getCreditSummary() {
+		StringBuilder builder = new StringBuilder();
+		for (int i=0; i<xoKinds.length; i++) {
+			if (i > 0) {
+				builder.append(" ");
+			}
+			builder.append(String.format("%s:n%d,c%f,p%f",xoKinds[i],numApplied[i],totalCredit[i],probs[i]));
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Choose the index of a crossover method,
+	 * uniformly or by probability if adaptive.
+	 *
+	 * @return	the index in the crossover methods.
+	 */
+	private int chooseCrossoverKind() {
+		if (!adaptive) {
+			return rng.nextInt(xoKinds.length);
+		}
+		double point = rng.nextDouble();
+		for (int i=0; i<xoKinds.length - 1; i++) {
+			point -= probs[i];
+			if (point < 0) {
+				return i;
+			}
+		}
+		return xoKinds.length - 1;
+	}
+
+	/**
+	 * Get the relative fitness improvement of an offspring over its best parent.
+	 *
+	 * @param	parentFitness	the fitness of the best parent.
+	 * @param	fitness			the fitness of the offspring.
+	 * @return	the improvement as a fraction of the parent fitness,
+	 *			0 if there is no improvement,
+	 *			or 1 if a maximising parent has fitness 0.
+	 */
+	private double getReward(double parentFitness, double fitness) {
+		if (maximising) {
+			if (!(fitness > parentFitness)) {
+				return 0;
+			}
+			return (parentFitness > 0 ? (fitness - parentFitness) / parentFitness : 1);
+		}
+		else {
+			if (!(fitness < parentFitness)) {
+				return 0;
+			}
+			return (parentFitness - fitness) / parentFitness;
+		}
+	}
+
 	/**
 	 * Performs single point crossover on two real-coded genotypes.
 	 *
@@ -306,7 +467,7 @@ public class UnboundedFloatingArrayOperator implements GeneticOperator<FloatingA
 		}
 		FloatingArrayGenotype[] children = new FloatingArrayGenotype[2];
 		double[][] cString = new double[2][length];
-		int split = ThreadLocalRandom.current().nextInt(length - 1) + 1;
+		int split = rng.nextInt(length - 1) + 1;
 		for (int i=0; i<2; i++) {
 			for (int j=0; j<split; j++) {
 				cString[i][j] = pString[i][j];
@@ -332,7 +493,7 @@ public class UnboundedFloatingArrayOperator implements GeneticOperator<FloatingA
 		}
 		double[][] cString = new double[2][length];
 		for (int i=0; i<length; i++) {
-			int b = ThreadLocalRandom.current().nextInt(2);
+			int b = rng.nextInt(2);
 			cString[0][i] = pString[b][i];
 			cString[1][i] = pString[1 - b][i];
 		}
@@ -400,7 +561,7 @@ public class UnboundedFloatingArrayOperator implements GeneticOperator<FloatingA
 		}
 		double[][] cString = new double[2][length];
 		for (int i=0; i<length; i++) {
-			double a = ThreadLocalRandom.current().nextDouble();
+			double a = rng.nextDouble();
 			cString[0][i] = a * pString[0][i] + (1 - a) * pString[1][i];
 			cString[1][i] = (1 - a) * pString[0][i] + a * pString[1][i];
 		}
@@ -428,7 +589,7 @@ public class UnboundedFloatingArrayOperator implements GeneticOperator<FloatingA
 			double width = pString[1][i] - pString[0][i];
 			double b1 = pString[0][i] - width * alpha;
 			double b2 = pString[1][i] + width * alpha;
-			childString[i] = Math.max(0,ThreadLocalRandom.current().nextDouble() * (b2 - b1) + b1);
+			childString[i] = Math.max(0,rng.nextDouble() * (b2 - b1) + b1);
 		}
 		return new FloatingArrayGenotype(childString);
 	}
@@ -453,7 +614,7 @@ public class UnboundedFloatingArrayOperator implements GeneticOperator<FloatingA
 		}
 		double[] childString = new double[length];
 		for (int i=0; i<length; i++) {
-			double r = ThreadLocalRandom.current().nextDouble();
+			double r = rng.nextDouble();
 			childString[i] = Math.max(0,r * (pString[0][i] - pString[1][i]) + pString[0][i]);
 		}
 		return new FloatingArrayGenotype(childString);
@@ -495,7 +656,7 @@ public class UnboundedFloatingArrayOperator implements GeneticOperator<FloatingA
 				}
 			}
 			if (!success) {
-				double r = ThreadLocalRandom.current().nextDouble();
+				double r = rng.nextDouble();
 				childString[i] = Math.max(0,r * (pString[0][i] - pString[2][i]) + pString[0][i]);
 			}
 		}
@@ -517,7 +678,7 @@ public class UnboundedFloatingArrayOperator implements GeneticOperator<FloatingA
 		double[][] cString = new double[2][length];
 		for (int i=0; i<length; i++) {
 			double diff = Math.abs(pString[0][i] - pString[1][i]);
-			double u = ThreadLocalRandom.current().nextDouble();
+			double u = rng.nextDouble();
 			double beta = (u <= 0.5 ? b * Math.log(2 * u) : -b * Math.log(2 - 2 * u));
 			for (int j=0; j<2; j++) {
 				cString[j][i] = Math.max(0,pString[j][i] + beta * (pString[0][i] - pString[1][i]));
@@ -543,7 +704,7 @@ public class UnboundedFloatingArrayOperator implements GeneticOperator<FloatingA
 		}
 		double[][] cString = new double[2][length];
 		for (int i=0; i<length; i++) {
-			double a = ThreadLocalRandom.current().nextDouble();
+			double a = rng.nextDouble();
 			cString[0][i] = Math.pow(pString[0][i],a) * Math.pow(pString[1][i],1 - a);
 			cString[1][i] = Math.pow(pString[0][i],1 - a) * Math.pow(pString[1][i],a);
 		}
@@ -568,8 +729,8 @@ public class UnboundedFloatingArrayOperator implements GeneticOperator<FloatingA
 		}
 		double[][] cString = new double[2][length];
 		for (int i=0; i<length; i++) {
-			if (ThreadLocalRandom.current().nextBoolean()) {
-				double u = ThreadLocalRandom.current().nextDouble();
+			if (rng.nextBoolean()) {
+				double u = rng.nextDouble();
 				double beta = (u <= 0.5 ? Math.pow(2 * u,1.0 / (nu + 1.0)) : Math.pow(2 - 2 * u,-1.0 / (nu + 1.0)));
 				cString[0][i] = Math.max(0,(pString[0][i] + pString[1][i] - beta * Math.abs(pString[0][i] - pString[1][i])) / 2.0);
 				cString[1][i] = Math.max(0,(pString[0][i] + pString[1][i] + beta * Math.abs(pString[0][i] - pString[1][i])) / 2.0);
@@ -625,7 +786,7 @@ public class UnboundedFloatingArrayOperator implements GeneticOperator<FloatingA
 		}
 		double[] childString = parent.getArray();
 		for (int i=0; i<length; i++) {
-			if (ThreadLocalRandom.current().nextDouble() < vmProb) {
+			if (rng.nextDouble() < vmProb) {
 				childString[i] = Math.max(0,childString[i] + getNormal() * mStrength);
 			}
 		}
@@ -638,8 +799,8 @@ public class UnboundedFloatingArrayOperator implements GeneticOperator<FloatingA
 	 * @return	the random value.
 	 */
 	private double getNormal() {
-		double u1 = ThreadLocalRandom.current().nextDouble();
-		double u2 = ThreadLocalRandom.current().nextDouble();
+		double u1 = rng.nextDouble();
+		double u2 = rng.nextDouble();
 		return Math.sqrt(-2 * Math.log(u1)) * Math.cos(2 * Math.PI * u2);
 	}
 
@@ -648,7 +809,7 @@ public class UnboundedFloatingArrayOperator implements GeneticOperator<FloatingA
 	 */
 	private void shuffle(int[] array) {
 		for (int i=0; i<array.length - 1; i++) {
-			int r = ThreadLocalRandom.current().nextInt(array.length - i) + i;
+			int r = rng.nextInt(array.length - i) + i;
 			int temp = array[r];
 			array[r] = array[i];
 			array[i] = temp;
@@ -0,0 +1,118 @@
+package mines.ea.op.selection;
+
+import mines.ea.gene.Genotype;
+import mines.ea.chrom.Chromosome;
+import mines.util.AliasTable;
+
+/**
+ * Fitness proportionate selection operator,
+ * sampling with replacement from an alias table over the weights of the selection pool in O(1) time,
+ * and rejecting chromosomes already selected since the last refresh.
+ * The table is rebuilt over the unselected chromosomes once they hold less than half of its weight,
+ * so at most two draws are expected per selection.
+ * This suits reproduction,
+ * where few parents are selected between refreshes,
+ * while FenwickProportionateReproductionOperator avoids the rebuilds when most of the pool is selected,
+ * e.g. for survival selection.
+ *
+ * @see	ProportionateSelectionOperator
+ */
+public class AliasProportionateReproductionOperator<G extends Genotype, C extends Chromosome<G>> 
+	extends ProportionateSelectionOperator<G,C> {
+
+	private AliasTable table;		//the table of the chromosomes with weight when it was last built.
+	private int[] members;			//the index of the chromosome of each table element.
+	private double[] tableWeights;	//the weight of each chromosome in the table, 0 if not in the table.
+	private double[] weights;		//working array of weights for rebuilding the table.
+	private double tableTotal;		//the total weight of the table.
+	private double rejectedTotal;	//the weight of the table held by selected chromosomes.
+	private boolean stale;			//whether a released chromosome is missing from the table.
+
+	/**
+	 * Selection operator constructor.
+	 *
+	 * @param	maximising	whether the fitness function is maximising or not.
+	 */
+	public AliasProportionateReproductionOperator(boolean maximising) {
+		super(maximising);
+
+		table = new AliasTable();
+		members = new int[0];
+		tableWeights = new double[0];
+		weights = new double[0];
+	}
+
+	/**
+	 * Rebuild the table from the chromosomes with a current weight.
+	 */
+	protected void rebuild() {
+		if (members.length < poolSize) {
+			members = new int[poolSize];
+			tableWeights = new double[poolSize];
+			weights = new double[poolSize];
+		}
+		int size = 0;
+		tableTotal = 0;
+		for (int i=0; i<poolSize; i++) {
+			tableWeights[i] = getWeight(i);
+			if (tableWeights[i] > 0) {
+				members[size] = i;
+				weights[size] = tableWeights[i];
+				tableTotal += tableWeights[i];
+				size++;
+			}
+		}
+		if (size > 0) {
+			table.build(weights,size);
+		}
+		rejectedTotal = 0;
+		stale = false;
+	}
+
+	/**
+	 * Draw an unselected chromosome from the table,
+	 * repeating the draw while it gives a chromosome selected since the last refresh.
+	 *
+	 * @return	the index of the chromosome.
+	 */
+	protected int draw() {
+		if (stale) {
+			rebuild();
+		}
+		while (true) {
+			int index = members[table.sample(rng)];
+			if (!selected[index]) {
+				return index;
+			}
+		}
+	}
+
+	/**
+	 * Count the weight of a selected chromosome as rejected,
+	 * rebuilding the table once over half of its weight is rejected.
+	 *
+	 * @param	index	the index of the chromosome.
+	 */
+	protected void remove(int index) {
+		rejectedTotal += tableWeights[index];
+		if (2 * rejectedTotal > tableTotal) {
+			rebuild();
+		}
+	}
+
+	/**
+	 * Stop counting the weight of a released chromosome as rejected,
+	 * or mark the table for rebuilding if the chromosome is not in it.
+	 *
+	 * @param	index	the index of the chromosome.
+	 */
+	protected void restore(int index) {
+		if (tableWeights[index] > 0) {
+			rejectedTotal -= tableWeights[index];
+		}
+		else if (getWeight(index) > 0) {
+			stale = true;
+		}
+	}
+
+}
@@ -0,0 +1,82 @@
+package mines.ea.op.selection;
+
+import mines.ea.gene.Genotype;
+import mines.ea.chrom.Chromosome;
+import mines.util.FenwickTree;
+
+/**
+ * Fitness proportionate selection operator without replacement,
+ * drawing from a Fenwick tree over the weights of the selection pool.
+ * Each selection takes O(log n) time however widely fitness values are spread,
+ * while the stochastic acceptance of FitnessProportionateReproductionOperator
+ * needs many attempts per selection when few chromosomes are close to the best fitness.
+ *
+ * @see	ProportionateSelectionOperator
+ */
+public class FenwickProportionateReproductionOperator<G extends Genotype, C extends Chromosome<G>> 
+	extends ProportionateSelectionOperator<G,C> {
+
+	private FenwickTree tree;	//the weights of the selection pool.
+	private double[] weights;	//working array of weights for rebuilding the tree.
+
+	/**
+	 * Selection operator constructor.
+	 *
+	 * @param	maximising	whether the fitness function is maximising or not.
+	 */
+	public FenwickProportionateReproductionOperator(boolean maximising) {
+		super(maximising);
+
+		tree = new FenwickTree();
+		weights = new double[0];
+	}
+
+	/**
+	 * Rebuild the tree from the current weights of the selection pool.
+	 */
+	protected void rebuild() {
+		if (weights.length < poolSize) {
+			weights = new double[poolSize];
+		}
+		for (int i=0; i<poolSize; i++) {
+			weights[i] = getWeight(i);
+		}
+		tree.build(weights,poolSize);
+	}
+
+	/**
+	 * Draw an unselected chromosome by finding a uniformly random point of the cumulative weight in the tree.
+	 * If rounding errors from updates lead to a chromosome without weight,
+	 * the tree is rebuilt and the draw repeated.
+	 *
+	 * @return	the index of the chromosome.
+	 */
+	protected int draw() {
+		while (true) {
+			int index = tree.find(rng.nextDouble() * tree.getTotal());
+			if (index < poolSize && !selected[index] && tree.get(index) > 0) {
+				return index;
+			}
+			rebuild();
+		}
+	}
+
+	/**
+	 * Remove the weight of a selected chromosome from the tree.
+	 *
+	 * @param	index	the index of the chromosome.
+	 */
+	protected void remove(int index) {
+		tree.set(index,0);
+	}
+
+	/**
+	 * Restore the weight of a released chromosome to the tree.
+	 *
+	 * @param	index	the index of the chromosome.
+	 */
+	protected void restore(int index) {
+		tree.set(index,getWeight(index));
+	}
+
+}
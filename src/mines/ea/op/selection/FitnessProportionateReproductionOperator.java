@@ -2,6 +2,7 @@ package mines.ea.op.selection;
 
 import mines.ea.gene.Genotype;
 import mines.ea.chrom.Chromosome;
+import mines.util.RandomStream;
 import java.util.*;
 
 /**
@@ -34,7 +35,7 @@ public class FitnessProportionateReproductionOperator<G extends Genotype, C exte
 
 		this.maximising = maximising;
 
-		rng = new Random();
+		rng = new RandomStream();
 
 		fitnesses = new TreeMap<>();
 	}
@@ -2,6 +2,7 @@ package mines.ea.op.selection;
 
 import mines.ea.gene.Genotype;
 import mines.ea.chrom.Chromosome;
+import mines.util.RandomStream;
 import java.util.*;
 
 /**
@@ -33,7 +34,7 @@ public class KTournamentSelectionOperator<G extends Genotype, C extends Chromoso
 				return (diff == 0 ? (c2.getAge() - c1.getAge()) : diff);
 			}
 		};
-		rng = new Random();
+		rng = new RandomStream();
 		if (k < 2) {
 			throw new IllegalArgumentException(String.format("Tournament size must be at least 2: %d",k));
 		}
@@ -0,0 +1,256 @@
+package mines.ea.op.selection;
+
+import mines.ea.gene.Genotype;
+import mines.ea.chrom.Chromosome;
+import mines.util.RandomStream;
+import java.util.*;
+
+/**
+ * Abstract fitness proportionate selection operator,
+ * drawing from a weighted sampling structure instead of by stochastic acceptance,
+ * so the cost of a selection does not depend on the spread of fitness values.
+ *
+ * The weight of an unselected chromosome is its fitness when maximising,
+ * and its inverse fitness when minimising,
+ * matching the selection probabilities of FitnessProportionateReproductionOperator.
+ * When minimising and an unselected chromosome has fitness 0,
+ * only chromosomes with fitness 0 are selected.
+ * When no unselected chromosome has a positive weight,
+ * selection is uniform.
+ * Selected chromosomes have weight 0 until the next refresh.
+ */
+public abstract class ProportionateSelectionOperator<G extends Genotype, C extends Chromosome<G>> extends SelectionOperator<G,C> {
+
+	/**
+	 * The ways of weighting unselected chromosomes.
+	 */
+	private enum WeightMode {
+		PROPORTIONATE, ZERO, UNIFORM
+	}
+
+	private boolean maximising;	//whether the fitness function is maximising or not.
+
+	protected Random rng;	//the RNG.
+
+	protected int poolSize;			//the number of chromosomes in the selection pool.
+	protected boolean[] selected;	//whether each chromosome has been outputted since last refresh.
+	private int[] order;			//the chromosomes outputted since last refresh in order.
+	private int parentNum;			//the number of distinct parents outputted since last refresh.
+	private double[] fitnesses;		//the fitness of each chromosome.
+	private int numZero;			//the number of unselected chromosomes with fitness 0.
+	private int numPositive;		//the number of unselected chromosomes with a positive proportionate weight.
+	private WeightMode mode;		//the current way of weighting chromosomes.
+
+	/**
+	 * Selection operator constructor.
+	 *
+	 * @param	maximising	whether the fitness function is maximising or not.
+	 */
+	protected ProportionateSelectionOperator(boolean maximising) {
+		super();
+
+		this.maximising = maximising;
+
+		rng = new RandomStream();
+
+		selected = new boolean[0];
+		order = new int[0];
+		fitnesses = new double[0];
+	}
+
+	/**
+	 * Load a new selection pool,
+	 * and build the sampling structure.
+	 *
+	 * @param	p	the pool of candidates.
+	 */
+	@Override
+	public void loadPool(List<C> p) {
+		super.loadPool(p);
+		poolSize = this.pool.size();
+		if (selected.length < poolSize) {
+			selected = new boolean[poolSize];
+			order = new int[poolSize];
+			fitnesses = new double[poolSize];
+		}
+		parentNum = 0;
+		numZero = 0;
+		numPositive = 0;
+		for (int i=0; i<poolSize; i++) {
+			selected[i] = false;
+			fitnesses[i] = pool.get(i).getFitness();
+			count(i,1);
+		}
+		mode = getMode();
+		rebuild();
+	}
+
+	/**
+	 * Create a list of surviving chromosomes from the selection pool.
+	 * Roulette-wheel selection without replacement is used.
+	 *
+	 * @param	selectionSize	the number of survivors.
+	 * @return	a list of chromosomes -
+	 *			the entire selection pool if the pool size is less than the selection size.
+	 */
+	public List<C> performSurvivalSelection(int selectionSize) {
+		if (poolSize <= selectionSize) {
+			return new ArrayList<>(pool);
+		}
+		else {
+			ArrayList<C> out = new ArrayList<>(selectionSize);
+			for (int i=0; i<selectionSize; i++) {
+				out.add(performReproductionSelection(i == 0));
+			}
+			return out;
+		}
+	}
+
+	/**
+	 * Select a single parent chromosome.
+	 * Roulette-wheel selection is used.
+	 * If a refresh is not requested,
+	 * the chromosome will be distinct from all previous output since the last refresh.
+	 *
+	 * @param	refresh	whether to clear the output history.
+	 * @return	a chromosome.
+	 * @throws	IllegalArgumentException	if all chromosomes have been returned since the last refresh.
+	 */
+	public C performReproductionSelection(boolean refresh) {
+		if (refresh) {
+			for (int i=0; i<parentNum; i++) {
+				selected[order[i]] = false;
+				count(order[i],1);
+			}
+			WeightMode newMode = getMode();
+			if (newMode != mode) {
+				mode = newMode;
+				rebuild();
+			}
+			else {
+				for (int i=0; i<parentNum; i++) {
+					restore(order[i]);
+				}
+			}
+			parentNum = 0;
+		}
+		if (parentNum >= poolSize) {
+			throw new IllegalArgumentException("Returned all elements without refresh");
+		}
+		int index = draw();
+		selected[index] = true;
+		order[parentNum] = index;
+		parentNum++;
+		count(index,-1);
+		WeightMode newMode = getMode();
+		if (newMode != mode) {
+			mode = newMode;
+			rebuild();
+		}
+		else {
+			remove(index);
+		}
+		return pool.get(index);
+	}
+
+	/**
+	 * Get whether at least n chromosomes are still unselected since the last refresh.
+	 *
+	 * @param	n	the number of chromosomes needed.
+	 * @return	true if performReproductionSelection(false) can be called n more times,
+	 *			false otherwise
+	 */
+	public boolean hasUnselected(int n) {
+		return poolSize - parentNum >= n;
+	}
+
+	/**
+	 * Get the current weight of a chromosome in the selection pool,
+	 * 0 if it has been selected since the last refresh.
+	 *
+	 * @param	index	the index of the chromosome.
+	 * @return	the weight.
+	 */
+	protected double getWeight(int index) {
+		if (selected[index]) {
+			return 0;
+		}
+		switch (mode) {
+			case ZERO:
+				return (fitnesses[index] == 0 ? 1 : 0);
+			case UNIFORM:
+				return 1;
+			default:
+				return getProportionateWeight(fitnesses[index]);
+		}
+	}
+
+	/**
+	 * Rebuild the sampling structure from the current weights of the selection pool.
+	 */
+	protected abstract void rebuild();
+
+	/**
+	 * Draw an unselected chromosome with probability proportional to its current weight.
+	 *
+	 * @return	the index of the chromosome.
+	 */
+	protected abstract int draw();
+
+	/**
+	 * Update the sampling structure after a chromosome is selected.
+	 *
+	 * @param	index	the index of the chromosome.
+	 */
+	protected abstract void remove(int index);
+
+	/**
+	 * Update the sampling structure after a selected chromosome is released by a refresh.
+	 *
+	 * @param	index	the index of the chromosome.
+	 */
+	protected abstract void restore(int index);
+
+	/**
+	 * Get the proportionate weight of a fitness value.
+	 *
+	 * @param	fitness	the fitness.
+	 * @return	the weight,
+	 *			0 if the fitness is not positive.
+	 */
+	private double getProportionateWeight(double fitness) {
+		if (!(fitness > 0)) {
+			return 0;
+		}
+		return (maximising ? fitness : 1 / fitness);
+	}
+
+	/**
+	 * Add a chromosome to or remove it from the counts of unselected chromosomes.
+	 *
+	 * @param	index	the index of the chromosome.
+	 * @param	diff	1 to add,
+	 *					-1 to remove.
+	 */
+	private void count(int index, int diff) {
+		if (fitnesses[index] == 0) {
+			numZero += diff;
+		}
+		if (getProportionateWeight(fitnesses[index]) > 0) {
+			numPositive += diff;
+		}
+	}
+
+	/**
+	 * Get the way of weighting the unselected chromosomes.
+	 *
+	 * @return	the weight mode.
+	 */
+	private WeightMode getMode() {
+		if (!maximising && numZero > 0) {
+			return WeightMode.ZERO;
+		}
+		return (numPositive > 0 ? WeightMode.PROPORTIONATE : WeightMode.UNIFORM);
+	}
+
+}
@@ -9,6 +9,7 @@ import java.util.*;
  */
 public class RankedSurvivalOperator<G extends Genotype, C extends Chromosome<G>> extends SelectionOperator<G,C> {
 
+	private boolean maximising;				//whether the fitness function is maximising or not.
 	private Comparator<Chromosome> comp;	//chromosome comparison based on fitness.
 
 	private int poolSize;	//the number of chromosomes in the selection pool.
@@ -20,6 +21,7 @@ public class RankedSurvivalOperator<G extends Genotype, C extends Chromosome<G>>
 	 */
 	public RankedSurvivalOperator(boolean maximising) {
 		super();
+		this.maximising = maximising;
 		comp = new Comparator<Chromosome>() {
 			public int compare(Chromosome c1, Chromosome c2) {
 				int diff = (maximising ? -1 : 1) * c1.compareTo(c2);
@@ -57,6 +59,16 @@ public class RankedSurvivalOperator<G extends Genotype, C extends Chromosome<G>>
 		}
 	}
 
+	/**
+	 * Get whether the best chromosomes have the highest fitness.
+	 *
+	 * @return	true if the fitness function is maximising,
+	 *			false otherwise.
+	 */
+	public boolean isMaximising() {
+		return maximising;
+	}
+
 	/**
 	 * @throws UnsupportedOperationException
 	 */
@@ -1,6 +1,7 @@
 package mines.ea.op.selection;
 
 import mines.ea.gene.Genotype;
+import mines.ea.gene.GenotypeSet;
 import mines.ea.chrom.Chromosome;
 import java.util.*;
 
@@ -10,14 +11,14 @@ import java.util.*;
 public abstract class SelectionOperator<G extends Genotype, C extends Chromosome<G>> {
 
 	protected ArrayList<C> pool;	//the selection pool.
-	private HashSet<G> genomeSet;	//the set of genomes.
+	private GenotypeSet<G> genomeSet;	//the set of genomes.
 
 	/**
 	 * Selection operator constructor.
 	 */
 	protected SelectionOperator() {
 		this.pool = new ArrayList<>();
-		genomeSet = new HashSet<>();
+		genomeSet = new GenotypeSet<>();
 	}
 
 	/**
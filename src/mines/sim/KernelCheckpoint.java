@@ -0,0 +1,88 @@
+package mines.sim;
+
+import mines.util.QueueArena;
+
+/**
+ * A complete copy of the state of a SimulationKernel between events,
+ * including its pending transitions,
+ * so that a simulation can be resumed exactly from the point it was saved.
+ * Random streams are not copied,
+ * only the number of values drawn by each truck since its distribution was last set.
+ *
+ * @see	SimulationKernel#saveCheckpoint(KernelCheckpoint)
+ * @see	SimulationKernel#loadCheckpoint(KernelCheckpoint)
+ */
+public class KernelCheckpoint {
+
+	double currTime;				//current time.
+	TransitionHeap eventQueue;		//upcoming non-instant transitions.
+	TransitionHeap instantQueue;	//upcoming instant transitions.
+	TruckLocation[] truckLocs;		//current locations of each truck.
+	int[] assignedShovel;			//current assigned shovel for each truck.
+	int[] assignedCrusher;			//current assigned crusher for each truck.
+	int[] assignedRoute;			//current assigned route for each truck.
+	int[] routePoint;				//current route index for each truck.
+	QueueArena queues;				//crusher, shovel, light and road queues.
+	int[] numEmptying;				//number of crushers active at each crusher location.
+	boolean[] shovelInUse;			//whether each shovel is in use.
+	TrafficLight[] lights;			//state of each traffic light.
+	double[] lightChangeTime;		//time of the upcoming change from green of each light.
+	long[] lightChangeOrder;		//order the upcoming light changes were scheduled in.
+	long lightChangeCount;			//number of light changes scheduled.
+	int numScheduled;				//number of upcoming light changes.
+	boolean[] greedyMode;			//whether each light is set to greedy rules.
+	double[] roadAvailable;			//the minimum possible arrival time for each road end.
+	double[] roadProgress;			//progress of the last truck resumed on each road end.
+	int[] roadPriority;				//priority values used for transitions to preserve order.
+	double[] arrivalTime;			//last transition time per truck.
+	double[] intendedArrival;		//intended transition times before considering slowdowns.
+	double[] dispatchTime;			//time of last dispatch per truck.
+	int numEmpties;					//number of empties completed.
+	int numUnused;					//number of trucks in unused state.
+	long numInline;					//number of transitions applied inline.
+	int[] numDraws;					//number of values drawn from the distribution of each truck.
+
+	/**
+	 * Checkpoint constructor.
+	 *
+	 * @param	numTrucks		the number of trucks.
+	 * @param	numShovels		the number of shovels.
+	 * @param	numCrusherLocs	the number of crusher locations.
+	 * @param	numRoads		the number of roads.
+	 * @param	numOneWay		the number of one-lane roads.
+	 * @param	numQueues		the number of queues.
+	 */
+	KernelCheckpoint(int numTrucks, int numShovels, int numCrusherLocs, int numRoads, int numOneWay, int numQueues) {
+		eventQueue = new TransitionHeap(numTrucks);
+		instantQueue = new TransitionHeap(numTrucks);
+		truckLocs = new TruckLocation[numTrucks];
+		assignedShovel = new int[numTrucks];
+		assignedCrusher = new int[numTrucks];
+		assignedRoute = new int[numTrucks];
+		routePoint = new int[numTrucks];
+		queues = new QueueArena(numQueues,numTrucks);
+		numEmptying = new int[numCrusherLocs];
+		shovelInUse = new boolean[numShovels];
+		lights = new TrafficLight[numOneWay];
+		lightChangeTime = new double[numOneWay];
+		lightChangeOrder = new long[numOneWay];
+		greedyMode = new boolean[numOneWay];
+		roadAvailable = new double[numRoads * 2];
+		roadProgress = new double[numRoads * 2];
+		roadPriority = new int[numRoads * 2];
+		arrivalTime = new double[numTrucks];
+		intendedArrival = new double[numTrucks];
+		dispatchTime = new double[numTrucks];
+		numDraws = new int[numTrucks];
+	}
+
+	/**
+	 * Get the time the checkpoint was saved at.
+	 *
+	 * @return	the simulation time.
+	 */
+	public double getTime() {
+		return currTime;
+	}
+
+}
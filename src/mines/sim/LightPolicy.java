@@ -0,0 +1,30 @@
+package mines.sim;
+
+/**
+ * Source of traffic light timings for a SimulationKernel.
+ */
+public interface LightPolicy {
+
+	/**
+	 * Get the amount of time for a light to remain green.
+	 *
+	 * @param	road		the one-lane road changing light state.
+	 * @param	change		the new light state -
+	 *						if green then it has just been yellow in opposite direction,
+	 *						if yellow then it has been green, 
+	 *						and can remain green if a positive value is returned.
+	 * @param	scheduled	whether the change is a scheduled change from green,
+	 *						rather than a change caused by the trucks.
+	 * @return	a time value.
+	 */
+	public double nextLight(int road, TrafficLight change, boolean scheduled);
+
+	/**
+	 * Used when a light in greedy mode changes to yellow as a truck arrives at the opposite side.
+	 *
+	 * @param	road	the one-lane road changing light state.
+	 * @param	change	the new light state.
+	 */
+	public default void greedyChange(int road, TrafficLight change) {}
+	
+}
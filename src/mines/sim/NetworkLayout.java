@@ -0,0 +1,250 @@
+package mines.sim;
+
+/**
+ * Compact layout of a road network for simulation.
+ * Road ends are indexed by road * 2 + direction,
+ * so that per-road state can be stored in flat primitive arrays.
+ * Routes are stored in compressed sparse row form,
+ * as the road ends travelled towards the shovel in a single array with an offset for each route.
+ * Queues are numbered in the order crushers, shovels, traffic lights and road ends,
+ * matching the queue indexes of SimState.
+ */
+public class NetworkLayout {
+
+	private int numShovels;		//number of shovels.
+	private int numCrusherLocs;	//number of crusher locations.
+	private int numRoads;		//number of roads.
+	private int numRoutes;		//number of routes.
+	private int numOneWay;		//number of one-lane roads.
+
+	private int[] routeStart;		//offset of the first road end of each route, with a final entry for the total length.
+	private int[] routeEnds;		//road ends travelled towards the shovel in each route, in order.
+	private double[] travelMean;	//average travelling time towards each road end.
+	private double[] travelSD;		//standard deviation of travelling time towards each road end.
+	private int[] lightIndexes;		//indexes of light associated with one-lane roads, -1 for other roads.
+	private int[] lightRoads;		//indexes of roads associated with lights.
+
+	/**
+	 * Layout constructor.
+	 *
+	 * @param	numShovels			the number of shovels.
+	 * @param	numCrusherLocs		the number of crusher locations.
+	 * @param	numRoads			the number of roads.
+	 * @param	roadTravelTimesMean	a 2D array of average travelling times on each road in both directions.
+	 * @param	roadTravelTimesSD	a 2D array of standard deviations of travelling time on each road in both directions.
+	 * @param	isOneWay			an array specifying whether each road is one-lane.
+	 * @param	numRoutes			the number of routes.
+	 * @param	routeRoads			a 2D array listing the roads comprising each route.
+	 * @param	routeDirections		a 2D array listing the directions travelled on each road in each route.
+	 * @param	routeLengths		an array of the number of roads in each route.
+	 */
+	public NetworkLayout(int numShovels, int numCrusherLocs, int numRoads, double[][] roadTravelTimesMean,
+		double[][] roadTravelTimesSD, boolean[] isOneWay, int numRoutes, int[][] routeRoads, int[][] routeDirections,
+		int[] routeLengths) {
+		this.numShovels = numShovels;
+		this.numCrusherLocs = numCrusherLocs;
+		this.numRoads = numRoads;
+		this.numRoutes = numRoutes;
+
+		travelMean = new double[numRoads * 2];
+		travelSD = new double[numRoads * 2];
+		for (int i=0; i<numRoads; i++) {
+			for (int j=0; j<2; j++) {
+				travelMean[i * 2 + j] = roadTravelTimesMean[i][j];
+				travelSD[i * 2 + j] = roadTravelTimesSD[i][j];
+			}
+		}
+
+		routeStart = new int[numRoutes + 1];
+		for (int i=0; i<numRoutes; i++) {
+			routeStart[i + 1] = routeStart[i] + routeLengths[i];
+		}
+		routeEnds = new int[routeStart[numRoutes]];
+		for (int i=0; i<numRoutes; i++) {
+			for (int j=0; j<routeLengths[i]; j++) {
+				routeEnds[routeStart[i] + j] = routeRoads[i][j] * 2 + routeDirections[i][j];
+			}
+		}
+
+		numOneWay = 0;
+		lightIndexes = new int[numRoads];
+		for (int i=0; i<numRoads; i++) {
+			if (isOneWay[i]) {
+				lightIndexes[i] = numOneWay;
+				numOneWay++;
+			}
+			else {
+				lightIndexes[i] = -1;
+			}
+		}
+		lightRoads = new int[numOneWay];
+		for (int i=0; i<numRoads; i++) {
+			if (isOneWay[i]) {
+				lightRoads[lightIndexes[i]] = i;
+			}
+		}
+	}
+
+	/**
+	 * Get the number of roads.
+	 *
+	 * @return	the number of roads.
+	 */
+	public int getNumRoads() {
+		return numRoads;
+	}
+
+	/**
+	 * Get the number of routes.
+	 *
+	 * @return	the number of routes.
+	 */
+	public int getNumRoutes() {
+		return numRoutes;
+	}
+
+	/**
+	 * Get the number of one-lane roads.
+	 *
+	 * @return	the number of traffic lights.
+	 */
+	public int getNumOneWay() {
+		return numOneWay;
+	}
+
+	/**
+	 * Get the number of roads in a route.
+	 *
+	 * @param	route	the route index.
+	 * @return	the route length.
+	 */
+	public int getRouteLength(int route) {
+		return routeStart[route + 1] - routeStart[route];
+	}
+
+	/**
+	 * Get the road end travelled towards the shovel at a point in a route.
+	 * The road end travelled towards the crusher is this value ^ 1.
+	 *
+	 * @param	route	the route index.
+	 * @param	point	the index of the road in the route.
+	 * @return	the road end index.
+	 */
+	public int getRoadEnd(int route, int point) {
+		return routeEnds[routeStart[route] + point];
+	}
+
+	/**
+	 * Get the road at a point in a route.
+	 *
+	 * @param	route	the route index.
+	 * @param	point	the index of the road in the route.
+	 * @return	the road index.
+	 */
+	public int getRoad(int route, int point) {
+		return routeEnds[routeStart[route] + point] >> 1;
+	}
+
+	/**
+	 * Get whether a road is one-lane.
+	 *
+	 * @param	road	the road index.
+	 * @return	true if the road has traffic lights,
+	 *			false otherwise.
+	 */
+	public boolean isOneWay(int road) {
+		return lightIndexes[road] >= 0;
+	}
+
+	/**
+	 * Get the average travelling time towards a road end.
+	 *
+	 * @param	end	the road end index.
+	 * @return	the mean travel time.
+	 */
+	public double getTravelMean(int end) {
+		return travelMean[end];
+	}
+
+	/**
+	 * Get the standard deviation of travelling time towards a road end.
+	 *
+	 * @param	end	the road end index.
+	 * @return	the standard deviation.
+	 */
+	public double getTravelSD(int end) {
+		return travelSD[end];
+	}
+
+	/**
+	 * Get the light index of a road.
+	 *
+	 * @param	road	the road index.
+	 * @return	the light index,
+	 *			or -1 if the road is not one-lane.
+	 */
+	public int getLightIndex(int road) {
+		return lightIndexes[road];
+	}
+
+	/**
+	 * Get the road controlled by a light.
+	 *
+	 * @param	light	the light index.
+	 * @return	the road index.
+	 */
+	public int getLightRoad(int light) {
+		return lightRoads[light];
+	}
+
+	/**
+	 * Get the number of queues.
+	 *
+	 * @return	the number of crusher, shovel, light and road queues.
+	 */
+	public int getNumQueues() {
+		return numCrusherLocs + numShovels + numOneWay * 2 + numRoads * 2;
+	}
+
+	/**
+	 * Get the queue index of a crusher location queue.
+	 *
+	 * @param	cid	the crusher location index.
+	 * @return	the queue index.
+	 */
+	public int crusherQueue(int cid) {
+		return cid;
+	}
+
+	/**
+	 * Get the queue index of a shovel queue.
+	 *
+	 * @param	sid	the shovel index.
+	 * @return	the queue index.
+	 */
+	public int shovelQueue(int sid) {
+		return numCrusherLocs + sid;
+	}
+
+	/**
+	 * Get the queue index of a traffic light queue.
+	 *
+	 * @param	light	the light index.
+	 * @param	dir		the direction.
+	 * @return	the queue index.
+	 */
+	public int lightQueue(int light, int dir) {
+		return numCrusherLocs + numShovels + light * 2 + dir;
+	}
+
+	/**
+	 * Get the queue index of the order of trucks travelling towards a road end.
+	 *
+	 * @param	end	the road end index.
+	 * @return	the queue index.
+	 */
+	public int roadQueue(int end) {
+		return numCrusherLocs + numShovels + numOneWay * 2 + end;
+	}
+
+}
@@ -0,0 +1,20 @@
+package mines.sim;
+
+/**
+ * Source of truck progress values that are only calculated when requested.
+ * Values are tied to a state version,
+ * so that a view can detect requests made after the state has changed.
+ */
+interface ProgressView {
+
+	/**
+	 * Get the progress value for a single truck.
+	 *
+	 * @param	version	the state version the value is requested for.
+	 * @param	tid		the truck index.
+	 * @return	a double value.
+	 * @throws	IllegalStateException if the state has changed since the given version.
+	 */
+	public double getProgress(long version, int tid);
+	
+}
@@ -0,0 +1,160 @@
+package mines.sim;
+
+import mines.util.RandomStream;
+import mines.util.TimeDistribution;
+import mines.sol.Controller4;
+import mines.sol.Solution4;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs independent simulation replications of a solution in parallel.
+ * Each worker has its own simulator,
+ * and replications are assigned to workers by index,
+ * so the results are returned in replication order regardless of scheduling.
+ * Each replication has its own controller created by the solution,
+ * and draws transition times from its own random stream.
+ * The controller takes all of its random streams from a thread master stream of the replication,
+ * and the streams of each replication are split in replication order,
+ * so results are reproducible for a given master seed whatever the number of workers.
+ */
+public class ReplicationRunner {
+
+	private int numWorkers;				//the number of worker threads.
+	private MineSimulator4[] sims;		//the simulator of each worker.
+	private Solution4 sol;				//the solution used to create the controller of each replication.
+	private TimeDistribution tgen;		//the distribution that replication distributions are split from.
+	private RandomStream rng;			//the stream that the controller streams of replications are split from.
+
+	/**
+	 * Runner constructor,
+	 * using one worker per available processor.
+	 *
+	 * @see ReplicationRunner(MineParameters4,TimeDistribution,Solution4,int)
+	 */
+	public ReplicationRunner(MineParameters4 params, TimeDistribution tgen, Solution4 sol) {
+		this(params,tgen,sol,Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Runner constructor.
+	 * Creates a simulator for each worker.
+	 *
+	 * @param	params		the simulation parameters.
+	 * @param	tgen		the random distribution to use for all transition times in timed states.
+	 * @param	sol			the solution used to create a controller for each replication.
+	 * @param	numWorkers	the number of worker threads.
+	 * @throws	IllegalArgumentException if numWorkers is non-positive.
+	 */
+	public ReplicationRunner(MineParameters4 params, TimeDistribution tgen, Solution4 sol, int numWorkers) {
+		if (numWorkers <= 0) {
+			throw new IllegalArgumentException(String.format("Number of workers must be positive: %d",numWorkers));
+		}
+		this.numWorkers = numWorkers;
+		this.sol = sol;
+		this.tgen = tgen.split();
+		rng = new RandomStream();
+		sims = new MineSimulator4[numWorkers];
+		for (int i=0; i<numWorkers; i++) {
+			sims[i] = new MineSimulator4(params,tgen);
+		}
+	}
+
+	/**
+	 * Run a number of simulations.
+	 * Replication i is run by worker i modulo the number of workers,
+	 * with a new controller that is finished once the simulation ends.
+	 *
+	 * @param	numSamples	the number of simulations.
+	 * @param	runtime		the termination time of each simulation.
+	 * @return	the number of empties in each simulation, in replication order.
+	 * @throws	IllegalStateException if a simulation was interrupted.
+	 */
+	public int[] run(int numSamples, final double runtime) {
+		final int[] empties = new int[numSamples];
+		final TimeDistribution[] tgens = new TimeDistribution[numSamples];
+		final RandomStream[] streams = new RandomStream[numSamples];
+		for (int i=0; i<numSamples; i++) {
+			tgens[i] = tgen.split();
+			streams[i] = rng.split();
+		}
+		int used = Math.min(numWorkers,numSamples);
+		List<Callable<Void>> tasks = new ArrayList<>();
+		for (int i=0; i<used; i++) {
+			final int worker = i;
+			final int stride = used;
+			tasks.add(new Callable<Void>() {
+				public Void call() {
+					MineSimulator4 sim = sims[worker];
+					for (int j=worker; j<empties.length; j+=stride) {
+						Controller4 con = newController(streams[j]);
+						sim.loadController(con);
+						sim.setTimeDistribution(tgens[j]);
+						try {
+							sim.initialise();
+							sim.simulate(runtime);
+							empties[j] = sim.getEmpties();
+						}
+						finally {
+							con.finish();
+						}
+					}
+					return null;
+				}
+			});
+		}
+		ForkJoinPool pool = new ForkJoinPool(Math.max(used,1));
+		try {
+			for (Future<Void> f : pool.invokeAll(tasks)) {
+				f.get();
+			}
+		}
+		catch (InterruptedException ie) {
+			throw new IllegalStateException("Simulations interrupted");
+		}
+		catch (ExecutionException ee) {
+			Throwable cause = ee.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			else {
+				throw new IllegalStateException(String.format("Simulation failed: %s",cause));
+			}
+		}
+		finally {
+			pool.shutdown();
+		}
+		return empties;
+	}
+
+	/**
+	 * Create a controller whose random streams are all split from a given stream.
+	 * Controllers are created one at a time,
+	 * as solutions are not required to create them concurrently.
+	 *
+	 * @param	stream	the thread master stream of the replication.
+	 * @return	a new controller.
+	 * @see	RandomStream#setThreadMaster(RandomStream)
+	 */
+	private Controller4 newController(RandomStream stream) {
+		RandomStream.setThreadMaster(stream);
+		try {
+			synchronized (sol) {
+				return sol.getController();
+			}
+		}
+		finally {
+			RandomStream.setThreadMaster(null);
+		}
+	}
+
+	/**
+	 * Get the number of workers.
+	 *
+	 * @return	the number of worker threads.
+	 */
+	public int getNumWorkers() {
+		return numWorkers;
+	}
+
+}
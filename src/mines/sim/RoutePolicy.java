@@ -0,0 +1,29 @@
+package mines.sim;
+
+/**
+ * Source of routing decisions for a SimulationKernel.
+ */
+public interface RoutePolicy {
+
+	/**
+	 * Get the next route for the given truck.
+	 * 
+	 * @param	tid	the index of the truck requiring routing.
+	 * @return	a positive route index,
+	 *			or -2 to take the truck out of use,
+	 *			otherwise any negative value to terminate the current simulation.
+	 */
+	public int nextRoute(int tid);
+
+	/**
+	 * Used between events when the next transition will request a route for a truck at a crusher,
+	 * while the state of the kernel can still be copied.
+	 * Only used if dispatch notification is enabled in the kernel.
+	 * Does nothing by default.
+	 *
+	 * @param	tid	the index of the truck about to require routing.
+	 * @see	SimulationKernel#setDispatchNotification(boolean)
+	 */
+	public default void beforeDispatch(int tid) {}
+
+}
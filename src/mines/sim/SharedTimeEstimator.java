@@ -49,6 +49,7 @@ public final class SharedTimeEstimator {
 		if (flow[0] == 0 || flow[1] == 0) {
 			return Arrays.copyOf(length,2);
 		}
+		RandomStream rng = new RandomStream();
 		DoubleList[] samples = new DoubleList[2];
 		for (int i=0; i<2; i++) {
 			samples[i] = new DoubleList();
@@ -57,7 +58,7 @@ public final class SharedTimeEstimator {
 		for (int i=0; i<2; i++) {
 			double last = 0;
 			for (int j=0; j<NUM_SAMPLES; j++) {
-				double mult = 1 + Math.random() * 2 * NOISE - NOISE;
+				double mult = 1 + rng.nextDouble() * 2 * NOISE - NOISE;
 				last += mult / flow[i];
 				events.add(new Event(last,(i == 0 ? EventKind.ARRIVED_LEFT : EventKind.ARRIVED_RIGHT)));
 			}
@@ -74,7 +75,7 @@ public final class SharedTimeEstimator {
 				case ARRIVED_LEFT: {
 					switch (stage) {
 						case 0: {
-							double time = randomTime(length[0],lengthSD[0]);
+							double time = randomTime(rng,length[0],lengthSD[0]);
 							events.add(new Event(next.time + /*length[0]*/time,EventKind.CLEARED_LEFT));
 							onRoad++;
 							samples[0].add(/*length[0]*/time);
@@ -82,7 +83,7 @@ public final class SharedTimeEstimator {
 						}
 						case 2: {
 							if (onRoad == 0) {
-								double time = randomTime(length[0],lengthSD[0]);
+								double time = randomTime(rng,length[0],lengthSD[0]);
 								stage = 0;
 								events.add(new Event(next.time + /*length[0]*/time,EventKind.CLEARED_LEFT));
 								onRoad++;
@@ -102,7 +103,7 @@ public final class SharedTimeEstimator {
 				case ARRIVED_RIGHT: {
 					switch (stage) {
 						case 2: {
-							double time = randomTime(length[1],lengthSD[1]);
+							double time = randomTime(rng,length[1],lengthSD[1]);
 							events.add(new Event(next.time + /*length[1]*/time,EventKind.CLEARED_RIGHT));
 							onRoad++;
 							samples[1].add(/*length[1]*/time);
@@ -110,7 +111,7 @@ public final class SharedTimeEstimator {
 						}
 						case 0: {
 							if (onRoad == 0) {
-								double time = randomTime(length[1],lengthSD[1]);
+								double time = randomTime(rng,length[1],lengthSD[1]);
 								stage = 2;
 								events.add(new Event(next.time + /*length[1]*/time,EventKind.CLEARED_RIGHT));
 								onRoad++;
@@ -132,7 +133,7 @@ public final class SharedTimeEstimator {
 					if (onRoad == 0 && stage == 1) {
 						stage = (waiting[0].isEmpty() ? 2 : 3);
 						while (!waiting[1].isEmpty()) {
-							double time = randomTime(length[1],lengthSD[1]);
+							double time = randomTime(rng,length[1],lengthSD[1]);
 							double joined = waiting[1].poll();
 							events.add(new Event(next.time + /*length[1]*/time,EventKind.CLEARED_RIGHT));
 							onRoad++;
@@ -146,7 +147,7 @@ public final class SharedTimeEstimator {
 					if (onRoad == 0 && stage == 3) {
 						stage = (waiting[1].isEmpty() ? 0 : 1);
 						while (!waiting[0].isEmpty()) {
-							double time = randomTime(length[0],lengthSD[0]);
+							double time = randomTime(rng,length[0],lengthSD[0]);
 							double joined = waiting[0].poll();
 							events.add(new Event(next.time + /*length[0]*/time,EventKind.CLEARED_LEFT));
 							onRoad++;
@@ -166,12 +167,13 @@ public final class SharedTimeEstimator {
 	/**
 	 * Get a random value from a uniform distribution.
 	 *
+	 * @param	rng	the random stream.
 	 * @param	m	the mean.
 	 * @param	sd	the standard deviation.
 	 * @return	a random value.
 	 */
-	private static double randomTime(double m, double sd) {
-		return m + Math.sqrt(3) * sd * (2 * Math.random() - 1);
+	private static double randomTime(RandomStream rng, double m, double sd) {
+		return m + Math.sqrt(3) * sd * (2 * rng.nextDouble() - 1);
 	}
 
 	/**
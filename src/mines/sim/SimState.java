@@ -0,0 +1,678 @@
+package mines.sim;
+
+import mines.util.QueueArena;
+
+/**
+ * A snapshot of the state of a simulation,
+ * stored in flattened primitive arrays so that it can be copied and restored with bulk array copies.
+ *
+ * Describes the location and assignment of each truck,
+ * the machine, traffic light and road states,
+ * the contents of every queue,
+ * and the pending transition of each truck.
+ * Timed transitions are described by the progress of the transitioning truck rather than a transition time,
+ * so that a simulation restored from the snapshot samples the remaining time.
+ * For trucks with a pending timed travel transition,
+ * the route point is the index of the road being travelled on.
+ */
+public class SimState {
+
+	private static final TruckLocation[] LOCATIONS = TruckLocation.values();	//the TruckLocation values indexed by ordinal.
+
+	/*
+	 * Dimensions.
+	 */
+	private int numTrucks;		//number of trucks.
+	private int numShovels;		//number of shovels.
+	private int numCrusherLocs;	//number of crusher locations.
+	private int numRoads;		//number of roads.
+	private int numOneWay;		//number of one-lane roads.
+	private int numQueues;		//number of queues.
+
+	private double time;	//the time of the snapshot.
+
+	/*
+	 * Truck variables.
+	 */
+	private TruckLocation[] truckLocs;	//the location of each truck.
+	private int[] assignedShovel;		//the assigned shovel of each truck.
+	private int[] assignedCrusher;		//the assigned crusher of each truck.
+	private int[] assignedRoute;		//the assigned route of each truck.
+	private int[] routePoint;			//the route index of each truck.
+	private double[] progress;			//the progress of each truck in its current location.
+	private double[] dispatchTime;		//the time of the last dispatch of each truck.
+
+	/*
+	 * Machine and road variables.
+	 */
+	private int[] numEmptying;			//the number of active crushers at each crusher location.
+	private boolean[] shovelInUse;		//whether each shovel is in use.
+	private TrafficLight[] lights;		//the state of each traffic light.
+	private double[] lightSchedule;		//the time of the next scheduled change of each traffic light.
+	private boolean[] greedyMode;		//whether each traffic light is using greedy rules.
+	private int[] roadPriority;			//the transition priority counter of each road end, indexed by road * 2 + direction.
+
+	/*
+	 * Queue variables.
+	 * Each queue has capacity for every truck.
+	 */
+	private int[] queueData;	//the contents of each queue, with queue q starting at q * numTrucks.
+	private int[] queueSize;	//the number of trucks in each queue.
+
+	/*
+	 * Pending transition variables.
+	 */
+	private int numTransitions;			//the number of pending transitions.
+	private int[] transitionTruck;		//the transitioning truck of each pending transition.
+	private int[] transitionSource;		//the ordinal of the source state of each pending transition.
+	private int[] transitionTarget;		//the ordinal of the target state of each pending transition.
+	private int[] transitionPriority;	//the priority of each pending transition.
+	private boolean[] transitionTimed;	//whether each pending transition is timed rather than instant.
+
+	/**
+	 * Create an empty snapshot.
+	 *
+	 * @param	numTrucks		the number of trucks.
+	 * @param	numShovels		the number of shovels.
+	 * @param	numCrusherLocs	the number of crusher locations.
+	 * @param	numRoads		the number of roads.
+	 * @param	numOneWay		the number of one-lane roads.
+	 */
+	public SimState(int numTrucks, int numShovels, int numCrusherLocs, int numRoads, int numOneWay) {
+		this.numTrucks = numTrucks;
+		this.numShovels = numShovels;
+		this.numCrusherLocs = numCrusherLocs;
+		this.numRoads = numRoads;
+		this.numOneWay = numOneWay;
+		numQueues = numCrusherLocs + numShovels + 2 * numOneWay + 2 * numRoads;
+
+		truckLocs = new TruckLocation[numTrucks];
+		assignedShovel = new int[numTrucks];
+		assignedCrusher = new int[numTrucks];
+		assignedRoute = new int[numTrucks];
+		routePoint = new int[numTrucks];
+		progress = new double[numTrucks];
+		dispatchTime = new double[numTrucks];
+
+		numEmptying = new int[numCrusherLocs];
+		shovelInUse = new boolean[numShovels];
+		lights = new TrafficLight[numOneWay];
+		lightSchedule = new double[numOneWay];
+		greedyMode = new boolean[numOneWay];
+		roadPriority = new int[numRoads * 2];
+
+		queueData = new int[numQueues * numTrucks];
+		queueSize = new int[numQueues];
+
+		transitionTruck = new int[numTrucks];
+		transitionSource = new int[numTrucks];
+		transitionTarget = new int[numTrucks];
+		transitionPriority = new int[numTrucks];
+		transitionTimed = new boolean[numTrucks];
+		numTransitions = 0;
+	}
+
+	/**
+	 * Copy this snapshot into another snapshot of the same dimensions.
+	 *
+	 * @param	target	the snapshot to overwrite.
+	 * @throws	IllegalArgumentException if the dimensions differ.
+	 */
+	public void copyInto(SimState target) {
+		if (target.numTrucks != numTrucks || target.numShovels != numShovels || target.numCrusherLocs != numCrusherLocs ||
+			target.numRoads != numRoads || target.numOneWay != numOneWay) {
+			throw new IllegalArgumentException("Snapshot dimensions do not match");
+		}
+		target.time = time;
+
+		System.arraycopy(truckLocs,0,target.truckLocs,0,numTrucks);
+		System.arraycopy(assignedShovel,0,target.assignedShovel,0,numTrucks);
+		System.arraycopy(assignedCrusher,0,target.assignedCrusher,0,numTrucks);
+		System.arraycopy(assignedRoute,0,target.assignedRoute,0,numTrucks);
+		System.arraycopy(routePoint,0,target.routePoint,0,numTrucks);
+		System.arraycopy(progress,0,target.progress,0,numTrucks);
+		System.arraycopy(dispatchTime,0,target.dispatchTime,0,numTrucks);
+
+		System.arraycopy(numEmptying,0,target.numEmptying,0,numCrusherLocs);
+		System.arraycopy(shovelInUse,0,target.shovelInUse,0,numShovels);
+		System.arraycopy(lights,0,target.lights,0,numOneWay);
+		System.arraycopy(lightSchedule,0,target.lightSchedule,0,numOneWay);
+		System.arraycopy(greedyMode,0,target.greedyMode,0,numOneWay);
+		System.arraycopy(roadPriority,0,target.roadPriority,0,numRoads * 2);
+
+		System.arraycopy(queueData,0,target.queueData,0,queueData.length);
+		System.arraycopy(queueSize,0,target.queueSize,0,numQueues);
+
+		target.numTransitions = numTransitions;
+		System.arraycopy(transitionTruck,0,target.transitionTruck,0,numTransitions);
+		System.arraycopy(transitionSource,0,target.transitionSource,0,numTransitions);
+		System.arraycopy(transitionTarget,0,target.transitionTarget,0,numTransitions);
+		System.arraycopy(transitionPriority,0,target.transitionPriority,0,numTransitions);
+		System.arraycopy(transitionTimed,0,target.transitionTimed,0,numTransitions);
+	}
+
+	/**
+	 * Empty every queue and remove every pending transition.
+	 * Other variables are left unchanged.
+	 */
+	public void clear() {
+		for (int i=0; i<numQueues; i++) {
+			queueSize[i] = 0;
+		}
+		numTransitions = 0;
+	}
+
+	/**
+	 * Set the time of the snapshot.
+	 *
+	 * @param	time	the simulation time.
+	 */
+	public void setTime(double time) {
+		this.time = time;
+	}
+
+	/**
+	 * Get the time of the snapshot.
+	 *
+	 * @return	the simulation time.
+	 */
+	public double getTime() {
+		return time;
+	}
+
+	/*
+	 * Truck methods.
+	 */
+
+	/**
+	 * Set the location and assignment of a truck.
+	 *
+	 * @param	tid			the truck index.
+	 * @param	loc			the location of the truck.
+	 * @param	route		the assigned route.
+	 * @param	point		the route index.
+	 * @param	shovel		the assigned shovel.
+	 * @param	crusher		the assigned crusher.
+	 */
+	public void setTruck(int tid, TruckLocation loc, int route, int point, int shovel, int crusher) {
+		truckLocs[tid] = loc;
+		assignedRoute[tid] = route;
+		routePoint[tid] = point;
+		assignedShovel[tid] = shovel;
+		assignedCrusher[tid] = crusher;
+	}
+
+	/**
+	 * Set the progress of a truck.
+	 *
+	 * @param	tid			the truck index.
+	 * @param	progress	the fractional completion of the truck for timed states,
+	 *						or the waiting time for waiting states.
+	 */
+	public void setProgress(int tid, double progress) {
+		this.progress[tid] = progress;
+	}
+
+	/**
+	 * Set the progress of every truck.
+	 *
+	 * @param	progress	an array of progress values.
+	 */
+	public void setProgress(double[] progress) {
+		System.arraycopy(progress,0,this.progress,0,numTrucks);
+	}
+
+	/**
+	 * Set the time of the last dispatch of a truck.
+	 *
+	 * @param	tid		the truck index.
+	 * @param	time	the dispatch time.
+	 */
+	public void setDispatchTime(int tid, double time) {
+		dispatchTime[tid] = time;
+	}
+
+	/**
+	 * Set the time of the last dispatch of every truck.
+	 *
+	 * @param	dispatchTime	an array of dispatch times.
+	 */
+	public void setDispatchTimes(double[] dispatchTime) {
+		System.arraycopy(dispatchTime,0,this.dispatchTime,0,numTrucks);
+	}
+
+	/**
+	 * Get the location of a truck.
+	 *
+	 * @param	tid	the truck index.
+	 * @return	the TruckLocation.
+	 */
+	public TruckLocation getLocation(int tid) {
+		return truckLocs[tid];
+	}
+
+	/**
+	 * Get the assigned route of a truck.
+	 *
+	 * @param	tid	the truck index.
+	 * @return	the route index.
+	 */
+	public int getRoute(int tid) {
+		return assignedRoute[tid];
+	}
+
+	/**
+	 * Get the route index of a truck.
+	 *
+	 * @param	tid	the truck index.
+	 * @return	the route index.
+	 */
+	public int getRoutePoint(int tid) {
+		return routePoint[tid];
+	}
+
+	/**
+	 * Get the progress of a truck.
+	 *
+	 * @param	tid	the truck index.
+	 * @return	the progress value.
+	 */
+	public double getProgress(int tid) {
+		return progress[tid];
+	}
+
+	/**
+	 * Copy the locations and assignments of every truck into arrays.
+	 *
+	 * @param	truckLocs		the array of truck locations.
+	 * @param	assignedShovel	the array of assigned shovels.
+	 * @param	assignedCrusher	the array of assigned crushers.
+	 * @param	assignedRoute	the array of assigned routes.
+	 * @param	routePoint		the array of route indexes.
+	 */
+	public void copyTrucks(TruckLocation[] truckLocs, int[] assignedShovel, int[] assignedCrusher, int[] assignedRoute,
+		int[] routePoint) {
+		System.arraycopy(this.truckLocs,0,truckLocs,0,numTrucks);
+		System.arraycopy(this.assignedShovel,0,assignedShovel,0,numTrucks);
+		System.arraycopy(this.assignedCrusher,0,assignedCrusher,0,numTrucks);
+		System.arraycopy(this.assignedRoute,0,assignedRoute,0,numTrucks);
+		System.arraycopy(this.routePoint,0,routePoint,0,numTrucks);
+	}
+
+	/**
+	 * Copy the time of the last dispatch of every truck into an array.
+	 *
+	 * @param	dispatchTime	the array of dispatch times.
+	 */
+	public void copyDispatchTimes(double[] dispatchTime) {
+		System.arraycopy(this.dispatchTime,0,dispatchTime,0,numTrucks);
+	}
+
+	/*
+	 * Machine and road methods.
+	 */
+
+	/**
+	 * Set the number of active crushers at a crusher location.
+	 *
+	 * @param	cid		the crusher location index.
+	 * @param	active	the number of active crushers.
+	 */
+	public void setNumEmptying(int cid, int active) {
+		numEmptying[cid] = active;
+	}
+
+	/**
+	 * Get the number of active crushers at a crusher location.
+	 *
+	 * @param	cid	the crusher location index.
+	 * @return	the number of active crushers.
+	 */
+	public int getNumEmptying(int cid) {
+		return numEmptying[cid];
+	}
+
+	/**
+	 * Set whether a shovel is in use.
+	 *
+	 * @param	sid		the shovel index.
+	 * @param	inUse	whether the shovel is in use.
+	 */
+	public void setShovelInUse(int sid, boolean inUse) {
+		shovelInUse[sid] = inUse;
+	}
+
+	/**
+	 * Get whether a shovel is in use.
+	 *
+	 * @param	sid	the shovel index.
+	 * @return	true if the shovel is in use,
+	 *			false otherwise.
+	 */
+	public boolean isShovelInUse(int sid) {
+		return shovelInUse[sid];
+	}
+
+	/**
+	 * Copy the crusher and shovel states into arrays.
+	 *
+	 * @param	numEmptying	the array of active crushers at each crusher location.
+	 * @param	shovelInUse	the array of whether each shovel is in use.
+	 */
+	public void copyMachines(int[] numEmptying, boolean[] shovelInUse) {
+		System.arraycopy(this.numEmptying,0,numEmptying,0,numCrusherLocs);
+		System.arraycopy(this.shovelInUse,0,shovelInUse,0,numShovels);
+	}
+
+	/**
+	 * Set the state of a traffic light.
+	 *
+	 * @param	light		the light index.
+	 * @param	state		the TrafficLight value.
+	 * @param	schedule	the time of the next scheduled change.
+	 * @param	greedy		whether the light is using greedy rules.
+	 */
+	public void setLight(int light, TrafficLight state, double schedule, boolean greedy) {
+		lights[light] = state;
+		lightSchedule[light] = schedule;
+		greedyMode[light] = greedy;
+	}
+
+	/**
+	 * Get the state of a traffic light.
+	 *
+	 * @param	light	the light index.
+	 * @return	the TrafficLight value.
+	 */
+	public TrafficLight getLight(int light) {
+		return lights[light];
+	}
+
+	/**
+	 * Get the time of the next scheduled change of a traffic light.
+	 *
+	 * @param	light	the light index.
+	 * @return	the scheduled time.
+	 */
+	public double getLightSchedule(int light) {
+		return lightSchedule[light];
+	}
+
+	/**
+	 * Get whether a traffic light is using greedy rules.
+	 *
+	 * @param	light	the light index.
+	 * @return	true if the light is in greedy mode,
+	 *			false otherwise.
+	 */
+	public boolean isGreedyMode(int light) {
+		return greedyMode[light];
+	}
+
+	/**
+	 * Copy the traffic light states into arrays.
+	 *
+	 * @param	lights		the array of light states.
+	 * @param	greedyMode	the array of whether each light is using greedy rules.
+	 */
+	public void copyLights(TrafficLight[] lights, boolean[] greedyMode) {
+		System.arraycopy(this.lights,0,lights,0,numOneWay);
+		System.arraycopy(this.greedyMode,0,greedyMode,0,numOneWay);
+	}
+
+	/**
+	 * Set the transition priority counter of a road end.
+	 *
+	 * @param	road		the road index.
+	 * @param	dir			the direction.
+	 * @param	priority	the priority counter.
+	 */
+	public void setRoadPriority(int road, int dir, int priority) {
+		roadPriority[road * 2 + dir] = priority;
+	}
+
+	/**
+	 * Get the transition priority counter of a road end.
+	 *
+	 * @param	road	the road index.
+	 * @param	dir		the direction.
+	 * @return	the priority counter.
+	 */
+	public int getRoadPriority(int road, int dir) {
+		return roadPriority[road * 2 + dir];
+	}
+
+	/**
+	 * Increment the transition priority counter of a road end.
+	 *
+	 * @param	road	the road index.
+	 * @param	dir		the direction.
+	 */
+	public void incrementRoadPriority(int road, int dir) {
+		roadPriority[road * 2 + dir]++;
+	}
+
+	/*
+	 * Queue methods.
+	 */
+
+	/**
+	 * Get the queue index of a crusher location queue.
+	 *
+	 * @param	cid	the crusher location index.
+	 * @return	the queue index.
+	 */
+	public int crusherQueue(int cid) {
+		return cid;
+	}
+
+	/**
+	 * Get the queue index of a shovel queue.
+	 *
+	 * @param	sid	the shovel index.
+	 * @return	the queue index.
+	 */
+	public int shovelQueue(int sid) {
+		return numCrusherLocs + sid;
+	}
+
+	/**
+	 * Get the queue index of a traffic light queue.
+	 *
+	 * @param	light	the light index.
+	 * @param	dir		the direction.
+	 * @return	the queue index.
+	 */
+	public int lightQueue(int light, int dir) {
+		return numCrusherLocs + numShovels + light * 2 + dir;
+	}
+
+	/**
+	 * Get the queue index of the order of trucks on a road.
+	 *
+	 * @param	road	the road index.
+	 * @param	dir		the direction.
+	 * @return	the queue index.
+	 */
+	public int roadQueue(int road, int dir) {
+		return numCrusherLocs + numShovels + numOneWay * 2 + road * 2 + dir;
+	}
+
+	/**
+	 * Append a truck to the end of a queue.
+	 *
+	 * @param	queue	the queue index.
+	 * @param	tid		the truck index.
+	 * @throws	IllegalStateException if the queue already contains every truck.
+	 */
+	public void addToQueue(int queue, int tid) {
+		int size = queueSize[queue];
+		if (size == numTrucks) {
+			throw new IllegalStateException(String.format("Queue %d is full",queue));
+		}
+		queueData[queue * numTrucks + size] = tid;
+		queueSize[queue]++;
+	}
+
+	/**
+	 * Add a truck to the front of a queue.
+	 *
+	 * @param	queue	the queue index.
+	 * @param	tid		the truck index.
+	 * @throws	IllegalStateException if the queue already contains every truck.
+	 */
+	public void addToQueueFront(int queue, int tid) {
+		int size = queueSize[queue];
+		if (size == numTrucks) {
+			throw new IllegalStateException(String.format("Queue %d is full",queue));
+		}
+		int start = queue * numTrucks;
+		System.arraycopy(queueData,start,queueData,start + 1,size);
+		queueData[start] = tid;
+		queueSize[queue]++;
+	}
+
+	/**
+	 * Remove and return the first truck in a queue.
+	 *
+	 * @param	queue	the queue index.
+	 * @return	the truck index.
+	 * @throws	IllegalStateException if the queue is empty.
+	 */
+	public int pollQueue(int queue) {
+		int size = queueSize[queue];
+		if (size == 0) {
+			throw new IllegalStateException(String.format("Queue %d is empty",queue));
+		}
+		int start = queue * numTrucks;
+		int out = queueData[start];
+		System.arraycopy(queueData,start + 1,queueData,start,size - 1);
+		queueSize[queue]--;
+		return out;
+	}
+
+	/**
+	 * Get whether a queue is empty.
+	 *
+	 * @param	queue	the queue index.
+	 * @return	true if the queue is empty,
+	 *			false otherwise.
+	 */
+	public boolean isQueueEmpty(int queue) {
+		return queueSize[queue] == 0;
+	}
+
+	/**
+	 * Replace the contents of every queue with the contents of a queue arena,
+	 * which should number its queues in the same order.
+	 *
+	 * @param	source	the QueueArena to copy from.
+	 */
+	public void setQueues(QueueArena source) {
+		for (int i=0; i<numQueues; i++) {
+			source.toArray(i,queueData,i * numTrucks);
+			queueSize[i] = source.size(i);
+		}
+	}
+
+	/**
+	 * Replace the contents of every queue in a queue arena with the contents of the queues,
+	 * which should be numbered in the same order.
+	 *
+	 * @param	target	the QueueArena to overwrite.
+	 */
+	public void copyQueues(QueueArena target) {
+		for (int i=0; i<numQueues; i++) {
+			target.setAll(i,queueData,i * numTrucks,queueSize[i]);
+		}
+	}
+
+	/*
+	 * Pending transition methods.
+	 */
+
+	/**
+	 * Add a pending transition.
+	 * Instant transitions occur at the time of the snapshot.
+	 *
+	 * @param	tid			the transitioning truck index.
+	 * @param	source		the source state of the transition.
+	 * @param	target		the target state of the transition.
+	 * @param	priority	the priority used for ordering transitions.
+	 * @param	timed		whether the transition is timed,
+	 *						with the remaining time determined by the progress of the truck.
+	 * @throws	IllegalStateException if every truck already has a pending transition.
+	 */
+	public void addTransition(int tid, TruckLocation source, TruckLocation target, int priority, boolean timed) {
+		if (numTransitions == numTrucks) {
+			throw new IllegalStateException("Too many pending transitions");
+		}
+		transitionTruck[numTransitions] = tid;
+		transitionSource[numTransitions] = source.ordinal();
+		transitionTarget[numTransitions] = target.ordinal();
+		transitionPriority[numTransitions] = priority;
+		transitionTimed[numTransitions] = timed;
+		numTransitions++;
+	}
+
+	/**
+	 * Get the number of pending transitions.
+	 *
+	 * @return	the number of transitions.
+	 */
+	public int getNumTransitions() {
+		return numTransitions;
+	}
+
+	/**
+	 * Get the transitioning truck of a pending transition.
+	 *
+	 * @param	i	the transition index.
+	 * @return	the truck index.
+	 */
+	public int getTransitionTruck(int i) {
+		return transitionTruck[i];
+	}
+
+	/**
+	 * Get the source state of a pending transition.
+	 *
+	 * @param	i	the transition index.
+	 * @return	the TruckLocation.
+	 */
+	public TruckLocation getTransitionSource(int i) {
+		return LOCATIONS[transitionSource[i]];
+	}
+
+	/**
+	 * Get the target state of a pending transition.
+	 *
+	 * @param	i	the transition index.
+	 * @return	the TruckLocation.
+	 */
+	public TruckLocation getTransitionTarget(int i) {
+		return LOCATIONS[transitionTarget[i]];
+	}
+
+	/**
+	 * Get the priority of a pending transition.
+	 *
+	 * @param	i	the transition index.
+	 * @return	the priority.
+	 */
+	public int getTransitionPriority(int i) {
+		return transitionPriority[i];
+	}
+
+	/**
+	 * Get whether a pending transition is timed.
+	 *
+	 * @param	i	the transition index.
+	 * @return	true if the transition is timed,
+	 *			false if it is instant.
+	 */
+	public boolean isTransitionTimed(int i) {
+		return transitionTimed[i];
+	}
+
+}
@@ -0,0 +1,1554 @@
+package mines.sim;
+
+import mines.util.*;
+import java.util.Arrays;
+
+/**
+ * Discrete-event simulation of trucks on a complex road network,
+ * shared by the shift simulator and the simulation-based fitness functions.
+ * Routing decisions, light timings and the collection of statistics are supplied through policies,
+ * so that all simulations use the same event logic.
+ */
+public final class SimulationKernel {
+
+	private static final double EPSILON = 1e-6;	//small value.
+
+	/*
+	 * Simulation parameters.
+	 */
+	private int numTrucks;				//number of trucks.
+	private int numShovels;				//number of shovels.
+	private int numCrusherLocs;			//number of crusher locations.
+	private int[] numCrushers;			//number of crushers at each location.
+	private int numRoads;				//number of roads.
+	private double[] emptyTimesMean;	//average emptying times for crushers at each location.
+	private double[] emptyTimesSD;		//standard deviations of emptying times for crushers at each location.
+	private double[] fillTimesMean;		//average filling times for each shovel.
+	private double[] fillTimesSD;		//standard deviations of filling times for each shovel.
+	private double fullSlowdown;		//travel time increase for travelling full.
+
+	/*
+	 * Route specifications.
+	 */
+	private int numRoutes;			//number of routes.
+	private int[] routeShovels;		//the shovel at the end of each route.
+	private int[] routeCrushers;	//the crusher at the start of each route.
+
+	/*
+	 * Additional derived parameters.
+	 */
+	private NetworkLayout layout;	//flattened roads, routes and queue indexes.
+	private int numOneWay;			//number of one-lane roads.
+	private int[] defaultRoute;		//default route out of each crusher.
+
+	/*
+	 * Policies.
+	 */
+	private RoutePolicy routes;			//the source of routing decisions.
+	private LightPolicy lightPolicy;	//the source of light timings.
+	private StatisticsSink sink;		//the observer of transitions.
+	private TimeDistribution[] tgens;	//the distribution used for each truck.
+	private int[] numDraws;				//the number of values drawn from the distribution of each truck since it was set.
+	private boolean notifyDispatches;	//whether the route policy is notified before each dispatch from a crusher.
+
+	/*
+	 * Current simulation variables.
+	 */
+	private double currTime;				//current time in current simulation.
+	private TransitionHeap eventQueue;		//upcoming non-instant transitions in current simulation.
+	private TransitionHeap instantQueue;	//upcoming instant transitions in current simulation.
+	private Transition next;				//view of the most recent transition in current simulation.
+	private TruckLocation[] truckLocs;		//current locations of each truck in current simulation.
+	private int[] assignedShovel;			//current assigned shovel for each truck in current simulation.
+	private int[] assignedCrusher;			//current assigned crusher for each truck in current simulation.
+	private int[] assignedRoute;			//current assigned route for each truck in current simulation.
+	private int[] routePoint;				//current route index for each truck in current simulation.
+	private QueueArena queues;				//crusher, shovel, light and road queues in current simulation.
+	private int[] numEmptying;				//number of crushers active at each crusher location in current simulation.
+	private boolean[] shovelInUse;			//whether each shovel is in use in current simulation.
+	private TrafficLight[] lights;			//state of each traffic light in current simulation.
+	private double[] lightChangeTime;		//time of the upcoming change from green of each light, infinite if none.
+	private long[] lightChangeOrder;		//order the upcoming light changes were scheduled in, for breaking ties.
+	private long lightChangeCount;			//number of light changes scheduled in current simulation.
+	private int numScheduled;				//number of upcoming light changes in current simulation.
+	private boolean[] greedyMode;			//whether each light is set to greedy rules in current simulation.
+	private double[] roadAvailable;			//the minimum possible arrival time for each road end in current simulation.
+	private double[] roadProgress;			//progress of the last truck resumed on each road end.
+	private int[] roadPriority;				//priority values used for transitions to preserve order.
+	private double[] arrivalTime;			//last transition time per truck in current simulation.
+	private double[] intendedArrival;		//intended transition times before considering slowdowns.
+	private double[] dispatchTime;			//time of last dispatch per truck in current simulation.
+	private int numEmpties;					//number of empties completed in current simulation.
+	private int numUnused;					//number of trucks in unused state in current simulation.
+
+	/*
+	 * Macro-event variables.
+	 */
+	private boolean macroEvents;			//whether decision-free instant transitions are applied without the heap.
+	private boolean holding;				//whether an instant transition may currently be held back from the heap.
+	private boolean hasInline;				//whether an instant transition is held back from the heap.
+	private int inlineTruck;				//the truck of the held transition.
+	private TruckLocation inlineSource;		//the source state of the held transition.
+	private TruckLocation inlineTarget;		//the target state of the held transition.
+	private int inlinePriority;				//the priority of the held transition.
+	private long numInline;					//number of transitions applied inline in current simulation.
+	private long numEvents;					//number of transitions applied since construction.
+
+	/**
+	 * Kernel constructor.
+	 *
+	 * @param numTrucks				the number of trucks.
+	 * @param numShovels			the number of shovels.
+	 * @param numCrusherLocs		the number of crusher locations.
+	 * @param numCrushers			an array of the number of crushers at each location.
+	 * @param numRoads				the number of roads.
+	 * @param emptyTimesMean		an array of average emptying times for each crusher.
+	 * @param emptyTimesSD			an array of standard deviations of emptying times for each crusher.
+	 * @param fillTimesMean			an array of average filling times for each shovel.
+	 * @param fillTimesSD			an array of standard deviations of filling times for each shovel.
+	 * @param roadTravelTimesMean	a 2D array of average travelling times on each road in both directions.
+	 * @param roadTravelTimesSD		a 2D array of standard deviations of travelling time on each road in both directions.
+	 * @param fullSlowdown			the travel time increase for travelling full.
+	 * @param isOneWay				an array specifying whether each road is one-lane.
+	 * @param numRoutes				the number of routes.
+	 * @param routeRoads			a 2D array listing the roads comprising each route.
+	 * @param routeDirections		a 2D array listing the directions travelled on each road in each route.
+	 * @param routeLengths			an array of the number of roads in each route.
+	 * @param routeShovels			an array of the shovel at the end of each route.
+	 * @param routeCrushers			an array of the crusher at the start of each route.
+	 * @param routes				the source of routing decisions.
+	 * @param lightPolicy			the source of light timings.
+	 * @param sink					the observer of transitions.
+	 * @throws	IllegalArgumentException if a crusher location has no routes.
+	 */
+	public SimulationKernel(int numTrucks, int numShovels, int numCrusherLocs, int[] numCrushers, int numRoads,
+		double[] emptyTimesMean, double[] emptyTimesSD, double[] fillTimesMean, double[] fillTimesSD, double[][] roadTravelTimesMean,
+		double[][] roadTravelTimesSD, double fullSlowdown, boolean[] isOneWay, int numRoutes, int[][] routeRoads, int[][] routeDirections,
+		int[] routeLengths, int[] routeShovels, int[] routeCrushers, RoutePolicy routes, LightPolicy lightPolicy, StatisticsSink sink) {
+		this.numTrucks = numTrucks;
+		this.numShovels = numShovels;
+		this.numCrusherLocs = numCrusherLocs;
+		this.numCrushers = numCrushers;
+		this.numRoads = numRoads;
+		this.emptyTimesMean = emptyTimesMean;
+		this.emptyTimesSD = emptyTimesSD;
+		this.fillTimesMean = fillTimesMean;
+		this.fillTimesSD = fillTimesSD;
+		this.fullSlowdown = fullSlowdown;
+
+		this.numRoutes = numRoutes;
+		this.routeShovels = routeShovels;
+		this.routeCrushers = routeCrushers;
+
+		layout = new NetworkLayout(numShovels,numCrusherLocs,numRoads,roadTravelTimesMean,roadTravelTimesSD,isOneWay,numRoutes,
+			routeRoads,routeDirections,routeLengths);
+		numOneWay = layout.getNumOneWay();
+		defaultRoute = new int[numCrusherLocs];
+		for (int i=0; i<numCrusherLocs; i++) {
+			defaultRoute[i] = -1;
+		}
+		for (int i=0; i<numRoutes; i++) {
+			if (defaultRoute[routeCrushers[i]] < 0) {
+				defaultRoute[routeCrushers[i]] = i;
+			}
+		}
+		for (int i=0; i<numCrusherLocs; i++) {
+			if (defaultRoute[i] < 0) {
+				throw new IllegalArgumentException(String.format("No routes out of crusher %d",i));
+			}
+		}
+
+		this.routes = routes;
+		this.lightPolicy = lightPolicy;
+		this.sink = sink;
+		tgens = new TimeDistribution[numTrucks];
+		numDraws = new int[numTrucks];
+		notifyDispatches = false;
+
+		eventQueue = new TransitionHeap(numTrucks);
+		instantQueue = new TransitionHeap(numTrucks);
+		next = new Transition(-1,0,TruckLocation.UNUSED,TruckLocation.UNUSED,0);
+		truckLocs = new TruckLocation[numTrucks];
+		assignedShovel = new int[numTrucks];
+		assignedCrusher = new int[numTrucks];
+		assignedRoute = new int[numTrucks];
+		routePoint = new int[numTrucks];
+		queues = new QueueArena(layout.getNumQueues(),numTrucks);
+		numEmptying = new int[numCrusherLocs];
+		shovelInUse = new boolean[numShovels];
+		lights = new TrafficLight[numOneWay];
+		lightChangeTime = new double[numOneWay];
+		lightChangeOrder = new long[numOneWay];
+		greedyMode = new boolean[numOneWay];
+		roadAvailable = new double[numRoads * 2];
+		roadProgress = new double[numRoads * 2];
+		roadPriority = new int[numRoads * 2];
+		arrivalTime = new double[numTrucks];
+		intendedArrival = new double[numTrucks];
+		dispatchTime = new double[numTrucks];
+		macroEvents = true;
+	}
+
+	/**
+	 * Set whether macro-events are used.
+	 * In a macro-event, an instant transition that needs no routing or light decision,
+	 * and would be the next transition polled,
+	 * is applied directly after the transition that caused it rather than passing through the heap.
+	 * The order of transitions and the notifications to the statistics sink are unchanged.
+	 *
+	 * @param	macroEvents	whether to apply decision-free instant transitions inline.
+	 */
+	public void setMacroEvents(boolean macroEvents) {
+		this.macroEvents = macroEvents;
+	}
+
+	/**
+	 * Set the distribution used for all transition times in timed states.
+	 *
+	 * @param	tgen	the random distribution.
+	 */
+	public void setTimeDistribution(TimeDistribution tgen) {
+		Arrays.fill(tgens,tgen);
+		Arrays.fill(numDraws,0);
+	}
+
+	/**
+	 * Set the distribution used for the transition times of a single truck.
+	 *
+	 * @param	tid		the truck index.
+	 * @param	tgen	the random distribution.
+	 */
+	public void setTimeDistribution(int tid, TimeDistribution tgen) {
+		tgens[tid] = tgen;
+		numDraws[tid] = 0;
+	}
+
+	/**
+	 * Set whether the route policy is notified before each transition that requests a route for a truck at a crusher,
+	 * e.g. to save checkpoints at each dispatch.
+	 * Disabled by default.
+	 *
+	 * @param	notifyDispatches	whether to notify the route policy.
+	 * @see	RoutePolicy#beforeDispatch(int)
+	 */
+	public void setDispatchNotification(boolean notifyDispatches) {
+		this.notifyDispatches = notifyDispatches;
+	}
+
+	/**
+	 * Resets the simulation to the start of a shift,
+	 * with all trucks waiting at crushers.
+	 *
+	 * @param	initialCrushers	an array of crusher indexes,
+	 *							or null for the default option of trucks spread evenly among crushers.
+	 */
+	public void reset(int[] initialCrushers) {
+		currTime = 0;
+		clear();
+		for (int i=0; i<numTrucks; i++) {
+			instantQueue.add(i,currTime,TruckLocation.WAITING,TruckLocation.WAITING,getPriority(i,TruckLocation.WAITING));
+			truckLocs[i] = TruckLocation.WAITING;
+			assignedCrusher[i] = (initialCrushers == null ? i % numCrusherLocs : initialCrushers[i]);
+			assignedRoute[i] = defaultRoute[assignedCrusher[i]];
+			assignedShovel[i] = routeShovels[assignedRoute[i]];
+			routePoint[i] = 0;
+			dispatchTime[i] = currTime;
+		}
+		for (int i=0; i<numCrusherLocs; i++) {
+			numEmptying[i] = 0;
+		}
+		for (int i=0; i<numShovels; i++) {
+			shovelInUse[i] = false;
+		}
+		for (int i=0; i<numOneWay; i++) {
+			lights[i] = TrafficLight.GR;
+			greedyMode[i] = true;
+		}
+		Arrays.fill(roadPriority,Integer.MIN_VALUE);
+	}
+
+	/**
+	 * Initialises the simulation from a snapshot,
+	 * without any pending transitions.
+	 * The pending transitions should then be added in the order they are stored,
+	 * with timed transitions ordered by priority.
+	 *
+	 * @param	state	the snapshot.
+	 * @see	addTransition(int,TruckLocation,TruckLocation,int)
+	 * @see	resumeTransition(int,TruckLocation,TruckLocation,int,double)
+	 */
+	public void restore(SimState state) {
+		currTime = state.getTime();
+		clear();
+		state.copyTrucks(truckLocs,assignedShovel,assignedCrusher,assignedRoute,routePoint);
+		state.copyDispatchTimes(dispatchTime);
+		state.copyMachines(numEmptying,shovelInUse);
+		state.copyQueues(queues);
+		state.copyLights(lights,greedyMode);
+		for (int i=0; i<numOneWay; i++) {
+			if ((lights[i] == TrafficLight.GR || lights[i] == TrafficLight.RG) && !greedyMode[i]) {
+				scheduleLight(i,state.getLightSchedule(i));
+			}
+		}
+		for (int i=0; i<numRoads; i++) {
+			for (int j=0; j<2; j++) {
+				roadPriority[i * 2 + j] = state.getRoadPriority(i,j);
+			}
+		}
+	}
+
+	/**
+	 * Clears the queues, pending transitions and counters at the current time.
+	 */
+	private void clear() {
+		eventQueue.clear();
+		instantQueue.clear();
+		for (int i=0; i<numTrucks; i++) {
+			arrivalTime[i] = currTime;
+			intendedArrival[i] = currTime;
+		}
+		queues.clear();
+		Arrays.fill(lightChangeTime,Double.POSITIVE_INFINITY);
+		Arrays.fill(roadAvailable,currTime);
+		Arrays.fill(roadProgress,1.0);
+		numScheduled = 0;
+		lightChangeCount = 0;
+		numEmpties = 0;
+		numUnused = 0;
+		numInline = 0;
+	}
+
+	/**
+	 * Add an instant transition at the current time.
+	 *
+	 * @param	tid			the transitioning truck index.
+	 * @param	source		the source state of the transition.
+	 * @param	target		the target state of the transition.
+	 * @param	priority	the priority used for ordering transitions.
+	 */
+	public void addTransition(int tid, TruckLocation source, TruckLocation target, int priority) {
+		instantQueue.add(tid,currTime,source,target,priority);
+	}
+
+	/**
+	 * Add a partially completed timed transition,
+	 * drawing the remaining time in proportion to the remaining progress.
+	 * Trucks travelling on the same road should be resumed in the order they entered the road,
+	 * so that they cannot overtake.
+	 *
+	 * @param	tid			the transitioning truck index.
+	 * @param	source		the source state of the transition.
+	 * @param	target		the target state of the transition.
+	 * @param	priority	the priority used for ordering transitions.
+	 * @param	progress	the fractional completion of the transition.
+	 * @throws	IllegalStateException if the progress is not between 0 and 1,
+	 *			or the source is not a timed state.
+	 */
+	public void resumeTransition(int tid, TruckLocation source, TruckLocation target, int priority, double progress) {
+		if (progress < 0 || progress > 1) {
+			throw new IllegalStateException("Illegal progress value found");
+		}
+		int route = assignedRoute[tid];
+		int point = routePoint[tid];
+		switch (source) {
+			case TRAVEL_TO_SHOVEL: {
+				int end = layout.getRoadEnd(route,point);
+				if (roadProgress[end] - progress > EPSILON) {
+					double travelTime = nextTime(tid,layout.getTravelMean(end),layout.getTravelSD(end)) * (1 - progress);
+					roadAvailable[end] = Math.max(roadAvailable[end],currTime + travelTime);
+				}
+				roadProgress[end] = progress;
+				eventQueue.add(tid,roadAvailable[end],source,target,priority);
+				routePoint[tid]++;
+				break;
+			}
+			case FILLING: {
+				int sid = assignedShovel[tid];
+				double finish = currTime + nextTime(tid,fillTimesMean[sid],fillTimesSD[sid]) * (1 - progress);
+				eventQueue.add(tid,finish,source,target,priority);
+				break;
+			}
+			case TRAVEL_TO_CRUSHER: {
+				int end = layout.getRoadEnd(route,point) ^ 1;
+				if (roadProgress[end] - progress > EPSILON) {
+					double travelTime = nextTime(tid,layout.getTravelMean(end),layout.getTravelSD(end)) * (1 - progress) *
+						fullSlowdown;
+					roadAvailable[end] = Math.max(roadAvailable[end],currTime + travelTime);
+				}
+				roadProgress[end] = progress;
+				eventQueue.add(tid,roadAvailable[end],source,target,priority);
+				routePoint[tid]--;
+				break;
+			}
+			case EMPTYING: {
+				int cid = assignedCrusher[tid];
+				double finish = currTime + nextTime(tid,emptyTimesMean[cid],emptyTimesSD[cid]) * (1 - progress);
+				eventQueue.add(tid,finish,source,target,priority);
+				break;
+			}
+			default: {
+				throw new IllegalStateException(String.format("Stored non-instant event is invalid: truck %d from %s",tid,source));
+			}
+		}
+	}
+
+	/**
+	 * Check every traffic light for yellow lights that should change state,
+	 * used when the simulation was initialised from a reconstructed state.
+	 */
+	public void checkLights() {
+		for (int i=0; i<numOneWay; i++) {
+			checkLights(layout.getLightRoad(i));
+		}
+	}
+
+	/**
+	 * Runs a simulation.
+	 * Will terminate if no trucks are in use, or a negative value other than -2 is assigned as a route.
+	 *
+	 * @param	runtime	the termination time of the simulation.
+	 */
+	public void simulate(double runtime) {
+		while (numUnused < numTrucks) {
+			boolean hasNext = !(instantQueue.isEmpty() && eventQueue.isEmpty());
+			double nextTime = (hasNext ? peekNextTime() : 0);
+			int light = (numScheduled > 0 ? nextLightChange() : -1);
+			if (!hasNext || (light >= 0 && lightChangeTime[light] <= nextTime)) {
+				if (light < 0 || lightChangeTime[light] > runtime) {
+					break;
+				}
+				updateLights(light);
+				continue;
+			}
+			else if (nextTime > runtime) {
+				break;
+			}
+			if (notifyDispatches) {
+				TransitionHeap queue = (instantQueue.isEmpty() ? eventQueue : instantQueue);
+				int tid = queue.peek();
+				if (queue.getTarget(tid) == TruckLocation.WAITING) {
+					routes.beforeDispatch(tid);
+				}
+			}
+			if (!singleEvent()) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Move the simulation forward by one transition.
+	 *
+	 * @return	false if a termination request is received, true otherwise.
+	 * @throws	IllegalStateException	if a simulation error occurred,
+	 *									e.g. illegal route index,
+	 *									approaching non-existent traffic lights,
+	 *									illegal traffic light state,
+	 *									illegal transition.
+	 */
+	private boolean singleEvent() {
+		TransitionHeap queue = (instantQueue.isEmpty() ? eventQueue : instantQueue);
+		int tid = queue.poll();
+		queue.getTransition(tid,next);
+		if (next.getTime() < currTime) {
+			throw new IllegalStateException("Negative time step");
+		}
+		currTime = next.getTime();
+		holding = macroEvents;
+		numEvents++;
+		boolean running = applyTransition(tid);
+		while (running && hasInline && inlineIsNext()) {
+			hasInline = false;
+			next.set(inlineTruck,currTime,inlineSource,inlineTarget,inlinePriority);
+			numInline++;
+			numEvents++;
+			running = applyTransition(inlineTruck);
+		}
+		holding = false;
+		if (hasInline) {
+			hasInline = false;
+			instantQueue.add(inlineTruck,currTime,inlineSource,inlineTarget,inlinePriority);
+		}
+		return running;
+	}
+
+	/**
+	 * Apply the transition held in the next variable at the current time.
+	 *
+	 * @param	tid	the transitioning truck index.
+	 * @return	false if a termination request is received, true otherwise.
+	 */
+	private boolean applyTransition(int tid) {
+		sink.transition(next);
+		TruckLocation tOrigin = next.getSource();
+		TruckLocation tDest = next.getTarget();
+		arrivalTime[tid] = currTime;
+		if (tOrigin == truckLocs[tid]) {
+			switch (tDest) {
+				case WAITING: {
+					if (tOrigin == TruckLocation.EMPTYING) {
+						int cid = assignedCrusher[tid];
+						updateCrusher(cid);
+						sink.serviceEnded(tid,cid,false,currTime);
+					}
+					if (!getRoute(tid,true)) {
+						return false;
+					}
+					break;
+				}
+				case TRAVEL_TO_SHOVEL: {
+					if (layout.isOneWay(layout.getRoad(assignedRoute[tid],routePoint[tid]))) {
+						sink.lightWaitEnded(tid,currTime);
+					}
+					else {
+						clearedRoad(tid,true);
+					}
+					preventCollisions(tid,true);
+					routePoint[tid]++;
+					break;
+				}
+				case APPROACHING_TL_CS: {
+					clearedRoad(tid,true);
+					arrivedAtLights(tid,true);
+					sink.waitStarted(tid,currTime);
+					break;
+				}
+				case STOPPED_AT_TL_CS: {
+					stoppedAtLights(tid);
+					break;
+				}
+				case APPROACHING_SHOVEL: {
+					clearedRoad(tid,true);
+					int sid = assignedShovel[tid];
+					TruckLocation nextLoc;
+					if (shovelInUse[sid]) {
+						nextLoc = TruckLocation.WAITING_AT_SHOVEL;
+						queues.add(layout.shovelQueue(sid),tid);
+					}
+					else {
+						nextLoc = TruckLocation.FILLING;
+						shovelInUse[sid] = true;
+					}
+					addInstant(tid,tDest,nextLoc,getPriority(tid,nextLoc));
+					sink.waitStarted(tid,currTime);
+					break;
+				}
+				case WAITING_AT_SHOVEL: {
+					break;
+				}
+				case FILLING: {
+					int sid = assignedShovel[tid];
+					double fillTime = nextTime(tid,fillTimesMean[sid],fillTimesSD[sid]);
+					eventQueue.add(tid,currTime + fillTime,tDest,TruckLocation.LEAVING_SHOVEL,getPriority(tid,
+						TruckLocation.LEAVING_SHOVEL));
+					intendedArrival[tid] = currTime + fillTime;
+					sink.serviceStarted(tid,sid,true,currTime);
+					break;
+				}
+				case LEAVING_SHOVEL: {
+					int sid = assignedShovel[tid];
+					if (tOrigin == TruckLocation.FILLING) {
+						if (queues.isEmpty(layout.shovelQueue(sid))) {
+							shovelInUse[sid] = false;
+						}
+						else {
+							int head = queues.poll(layout.shovelQueue(sid));
+							addInstant(head,TruckLocation.WAITING_AT_SHOVEL,TruckLocation.FILLING,getPriority(head,TruckLocation.FILLING));
+						}
+						sink.serviceEnded(tid,sid,true,currTime);
+					}
+					if (!getRoute(tid,false)) {
+						return false;
+					}
+					break;
+				}
+				case TRAVEL_TO_CRUSHER: {
+					if (layout.isOneWay(layout.getRoad(assignedRoute[tid],routePoint[tid]))) {
+						sink.lightWaitEnded(tid,currTime);
+					}
+					else {
+						clearedRoad(tid,false);
+					}
+					preventCollisions(tid,false);
+					routePoint[tid]--;
+					break;
+				}
+				case APPROACHING_TL_SS: {
+					clearedRoad(tid,false);
+					arrivedAtLights(tid,false);
+					sink.waitStarted(tid,currTime);
+					break;
+				}
+				case STOPPED_AT_TL_SS: {
+					stoppedAtLights(tid);
+					break;
+				}
+				case APPROACHING_CRUSHER: {
+					clearedRoad(tid,false);
+					int cid = assignedCrusher[tid];
+					TruckLocation nextLoc;
+					if (numEmptying[cid] < numCrushers[cid]) {
+						nextLoc = TruckLocation.EMPTYING;
+						sink.crusherChanged(cid,numEmptying[cid],currTime);
+						numEmptying[cid]++;
+					}
+					else {
+						nextLoc = TruckLocation.WAITING_AT_CRUSHER;
+						queues.add(layout.crusherQueue(cid),tid);
+					}
+					addInstant(tid,tDest,nextLoc,getPriority(tid,nextLoc));
+					sink.waitStarted(tid,currTime);
+					break;
+				}
+				case WAITING_AT_CRUSHER: {
+					break;
+				}
+				case EMPTYING: {
+					int cid = assignedCrusher[tid];
+					double emptyTime = nextTime(tid,emptyTimesMean[cid],emptyTimesSD[cid]);
+					eventQueue.add(tid,currTime + emptyTime,tDest,TruckLocation.WAITING,getPriority(tid,
+						TruckLocation.WAITING));
+					intendedArrival[tid] = currTime + emptyTime;
+					sink.serviceStarted(tid,cid,false,currTime);
+					break;
+				}
+				case UNUSED: {
+					numUnused++;
+					sink.waitStarted(tid,currTime);
+					break;
+				}
+				default: {
+					throw new IllegalStateException(String.format("Truck has entered illegal state: %s",tDest));
+				}
+			}
+			truckLocs[tid] = tDest;
+		}
+		else {
+			throw new IllegalStateException(String.format("Transition occurred from %s to %s when truck is in %s",tOrigin,tDest,
+				truckLocs[tid]));
+		}
+		return true;
+	}
+
+	/**
+	 * Add an instant transition at the current time,
+	 * holding it back from the heap if it may be applied as part of a macro-event.
+	 *
+	 * @param	tid			the transitioning truck index.
+	 * @param	source		the source state of the transition.
+	 * @param	target		the target state of the transition.
+	 * @param	priority	the priority used for ordering transitions.
+	 */
+	private void addInstant(int tid, TruckLocation source, TruckLocation target, int priority) {
+		if (holding && !hasInline && isDecisionFree(target)) {
+			hasInline = true;
+			inlineTruck = tid;
+			inlineSource = source;
+			inlineTarget = target;
+			inlinePriority = priority;
+		}
+		else {
+			instantQueue.add(tid,currTime,source,target,priority);
+		}
+	}
+
+	/**
+	 * Get whether entering a state requires no routing or light decision.
+	 *
+	 * @param	target	the target state of a transition.
+	 * @return	true if the transition can be part of a macro-event,
+	 *			false otherwise.
+	 */
+	private static boolean isDecisionFree(TruckLocation target) {
+		switch (target) {
+			case TRAVEL_TO_SHOVEL:
+			case WAITING_AT_SHOVEL:
+			case FILLING:
+			case TRAVEL_TO_CRUSHER:
+			case WAITING_AT_CRUSHER:
+			case EMPTYING: {
+				return true;
+			}
+			default: {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Get whether the held transition would be the next event of the simulation,
+	 * ahead of every pending instant transition and any light change due at the current time.
+	 *
+	 * @return	true if the held transition can be applied immediately,
+	 *			false otherwise.
+	 */
+	private boolean inlineIsNext() {
+		if (!instantQueue.precedes(inlineTruck,currTime,inlinePriority)) {
+			return false;
+		}
+		if (numScheduled > 0) {
+			for (int i=0; i<numOneWay; i++) {
+				if (lightChangeTime[i] <= currTime) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Used after a truck has finished emptying at a crusher location.
+	 *
+	 * @param	cid	the crusher location.
+	 */
+	private void updateCrusher(int cid) {
+		if (queues.isEmpty(layout.crusherQueue(cid))) {
+			sink.crusherChanged(cid,numEmptying[cid],currTime);
+			numEmptying[cid]--;
+		}
+		else {
+			int head = queues.poll(layout.crusherQueue(cid));
+			addInstant(head,TruckLocation.WAITING_AT_CRUSHER,TruckLocation.EMPTYING,getPriority(head,TruckLocation.EMPTYING));
+		}
+		numEmpties++;
+	}
+
+	/**
+	 * Used when a truck needs a new destination.
+	 *
+	 * @param	tid			the truck index.
+	 * @param	toShovel	whether the truck is heading towards a shovel.
+	 * @return	false if the simulation should terminate,
+	 *			true otherwise.
+	 */
+	private boolean getRoute(int tid, boolean toShovel) {
+		int route = routes.nextRoute(tid);
+		int[] routeMachines;
+		int mid;
+		TruckLocation origin;
+		if (toShovel) {
+			routeMachines = routeCrushers;
+			mid = assignedCrusher[tid];
+			origin = TruckLocation.WAITING;
+		}
+		else {
+			routeMachines = routeShovels;
+			mid = assignedShovel[tid];
+			origin = TruckLocation.LEAVING_SHOVEL;
+		}
+		if (route < 0) {
+			if (route == -2) {
+				if (toShovel) {
+					dispatchTime[tid] = currTime;
+				}
+				addInstant(tid,origin,TruckLocation.UNUSED,getPriority(tid,TruckLocation.UNUSED));
+				sink.routed(tid,route,toShovel,currTime);
+				return true;
+			}
+			return false;
+		}
+		if (routeMachines[route] != mid) {
+			throw new IllegalStateException(String.format("Illegal route supplied: %d at %s %d",route,(toShovel ? "crusher" : "shovel"),
+				mid));
+		}
+		assignedRoute[tid] = route;
+		assignedCrusher[tid] = routeCrushers[route];
+		assignedShovel[tid] = routeShovels[route];
+		TruckLocation target;
+		if (toShovel) {
+			routePoint[tid] = 0;
+			dispatchTime[tid] = currTime;
+			target = (layout.isOneWay(layout.getRoad(route,0)) ? TruckLocation.APPROACHING_TL_CS : TruckLocation.TRAVEL_TO_SHOVEL);
+		}
+		else {
+			routePoint[tid] = layout.getRouteLength(route) - 1;
+			target = (layout.isOneWay(layout.getRoad(route,routePoint[tid])) ? TruckLocation.APPROACHING_TL_SS :
+				TruckLocation.TRAVEL_TO_CRUSHER);
+		}
+		addInstant(tid,origin,target,getPriority(tid,target));
+		sink.routed(tid,route,toShovel,currTime);
+		return true;
+	}
+
+	/**
+	 * Used after a truck has completed a travel transition.
+	 *
+	 * @param	tid			the index of the truck that cleared a road.
+	 * @param	toShovel	whether the truck was heading towards a shovel or not.
+	 * @throws	IllegalStateException if this truck cleared a road before a truck ahead of it.
+	 */
+	private void clearedRoad(int tid, boolean toShovel) {
+		int route = assignedRoute[tid];
+		int startPoint = (toShovel ? 0 : layout.getRouteLength(route) - 1);
+		int point = routePoint[tid];
+		int off = (toShovel ? -1 : 1);
+		if (point != startPoint) {
+			int end = layout.getRoadEnd(route,point + off) ^ (toShovel ? 0 : 1);
+			int prevRoad = end >> 1;
+			int front = queues.poll(layout.roadQueue(end));
+			if (front != tid) {
+				throw new IllegalStateException("Trucks out of order");
+			}
+			if (layout.isOneWay(prevRoad)) {
+				checkLights(prevRoad);
+			}
+		}
+	}
+
+	/**
+	 * Get the priority for a transition.
+	 * Should only affect event order when a non-random time distribution is used.
+	 * Should not be used for travel transitions --
+	 * those are controlled by using the roadPriority variable.
+	 *
+	 * @param	tid		the index of the truck to transition.
+	 * @param	dest	the destination TruckLocation of the transition.
+	 * @return	the priority of the transition.
+	 * @throws	IllegalArgumentException if dest is illegal.
+	 */
+	public int getPriority(int tid, TruckLocation dest) {
+		switch (dest) {
+			case WAITING: {
+				return numTrucks * 4 + tid;
+			}
+			case APPROACHING_TL_CS: {
+				return numTrucks * 3 + tid;
+			}
+			case STOPPED_AT_TL_CS: {
+				return tid;
+			}
+			case TRAVEL_TO_SHOVEL: {
+				return numTrucks + tid;
+			}
+			case APPROACHING_SHOVEL: {
+				return numTrucks * 5 + tid;
+			}
+			case WAITING_AT_SHOVEL: {
+				return numTrucks * 2 + tid;
+			}
+			case FILLING: {
+				return numTrucks * 2 + tid;
+			}
+			case LEAVING_SHOVEL: {
+				return numTrucks * 4 + tid;
+			}
+			case TRAVEL_TO_CRUSHER: {
+				return numTrucks + tid;
+			}
+			case APPROACHING_TL_SS: {
+				return numTrucks * 3 + tid;
+			}
+			case STOPPED_AT_TL_SS: {
+				return tid;
+			}
+			case APPROACHING_CRUSHER: {
+				return numTrucks * 5 + tid;
+			}
+			case WAITING_AT_CRUSHER: {
+				return numTrucks * 2 + tid;
+			}
+			case EMPTYING: {
+				return numTrucks * 2 + tid;
+			}
+			case UNUSED: {
+				return -1;
+			}
+			default: {
+				throw new IllegalArgumentException(String.format("Truck cannot transition to: %s",dest));
+			}
+		}
+	}
+
+	/**
+	 * Used when a traffic arrives at traffic lights.
+	 *
+	 * @param	tid			the index of the truck that cleared a road.
+	 * @param	toShovel	whether the truck was heading towards a shovel or not.
+	 */
+	private void arrivedAtLights(int tid, boolean toShovel) {
+		int end = layout.getRoadEnd(assignedRoute[tid],routePoint[tid]);
+		int road = end >> 1;
+		if (!layout.isOneWay(road)) {
+			throw new IllegalStateException(String.format("Arrived at lights for two-way road %d",road));
+		}
+		int dir = end & 1;
+		TruckLocation stopTarget;
+		TruckLocation travelTarget;
+		TruckLocation origin;
+		if (toShovel) {
+			origin = TruckLocation.APPROACHING_TL_CS;
+			stopTarget = TruckLocation.STOPPED_AT_TL_CS;
+			travelTarget = TruckLocation.TRAVEL_TO_SHOVEL;
+		}
+		else {
+			dir = 1 - dir;
+			origin = TruckLocation.APPROACHING_TL_SS;
+			stopTarget = TruckLocation.STOPPED_AT_TL_SS;
+			travelTarget = TruckLocation.TRAVEL_TO_CRUSHER;
+		}
+		int lIndex = layout.getLightIndex(road);
+		switch (lights[lIndex]) {
+			case RR:
+			case YR:
+			case RY: {
+				addInstant(tid,origin,stopTarget,getPriority(tid,stopTarget));
+				queues.add(layout.lightQueue(lIndex,dir),tid);
+				break;
+			}
+			case RG: {
+				if (dir == 0) {
+					addInstant(tid,origin,stopTarget,getPriority(tid,stopTarget));
+					queues.add(layout.lightQueue(lIndex,dir),tid);
+					if (greedyMode[lIndex]) {
+						lights[lIndex] = TrafficLight.RY;
+						lightPolicy.greedyChange(road,lights[lIndex]);
+					}
+				}
+				else {
+					addInstant(tid,origin,travelTarget,getPriority(tid,travelTarget));
+				}
+				break;
+			}
+			case GR: {
+				if (dir == 0) {
+					addInstant(tid,origin,travelTarget,getPriority(tid,travelTarget));
+				}
+				else {
+					addInstant(tid,origin,stopTarget,getPriority(tid,stopTarget));
+					queues.add(layout.lightQueue(lIndex,dir),tid);
+					if (greedyMode[lIndex]) {
+						lights[lIndex] = TrafficLight.YR;
+						lightPolicy.greedyChange(road,lights[lIndex]);
+					}
+				}
+				break;
+			}
+			default: {
+				throw new IllegalStateException(String.format("Illegal light configuration: %s",lights[lIndex]));
+			}
+		}
+	}
+
+	/**
+	 * Used when a traffic stops at traffic lights.
+	 *
+	 * @param	tid			the index of the truck that cleared a road.
+	 */
+	private void stoppedAtLights(int tid) {
+		int road = layout.getRoad(assignedRoute[tid],routePoint[tid]);
+		int lIndex = layout.getLightIndex(road);
+		if (greedyMode[lIndex]) {
+			checkLights(road);
+		}
+	}
+
+	/**
+	 * Check whether traffic lights on a road are yellow and should change state.
+	 * Used after a truck clears a one-lane road.
+	 *
+	 * @param	road	the road index.
+	 */
+	private void checkLights(int road) {
+		if (queues.isEmpty(layout.roadQueue(road * 2)) && queues.isEmpty(layout.roadQueue(road * 2 + 1))) {
+			int side;
+			int lIndex = layout.getLightIndex(road);
+			switch (lights[lIndex]) {
+				case YR: {
+					lights[lIndex] = TrafficLight.RG;
+					side = 1;
+					break;
+				}
+				case RY: {
+					lights[lIndex] = TrafficLight.GR;
+					side = 0;
+					break;
+				}
+				default: {
+					return;
+				}
+			}
+			int lightQueue = layout.lightQueue(lIndex,side);
+			int size = queues.size(lightQueue);
+			for (int i=0; i<size; i++) {
+				int front = queues.poll(lightQueue);
+				roadPriority[road * 2 + side]++;
+				TruckLocation origin;
+				TruckLocation target;
+				switch (truckLocs[front]) {
+					case APPROACHING_TL_SS:
+					case STOPPED_AT_TL_SS: {
+						origin = TruckLocation.STOPPED_AT_TL_SS;
+						target = TruckLocation.TRAVEL_TO_CRUSHER;
+						break;
+					}
+					case APPROACHING_TL_CS:
+					case STOPPED_AT_TL_CS: {
+						origin = TruckLocation.STOPPED_AT_TL_CS;
+						target = TruckLocation.TRAVEL_TO_SHOVEL;
+						break;
+					}
+					default: {
+						throw new IllegalStateException("Truck is at light queue but not stopped");
+					}
+				}
+				addInstant(front,origin,target,roadPriority[road * 2 + side]);
+			}
+			double lightTime = lightPolicy.nextLight(road,lights[lIndex],false);
+			if (lightTime < 0) {
+				throw new RuntimeException("Negative light schedule");
+			}
+			else if (lightTime == 0) {
+				greedyMode[lIndex] = true;
+				if (!queues.isEmpty(layout.lightQueue(lIndex,1 - side))) {
+					switch (lights[lIndex]) {
+						case GR: {
+							lights[lIndex] = TrafficLight.YR;
+							break;
+						}
+						case RG: {
+							lights[lIndex] = TrafficLight.RY;
+							break;
+						}
+						default: {
+							throw new IllegalStateException("Lights not green after change");
+						}
+					}
+					lightPolicy.greedyChange(road,lights[lIndex]);
+					if (size == 0) {
+						checkLights(road);
+					}
+				}
+			}
+			else {
+				scheduleLight(lIndex,currTime + lightTime);
+				greedyMode[lIndex] = false;
+			}
+		}
+	}
+
+	/**
+	 * Schedule a change from green for a light.
+	 *
+	 * @param	lIndex	the light index.
+	 * @param	time	the time of the change.
+	 */
+	private void scheduleLight(int lIndex, double time) {
+		if (lightChangeTime[lIndex] == Double.POSITIVE_INFINITY) {
+			numScheduled++;
+		}
+		lightChangeTime[lIndex] = time;
+		lightChangeOrder[lIndex] = lightChangeCount;
+		lightChangeCount++;
+	}
+
+	/**
+	 * Get the light with the earliest scheduled change,
+	 * with ties broken by the order the changes were scheduled.
+	 *
+	 * @return	a light index,
+	 *			or -1 if no changes are scheduled.
+	 */
+	private int nextLightChange() {
+		int out = -1;
+		for (int i=0; i<numOneWay; i++) {
+			if (lightChangeTime[i] != Double.POSITIVE_INFINITY) {
+				if (out < 0 || lightChangeTime[i] < lightChangeTime[out] || (lightChangeTime[i] == lightChangeTime[out] &&
+					lightChangeOrder[i] < lightChangeOrder[out])) {
+					out = i;
+				}
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Advance the simulation to the next scheduled light change.
+	 *
+	 * @param	lIndex	the light with the next scheduled change.
+	 */
+	private void updateLights(int lIndex) {
+		double time = lightChangeTime[lIndex];
+		lightChangeTime[lIndex] = Double.POSITIVE_INFINITY;
+		numScheduled--;
+		int road = layout.getLightRoad(lIndex);
+		if (time < currTime) {
+			throw new IllegalStateException("Negative time step");
+		}
+		currTime = time;
+		TrafficLight yellow;
+		switch (lights[lIndex]) {
+			case GR: {
+				yellow = TrafficLight.YR;
+				break;
+			}
+			case RG: {
+				yellow = TrafficLight.RY;
+				break;
+			}
+			default: {
+				throw new IllegalStateException("Light change scheduled for non-green light");
+			}
+		}
+		double lightTime = lightPolicy.nextLight(road,yellow,true);
+		if (lightTime > 0) {
+			scheduleLight(lIndex,currTime + lightTime);
+		}
+		else if (lightTime == 0) {
+			lights[lIndex] = yellow;
+			checkLights(road);
+		}
+		else {
+			throw new RuntimeException("Negative light schedule");
+		}
+	}
+
+	/**
+	 * Returns the time of the next upcoming transition without removing it.
+	 *
+	 * @return	the next transition time.
+	 */
+	private double peekNextTime() {
+		if (!instantQueue.isEmpty()) {
+			return instantQueue.peekTime();
+		}
+		else {
+			return eventQueue.peekTime();
+		}
+	}
+
+	/**
+	 * Schedules a travel transition with adjusted travel time and priority to prevent overtaking.
+	 *
+	 * @param	tid			the index of the transitioning truck.
+	 * @param	toShovel	whether the truck is heading to a shovel or not.
+	 */
+	private void preventCollisions(int tid, boolean toShovel) {
+		int point = routePoint[tid];
+		int route = assignedRoute[tid];
+		int end = layout.getRoadEnd(route,point) ^ (toShovel ? 0 : 1);
+		double travelTime = nextTime(tid,layout.getTravelMean(end),layout.getTravelSD(end)) * (toShovel ? 1 : fullSlowdown);
+		intendedArrival[tid] = currTime + travelTime;
+		double actualArrival = Math.max(intendedArrival[tid],roadAvailable[end]);
+		roadAvailable[end] = actualArrival;
+		TruckLocation travelLoc;
+		TruckLocation targetLoc;
+		if (toShovel) {
+			travelLoc = TruckLocation.TRAVEL_TO_SHOVEL;
+			if (point == layout.getRouteLength(route) - 1) {
+				targetLoc = TruckLocation.APPROACHING_SHOVEL;
+			}
+			else if (layout.isOneWay(layout.getRoad(route,point + 1))) {
+				targetLoc = TruckLocation.APPROACHING_TL_CS;
+			}
+			else {
+				targetLoc = TruckLocation.TRAVEL_TO_SHOVEL;
+			}
+		}
+		else {
+			travelLoc = TruckLocation.TRAVEL_TO_CRUSHER;
+			if (point == 0) {
+				targetLoc = TruckLocation.APPROACHING_CRUSHER;
+			}
+			else if (layout.isOneWay(layout.getRoad(route,point - 1))) {
+				targetLoc = TruckLocation.APPROACHING_TL_SS;
+			}
+			else {
+				targetLoc = TruckLocation.TRAVEL_TO_CRUSHER;
+			}
+		}
+		roadPriority[end]++;
+		queues.add(layout.roadQueue(end),tid);
+		eventQueue.add(tid,actualArrival,travelLoc,targetLoc,roadPriority[end]);
+	}
+
+	/**
+	 * Draw a transition time from the distribution of a truck.
+	 *
+	 * @param	tid		the truck index.
+	 * @param	mean	the mean.
+	 * @param	sd		the standard deviation.
+	 * @return	a random value.
+	 */
+	private double nextTime(int tid, double mean, double sd) {
+		numDraws[tid]++;
+		return tgens[tid].nextTime(mean,sd);
+	}
+
+	/**
+	 * Get the number of values drawn from the distribution of a truck since it was last set.
+	 *
+	 * @param	tid	the truck index.
+	 * @return	the number of draws.
+	 */
+	public int getNumDraws(int tid) {
+		return numDraws[tid];
+	}
+
+	/**
+	 * Discard values from the distribution of a truck,
+	 * used to bring a reseeded distribution back to the position it had when a checkpoint was saved.
+	 * Relies on each draw advancing the distribution by the same amount regardless of its parameters.
+	 *
+	 * @param	tid		the truck index.
+	 * @param	count	the number of values to discard.
+	 */
+	public void skipDraws(int tid, int count) {
+		for (int i=0; i<count; i++) {
+			nextTime(tid,0,1);
+		}
+	}
+
+	/**
+	 * Create an empty checkpoint sized for this kernel.
+	 *
+	 * @return	a new KernelCheckpoint.
+	 */
+	public KernelCheckpoint newCheckpoint() {
+		return new KernelCheckpoint(numTrucks,numShovels,numCrusherLocs,numRoads,numOneWay,layout.getNumQueues());
+	}
+
+	/**
+	 * Copy the complete state of the simulation into a checkpoint,
+	 * including the pending transitions.
+	 * Should only be used between events,
+	 * e.g. when the route policy is notified before a dispatch.
+	 *
+	 * @param	target	the checkpoint to overwrite.
+	 */
+	public void saveCheckpoint(KernelCheckpoint target) {
+		target.currTime = currTime;
+		eventQueue.copyInto(target.eventQueue);
+		instantQueue.copyInto(target.instantQueue);
+		System.arraycopy(truckLocs,0,target.truckLocs,0,numTrucks);
+		System.arraycopy(assignedShovel,0,target.assignedShovel,0,numTrucks);
+		System.arraycopy(assignedCrusher,0,target.assignedCrusher,0,numTrucks);
+		System.arraycopy(assignedRoute,0,target.assignedRoute,0,numTrucks);
+		System.arraycopy(routePoint,0,target.routePoint,0,numTrucks);
+		queues.copyInto(target.queues);
+		System.arraycopy(numEmptying,0,target.numEmptying,0,numCrusherLocs);
+		System.arraycopy(shovelInUse,0,target.shovelInUse,0,numShovels);
+		System.arraycopy(lights,0,target.lights,0,numOneWay);
+		System.arraycopy(lightChangeTime,0,target.lightChangeTime,0,numOneWay);
+		System.arraycopy(lightChangeOrder,0,target.lightChangeOrder,0,numOneWay);
+		target.lightChangeCount = lightChangeCount;
+		target.numScheduled = numScheduled;
+		System.arraycopy(greedyMode,0,target.greedyMode,0,numOneWay);
+		System.arraycopy(roadAvailable,0,target.roadAvailable,0,numRoads * 2);
+		System.arraycopy(roadProgress,0,target.roadProgress,0,numRoads * 2);
+		System.arraycopy(roadPriority,0,target.roadPriority,0,numRoads * 2);
+		System.arraycopy(arrivalTime,0,target.arrivalTime,0,numTrucks);
+		System.arraycopy(intendedArrival,0,target.intendedArrival,0,numTrucks);
+		System.arraycopy(dispatchTime,0,target.dispatchTime,0,numTrucks);
+		target.numEmpties = numEmpties;
+		target.numUnused = numUnused;
+		target.numInline = numInline;
+		System.arraycopy(numDraws,0,target.numDraws,0,numTrucks);
+	}
+
+	/**
+	 * Resume the simulation from a checkpoint saved by a kernel for the same problem.
+	 * The distributions of the trucks are unchanged,
+	 * so should be reseeded and advanced by the number of draws recorded in the checkpoint if exact replay is required.
+	 *
+	 * @param	source	the checkpoint.
+	 * @see	getNumDraws(int)
+	 * @see	skipDraws(int,int)
+	 */
+	public void loadCheckpoint(KernelCheckpoint source) {
+		currTime = source.currTime;
+		source.eventQueue.copyInto(eventQueue);
+		source.instantQueue.copyInto(instantQueue);
+		System.arraycopy(source.truckLocs,0,truckLocs,0,numTrucks);
+		System.arraycopy(source.assignedShovel,0,assignedShovel,0,numTrucks);
+		System.arraycopy(source.assignedCrusher,0,assignedCrusher,0,numTrucks);
+		System.arraycopy(source.assignedRoute,0,assignedRoute,0,numTrucks);
+		System.arraycopy(source.routePoint,0,routePoint,0,numTrucks);
+		source.queues.copyInto(queues);
+		System.arraycopy(source.numEmptying,0,numEmptying,0,numCrusherLocs);
+		System.arraycopy(source.shovelInUse,0,shovelInUse,0,numShovels);
+		System.arraycopy(source.lights,0,lights,0,numOneWay);
+		System.arraycopy(source.lightChangeTime,0,lightChangeTime,0,numOneWay);
+		System.arraycopy(source.lightChangeOrder,0,lightChangeOrder,0,numOneWay);
+		lightChangeCount = source.lightChangeCount;
+		numScheduled = source.numScheduled;
+		System.arraycopy(source.greedyMode,0,greedyMode,0,numOneWay);
+		System.arraycopy(source.roadAvailable,0,roadAvailable,0,numRoads * 2);
+		System.arraycopy(source.roadProgress,0,roadProgress,0,numRoads * 2);
+		System.arraycopy(source.roadPriority,0,roadPriority,0,numRoads * 2);
+		System.arraycopy(source.arrivalTime,0,arrivalTime,0,numTrucks);
+		System.arraycopy(source.intendedArrival,0,intendedArrival,0,numTrucks);
+		System.arraycopy(source.dispatchTime,0,dispatchTime,0,numTrucks);
+		numEmpties = source.numEmpties;
+		numUnused = source.numUnused;
+		numInline = source.numInline;
+		System.arraycopy(source.numDraws,0,numDraws,0,numTrucks);
+	}
+
+	/**
+	 * Copy the exact state of the simulation into a snapshot,
+	 * with progress values in place of the times of timed transitions.
+	 *
+	 * @param	target		the snapshot to overwrite.
+	 * @param	pending		a transition that has been removed from the heaps but not yet applied,
+	 *						or null if none.
+	 * @param	progress	the progress values of each truck.
+	 */
+	public void copyState(SimState target, Transition pending, double[] progress) {
+		target.clear();
+		target.setTime(currTime);
+		for (int i=0; i<numTrucks; i++) {
+			target.setTruck(i,truckLocs[i],assignedRoute[i],routePoint[i],assignedShovel[i],assignedCrusher[i]);
+		}
+		target.setProgress(progress);
+		target.setDispatchTimes(dispatchTime);
+		for (int i=0; i<numCrusherLocs; i++) {
+			target.setNumEmptying(i,numEmptying[i]);
+		}
+		for (int i=0; i<numShovels; i++) {
+			target.setShovelInUse(i,shovelInUse[i]);
+		}
+		for (int i=0; i<numOneWay; i++) {
+			double schedule = (lightChangeTime[i] == Double.POSITIVE_INFINITY ? currTime : lightChangeTime[i]);
+			target.setLight(i,lights[i],schedule,greedyMode[i]);
+		}
+		for (int i=0; i<numRoads; i++) {
+			for (int j=0; j<2; j++) {
+				target.setRoadPriority(i,j,roadPriority[i * 2 + j]);
+			}
+		}
+		target.setQueues(queues);
+		if (pending != null) {
+			target.addTransition(pending.getIndex(),pending.getSource(),pending.getTarget(),pending.getPriority(),false);
+		}
+		for (int i=0; i<instantQueue.size(); i++) {
+			int tid = instantQueue.get(i);
+			target.addTransition(tid,instantQueue.getSource(tid),instantQueue.getTarget(tid),instantQueue.getPriority(tid),false);
+		}
+		for (int i=0; i<eventQueue.size(); i++) {
+			int tid = eventQueue.get(i);
+			TruckLocation source = eventQueue.getSource(tid);
+			switch (source) {
+				case TRAVEL_TO_SHOVEL: {
+					target.setTruck(tid,truckLocs[tid],assignedRoute[tid],routePoint[tid] - 1,assignedShovel[tid],assignedCrusher[tid]);
+					break;
+				}
+				case TRAVEL_TO_CRUSHER: {
+					target.setTruck(tid,truckLocs[tid],assignedRoute[tid],routePoint[tid] + 1,assignedShovel[tid],assignedCrusher[tid]);
+					break;
+				}
+			}
+			target.addTransition(tid,source,eventQueue.getTarget(tid),eventQueue.getPriority(tid),true);
+		}
+	}
+
+	/**
+	 * Calculate the progress values for each truck,
+	 * specifying the fractional progress until transitioning for trucks in timed states,
+	 * or the waiting time for trucks in waiting states.
+	 *
+	 * @param	truck		a truck index if a truck has recently transitioned,
+	 *						otherwise any other value.
+	 * @param	progress	the array to store progress values in.
+	 * @param	marked		an array used to mark trucks found on roads.
+	 */
+	public void calculateProgress(int truck, double[] progress, boolean[] marked) {
+		Arrays.fill(progress,0);
+		Arrays.fill(marked,false);
+		for (int i=0; i<numRoads * 2; i++) {
+			int q = layout.roadQueue(i);
+			double minProgress = 1;
+			for (int k=0; k<queues.size(q); k++) {
+				int t = queues.get(q,k);
+				double intendedProgress = (currTime - arrivalTime[t]) / (intendedArrival[t] - arrivalTime[t]);
+				minProgress = Math.min(minProgress,intendedProgress);
+				progress[t] = minProgress;
+				marked[t] = true;
+			}
+		}
+		for (int i=0; i<numTrucks; i++) {
+			if (i == truck) {
+				continue;
+			}
+			switch (truckLocs[i]) {
+				case WAITING:
+				case APPROACHING_TL_CS:
+				case APPROACHING_SHOVEL:
+				case LEAVING_SHOVEL:
+				case APPROACHING_TL_SS:
+				case APPROACHING_CRUSHER:
+				case UNUSED: {
+					break;
+				}
+				case TRAVEL_TO_SHOVEL:
+				case TRAVEL_TO_CRUSHER: {
+					if (!marked[i]) {
+						throw new IllegalStateException("Road queues are incorrect");
+					}
+					break;
+				}
+				case FILLING:
+				case EMPTYING: {
+					progress[i] = (currTime - arrivalTime[i]) / (intendedArrival[i] - arrivalTime[i]);
+					break;
+				}
+				case STOPPED_AT_TL_CS:
+				case WAITING_AT_SHOVEL:
+				case STOPPED_AT_TL_SS:
+				case WAITING_AT_CRUSHER: {
+					progress[i] = currTime - arrivalTime[i];
+					break;
+				}
+				default: {
+					throw new IllegalStateException(String.format("Truck has entered illegal state: %s",truckLocs[i]));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the current time.
+	 *
+	 * @return	the time of the most recent transition or light change.
+	 */
+	public double getTime() {
+		return currTime;
+	}
+
+	/**
+	 * Get the number of transitions applied as part of macro-events.
+	 *
+	 * @return	the number of transitions that did not pass through the heap.
+	 */
+	public long getNumInline() {
+		return numInline;
+	}
+
+	/**
+	 * Get the number of transitions applied by this kernel over all simulations,
+	 * including transitions applied as part of macro-events.
+	 *
+	 * @return	the number of transitions since construction.
+	 */
+	public long getNumEvents() {
+		return numEvents;
+	}
+
+	/**
+	 * Get the number of empties.
+	 *
+	 * @return	the number of empties.
+	 */
+	public int getNumEmpties() {
+		return numEmpties;
+	}
+
+	/**
+	 * Get the location of a truck.
+	 *
+	 * @param	tid	the truck index.
+	 * @return	the location.
+	 */
+	public TruckLocation getTruckLocation(int tid) {
+		return truckLocs[tid];
+	}
+
+	/**
+	 * Get the assigned route of a truck.
+	 *
+	 * @param	tid	the truck index.
+	 * @return	the route index.
+	 */
+	public int getAssignedRoute(int tid) {
+		return assignedRoute[tid];
+	}
+
+	/**
+	 * Get the position of a truck along its route.
+	 *
+	 * @param	tid	the truck index.
+	 * @return	the index of the road in the route.
+	 */
+	public int getRoutePoint(int tid) {
+		return routePoint[tid];
+	}
+
+	/**
+	 * Get the assigned shovel of a truck.
+	 *
+	 * @param	tid	the truck index.
+	 * @return	the shovel index.
+	 */
+	public int getAssignedShovel(int tid) {
+		return assignedShovel[tid];
+	}
+
+	/**
+	 * Get the assigned crusher location of a truck.
+	 *
+	 * @param	tid	the truck index.
+	 * @return	the crusher location index.
+	 */
+	public int getAssignedCrusher(int tid) {
+		return assignedCrusher[tid];
+	}
+
+	/**
+	 * Get the time a truck was last dispatched from a crusher.
+	 *
+	 * @param	tid	the truck index.
+	 * @return	the dispatch time.
+	 */
+	public double getDispatchTime(int tid) {
+		return dispatchTime[tid];
+	}
+
+	/**
+	 * Get the number of active crushers at a crusher location.
+	 *
+	 * @param	cid	the crusher location.
+	 * @return	the number of trucks emptying.
+	 */
+	public int getNumEmptying(int cid) {
+		return numEmptying[cid];
+	}
+
+	/**
+	 * Get the flattened layout of the road network.
+	 *
+	 * @return	the NetworkLayout.
+	 */
+	public NetworkLayout getLayout() {
+		return layout;
+	}
+
+	/**
+	 * Get the number of one-lane roads.
+	 *
+	 * @return	the number of traffic lights.
+	 */
+	public int getNumOneWay() {
+		return numOneWay;
+	}
+
+	/**
+	 * Get the light index of a road.
+	 *
+	 * @param	road	the road index.
+	 * @return	the light index,
+	 *			or -1 if the road is not one-lane.
+	 */
+	public int getLightIndex(int road) {
+		return layout.getLightIndex(road);
+	}
+
+	/**
+	 * Get the road controlled by a light.
+	 *
+	 * @param	lIndex	the light index.
+	 * @return	the road index.
+	 */
+	public int getLightRoad(int lIndex) {
+		return layout.getLightRoad(lIndex);
+	}
+
+}
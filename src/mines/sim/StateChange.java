@@ -14,7 +14,10 @@ import java.util.Arrays;
 public class StateChange {
 
 	private Transition trans;	//the last transition.
-	private double[] progress;	//the current completion of each truck of its current task.
+	private double[] progress;	//the current completion of each truck of its current task, null if calculated by a view.
+	private ProgressView view;	//the view used to calculate progress values on request.
+	private StateView state;	//the view used to copy the exact state on request, null if unavailable.
+	private long version;		//the state version of the view that this change describes.
 	private int[] info;			//additional information.
 
 	/**
@@ -30,6 +33,37 @@ public class StateChange {
 		this.trans = trans;
 		this.progress = Arrays.copyOf(progress,progress.length);
 		this.info = Arrays.copyOf(info,info.length);
+		this.view = null;
+		this.state = null;
+	}
+
+	/**
+	 * Reusable state change constructor,
+	 * where progress values are only calculated when requested.
+	 * The transition and information variables are shared with the creator,
+	 * which updates them along with the version for each new transition.
+	 *
+	 * @param	trans	the transition view.
+	 * @param	view	the view used to calculate progress values.
+	 * @param	state	the view used to copy the exact state,
+	 *					or null if unavailable.
+	 * @param	info	the additional information array.
+	 */
+	StateChange(Transition trans, ProgressView view, StateView state, int[] info) {
+		this.trans = trans;
+		this.progress = null;
+		this.view = view;
+		this.state = state;
+		this.info = info;
+	}
+
+	/**
+	 * Set the state version that this change describes.
+	 *
+	 * @param	version	the state version of the view.
+	 */
+	void setVersion(long version) {
+		this.version = version;
 	}
 
 	/**
@@ -62,12 +96,44 @@ public class StateChange {
 
 	/**
 	 * Get the progress value for a single truck.
+	 * If this change was created by a simulator,
+	 * the value can only be requested before the simulator moves on to the next change in state.
 	 *
 	 * @param	the truck index.
 	 * @return	a double value.
+	 * @throws	IllegalStateException if the value is requested after the state has changed.
 	 */
 	public double getProgress(int tid) {
-		return progress[tid];
+		return (view == null ? progress[tid] : view.getProgress(version,tid));
+	}
+
+	/**
+	 * Get whether the exact state of the simulation can be copied from this change.
+	 *
+	 * @return	true if a snapshot is available,
+	 *			false otherwise.
+	 */
+	public boolean hasState() {
+		return state != null;
+	}
+
+	/**
+	 * Copy the exact state of the simulation into a snapshot.
+	 * The snapshot describes the state just before this transition is applied,
+	 * with the transition itself pending as an instant transition.
+	 * Like progress values,
+	 * the state can only be requested before the simulator moves on to the next change in state.
+	 *
+	 * @param	target	the snapshot to overwrite.
+	 * @throws	UnsupportedOperationException if no snapshot is available.
+	 * @throws	IllegalStateException if the state is requested after the state has changed.
+	 * @see	hasState()
+	 */
+	public void copyState(SimState target) {
+		if (state == null) {
+			throw new UnsupportedOperationException("State snapshots are not available for this change");
+		}
+		state.copyState(version,target);
 	}
 
 	/**
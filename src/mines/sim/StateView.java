@@ -0,0 +1,18 @@
+package mines.sim;
+
+/**
+ * Source of exact snapshots of the state of a simulation,
+ * tied to a state version like a ProgressView.
+ */
+interface StateView {
+
+	/**
+	 * Copy the current state into a snapshot.
+	 *
+	 * @param	version	the state version the snapshot is requested for.
+	 * @param	target	the snapshot to overwrite.
+	 * @throws	IllegalStateException if the state has changed since the given version.
+	 */
+	public void copyState(long version, SimState target);
+	
+}
@@ -0,0 +1,74 @@
+package mines.sim;
+
+/**
+ * Observer of the transitions in a SimulationKernel.
+ * All methods do nothing by default.
+ */
+public interface StatisticsSink {
+
+	/**
+	 * Used before a transition is applied.
+	 *
+	 * @param	next	a view of the transition,
+	 *					which is overwritten by the next transition.
+	 */
+	public default void transition(Transition next) {}
+
+	/**
+	 * Used when a truck starts waiting,
+	 * i.e. arrives at lights or a machine, or is taken out of use.
+	 *
+	 * @param	tid		the truck index.
+	 * @param	time	the current time.
+	 */
+	public default void waitStarted(int tid, double time) {}
+
+	/**
+	 * Used when a truck enters a one-lane road after waiting at lights.
+	 *
+	 * @param	tid		the truck index.
+	 * @param	time	the current time.
+	 */
+	public default void lightWaitEnded(int tid, double time) {}
+
+	/**
+	 * Used when a truck starts being filled or emptied.
+	 *
+	 * @param	tid			the truck index.
+	 * @param	machine		the shovel or crusher location index.
+	 * @param	atShovel	whether the machine is a shovel.
+	 * @param	time		the current time.
+	 */
+	public default void serviceStarted(int tid, int machine, boolean atShovel, double time) {}
+
+	/**
+	 * Used when a truck has been filled or emptied.
+	 *
+	 * @param	tid			the truck index.
+	 * @param	machine		the shovel or crusher location index.
+	 * @param	atShovel	whether the machine is a shovel.
+	 * @param	time		the current time.
+	 */
+	public default void serviceEnded(int tid, int machine, boolean atShovel, double time) {}
+
+	/**
+	 * Used before the number of active crushers at a location changes.
+	 *
+	 * @param	cid			the crusher location.
+	 * @param	numEmptying	the number of active crushers before the change.
+	 * @param	time		the current time.
+	 */
+	public default void crusherChanged(int cid, int numEmptying, double time) {}
+
+	/**
+	 * Used after a truck has been routed.
+	 *
+	 * @param	tid			the truck index.
+	 * @param	route		the route index,
+	 *						or -2 if the truck was taken out of use.
+	 * @param	toShovel	whether the truck is heading towards a shovel.
+	 * @param	time		the current time.
+	 */
+	public default void routed(int tid, int route, boolean toShovel, double time) {}
+	
+}
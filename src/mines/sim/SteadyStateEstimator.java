@@ -0,0 +1,188 @@
+package mines.sim;
+
+import mines.util.StudentT;
+import mines.util.TimeDistribution;
+import mines.sol.Solution4;
+import mines.sol.Controller4;
+import java.util.Arrays;
+
+/**
+ * Estimates the long-run throughput of a solution from a single long simulation.
+ * The number of empties is observed at fixed intervals,
+ * the warm-up period is detected with the MSER-5 rule and discarded,
+ * and the remaining observations are grouped into batches,
+ * whose means give a confidence interval for the throughput.
+ * Compared to independent replications,
+ * the initial transient is only simulated once.
+ */
+public class SteadyStateEstimator {
+
+	private static final int MSER_BATCH = 5;	//number of observations averaged by the MSER-5 rule.
+
+	private MineSimulator4 sim;	//the simulator.
+	private Controller4 con;	//the controller.
+
+	/*
+	 * Results of the last run.
+	 */
+	private int[] observations;		//the number of empties in each observation interval.
+	private int warmup;				//the number of observations discarded as warm-up.
+	private double[] batchMeans;	//the mean number of empties per observation interval in each batch.
+	private double mean;			//the mean number of empties per observation interval after warm-up.
+	private double halfWidth;		//the half-width of the 95% confidence interval of the mean.
+
+	/**
+	 * Estimator constructor.
+	 *
+	 * @param	params	the simulation parameters.
+	 * @param	tgen	the random distribution to use for all transition times in timed states.
+	 * @param	sol		the solution used to create a controller.
+	 */
+	public SteadyStateEstimator(MineParameters4 params, TimeDistribution tgen, Solution4 sol) {
+		sim = new MineSimulator4(params,tgen);
+		con = sol.getController();
+		sim.loadController(con);
+	}
+
+	/**
+	 * Run a single long simulation and estimate the throughput.
+	 *
+	 * @param	runLength		the termination time of the simulation.
+	 * @param	obsInterval		the length of each observation interval.
+	 * @param	numBatches		the number of batches to group observations after warm-up into.
+	 * @throws	IllegalArgumentException if numBatches is less than 2,
+	 *			or there are too few observations to form the batches.
+	 */
+	public void run(double runLength, double obsInterval, int numBatches) {
+		if (numBatches < 2) {
+			throw new IllegalArgumentException(String.format("At least two batches are required: %d",numBatches));
+		}
+		int numObs = (int) (runLength / obsInterval);
+		if (numObs < numBatches * 2) {
+			throw new IllegalArgumentException(String.format("Too few observations for %d batches: %d",numBatches,numObs));
+		}
+		observations = new int[numObs];
+		try {
+			sim.initialise();
+			int last = 0;
+			for (int i=0; i<numObs; i++) {
+				sim.simulate((i + 1) * obsInterval);
+				int empties = sim.getEmpties();
+				observations[i] = empties - last;
+				last = empties;
+			}
+		}
+		finally {
+			con.finish();
+		}
+		warmup = mser(observations,numBatches);
+		int batchSize = (numObs - warmup) / numBatches;
+		int start = numObs - batchSize * numBatches;
+		batchMeans = new double[numBatches];
+		mean = 0;
+		for (int i=0; i<numBatches; i++) {
+			double total = 0;
+			for (int j=0; j<batchSize; j++) {
+				total += observations[start + i * batchSize + j];
+			}
+			batchMeans[i] = total / batchSize;
+			mean += batchMeans[i];
+		}
+		mean /= numBatches;
+		double var = 0;
+		for (int i=0; i<numBatches; i++) {
+			var += (batchMeans[i] - mean) * (batchMeans[i] - mean);
+		}
+		var /= numBatches - 1;
+		halfWidth = StudentT.quantile975(numBatches - 1) * Math.sqrt(var / numBatches);
+	}
+
+	/**
+	 * Find the warm-up period with the MSER-5 rule.
+	 * Observations are averaged in groups of five,
+	 * and the truncation point minimising the squared standard error of the remaining group averages is chosen,
+	 * considering truncation of up to half of the groups.
+	 *
+	 * @param	obs			the observations.
+	 * @param	numBatches	the number of batches that must remain after truncation.
+	 * @return	the number of observations to discard.
+	 */
+	private static int mser(int[] obs, int numBatches) {
+		int numGroups = obs.length / MSER_BATCH;
+		double[] groups = new double[numGroups];
+		for (int i=0; i<numGroups; i++) {
+			double total = 0;
+			for (int j=0; j<MSER_BATCH; j++) {
+				total += obs[i * MSER_BATCH + j];
+			}
+			groups[i] = total / MSER_BATCH;
+		}
+		int maxTruncate = Math.min(numGroups / 2,(obs.length - numBatches) / MSER_BATCH);
+		double sum = 0;
+		double sumSq = 0;
+		for (int i=0; i<numGroups; i++) {
+			sum += groups[i];
+			sumSq += groups[i] * groups[i];
+		}
+		int best = 0;
+		double bestStat = Double.POSITIVE_INFINITY;
+		for (int d=0; d<=maxTruncate; d++) {
+			int n = numGroups - d;
+			double stat = (sumSq - sum * sum / n) / ((double) n * n);
+			if (stat < bestStat) {
+				bestStat = stat;
+				best = d;
+			}
+			sum -= groups[d];
+			sumSq -= groups[d] * groups[d];
+		}
+		return best * MSER_BATCH;
+	}
+
+	/**
+	 * Get the number of empties in each observation interval of the last run.
+	 *
+	 * @return	a copy of the observations.
+	 */
+	public int[] getObservations() {
+		return Arrays.copyOf(observations,observations.length);
+	}
+
+	/**
+	 * Get the number of observations discarded as warm-up in the last run.
+	 *
+	 * @return	the number of warm-up observations.
+	 */
+	public int getWarmup() {
+		return warmup;
+	}
+
+	/**
+	 * Get the batch means of the last run.
+	 *
+	 * @return	a copy of the mean number of empties per observation interval in each batch.
+	 */
+	public double[] getBatchMeans() {
+		return Arrays.copyOf(batchMeans,batchMeans.length);
+	}
+
+	/**
+	 * Get the estimated throughput of the last run.
+	 *
+	 * @return	the mean number of empties per observation interval.
+	 */
+	public double getMean() {
+		return mean;
+	}
+
+	/**
+	 * Get the half-width of the 95% confidence interval of the estimated throughput,
+	 * from the variance of the batch means.
+	 *
+	 * @return	the half-width in empties per observation interval.
+	 */
+	public double getHalfWidth() {
+		return halfWidth;
+	}
+
+}
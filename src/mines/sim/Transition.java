@@ -28,7 +28,21 @@ public class Transition implements Comparable<Transition> {
 		this.target = target;
 		this.priority = priority;
 	}
-	
+
+	/**
+	 * Overwrite all variables of this transition.
+	 * Used by the simulator to reuse a single transition as a view of its event heaps.
+	 *
+	 * @see Transition(int,double,TruckLocation,TruckLocation,int)
+	 */
+	void set(int index, double time, TruckLocation source, TruckLocation target, int priority) {
+		this.index = index;
+		this.arrivalTime = time;
+		this.source = source;
+		this.target = target;
+		this.priority = priority;
+	}
+
 	/**
 	 * Get the transition time.
 	 *
@@ -0,0 +1,337 @@
+package mines.sim;
+
+import java.util.NoSuchElementException;
+
+/**
+ * An indexed binary heap of pending transitions,
+ * stored in parallel primitive arrays and keyed by truck index.
+ * Each truck can have at most one pending transition in the heap;
+ * adding a transition for a truck already in the heap replaces its existing transition.
+ *
+ * Transitions are ordered first by transition time,
+ * secondarily by priority,
+ * and finally by truck index.
+ */
+public class TransitionHeap {
+
+	private static final TruckLocation[] LOCATIONS = TruckLocation.values();	//the TruckLocation values indexed by ordinal.
+
+	private int[] heap;			//truck indexes in heap order.
+	private int[] position;		//the heap position of each truck, -1 if not in the heap.
+	private double[] time;		//the transition time of each truck.
+	private int[] priority;		//the transition priority of each truck.
+	private int[] source;		//the ordinal of the source state of each truck.
+	private int[] target;		//the ordinal of the target state of each truck.
+	private int size;			//the number of pending transitions.
+
+	/**
+	 * Create an empty heap.
+	 *
+	 * @param	numTrucks	the number of trucks.
+	 */
+	public TransitionHeap(int numTrucks) {
+		heap = new int[numTrucks];
+		position = new int[numTrucks];
+		time = new double[numTrucks];
+		priority = new int[numTrucks];
+		source = new int[numTrucks];
+		target = new int[numTrucks];
+		for (int i=0; i<numTrucks; i++) {
+			position[i] = -1;
+		}
+		size = 0;
+	}
+
+	/**
+	 * Add a transition to the heap,
+	 * or replace the pending transition of the truck if it already has one.
+	 *
+	 * @param	tid			the transitioning truck index.
+	 * @param	t			the time of the transition.
+	 * @param	from		the source state of the transition.
+	 * @param	to			the target state of the transition.
+	 * @param	p			the priority used for ordering transitions.
+	 */
+	public void add(int tid, double t, TruckLocation from, TruckLocation to, int p) {
+		time[tid] = t;
+		priority[tid] = p;
+		source[tid] = from.ordinal();
+		target[tid] = to.ordinal();
+		int pos = position[tid];
+		if (pos < 0) {
+			heap[size] = tid;
+			position[tid] = size;
+			size++;
+			siftUp(size - 1);
+		}
+		else {
+			siftDown(siftUp(pos));
+		}
+	}
+
+	/**
+	 * Remove the first transition and return the index of the transitioning truck.
+	 * The details of the transition remain available through the accessor methods,
+	 * until another transition is added for the same truck.
+	 *
+	 * @return	the truck index.
+	 * @throws	NoSuchElementException if the heap is empty.
+	 */
+	public int poll() {
+		if (size == 0) {
+			throw new NoSuchElementException("Heap is empty");
+		}
+		int out = heap[0];
+		position[out] = -1;
+		size--;
+		if (size > 0) {
+			heap[0] = heap[size];
+			position[heap[0]] = 0;
+			siftDown(0);
+		}
+		return out;
+	}
+
+	/**
+	 * Get the truck index of the first transition without removing it.
+	 *
+	 * @return	the truck index.
+	 * @throws	NoSuchElementException if the heap is empty.
+	 */
+	public int peek() {
+		if (size == 0) {
+			throw new NoSuchElementException("Heap is empty");
+		}
+		return heap[0];
+	}
+
+	/**
+	 * Get the time of the first transition.
+	 *
+	 * @return	the transition time.
+	 * @throws	NoSuchElementException if the heap is empty.
+	 */
+	public double peekTime() {
+		return time[peek()];
+	}
+
+	/**
+	 * Get whether a transition not in the heap would be polled before every transition in the heap.
+	 *
+	 * @param	tid	the truck index.
+	 * @param	t	the transition time.
+	 * @param	p	the transition priority.
+	 * @return	true if the heap is empty or the transition would be first,
+	 *			false otherwise.
+	 */
+	public boolean precedes(int tid, double t, int p) {
+		if (size == 0) {
+			return true;
+		}
+		int head = heap[0];
+		int timeDiff = Double.compare(t,time[head]);
+		if (timeDiff != 0) {
+			return timeDiff < 0;
+		}
+		else if (p != priority[head]) {
+			return p < priority[head];
+		}
+		else {
+			return tid < head;
+		}
+	}
+
+	/**
+	 * Get the truck index at a position in the heap,
+	 * for iterating over pending transitions in no particular order.
+	 *
+	 * @param	index	the heap position.
+	 * @return	the truck index.
+	 * @throws	IndexOutOfBoundsException if the index is negative,
+	 *			or is greater than the size - 1.
+	 */
+	public int get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException(String.format("Index out of range: %d",index));
+		}
+		return heap[index];
+	}
+
+	/**
+	 * Get whether a truck has a pending transition in the heap.
+	 *
+	 * @param	tid	the truck index.
+	 * @return	true if the truck is in the heap,
+	 *			false otherwise.
+	 */
+	public boolean contains(int tid) {
+		return position[tid] >= 0;
+	}
+
+	/**
+	 * Get the time of the most recent transition of a truck.
+	 *
+	 * @param	tid	the truck index.
+	 * @return	the transition time.
+	 */
+	public double getTime(int tid) {
+		return time[tid];
+	}
+
+	/**
+	 * Get the priority of the most recent transition of a truck.
+	 *
+	 * @param	tid	the truck index.
+	 * @return	the transition priority.
+	 */
+	public int getPriority(int tid) {
+		return priority[tid];
+	}
+
+	/**
+	 * Get the source state of the most recent transition of a truck.
+	 *
+	 * @param	tid	the truck index.
+	 * @return	the TruckLocation.
+	 */
+	public TruckLocation getSource(int tid) {
+		return LOCATIONS[source[tid]];
+	}
+
+	/**
+	 * Get the target state of the most recent transition of a truck.
+	 *
+	 * @param	tid	the truck index.
+	 * @return	the TruckLocation.
+	 */
+	public TruckLocation getTarget(int tid) {
+		return LOCATIONS[target[tid]];
+	}
+
+	/**
+	 * Copy the most recent transition of a truck into a transition view.
+	 *
+	 * @param	tid		the truck index.
+	 * @param	view	the Transition to overwrite.
+	 */
+	public void getTransition(int tid, Transition view) {
+		view.set(tid,time[tid],LOCATIONS[source[tid]],LOCATIONS[target[tid]],priority[tid]);
+	}
+
+	/**
+	 * Get whether the heap is empty.
+	 *
+	 * @return	true if the size is 0,
+	 *			false otherwise.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Get the number of pending transitions.
+	 *
+	 * @return	the size of the heap.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Remove all transitions.
+	 */
+	public void clear() {
+		for (int i=0; i<size; i++) {
+			position[heap[i]] = -1;
+		}
+		size = 0;
+	}
+
+	/**
+	 * Overwrite another heap for the same number of trucks with the contents of this heap.
+	 *
+	 * @param	copy	the heap to overwrite.
+	 */
+	public void copyInto(TransitionHeap copy) {
+		int numTrucks = position.length;
+		System.arraycopy(heap,0,copy.heap,0,size);
+		System.arraycopy(position,0,copy.position,0,numTrucks);
+		System.arraycopy(time,0,copy.time,0,numTrucks);
+		System.arraycopy(priority,0,copy.priority,0,numTrucks);
+		System.arraycopy(source,0,copy.source,0,numTrucks);
+		System.arraycopy(target,0,copy.target,0,numTrucks);
+		copy.size = size;
+	}
+
+	/**
+	 * Compare the transitions of two trucks.
+	 *
+	 * @param	a	the first truck index.
+	 * @param	b	the second truck index.
+	 * @return	true if the transition of truck a should occur first,
+	 *			false otherwise.
+	 */
+	private boolean before(int a, int b) {
+		int timeDiff = Double.compare(time[a],time[b]);
+		if (timeDiff != 0) {
+			return timeDiff < 0;
+		}
+		else if (priority[a] != priority[b]) {
+			return priority[a] < priority[b];
+		}
+		else {
+			return a < b;
+		}
+	}
+
+	/**
+	 * Move an element towards the root until the heap order is restored.
+	 *
+	 * @param	pos	the heap position of the element.
+	 * @return	the final heap position of the element.
+	 */
+	private int siftUp(int pos) {
+		int tid = heap[pos];
+		while (pos > 0) {
+			int parent = (pos - 1) / 2;
+			int other = heap[parent];
+			if (!before(tid,other)) {
+				break;
+			}
+			heap[pos] = other;
+			position[other] = pos;
+			pos = parent;
+		}
+		heap[pos] = tid;
+		position[tid] = pos;
+		return pos;
+	}
+
+	/**
+	 * Move an element towards the leaves until the heap order is restored.
+	 *
+	 * @param	pos	the heap position of the element.
+	 */
+	private void siftDown(int pos) {
+		int tid = heap[pos];
+		while (true) {
+			int child = pos * 2 + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && before(heap[child + 1],heap[child])) {
+				child++;
+			}
+			int other = heap[child];
+			if (!before(other,tid)) {
+				break;
+			}
+			heap[pos] = other;
+			position[other] = pos;
+			pos = child;
+		}
+		heap[pos] = tid;
+		position[tid] = pos;
+	}
+
+}
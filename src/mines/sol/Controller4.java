@@ -51,6 +51,15 @@ public interface Controller4 {
 	 */
 	public void reset();
 
+	/**
+	 * Release any resources held for the current simulation,
+	 * e.g. background threads,
+	 * once it has reached its termination time.
+	 * The controller can still be used again after a reset.
+	 */
+	public default void finish() {
+	}
+
 	/**
 	 * Get the initial locations of trucks.
 	 *
@@ -28,6 +28,8 @@ public abstract class SingleCrusherContinuousCombinedController implements Contr
 	private double lastUpdate;				//time of the last schedule update.
 	private DoubleQueue[] lightSchedule;	//the current light schedule.
 	private IntQueue dispatchSchedule;		//the current truck schedule.
+	private int numDispatched;				//the number of routes taken from the schedule since the last update.
+	private int[] numLightsUsed;			//the number of values taken from each light schedule since the last update.
 
 	/**
 	 * Controller constructor.
@@ -60,6 +62,7 @@ public abstract class SingleCrusherContinuousCombinedController implements Contr
 			lightSchedule[i] = new DoubleQueue();
 		}
 		dispatchSchedule = new IntQueue();
+		numLightsUsed = new int[numOneWay];
 	}
 
 	/**
@@ -76,6 +79,7 @@ public abstract class SingleCrusherContinuousCombinedController implements Contr
 				updateSchedule();
 			}
 			scheduledRoute[tid] = dispatchSchedule.poll();
+			numDispatched++;
 		}
 		return scheduledRoute[tid];
 	}
@@ -113,6 +117,7 @@ public abstract class SingleCrusherContinuousCombinedController implements Contr
 					updateSchedule();
 				}
 				double greenTime = lightSchedule[lIndex].poll();
+				numLightsUsed[lIndex]++;
 				ff.lightEvent(light,change,simTime,simTime + greenTime,progress);
 				return greenTime;
 			}
@@ -158,8 +163,10 @@ public abstract class SingleCrusherContinuousCombinedController implements Contr
 			scheduledRoute[i] = -1;
 		}
 		lastUpdate = 0;
+		numDispatched = 0;
 		for (int i=0; i<numOneWay; i++) {
 			lightSchedule[i].clear();
+			numLightsUsed[i] = 0;
 		}
 		dispatchSchedule.clear();
 		for (int i : initialDispatchSchedule) {
@@ -210,7 +217,31 @@ public abstract class SingleCrusherContinuousCombinedController implements Contr
 	 */
 	protected double updated() {
 		lastUpdate = simTime;
+		numDispatched = 0;
+		for (int i=0; i<numOneWay; i++) {
+			numLightsUsed[i] = 0;
+		}
 		return simTime;
 	}
+
+	/**
+	 * Get the number of routes taken from the dispatch schedule since it was last updated,
+	 * e.g. to shift out the consumed part of the previous schedule.
+	 *
+	 * @return	the number of dispatches since the last update.
+	 */
+	protected int getNumDispatched() {
+		return numDispatched;
+	}
+
+	/**
+	 * Get the number of green times taken from a light schedule since it was last updated.
+	 *
+	 * @param	l	the light index.
+	 * @return	the number of light changes to green since the last update.
+	 */
+	protected int getNumLightsUsed(int l) {
+		return numLightsUsed[l];
+	}
 	
 }
\ No newline at end of file
@@ -24,6 +24,7 @@ public abstract class SingleCrusherContinuousDispatchWTimerController extends Ti
 	private double lastUpdate;			//time of the last schedule update.
 	private IntQueue dispatchSchedule;	//the current truck schedule.
 	private int[] scheduledRoute;		//the scheduled route of each truck.
+	private int numDispatched;			//the number of routes taken from the schedule since the last update.
 
 	/**
 	 * Controller constructor.
@@ -72,6 +73,7 @@ public abstract class SingleCrusherContinuousDispatchWTimerController extends Ti
 				updateSchedule();
 			}
 			scheduledRoute[tid] = dispatchSchedule.poll();
+			numDispatched++;
 		}
 		return scheduledRoute[tid];
 	}
@@ -88,6 +90,17 @@ public abstract class SingleCrusherContinuousDispatchWTimerController extends Ti
 			dispatchSchedule.add(i);
 		}
 		lastUpdate = simTime;
+		numDispatched = 0;
+	}
+
+	/**
+	 * Get the number of routes taken from the dispatch schedule since it was last updated,
+	 * e.g. to shift out the consumed part of the previous schedule.
+	 *
+	 * @return	the number of dispatches since the last update.
+	 */
+	protected int getNumDispatched() {
+		return numDispatched;
 	}
 
 	/**
@@ -127,6 +140,7 @@ public abstract class SingleCrusherContinuousDispatchWTimerController extends Ti
 		ff.reset();
 		simTime = 0;
 		lastUpdate = 0;
+		numDispatched = 0;
 		dispatchSchedule.clear();
 		for (int i : initialSchedule) {
 			dispatchSchedule.add(i);
@@ -11,7 +11,6 @@ import mines.ea.fitness.FitnessFunction;
 import mines.ea.fitness.sim.shift.LightTimerFitnessFunction;
 import mines.ea.op.selection.*;
 import mines.ea.chrom.RollingChromosome;
-import mines.ea.op.gene.GeneticOperator;
 import mines.ea.op.gene.farray.UnboundedFloatingArrayOperator;
 import mines.ea.alg.RollingEvolutionaryAlgorithm;
 import mines.system.Debugger;
@@ -230,6 +229,9 @@ public abstract class TimerBasedSolution extends Solution4 {
 			double xoProb = 1.0;
 			// CrossoverKind[] xoKinds = UnboundedFloatingArrayOperator.getAvailableCrossoverKinds();
 			CrossoverKind[] xoKinds = new CrossoverKind[]{CrossoverKind.BLX_A};
+			boolean adaptive = false;
+			double adaptationRate = 0.3;
+			double minShare = 0.2;
 			double vmProb = 1.0;
 			// double mStrength = 0.17;
 			double mStrength = 0.05;
@@ -265,11 +267,14 @@ public abstract class TimerBasedSolution extends Solution4 {
 			FitnessProportionateReproductionOperator<>(maximising);
 			SelectionOperator<FloatingArrayGenotype,RollingChromosome<FloatingArrayGenotype>> selectorSurvival = new 
 				KTournamentSelectionOperator<>(maximising,2);
-			GeneticOperator<FloatingArrayGenotype> operator = new UnboundedFloatingArrayOperator(genomeLength,maximising)
+			UnboundedFloatingArrayOperator operator = new UnboundedFloatingArrayOperator(genomeLength,maximising)
 				.setXOParams(xoProb,xoKinds)
 				.setMutationParams(vmProb,mStrength)
-				.setAllowDuplicateOffspring(allowDuplicateOffspring)
-				.initialise();
+				.setAllowDuplicateOffspring(allowDuplicateOffspring);
+			if (adaptive) {
+				operator.setAdaptiveParams(adaptationRate,minShare);
+			}
+			operator.initialise();
 			RollingEvolutionaryAlgorithm<FloatingArrayGenotype> ea = new RollingEvolutionaryAlgorithm<>(gBuilder,ff,selectorReproduction,
 				selectorSurvival,operator)
 				.setStrategyParams(popSize,numOffspring,elitism,allowSurvivors)
@@ -4,6 +4,7 @@ import mines.sol.SingleCrusherContinuousCombinedController;
 import mines.ea.fitness.sim.cont.SimFitnessFunction4;
 import mines.ea.alg.HeterogeneousCoevolutionaryAlgorithm;
 import mines.ea.gene.*;
+import mines.ea.chrom.Chromosome;
 import mines.ea.chrom.ChromosomePairing;
 import java.util.*;
 
@@ -15,6 +16,8 @@ public class SingleCrusherContinuousCEACombinedController extends SingleCrusherC
 	private int numOneWay;																	//number of one-lane roads.
 	private int[] lightScheduleLengths;														//number of floating point genes per traffic light.
 	private HeterogeneousCoevolutionaryAlgorithm<ArrayGenotype,FloatingArrayGenotype> cea;	//coevolutionary algorithm.
+	private boolean warmStart;																//whether to seed each run with the final populations of the previous run.
+	private boolean hasRun;																	//whether the CEA has run since the last reset.
 
 	/**
 	 * Controller constructor.
@@ -27,10 +30,11 @@ public class SingleCrusherContinuousCEACombinedController extends SingleCrusherC
 	 * @param	ff						the fitness function used to evaluate schedules.
 	 * @param	cea						the coevolutionary algorithm to evolve schedules.
 	 * @param	updateInterval			the period between schedule updates.
+	 * @param	warmStart				whether to seed each run with the final populations of the previous run.
 	 */
 	public SingleCrusherContinuousCEACombinedController(int numTrucks, int numOneWay, int[] lightIndexes, int[] lightScheduleLengths, 
 		int[] initialDispatchSchedule, SimFitnessFunction4 ff, HeterogeneousCoevolutionaryAlgorithm<ArrayGenotype,FloatingArrayGenotype> cea, 
-		double updateInterval) {
+		double updateInterval, boolean warmStart) {
 		super(numTrucks,numOneWay,lightIndexes,initialDispatchSchedule,ff,updateInterval);
 
 		this.numOneWay = numOneWay;
@@ -41,13 +45,39 @@ public class SingleCrusherContinuousCEACombinedController extends SingleCrusherC
 		}
 		this.lightScheduleLengths = Arrays.copyOf(lightScheduleLengths,numOneWay);
 		this.cea = cea;
+		this.warmStart = warmStart;
 	}
 
 	/**
 	 * Clear the existing schedule and evolve a new one.
+	 * When warm starting,
+	 * the CEA is seeded with the final populations of the previous run,
+	 * with the routes dispatched and green times used since then rotated to the end of each schedule.
 	 */
 	protected void updateSchedule() {
-		ChromosomePairing<ArrayGenotype,FloatingArrayGenotype> best = cea.run();
+		ChromosomePairing<ArrayGenotype,FloatingArrayGenotype> best;
+		if (warmStart && hasRun) {
+			int dispatchShift = getNumDispatched();
+			List<? extends Chromosome<ArrayGenotype>> last1 = cea.getFirstPopulation(0);
+			ArrayList<ArrayGenotype> seeds1 = new ArrayList<>(last1.size());
+			for (Chromosome<ArrayGenotype> c : last1) {
+				seeds1.add(c.getGenotype().rotate(dispatchShift));
+			}
+			int[] lightShifts = new int[numOneWay];
+			for (int i=0; i<numOneWay; i++) {
+				lightShifts[i] = getNumLightsUsed(i);
+			}
+			List<? extends Chromosome<FloatingArrayGenotype>> last2 = cea.getSecondPopulation(0);
+			ArrayList<FloatingArrayGenotype> seeds2 = new ArrayList<>(last2.size());
+			for (Chromosome<FloatingArrayGenotype> c : last2) {
+				seeds2.add(c.getGenotype().rotate(lightScheduleLengths,lightShifts));
+			}
+			best = cea.run(seeds1,seeds2);
+		}
+		else {
+			best = cea.run();
+		}
+		hasRun = true;
 		clearDispatchSchedule();
 		int[] schedule = best.getFirst().getGenotype().getArray();
 		for (int i : schedule) {
@@ -64,5 +94,11 @@ public class SingleCrusherContinuousCEACombinedController extends SingleCrusherC
 		}
 		updated();
 	}
+
+	@Override
+	public void reset() {
+		super.reset();
+		hasRun = false;
+	}
 	
 }
\ No newline at end of file
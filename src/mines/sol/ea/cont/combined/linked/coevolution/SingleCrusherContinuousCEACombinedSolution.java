@@ -4,6 +4,8 @@ import mines.sol.*;
 import mines.util.TimeDistribution;
 import mines.ea.op.gene.*;
 import mines.sim.MineParameters4;
+import mines.ea.fitness.CoevolutionaryHeterogeneousFitnessFunction;
+import mines.ea.fitness.CoevolutionaryHeterogeneousFitnessFunctionFactory;
 import mines.ea.fitness.sim.cont.hetero.SingleCrusherCombinedCoevolutionaryFitnessFunction;
 import mines.ea.gene.build.GenotypeBuilder;
 import mines.ea.gene.*;
@@ -26,6 +28,7 @@ public class SingleCrusherContinuousCEACombinedSolution extends TimerBasedSoluti
 	private int numSamples;			//number of samples per fitness evaluation.
 	private double lookAheadFactor;	//the multiplier of maximum cycle time to set the initial time horizon used by the fitness function.
 	private int fitnessIndex;		//the index used by the fitness function to specify fitness metric.
+	private boolean commonRandomNumbers;	//whether the fitness function uses common random numbers.
 
 	private double xoProbDispatch;						//the crossover probability for integer genotypes.
 	private CrossoverKind xoKindDispatch;				//the crossover method for integer genotypes.
@@ -52,6 +55,12 @@ public class SingleCrusherContinuousCEACombinedSolution extends TimerBasedSoluti
 	private double improvement;			//the required improvement.
 
 	private double updateInterval;	//the period between schedule updates.
+	private int numWorkers;			//the number of threads used to evaluate pairings.
+	private boolean warmStart;		//whether to seed each run with the final populations of the previous run.
+	private int maxWarmGen;			//the maximum number of generations of warm started runs.
+	private long maxNanos;			//the maximum wall-clock time of each schedule update in nanoseconds, 0 if unlimited.
+	private long maxEvents;			//the maximum number of simulation events of each schedule update, 0 if unlimited.
+	private boolean cacheSamples;	//whether each run caches the fitness of evaluated pairings.
 
 	private boolean initialised;	//whether this has been initialised yet.
 
@@ -74,6 +83,7 @@ public class SingleCrusherContinuousCEACombinedSolution extends TimerBasedSoluti
 		numSamples = 20;
 		lookAheadFactor = 1.0;
 		fitnessIndex = 0;
+		commonRandomNumbers = false;
 
 		xoProbDispatch = 0.99;
 		xoKindDispatch = CrossoverKind.SINGLE_POINT;
@@ -100,6 +110,12 @@ public class SingleCrusherContinuousCEACombinedSolution extends TimerBasedSoluti
 		improvement = 0.005;
 
 		updateInterval = 15;
+		numWorkers = 1;
+		warmStart = false;
+		maxWarmGen = Integer.MAX_VALUE;
+		maxNanos = 0;
+		maxEvents = 0;
+		cacheSamples = false;
 
 		initialised = false;
 	}
@@ -378,6 +394,125 @@ public class SingleCrusherContinuousCEACombinedSolution extends TimerBasedSoluti
 		}
 	}
 
+	/**
+	 * Set whether the fitness function uses common random numbers,
+	 * so that the candidates compared in each generation are simulated with the same random values.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	commonRandomNumbers	whether to use common random numbers.
+	 * @return	this object.
+	 * @throws	IllegalStateException		if already initialised.
+	 */
+	public SingleCrusherContinuousCEACombinedSolution setCommonRandomNumbers(boolean commonRandomNumbers) {
+		if (!initialised) {
+			this.commonRandomNumbers = commonRandomNumbers;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Solution already initialised");
+		}
+	}
+
+	/**
+	 * Set the warm start parameters.
+	 * When warm starting,
+	 * each schedule update seeds the CEA with the final populations of the previous update,
+	 * shifted past the part of the schedule already used.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	warmStart	whether to warm start schedule updates.
+	 * @param	maxWarmGen	the maximum number of generations of warm started updates.
+	 * @return	this object.
+	 * @throws	IllegalStateException		if already initialised.
+	 * @throws	IllegalArgumentException	if maxWarmGen is non-positive.
+	 * @see	ParallelShufflingHeterogeneousCoevolutionaryAlgorithm
+	 */
+	public SingleCrusherContinuousCEACombinedSolution setWarmStartParams(boolean warmStart, int maxWarmGen) {
+		if (!initialised) {
+			if (maxWarmGen <= 0) {
+				throw new IllegalArgumentException(String.format("Positive number of generations required: %d",maxWarmGen));
+			}
+			this.warmStart = warmStart;
+			this.maxWarmGen = maxWarmGen;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Solution already initialised");
+		}
+	}
+
+	/**
+	 * Set the deadline of each schedule update,
+	 * so that the algorithm returns the best schedule found so far once the time or simulation events are used.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	maxNanos	the maximum wall-clock time of each update in nanoseconds,
+	 *						0 if unlimited.
+	 * @param	maxEvents	the maximum number of simulation events of each update,
+	 *						0 if unlimited.
+	 * @return	this object.
+	 * @throws	IllegalStateException		if already initialised.
+	 * @throws	IllegalArgumentException	if either limit is negative.
+	 * @see	ParallelShufflingHeterogeneousCoevolutionaryAlgorithm
+	 */
+	public SingleCrusherContinuousCEACombinedSolution setDeadlineParams(long maxNanos, long maxEvents) {
+		if (!initialised) {
+			if (maxNanos < 0 || maxEvents < 0) {
+				throw new IllegalArgumentException(String.format("Non-negative deadline required: %d %d",maxNanos,maxEvents));
+			}
+			this.maxNanos = maxNanos;
+			this.maxEvents = maxEvents;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Solution already initialised");
+		}
+	}
+
+	/**
+	 * Set whether each schedule update caches fitness samples,
+	 * so that pairings of genotypes already evaluated in the update reuse their cached fitness instead of being evaluated again.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	cacheSamples	whether to cache fitness samples.
+	 * @return	this object.
+	 * @throws	IllegalStateException	if already initialised.
+	 * @see	ParallelShufflingHeterogeneousCoevolutionaryAlgorithm#setCacheParams(boolean)
+	 */
+	public SingleCrusherContinuousCEACombinedSolution setCacheParams(boolean cacheSamples) {
+		if (!initialised) {
+			this.cacheSamples = cacheSamples;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Solution already initialised");
+		}
+	}
+
+	/**
+	 * Set the number of threads used to evaluate pairings,
+	 * each with its own copy of the fitness function.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	numWorkers	the number of worker threads.
+	 * @return	this object.
+	 * @throws	IllegalStateException		if already initialised.
+	 * @throws	IllegalArgumentException	if numWorkers is non-positive.
+	 * @see	ParallelShufflingHeterogeneousCoevolutionaryAlgorithm
+	 */
+	public SingleCrusherContinuousCEACombinedSolution setNumWorkers(int numWorkers) {
+		if (!initialised) {
+			if (numWorkers <= 0) {
+				throw new IllegalArgumentException(String.format("Number of workers must be positive: %d",numWorkers));
+			}
+			this.numWorkers = numWorkers;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Solution already initialised");
+		}
+	}
+
 	/**
 	 * Initialise this object for use.
 	 * Can only be used once.
@@ -423,14 +558,22 @@ public class SingleCrusherContinuousCEACombinedSolution extends TimerBasedSoluti
 				}
 			}
 
-			SingleCrusherCombinedCoevolutionaryFitnessFunction ff = new SingleCrusherCombinedCoevolutionaryFitnessFunction(numTrucks,
-				numShovels,numCrusherLocs,numCrushers,numRoads,emptyTimesMean,emptyTimesSD,fillTimesMean,fillTimesSD,roadTravelTimesMean,
-				roadTravelTimesSD,fullSlowdown,isOneWay,numRoutes,routeRoads,routeDirections,routeLengths,routeShovels,routeCrushers,tgen,
-				genomeLengthDispatch,lightScheduleLengths,lightSchedule)
-				.setNumSamples(numSamples)
-				.setLookAhead(lookAhead)
-				.setFitnessIndex(fitnessIndex)
-				.initialise();
+			final SingleCrusherCombinedCoevolutionaryFitnessFunction ff = newFitnessFunction(lookAhead,genomeLengthDispatch,
+				lightScheduleLengths);
+			final double workerLookAhead = lookAhead;
+			final int workerGenomeLength = genomeLengthDispatch;
+			final int[] workerScheduleLengths = lightScheduleLengths;
+			CoevolutionaryHeterogeneousFitnessFunctionFactory<ArrayGenotype,FloatingArrayGenotype> ffFactory = new 
+				CoevolutionaryHeterogeneousFitnessFunctionFactory<ArrayGenotype,FloatingArrayGenotype>() {
+				public CoevolutionaryHeterogeneousFitnessFunction<ArrayGenotype,FloatingArrayGenotype> newFitnessFunction() {
+					return SingleCrusherContinuousCEACombinedSolution.this.newFitnessFunction(workerLookAhead,workerGenomeLength,
+						workerScheduleLengths);
+				}
+
+				public void synchronise(CoevolutionaryHeterogeneousFitnessFunction<ArrayGenotype,FloatingArrayGenotype> copy) {
+					((SingleCrusherCombinedCoevolutionaryFitnessFunction) copy).copyStoredState(ff);
+				}
+			};
 			boolean maximising = ff.isMaximising();
 
 			GenotypeBuilder<ArrayGenotype> gBuilderDispatch = new BoundedArrayBuilder(genomeLengthDispatch,maxValuesDispatch);
@@ -460,16 +603,42 @@ public class SingleCrusherContinuousCEACombinedSolution extends TimerBasedSoluti
 				operatorLights)
 				.setStrategyParams(popSizeDispatch,popSizeLights,numOffspringDispatch,numOffspringLights,allowSurvivors)
 				.setTerminationParams(maxGen,conCutoff,improvement)
+				.setParallelParams(ffFactory,numWorkers)
+				.setWarmStartParams(maxWarmGen)
+				.setDeadlineParams(maxNanos,maxEvents)
+				.setCacheParams(cacheSamples)
 				.initialise();
 
 			return new SingleCrusherContinuousCEACombinedController(numTrucks,numOneWay,lightIndexes,lightScheduleLengths,
-				initialSchedule[0],ff,cea,updateInterval);
+				initialSchedule[0],ff,cea,updateInterval,warmStart);
 		}
 		else {
 			throw new IllegalStateException("Solution not initialised");
 		}
 	}
 
+	/**
+	 * Create a fitness function for evaluating combined schedules.
+	 *
+	 * @param	lookAhead				the initial time horizon.
+	 * @param	genomeLengthDispatch	the length of dispatch schedules.
+	 * @param	lightScheduleLengths	the number of genes per traffic light.
+	 * @return	an initialised fitness function.
+	 */
+	private SingleCrusherCombinedCoevolutionaryFitnessFunction newFitnessFunction(double lookAhead, int genomeLengthDispatch, 
+		int[] lightScheduleLengths) {
+		SingleCrusherCombinedCoevolutionaryFitnessFunction ff = new SingleCrusherCombinedCoevolutionaryFitnessFunction(numTrucks,
+			numShovels,numCrusherLocs,numCrushers,numRoads,emptyTimesMean,emptyTimesSD,fillTimesMean,fillTimesSD,roadTravelTimesMean,
+			roadTravelTimesSD,fullSlowdown,isOneWay,numRoutes,routeRoads,routeDirections,routeLengths,routeShovels,routeCrushers,tgen,
+			genomeLengthDispatch,lightScheduleLengths,lightSchedule)
+			.setNumSamples(numSamples)
+			.setLookAhead(lookAhead)
+			.setFitnessIndex(fitnessIndex)
+			.initialise();
+		ff.setCommonRandomNumbers(commonRandomNumbers);
+		return ff;
+	}
+
 	public String getSolutionName() {
 		return "Combined scheduling by CEA";
 	}
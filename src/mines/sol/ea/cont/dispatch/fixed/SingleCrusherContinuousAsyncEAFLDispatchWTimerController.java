@@ -0,0 +1,289 @@
+package mines.sol.ea.cont.dispatch.fixed;
+
+import mines.sol.SingleCrusherContinuousDispatchWTimerController;
+import mines.ea.alg.EvolutionaryAlgorithm;
+import mines.ea.gene.ArrayGenotype;
+import mines.ea.chrom.Chromosome;
+import mines.ea.fitness.sim.cont.SimFitnessFunction4WTimer;
+import mines.sim.*;
+import java.util.*;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Controller that uses an evolutionary algorithm on a background thread to evolve dispatch schedules continuously,
+ * so that routing decisions never wait for the optimiser.
+ * The optimiser requests a copy of the mirrored simulation state,
+ * which is taken on the simulation thread at the next event or light change,
+ * evolves a schedule from that state,
+ * and publishes it by swapping a reference.
+ * At each update,
+ * the most recently published schedule is adopted without the routes dispatched since its state was copied,
+ * or the current schedule continues if nothing new has been published.
+ * In synchronous replay mode no thread is used,
+ * and each update copies the state and evolves a schedule before returning,
+ * so that results are deterministic.
+ * Cyclic light schedules are used.
+ */
+public class SingleCrusherContinuousAsyncEAFLDispatchWTimerController extends SingleCrusherContinuousDispatchWTimerController {
+
+	/**
+	 * A dispatch schedule published by the optimiser.
+	 */
+	private static class PublishedSchedule {
+
+		private final int[] schedule;	//the route indexes.
+		private final int dispatched;	//the total number of dispatches when the state used to evolve the schedule was copied.
+
+		/**
+		 * Published schedule constructor.
+		 *
+		 * @param	schedule	the route indexes.
+		 * @param	dispatched	the total number of dispatches when the state was copied.
+		 */
+		public PublishedSchedule(int[] schedule, int dispatched) {
+			this.schedule = schedule;
+			this.dispatched = dispatched;
+		}
+	}
+
+	/**
+	 * Repeatedly evolves schedules from fresh copies of the mirrored state until interrupted.
+	 */
+	private class Optimiser implements Runnable {
+
+		public void run() {
+			try {
+				while (!Thread.currentThread().isInterrupted()) {
+					snapshotRequested.set(true);
+					snapshotReady.acquire();
+					int dispatched = snapshotDispatched;
+					published.set(new PublishedSchedule(evolve(dispatched),dispatched));
+				}
+			}
+			catch (InterruptedException ie) {
+			}
+			catch (RuntimeException re) {
+				failure = re;
+			}
+		}
+	}
+
+	private SimFitnessFunction4WTimer mirror;			//the fitness function holding the mirrored simulation state.
+	private SimFitnessFunction4WTimer eaff;				//the fitness function of the EA, loaded with copies of the mirrored state.
+	private EvolutionaryAlgorithm<ArrayGenotype> ea;	//the evolutionary algorithm.
+	private boolean warmStart;							//whether to seed each run with the final population of the previous run.
+	private boolean synchronous;						//whether to evolve schedules on the simulation thread at each update.
+	private int[] initialSchedule;						//the dispatch schedule to use at shift-start.
+
+	/*
+	 * Simulation thread variables.
+	 */
+	private int[] currentSchedule;		//the schedule adopted at the last update.
+	private int dispatchedBefore;		//the total number of dispatches before the last update.
+	private PublishedSchedule adopted;	//the published schedule adopted most recently.
+
+	/*
+	 * Optimiser variables.
+	 */
+	private Thread optimiser;								//the background optimiser, null if not started.
+	private AtomicBoolean snapshotRequested;				//whether the optimiser is waiting for a copy of the state.
+	private Semaphore snapshotReady;						//released once the requested copy of the state has been taken.
+	private int snapshotDispatched;							//the total number of dispatches when the state was last copied.
+	private AtomicReference<PublishedSchedule> published;	//the most recent schedule published by the optimiser.
+	private volatile RuntimeException failure;				//the exception that stopped the optimiser, null if none.
+	private boolean hasRun;									//whether the EA has run since the last reset.
+	private int lastDispatched;								//the total number of dispatches at the state of the last run.
+
+	/**
+	 * Controller constructor.
+	 *
+	 * @param 	numTrucks		the number of trucks.
+	 * @param	numOneWay		the number of one-lane roads.
+	 * @param	lightIndexes	the light indexes for roads.
+	 * @param	updateInterval	the period between schedule updates.
+	 * @param	lightSchedule	the cyclic light schedule.
+	 * @param	initialSchedule	the dispatch schedule to use at shift-start.
+	 * @param	ff				the fitness function that mirrors the simulation state.
+	 * @param	eaff			the fitness function used by the EA,
+	 *							a separate instance for the same problem as ff.
+	 * @param	ea				the evolutionary algorithm to evolve schedules.
+	 * @param	warmStart		whether to seed each run with the final population of the previous run.
+	 * @param	synchronous		whether to evolve schedules on the simulation thread at each update for deterministic replay.
+	 */
+	public SingleCrusherContinuousAsyncEAFLDispatchWTimerController(int numTrucks, int numOneWay, int[] lightIndexes,
+		double updateInterval, double[][] lightSchedule, int[] initialSchedule, SimFitnessFunction4WTimer ff,
+		SimFitnessFunction4WTimer eaff, EvolutionaryAlgorithm<ArrayGenotype> ea, boolean warmStart, boolean synchronous) {
+		super(numTrucks,numOneWay,lightIndexes,updateInterval,lightSchedule,initialSchedule,ff);
+
+		mirror = ff;
+		this.eaff = eaff;
+		this.ea = ea;
+		this.warmStart = warmStart;
+		this.synchronous = synchronous;
+		this.initialSchedule = Arrays.copyOf(initialSchedule,initialSchedule.length);
+
+		snapshotRequested = new AtomicBoolean();
+		snapshotReady = new Semaphore(0);
+		published = new AtomicReference<>();
+
+		reset();
+	}
+
+	/**
+	 * Get the schedule to use from this update.
+	 * In synchronous replay mode a new schedule is evolved from the current state.
+	 * Otherwise the latest published schedule is adopted if it is new,
+	 * and the current schedule continues from the next undispatched route if not.
+	 *
+	 * @return	an array of route indexes.
+	 * @throws	IllegalStateException if the optimiser has failed.
+	 */
+	protected int[] getDispatchSchedule() {
+		int total = dispatchedBefore + getNumDispatched();
+		if (synchronous) {
+			eaff.copyStoredState(mirror);
+			currentSchedule = evolve(total);
+		}
+		else {
+			if (failure != null) {
+				throw new IllegalStateException(String.format("Background optimiser failed: %s",failure),failure);
+			}
+			PublishedSchedule latest = published.get();
+			if (latest != null && latest != adopted) {
+				currentSchedule = rotate(latest.schedule,total - latest.dispatched);
+				adopted = latest;
+			}
+			else {
+				currentSchedule = rotate(currentSchedule,getNumDispatched());
+			}
+		}
+		dispatchedBefore = total;
+		return currentSchedule;
+	}
+
+	/**
+	 * Run the EA from the state loaded into its fitness function.
+	 * When warm starting,
+	 * the EA is seeded with the final population of the previous run,
+	 * with the routes dispatched between the two states rotated to the end of each schedule.
+	 *
+	 * @param	dispatched	the total number of dispatches at the loaded state.
+	 * @return	an array of route indexes.
+	 */
+	private int[] evolve(int dispatched) {
+		Chromosome<ArrayGenotype> best;
+		if (warmStart && hasRun) {
+			int shift = dispatched - lastDispatched;
+			List<Chromosome<ArrayGenotype>> last = ea.getPopulation();
+			ArrayList<ArrayGenotype> seeds = new ArrayList<>(last.size());
+			for (Chromosome<ArrayGenotype> c : last) {
+				seeds.add(c.getGenotype().rotate(shift));
+			}
+			best = ea.run(seeds);
+		}
+		else {
+			best = ea.run();
+		}
+		hasRun = true;
+		lastDispatched = dispatched;
+		return best.getGenotype().getArray();
+	}
+
+	/**
+	 * Create a copy of a schedule with the genes rotated left.
+	 *
+	 * @param	schedule	the route indexes.
+	 * @param	shift		the number of positions to rotate by.
+	 * @return	the rotated schedule.
+	 */
+	private static int[] rotate(int[] schedule, int shift) {
+		int length = schedule.length;
+		int[] rotated = new int[length];
+		if (length > 0) {
+			shift = Math.floorMod(shift,length);
+			System.arraycopy(schedule,shift,rotated,0,length - shift);
+			System.arraycopy(schedule,0,rotated,length - shift,shift);
+		}
+		return rotated;
+	}
+
+	/**
+	 * Start the optimiser if required,
+	 * and copy the mirrored state for it if it is waiting.
+	 * Only used on the simulation thread.
+	 */
+	private void serveOptimiser() {
+		if (synchronous) {
+			return;
+		}
+		if (optimiser == null) {
+			optimiser = new Thread(new Optimiser(),"EA dispatch optimiser");
+			optimiser.setDaemon(true);
+			optimiser.start();
+		}
+		if (snapshotRequested.compareAndSet(true,false)) {
+			eaff.copyStoredState(mirror);
+			snapshotDispatched = dispatchedBefore + getNumDispatched();
+			snapshotReady.release();
+		}
+	}
+
+	/**
+	 * Stop the background optimiser,
+	 * waiting for its current run of the EA to finish.
+	 * The optimiser is started again at the next event.
+	 */
+	public void shutdown() {
+		if (optimiser != null) {
+			optimiser.interrupt();
+			try {
+				optimiser.join();
+			}
+			catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+			optimiser = null;
+		}
+		snapshotRequested.set(false);
+		snapshotReady.drainPermits();
+		failure = null;
+	}
+
+	/**
+	 * Stop the background optimiser at the end of a simulation,
+	 * so that its thread does not outlive the shift.
+	 */
+	@Override
+	public void finish() {
+		shutdown();
+	}
+
+	@Override
+	public void event(StateChange change) {
+		super.event(change);
+		serveOptimiser();
+	}
+
+	@Override
+	public double lightEvent(int light, TrafficLight change, double simTime, double[] progress) {
+		double t = super.lightEvent(light,change,simTime,progress);
+		serveOptimiser();
+		return t;
+	}
+
+	@Override
+	public void reset() {
+		super.reset();
+		if (published != null) {
+			shutdown();
+			published.set(null);
+			adopted = null;
+			currentSchedule = Arrays.copyOf(initialSchedule,initialSchedule.length);
+			dispatchedBefore = 0;
+			hasRun = false;
+			lastDispatched = 0;
+		}
+	}
+
+}
@@ -3,7 +3,9 @@ package mines.sol.ea.cont.dispatch.fixed;
 import mines.sol.SingleCrusherContinuousDispatchWTimerController;
 import mines.ea.alg.EvolutionaryAlgorithm;
 import mines.ea.gene.ArrayGenotype;
+import mines.ea.chrom.Chromosome;
 import mines.ea.fitness.sim.cont.SimFitnessFunction4WTimer;
+import java.util.*;
 
 /**
  * Controller that uses an evolutionary algorithm to evolve dispatch schedules periodically.
@@ -12,6 +14,8 @@ import mines.ea.fitness.sim.cont.SimFitnessFunction4WTimer;
 public class SingleCrusherContinuousEAFLDispatchWTimerController extends SingleCrusherContinuousDispatchWTimerController {
 
 	private EvolutionaryAlgorithm<ArrayGenotype> ea;	//the evolutionary algorithm.
+	private boolean warmStart;							//whether to seed each run with the final population of the previous run.
+	private boolean hasRun;								//whether the EA has run since the last reset.
 
 	/**
 	 * Controller constructor.
@@ -24,21 +28,47 @@ public class SingleCrusherContinuousEAFLDispatchWTimerController extends SingleC
 	 * @param	initialSchedule	the dispatch schedule to use at shift-start.
 	 * @param	ff				the fitness function used to evaluate schedules.
 	 * @param	ea				the evolutionary algorithm to evolve schedules.
+	 * @param	warmStart		whether to seed each run with the final population of the previous run.
 	 */
 	public SingleCrusherContinuousEAFLDispatchWTimerController(int numTrucks, int numOneWay, int[] lightIndexes, double updateInterval, 
-		double[][] lightSchedule, int[] initialSchedule, SimFitnessFunction4WTimer ff, EvolutionaryAlgorithm<ArrayGenotype> ea) {
+		double[][] lightSchedule, int[] initialSchedule, SimFitnessFunction4WTimer ff, EvolutionaryAlgorithm<ArrayGenotype> ea,
+		boolean warmStart) {
 		super(numTrucks,numOneWay,lightIndexes,updateInterval,lightSchedule,initialSchedule,ff);
 
 		this.ea = ea;
+		this.warmStart = warmStart;
 	}
 
 	/**
 	 * Evolve a new schedule.
+	 * When warm starting,
+	 * the EA is seeded with the final population of the previous run,
+	 * with the routes dispatched since then rotated to the end of each schedule.
 	 *
 	 * @return	an array of route indexes.
 	 */
 	protected int[] getDispatchSchedule() {
-		return ea.run().getGenotype().getArray();
+		Chromosome<ArrayGenotype> best;
+		if (warmStart && hasRun) {
+			int shift = getNumDispatched();
+			List<Chromosome<ArrayGenotype>> last = ea.getPopulation();
+			ArrayList<ArrayGenotype> seeds = new ArrayList<>(last.size());
+			for (Chromosome<ArrayGenotype> c : last) {
+				seeds.add(c.getGenotype().rotate(shift));
+			}
+			best = ea.run(seeds);
+		}
+		else {
+			best = ea.run();
+		}
+		hasRun = true;
+		return best.getGenotype().getArray();
+	}
+
+	@Override
+	public void reset() {
+		super.reset();
+		hasRun = false;
 	}
 
 }
\ No newline at end of file
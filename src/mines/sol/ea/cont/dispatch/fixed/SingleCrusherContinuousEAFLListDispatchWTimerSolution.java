@@ -1,12 +1,15 @@
 package mines.sol.ea.cont.dispatch.fixed;
 
 import mines.sol.TimerBasedSolution;
+import mines.sol.SingleCrusherContinuousDispatchWTimerController;
 import mines.util.TimeDistribution;
 import mines.ea.op.gene.*;
 import mines.sim.MineParameters4;
 import mines.ea.gene.build.GenotypeBuilder;
 import mines.ea.gene.ArrayGenotype;
 import mines.ea.gene.build.array.BoundedArrayBuilder;
+import mines.ea.fitness.FitnessFunction;
+import mines.ea.fitness.FitnessFunctionFactory;
 import mines.ea.fitness.sim.cont.array.dispatch.SingleCrusherFLDispatchWTimerFitnessFunction;
 import mines.ea.op.selection.*;
 import mines.ea.chrom.RollingChromosome;
@@ -41,6 +44,22 @@ public class SingleCrusherContinuousEAFLListDispatchWTimerSolution extends Timer
 	private double elitism;						//the proportion of elite chromosomes to have guaranteed survival.
 	private boolean allowSurvivors;				//whether to allow survivors between generations.
 	private double updateInterval;				//the period between schedule updates.
+	private boolean commonRandomNumbers;		//whether the fitness function uses common random numbers.
+	private int numWorkers;						//the number of threads used to evaluate offspring.
+	private int raceMinSamples;					//the number of samples before offspring can be eliminated, 0 if not racing.
+	private boolean warmStart;					//whether to seed each run with the final population of the previous run.
+	private int maxWarmGen;						//the maximum number of generations of warm started runs.
+	private long maxNanos;						//the maximum wall-clock time of each schedule update in nanoseconds, 0 if unlimited.
+	private long maxEvents;						//the maximum number of simulation events of each schedule update, 0 if unlimited.
+	private boolean async;						//whether to evolve schedules on a background thread.
+	private boolean synchronousReplay;			//whether asynchronous controllers evolve schedules at each update for deterministic replay.
+	private int maxCheckpoints;					//the maximum number of simulation checkpoints cached per fitness function, 0 if not used.
+	private boolean cacheSamples;				//whether each run caches the fitness samples of evaluated genotypes.
+	private int numIslands;						//the number of island populations, 1 for a single population.
+	private int migrationInterval;				//the number of generations between migrations between islands.
+	private int numMigrants;					//the number of chromosomes sent to each destination island per migration.
+	private MigrationTopology topology;			//the islands each island sends migrants to.
+	private boolean steadyState;				//whether to use an asynchronous steady-state algorithm instead of generations.
 
 	private boolean initialised;	//whether this has been initialised yet.
 
@@ -83,6 +102,22 @@ public class SingleCrusherContinuousEAFLListDispatchWTimerSolution extends Timer
 		conCutoff = 99;
 		improvement = 0.005;
 		updateInterval = 15;
+		commonRandomNumbers = false;
+		numWorkers = 1;
+		raceMinSamples = 0;
+		warmStart = false;
+		maxWarmGen = Integer.MAX_VALUE;
+		maxNanos = 0;
+		maxEvents = 0;
+		async = false;
+		synchronousReplay = false;
+		maxCheckpoints = 0;
+		cacheSamples = false;
+		numIslands = 1;
+		migrationInterval = 10;
+		numMigrants = 1;
+		topology = MigrationTopology.RING;
+		steadyState = false;
 
 		initialised = false;
 	}
@@ -301,6 +336,264 @@ public class SingleCrusherContinuousEAFLListDispatchWTimerSolution extends Timer
 		}
 	}
 
+	/**
+	 * Set whether the fitness function uses common random numbers,
+	 * so that the candidates compared in each generation are simulated with the same random values.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	commonRandomNumbers	whether to use common random numbers.
+	 * @return	this object.
+	 * @throws	IllegalStateException		if already initialised.
+	 */
+	public SingleCrusherContinuousEAFLListDispatchWTimerSolution setCommonRandomNumbers(boolean commonRandomNumbers) {
+		if (!initialised) {
+			this.commonRandomNumbers = commonRandomNumbers;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Solution already initialised");
+		}
+	}
+
+	/**
+	 * Set the number of samples before offspring can be eliminated by racing.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	raceMinSamples	the number of samples before offspring can be eliminated,
+	 *							0 to fill every fitness bucket.
+	 * @return	this object.
+	 * @throws	IllegalStateException		if already initialised.
+	 * @throws	IllegalArgumentException	if raceMinSamples is negative or 1.
+	 * @see	RollingEvolutionaryAlgorithm
+	 */
+	public SingleCrusherContinuousEAFLListDispatchWTimerSolution setRacingParams(int raceMinSamples) {
+		if (!initialised) {
+			if (raceMinSamples < 0 || raceMinSamples == 1) {
+				throw new IllegalArgumentException(String.format("At least two samples required before racing: %d",raceMinSamples));
+			}
+			this.raceMinSamples = raceMinSamples;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Solution already initialised");
+		}
+	}
+
+	/**
+	 * Set the warm start parameters.
+	 * When warm starting,
+	 * each schedule update seeds the EA with the final population of the previous update,
+	 * shifted past the part of the schedule already used.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	warmStart	whether to warm start schedule updates.
+	 * @param	maxWarmGen	the maximum number of generations of warm started updates.
+	 * @return	this object.
+	 * @throws	IllegalStateException		if already initialised.
+	 * @throws	IllegalArgumentException	if maxWarmGen is non-positive.
+	 * @see	RollingEvolutionaryAlgorithm
+	 */
+	public SingleCrusherContinuousEAFLListDispatchWTimerSolution setWarmStartParams(boolean warmStart, int maxWarmGen) {
+		if (!initialised) {
+			if (maxWarmGen <= 0) {
+				throw new IllegalArgumentException(String.format("Positive number of generations required: %d",maxWarmGen));
+			}
+			this.warmStart = warmStart;
+			this.maxWarmGen = maxWarmGen;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Solution already initialised");
+		}
+	}
+
+	/**
+	 * Set the deadline of each schedule update,
+	 * so that the algorithm returns the best schedule found so far once the time or simulation events are used.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	maxNanos	the maximum wall-clock time of each update in nanoseconds,
+	 *						0 if unlimited.
+	 * @param	maxEvents	the maximum number of simulation events of each update,
+	 *						0 if unlimited.
+	 * @return	this object.
+	 * @throws	IllegalStateException		if already initialised.
+	 * @throws	IllegalArgumentException	if either limit is negative.
+	 * @see	RollingEvolutionaryAlgorithm
+	 */
+	public SingleCrusherContinuousEAFLListDispatchWTimerSolution setDeadlineParams(long maxNanos, long maxEvents) {
+		if (!initialised) {
+			if (maxNanos < 0 || maxEvents < 0) {
+				throw new IllegalArgumentException(String.format("Non-negative deadline required: %d %d",maxNanos,maxEvents));
+			}
+			this.maxNanos = maxNanos;
+			this.maxEvents = maxEvents;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Solution already initialised");
+		}
+	}
+
+	/**
+	 * Set whether to evolve schedules on a background thread,
+	 * so that routing decisions use the most recently published schedule without waiting for the EA.
+	 * Synchronous replay runs the same controller without a thread,
+	 * evolving a schedule at each update,
+	 * for deterministic testing.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	async				whether to use an asynchronous controller.
+	 * @param	synchronousReplay	whether the asynchronous controller evolves schedules on the simulation thread.
+	 * @return	this object.
+	 * @throws	IllegalStateException	if already initialised.
+	 * @see	SingleCrusherContinuousAsyncEAFLDispatchWTimerController
+	 */
+	public SingleCrusherContinuousEAFLListDispatchWTimerSolution setAsyncParams(boolean async, boolean synchronousReplay) {
+		if (!initialised) {
+			this.async = async;
+			this.synchronousReplay = synchronousReplay;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Solution already initialised");
+		}
+	}
+
+	/**
+	 * Set the number of simulation checkpoints cached by each fitness function,
+	 * so that schedules sharing a prefix with an evaluated schedule are simulated from the end of the shared prefix.
+	 * Only used with common random numbers.
+	 * Disabled by default,
+	 * as checkpoints are not always faster than full simulation.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	maxCheckpoints	the maximum number of checkpoints,
+	 *							0 to simulate every schedule in full.
+	 * @return	this object.
+	 * @throws	IllegalStateException		if already initialised.
+	 * @throws	IllegalArgumentException	if maxCheckpoints is negative.
+	 * @see	SingleCrusherFLDispatchWTimerFitnessFunction#setMaxCheckpoints(int)
+	 */
+	public SingleCrusherContinuousEAFLListDispatchWTimerSolution setCheckpointParams(int maxCheckpoints) {
+		if (!initialised) {
+			if (maxCheckpoints < 0) {
+				throw new IllegalArgumentException(String.format("Non-negative number of checkpoints required: %d",maxCheckpoints));
+			}
+			this.maxCheckpoints = maxCheckpoints;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Solution already initialised");
+		}
+	}
+
+	/**
+	 * Set whether each schedule update caches fitness samples,
+	 * so that offspring duplicating genotypes already evaluated in the update reuse their cached samples instead of being evaluated again.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	cacheSamples	whether to cache fitness samples.
+	 * @return	this object.
+	 * @throws	IllegalStateException	if already initialised.
+	 * @see	RollingEvolutionaryAlgorithm#setCacheParams(boolean)
+	 */
+	public SingleCrusherContinuousEAFLListDispatchWTimerSolution setCacheParams(boolean cacheSamples) {
+		if (!initialised) {
+			this.cacheSamples = cacheSamples;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Solution already initialised");
+		}
+	}
+
+	/**
+	 * Set the island model parameters,
+	 * evolving several populations on their own threads,
+	 * each with the population size and number of workers of a single population,
+	 * and exchanging their best chromosomes periodically.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	numIslands			the number of islands,
+	 *								1 for a single population.
+	 * @param	migrationInterval	the number of generations between migrations,
+	 *								0 for isolated islands.
+	 * @param	numMigrants			the number of chromosomes sent to each destination per migration.
+	 * @param	topology			the islands each island sends migrants to.
+	 * @return	this object.
+	 * @throws	IllegalStateException		if already initialised.
+	 * @throws	IllegalArgumentException	if numIslands is non-positive or the migration parameters are negative.
+	 * @see	IslandEvolutionaryAlgorithm
+	 */
+	public SingleCrusherContinuousEAFLListDispatchWTimerSolution setIslandParams(int numIslands, int migrationInterval, int numMigrants, 
+		MigrationTopology topology) {
+		if (!initialised) {
+			if (numIslands <= 0) {
+				throw new IllegalArgumentException(String.format("Positive number of islands required: %d",numIslands));
+			}
+			if (migrationInterval < 0 || numMigrants < 0) {
+				throw new IllegalArgumentException(String.format("Non-negative migration parameters required: %d %d",migrationInterval,
+					numMigrants));
+			}
+			this.numIslands = numIslands;
+			this.migrationInterval = migrationInterval;
+			this.numMigrants = numMigrants;
+			this.topology = topology;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Solution already initialised");
+		}
+	}
+
+	/**
+	 * Set whether each schedule update uses an asynchronous steady-state algorithm,
+	 * where each worker inserts its offspring into the population as soon as they are evaluated,
+	 * instead of waiting for the rest of the generation.
+	 * The steady-state algorithm uses the population size, bucket size, termination, warm start and deadline parameters,
+	 * and ignores the other strategy, resampling, racing, caching and island parameters.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	steadyState	whether to use the steady-state algorithm.
+	 * @return	this object.
+	 * @throws	IllegalStateException	if already initialised.
+	 * @see	SteadyStateEvolutionaryAlgorithm
+	 */
+	public SingleCrusherContinuousEAFLListDispatchWTimerSolution setSteadyState(boolean steadyState) {
+		if (!initialised) {
+			this.steadyState = steadyState;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Solution already initialised");
+		}
+	}
+
+	/**
+	 * Set the number of threads used to evaluate offspring,
+	 * each with its own copy of the fitness function.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	numWorkers	the number of worker threads.
+	 * @return	this object.
+	 * @throws	IllegalStateException		if already initialised.
+	 * @throws	IllegalArgumentException	if numWorkers is non-positive.
+	 * @see	RollingEvolutionaryAlgorithm
+	 */
+	public SingleCrusherContinuousEAFLListDispatchWTimerSolution setNumWorkers(int numWorkers) {
+		if (!initialised) {
+			if (numWorkers <= 0) {
+				throw new IllegalArgumentException(String.format("Number of workers must be positive: %d",numWorkers));
+			}
+			this.numWorkers = numWorkers;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Solution already initialised");
+		}
+	}
+
 	/**
 	 * Initialise this object for use.
 	 * Can only be used once.
@@ -318,7 +611,7 @@ public class SingleCrusherContinuousEAFLListDispatchWTimerSolution extends Timer
 		}
 	}
 
-	public SingleCrusherContinuousEAFLDispatchWTimerController getController() {
+	public SingleCrusherContinuousDispatchWTimerController getController() {
 		if (initialised) {
 			double lookAhead = lookAheadFactor * maxRouteTime;
 
@@ -328,39 +621,121 @@ public class SingleCrusherContinuousEAFLListDispatchWTimerSolution extends Timer
 				maxValues[i] = numRoutes;
 			}
 
-			GenotypeBuilder<ArrayGenotype> gBuilder = new BoundedArrayBuilder(genomeLength,maxValues);
-			SingleCrusherFLDispatchWTimerFitnessFunction ff = new SingleCrusherFLDispatchWTimerFitnessFunction(numTrucks,numShovels,
-				numCrusherLocs,numCrushers,numRoads,emptyTimesMean,emptyTimesSD,fillTimesMean,fillTimesSD,roadTravelTimesMean,
-				roadTravelTimesSD,fullSlowdown,isOneWay,numRoutes,routeRoads,routeDirections,routeLengths,routeShovels,routeCrushers,
-				tgen,lightSchedule,genomeLength)
-				.setNumSamples(1)
-				.setLookAhead(lookAhead)
-				.setFitnessIndex(fitnessIndex)
-				.initialise();
-			boolean maximising = ff.isMaximising();
-			SelectionOperator<ArrayGenotype,RollingChromosome<ArrayGenotype>> selectorReproduction = new 
-				FitnessProportionateReproductionOperator<>(maximising);
-			SelectionOperator<ArrayGenotype,RollingChromosome<ArrayGenotype>> selectorSurvival = new 
-				RankedSurvivalOperator<>(maximising);
-			GeneticOperator<ArrayGenotype> operator = new BoundedListOperator(genomeLength,numRoutes)
-				.setXOParams(xoProb,xoKind)
-				.setMutationParams(vmProb,insertProb,deleteProb,flipProb)
-				.setAllowDuplicateOffspring(allowDuplicateOffspring)
-				.initialise();
-			EvolutionaryAlgorithm<ArrayGenotype> ea = new RollingEvolutionaryAlgorithm<>(gBuilder,ff,selectorReproduction,selectorSurvival,
-				operator)
-				.setStrategyParams(popSize,numOffspring,elitism,allowSurvivors)
-				.setSamplingParams(bucketSize,resampleRate,resampleSize)
-				.setTerminationParams(maxGen,conCutoff,improvement)
-				.initialise();
+			final GenotypeBuilder<ArrayGenotype> gBuilder = new BoundedArrayBuilder(genomeLength,maxValues);
+			SingleCrusherFLDispatchWTimerFitnessFunction ff = newFitnessFunction(lookAhead,genomeLength);
+			final SingleCrusherFLDispatchWTimerFitnessFunction eaff = (async ? newFitnessFunction(lookAhead,genomeLength) : ff);
+			final double workerLookAhead = lookAhead;
+			final int workerGenomeLength = genomeLength;
+			final FitnessFunctionFactory<ArrayGenotype> ffFactory = new FitnessFunctionFactory<ArrayGenotype>() {
+				public FitnessFunction<ArrayGenotype> newFitnessFunction() {
+					return SingleCrusherContinuousEAFLListDispatchWTimerSolution.this.newFitnessFunction(workerLookAhead,
+						workerGenomeLength);
+				}
+
+				public void synchronise(FitnessFunction<ArrayGenotype> copy) {
+					((SingleCrusherFLDispatchWTimerFitnessFunction) copy).copyStoredState(eaff);
+				}
+			};
+			EvolutionaryAlgorithm<ArrayGenotype> ea;
+			if (steadyState) {
+				ea = new SteadyStateEvolutionaryAlgorithm<>(gBuilder,eaff,new FitnessProportionateReproductionOperator<ArrayGenotype,
+					RollingChromosome<ArrayGenotype>>(eaff.isMaximising()),newOperator(genomeLength))
+					.setStrategyParams(popSize)
+					.setSamplingParams(bucketSize)
+					.setTerminationParams(maxGen,conCutoff,improvement)
+					.setParallelParams(ffFactory,numWorkers)
+					.setWarmStartParams(maxWarmGen)
+					.setDeadlineParams(maxNanos,maxEvents)
+					.initialise();
+			}
+			else if (numIslands > 1) {
+				IslandFactory<ArrayGenotype> islandFactory = new IslandFactory<ArrayGenotype>() {
+					public RollingEvolutionaryAlgorithm<ArrayGenotype> newIsland(FitnessFunction<ArrayGenotype> islandFF) {
+						return newEvolutionaryAlgorithm(gBuilder,islandFF,ffFactory,workerGenomeLength);
+					}
+				};
+				ea = new IslandEvolutionaryAlgorithm<>(eaff,ffFactory,islandFactory,numIslands)
+					.setMigrationParams(migrationInterval,numMigrants,topology)
+					.initialise();
+			}
+			else {
+				ea = newEvolutionaryAlgorithm(gBuilder,eaff,ffFactory,genomeLength).initialise();
+			}
+			if (async) {
+				return new SingleCrusherContinuousAsyncEAFLDispatchWTimerController(numTrucks,numOneWay,lightIndexes,updateInterval,
+					lightSchedule,initialSchedule[0],ff,eaff,ea,warmStart,synchronousReplay);
+			}
 			return new SingleCrusherContinuousEAFLDispatchWTimerController(numTrucks,numOneWay,lightIndexes,updateInterval,lightSchedule,
-				initialSchedule[0],ff,ea);
+				initialSchedule[0],ff,ea,warmStart);
 		}
 		else {
 			throw new IllegalStateException("Solution not initialised");
 		}
 	}
 
+	/**
+	 * Create an evolutionary algorithm for dispatch schedules,
+	 * with its own operators.
+	 *
+	 * @param	gBuilder		the random genotype generator.
+	 * @param	eaff			the fitness function.
+	 * @param	ffFactory		the factory for the fitness functions of additional workers.
+	 * @param	genomeLength	the length of dispatch schedules.
+	 * @return	an uninitialised algorithm.
+	 */
+	private RollingEvolutionaryAlgorithm<ArrayGenotype> newEvolutionaryAlgorithm(GenotypeBuilder<ArrayGenotype> gBuilder, 
+		FitnessFunction<ArrayGenotype> eaff, FitnessFunctionFactory<ArrayGenotype> ffFactory, int genomeLength) {
+		boolean maximising = eaff.isMaximising();
+		SelectionOperator<ArrayGenotype,RollingChromosome<ArrayGenotype>> selectorReproduction = new 
+			FitnessProportionateReproductionOperator<>(maximising);
+		SelectionOperator<ArrayGenotype,RollingChromosome<ArrayGenotype>> selectorSurvival = new 
+			RankedSurvivalOperator<>(maximising);
+		return new RollingEvolutionaryAlgorithm<>(gBuilder,eaff,selectorReproduction,selectorSurvival,newOperator(genomeLength))
+			.setStrategyParams(popSize,numOffspring,elitism,allowSurvivors)
+			.setSamplingParams(bucketSize,resampleRate,resampleSize)
+			.setTerminationParams(maxGen,conCutoff,improvement)
+			.setParallelParams(ffFactory,numWorkers)
+			.setRacingParams(raceMinSamples)
+			.setCacheParams(cacheSamples)
+			.setWarmStartParams(maxWarmGen)
+			.setDeadlineParams(maxNanos,maxEvents);
+	}
+
+	/**
+	 * Create a genetic operator for dispatch schedules.
+	 *
+	 * @param	genomeLength	the length of dispatch schedules.
+	 * @return	an initialised operator.
+	 */
+	private GeneticOperator<ArrayGenotype> newOperator(int genomeLength) {
+		return new BoundedListOperator(genomeLength,numRoutes)
+			.setXOParams(xoProb,xoKind)
+			.setMutationParams(vmProb,insertProb,deleteProb,flipProb)
+			.setAllowDuplicateOffspring(allowDuplicateOffspring)
+			.initialise();
+	}
+
+	/**
+	 * Create a fitness function for evaluating dispatch schedules.
+	 *
+	 * @param	lookAhead		the initial time horizon.
+	 * @param	genomeLength	the length of dispatch schedules.
+	 * @return	an initialised fitness function.
+	 */
+	private SingleCrusherFLDispatchWTimerFitnessFunction newFitnessFunction(double lookAhead, int genomeLength) {
+		SingleCrusherFLDispatchWTimerFitnessFunction ff = new SingleCrusherFLDispatchWTimerFitnessFunction(numTrucks,numShovels,
+			numCrusherLocs,numCrushers,numRoads,emptyTimesMean,emptyTimesSD,fillTimesMean,fillTimesSD,roadTravelTimesMean,
+			roadTravelTimesSD,fullSlowdown,isOneWay,numRoutes,routeRoads,routeDirections,routeLengths,routeShovels,routeCrushers,
+			tgen,lightSchedule,genomeLength)
+			.setNumSamples(1)
+			.setLookAhead(lookAhead)
+			.setFitnessIndex(fitnessIndex)
+			.setMaxCheckpoints(maxCheckpoints)
+			.initialise();
+		ff.setCommonRandomNumbers(commonRandomNumbers);
+		return ff;
+	}
+
 	public String getSolutionName() {
 		return "Continuous dispatch (FL-List) by EA w/ timer";
 	}
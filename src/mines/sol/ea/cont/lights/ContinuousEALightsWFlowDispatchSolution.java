@@ -7,6 +7,8 @@ import mines.sim.MineParameters4;
 import mines.ea.gene.build.GenotypeBuilder;
 import mines.ea.gene.FloatingArrayGenotype;
 import mines.ea.gene.build.farray.UnboundedFloatingArrayBuilder;
+import mines.ea.fitness.FitnessFunction;
+import mines.ea.fitness.FitnessFunctionFactory;
 import mines.ea.fitness.sim.cont.farray.LightsWFlowDispatchFitnessFunction;
 import mines.ea.op.selection.*;
 import mines.ea.chrom.RollingChromosome;
@@ -40,6 +42,13 @@ public class ContinuousEALightsWFlowDispatchSolution extends TimerBasedSolution
 	private CrossoverKind[] xoKinds;			//the set of crossover methods to use.
 	private double vmProb;						//the mutation probability.
 	private double mStrength;					//the standard deviation for gaussian mutation.
+	private boolean commonRandomNumbers;		//whether the fitness function uses common random numbers.
+	private int numWorkers;						//the number of threads used to evaluate offspring.
+	private int raceMinSamples;					//the number of samples before offspring can be eliminated, 0 if not racing.
+	private int numIslands;						//the number of island populations, 1 for a single population.
+	private int migrationInterval;				//the number of generations between migrations between islands.
+	private int numMigrants;					//the number of chromosomes sent to each destination island per migration.
+	private MigrationTopology topology;			//the islands each island sends migrants to.
 
 	private boolean initialised;	//whether this has been initialised yet.
 	
@@ -66,6 +75,13 @@ public class ContinuousEALightsWFlowDispatchSolution extends TimerBasedSolution
 		xoKinds = new CrossoverKind[]{CrossoverKind.BLX_A};
 		vmProb = 1.0;
 		mStrength = 0.05;
+		commonRandomNumbers = false;
+		numWorkers = 1;
+		raceMinSamples = 0;
+		numIslands = 1;
+		migrationInterval = 10;
+		numMigrants = 1;
+		topology = MigrationTopology.RING;
 
 		initialised = false;
 	}
@@ -270,6 +286,112 @@ public class ContinuousEALightsWFlowDispatchSolution extends TimerBasedSolution
 		}
 	}
 
+	/**
+	 * Set whether the fitness function uses common random numbers,
+	 * so that the candidates compared in each generation are simulated with the same random values.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	commonRandomNumbers	whether to use common random numbers.
+	 * @return	this object.
+	 * @throws	IllegalStateException		if already initialised.
+	 */
+	public ContinuousEALightsWFlowDispatchSolution setCommonRandomNumbers(boolean commonRandomNumbers) {
+		if (!initialised) {
+			this.commonRandomNumbers = commonRandomNumbers;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Solution already initialised");
+		}
+	}
+
+	/**
+	 * Set the number of samples before offspring can be eliminated by racing.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	raceMinSamples	the number of samples before offspring can be eliminated,
+	 *							0 to fill every fitness bucket.
+	 * @return	this object.
+	 * @throws	IllegalStateException		if already initialised.
+	 * @throws	IllegalArgumentException	if raceMinSamples is negative or 1.
+	 * @see	RollingEvolutionaryAlgorithm
+	 */
+	public ContinuousEALightsWFlowDispatchSolution setRacingParams(int raceMinSamples) {
+		if (!initialised) {
+			if (raceMinSamples < 0 || raceMinSamples == 1) {
+				throw new IllegalArgumentException(String.format("At least two samples required before racing: %d",raceMinSamples));
+			}
+			this.raceMinSamples = raceMinSamples;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Solution already initialised");
+		}
+	}
+
+	/**
+	 * Set the island model parameters,
+	 * evolving several populations on their own threads,
+	 * each with the population size and number of workers of a single population,
+	 * and exchanging their best chromosomes periodically.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	numIslands			the number of islands,
+	 *								1 for a single population.
+	 * @param	migrationInterval	the number of generations between migrations,
+	 *								0 for isolated islands.
+	 * @param	numMigrants			the number of chromosomes sent to each destination per migration.
+	 * @param	topology			the islands each island sends migrants to.
+	 * @return	this object.
+	 * @throws	IllegalStateException		if already initialised.
+	 * @throws	IllegalArgumentException	if numIslands is non-positive or the migration parameters are negative.
+	 * @see	IslandEvolutionaryAlgorithm
+	 */
+	public ContinuousEALightsWFlowDispatchSolution setIslandParams(int numIslands, int migrationInterval, int numMigrants, 
+		MigrationTopology topology) {
+		if (!initialised) {
+			if (numIslands <= 0) {
+				throw new IllegalArgumentException(String.format("Positive number of islands required: %d",numIslands));
+			}
+			if (migrationInterval < 0 || numMigrants < 0) {
+				throw new IllegalArgumentException(String.format("Non-negative migration parameters required: %d %d",migrationInterval,
+					numMigrants));
+			}
+			this.numIslands = numIslands;
+			this.migrationInterval = migrationInterval;
+			this.numMigrants = numMigrants;
+			this.topology = topology;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Solution already initialised");
+		}
+	}
+
+	/**
+	 * Set the number of threads used to evaluate offspring,
+	 * each with its own copy of the fitness function.
+	 * Can only be used before initialisation.
+	 *
+	 * @param	numWorkers	the number of worker threads.
+	 * @return	this object.
+	 * @throws	IllegalStateException		if already initialised.
+	 * @throws	IllegalArgumentException	if numWorkers is non-positive.
+	 * @see	RollingEvolutionaryAlgorithm
+	 */
+	public ContinuousEALightsWFlowDispatchSolution setNumWorkers(int numWorkers) {
+		if (!initialised) {
+			if (numWorkers <= 0) {
+				throw new IllegalArgumentException(String.format("Number of workers must be positive: %d",numWorkers));
+			}
+			this.numWorkers = numWorkers;
+			return this;
+		}
+		else {
+			throw new IllegalStateException("Solution already initialised");
+		}
+	}
+
 	/**
 	 * Initialise this object for use.
 	 * Can only be used once.
@@ -310,31 +432,34 @@ public class ContinuousEALightsWFlowDispatchSolution extends TimerBasedSolution
 				}
 			}
 
-			GenotypeBuilder<FloatingArrayGenotype> gBuilder = new UnboundedFloatingArrayBuilder(genomeLength,averageValues);
-			LightsWFlowDispatchFitnessFunction ff = new LightsWFlowDispatchFitnessFunction(numTrucks,numShovels,numCrusherLocs,
-				numCrushers,numRoads,emptyTimesMean,emptyTimesSD,fillTimesMean,fillTimesSD,roadTravelTimesMean,roadTravelTimesSD,fullSlowdown,
-				isOneWay,numRoutes,routeRoads,routeDirections,routeLengths,routeShovels,routeCrushers,tgen,flow,scheduleLengths,lightSchedule)
-				.setNumSamples(1)
-				.setLookAhead(lookAhead)
-				.setFitnessIndex(fitnessIndex)
-				.initialise();
-			boolean maximising = ff.isMaximising();
-			SelectionOperator<FloatingArrayGenotype,RollingChromosome<FloatingArrayGenotype>> selectorReproduction = new 
-				FitnessProportionateReproductionOperator<>(maximising);
-			SelectionOperator<FloatingArrayGenotype,RollingChromosome<FloatingArrayGenotype>> selectorSurvival = new 
-				// KTournamentSelectionOperator<>(maximising,2);
-				RankedSurvivalOperator<>(maximising);
-			GeneticOperator<FloatingArrayGenotype> operator = new UnboundedFloatingArrayOperator(genomeLength,maximising)
-				.setXOParams(xoProb,xoKinds)
-				.setMutationParams(vmProb,mStrength)
-				.setAllowDuplicateOffspring(allowDuplicateOffspring)
-				.initialise();
-			EvolutionaryAlgorithm<FloatingArrayGenotype> ea = new RollingEvolutionaryAlgorithm<>(gBuilder,ff,selectorReproduction,
-				selectorSurvival,operator)
-				.setStrategyParams(popSize,numOffspring,elitism,allowSurvivors)
-				.setSamplingParams(bucketSize,resampleRate,resampleSize)
-				.setTerminationParams(maxGen,conCutoff,improvement)
-				.initialise();
+			final GenotypeBuilder<FloatingArrayGenotype> gBuilder = new UnboundedFloatingArrayBuilder(genomeLength,averageValues);
+			final LightsWFlowDispatchFitnessFunction ff = newFitnessFunction(lookAhead,scheduleLengths);
+			final double workerLookAhead = lookAhead;
+			final int[] workerScheduleLengths = scheduleLengths;
+			final FitnessFunctionFactory<FloatingArrayGenotype> ffFactory = new FitnessFunctionFactory<FloatingArrayGenotype>() {
+				public FitnessFunction<FloatingArrayGenotype> newFitnessFunction() {
+					return ContinuousEALightsWFlowDispatchSolution.this.newFitnessFunction(workerLookAhead,workerScheduleLengths);
+				}
+
+				public void synchronise(FitnessFunction<FloatingArrayGenotype> copy) {
+					((LightsWFlowDispatchFitnessFunction) copy).copyStoredState(ff);
+				}
+			};
+			final int islandGenomeLength = genomeLength;
+			EvolutionaryAlgorithm<FloatingArrayGenotype> ea;
+			if (numIslands > 1) {
+				IslandFactory<FloatingArrayGenotype> islandFactory = new IslandFactory<FloatingArrayGenotype>() {
+					public RollingEvolutionaryAlgorithm<FloatingArrayGenotype> newIsland(FitnessFunction<FloatingArrayGenotype> islandFF) {
+						return newEvolutionaryAlgorithm(gBuilder,islandFF,ffFactory,islandGenomeLength);
+					}
+				};
+				ea = new IslandEvolutionaryAlgorithm<>(ff,ffFactory,islandFactory,numIslands)
+					.setMigrationParams(migrationInterval,numMigrants,topology)
+					.initialise();
+			}
+			else {
+				ea = newEvolutionaryAlgorithm(gBuilder,ff,ffFactory,genomeLength).initialise();
+			}
 			return new ContinuousEALightsWFlowDispatchController(numTrucks,numCrusherLocs,numShovels,numRoutes,routeCrushers,routeShovels,
 				numOneWay,lightIndexes,flow,initialCrushers,updateInterval,scheduleLengths,ff,ea);
 		}
@@ -343,6 +468,56 @@ public class ContinuousEALightsWFlowDispatchSolution extends TimerBasedSolution
 		}
 	}
 
+	/**
+	 * Create an evolutionary algorithm for light schedules,
+	 * with its own operators.
+	 *
+	 * @param	gBuilder		the random genotype generator.
+	 * @param	eaff			the fitness function.
+	 * @param	ffFactory		the factory for the fitness functions of additional workers.
+	 * @param	genomeLength	the total length of the light schedules.
+	 * @return	an uninitialised algorithm.
+	 */
+	private RollingEvolutionaryAlgorithm<FloatingArrayGenotype> newEvolutionaryAlgorithm(GenotypeBuilder<FloatingArrayGenotype> gBuilder, 
+		FitnessFunction<FloatingArrayGenotype> eaff, FitnessFunctionFactory<FloatingArrayGenotype> ffFactory, int genomeLength) {
+		boolean maximising = eaff.isMaximising();
+		SelectionOperator<FloatingArrayGenotype,RollingChromosome<FloatingArrayGenotype>> selectorReproduction = new 
+			FitnessProportionateReproductionOperator<>(maximising);
+		SelectionOperator<FloatingArrayGenotype,RollingChromosome<FloatingArrayGenotype>> selectorSurvival = new 
+			// KTournamentSelectionOperator<>(maximising,2);
+			RankedSurvivalOperator<>(maximising);
+		GeneticOperator<FloatingArrayGenotype> operator = new UnboundedFloatingArrayOperator(genomeLength,maximising)
+			.setXOParams(xoProb,xoKinds)
+			.setMutationParams(vmProb,mStrength)
+			.setAllowDuplicateOffspring(allowDuplicateOffspring)
+			.initialise();
+		return new RollingEvolutionaryAlgorithm<>(gBuilder,eaff,selectorReproduction,selectorSurvival,operator)
+			.setStrategyParams(popSize,numOffspring,elitism,allowSurvivors)
+			.setSamplingParams(bucketSize,resampleRate,resampleSize)
+			.setTerminationParams(maxGen,conCutoff,improvement)
+			.setParallelParams(ffFactory,numWorkers)
+			.setRacingParams(raceMinSamples);
+	}
+
+	/**
+	 * Create a fitness function for evaluating light schedules.
+	 *
+	 * @param	lookAhead		the initial time horizon.
+	 * @param	scheduleLengths	the number of genes per traffic light.
+	 * @return	an initialised fitness function.
+	 */
+	private LightsWFlowDispatchFitnessFunction newFitnessFunction(double lookAhead, int[] scheduleLengths) {
+		LightsWFlowDispatchFitnessFunction ff = new LightsWFlowDispatchFitnessFunction(numTrucks,numShovels,numCrusherLocs,
+			numCrushers,numRoads,emptyTimesMean,emptyTimesSD,fillTimesMean,fillTimesSD,roadTravelTimesMean,roadTravelTimesSD,fullSlowdown,
+			isOneWay,numRoutes,routeRoads,routeDirections,routeLengths,routeShovels,routeCrushers,tgen,flow,scheduleLengths,lightSchedule)
+			.setNumSamples(1)
+			.setLookAhead(lookAhead)
+			.setFitnessIndex(fitnessIndex)
+			.initialise();
+		ff.setCommonRandomNumbers(commonRandomNumbers);
+		return ff;
+	}
+
 	public String getSolutionName() {
 		return "EA light scheduling w/ flow dispatch";
 	}
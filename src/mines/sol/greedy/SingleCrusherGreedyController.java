@@ -62,6 +62,7 @@ public class SingleCrusherGreedyController extends TimerBasedController {
 				ready();
 			}
 			double total = 0;
+			setScenario(0,0);
 			for (int i=0; i<numSamples; i++) {
 				reReady();
 				dispatched = false;
@@ -176,6 +177,16 @@ public class SingleCrusherGreedyController extends TimerBasedController {
 		return currentRoute[tid];
 	}
 
+	/**
+	 * Set whether the forward simulations use common random numbers,
+	 * so that every candidate route in a decision is estimated with the same random values.
+	 *
+	 * @param	commonRandomNumbers	whether to use common random numbers.
+	 */
+	public void setCommonRandomNumbers(boolean commonRandomNumbers) {
+		ff.setCommonRandomNumbers(commonRandomNumbers);
+	}
+
 	/**
 	 * Get the index of the minimum value in an array.
 	 *
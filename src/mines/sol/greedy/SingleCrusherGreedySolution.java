@@ -14,6 +14,8 @@ public class SingleCrusherGreedySolution extends TimerBasedSolution {
 	private HeuristicKind hKind;	//the heuristic metric.
 	private boolean allGreedy;		//whether to use greedy rules for light schedules.
 
+	private boolean commonRandomNumbers;	//whether forward simulations use common random numbers.
+
 	/**
 	 * Solution constructor.
 	 *
@@ -35,6 +37,18 @@ public class SingleCrusherGreedySolution extends TimerBasedSolution {
 		this.numSamples = numSamples;
 		this.hKind = hKind;
 		this.allGreedy = allGreedy;
+		commonRandomNumbers = false;
+	}
+
+	/**
+	 * Set whether the forward simulations of each decision use common random numbers.
+	 *
+	 * @param	commonRandomNumbers	whether to use common random numbers.
+	 * @return	this object.
+	 */
+	public SingleCrusherGreedySolution setCommonRandomNumbers(boolean commonRandomNumbers) {
+		this.commonRandomNumbers = commonRandomNumbers;
+		return this;
 	}
 
 	public TimerBasedController getController() {
@@ -43,16 +57,22 @@ public class SingleCrusherGreedySolution extends TimerBasedSolution {
 			case MTSWT:
 			case MSWT:
 			case MTTWT1: {
-				return new SingleCrusherGreedyController(numTrucks,numShovels,numCrusherLocs,numCrushers,numRoads,emptyTimesMean,
-					emptyTimesSD,fillTimesMean,fillTimesSD,roadTravelTimesMean,roadTravelTimesSD,fullSlowdown,isOneWay,numRoutes,routeRoads,
-					routeDirections,routeLengths,routeShovels,routeCrushers,tgen,numSamples,hKind,numOneWay,lightIndexes,lightSchedule);
+				SingleCrusherGreedyController con = new SingleCrusherGreedyController(numTrucks,numShovels,numCrusherLocs,numCrushers,
+					numRoads,emptyTimesMean,emptyTimesSD,fillTimesMean,fillTimesSD,roadTravelTimesMean,roadTravelTimesSD,fullSlowdown,
+					isOneWay,numRoutes,routeRoads,routeDirections,routeLengths,routeShovels,routeCrushers,tgen,numSamples,hKind,numOneWay,
+					lightIndexes,lightSchedule);
+				con.setCommonRandomNumbers(commonRandomNumbers);
+				return con;
 			}
 			case MTRT:
 			case MTCT:
 			case MTTWT2: {
-				return new SingleCrusherTwoStageGreedyController(numTrucks,numShovels,numCrusherLocs,numCrushers,numRoads,emptyTimesMean,
-					emptyTimesSD,fillTimesMean,fillTimesSD,roadTravelTimesMean,roadTravelTimesSD,fullSlowdown,isOneWay,numRoutes,routeRoads,
-					routeDirections,routeLengths,routeShovels,routeCrushers,tgen,numSamples,hKind,numOneWay,lightIndexes,lightSchedule);
+				SingleCrusherTwoStageGreedyController con = new SingleCrusherTwoStageGreedyController(numTrucks,numShovels,
+					numCrusherLocs,numCrushers,numRoads,emptyTimesMean,emptyTimesSD,fillTimesMean,fillTimesSD,roadTravelTimesMean,
+					roadTravelTimesSD,fullSlowdown,isOneWay,numRoutes,routeRoads,routeDirections,routeLengths,routeShovels,routeCrushers,
+					tgen,numSamples,hKind,numOneWay,lightIndexes,lightSchedule);
+				con.setCommonRandomNumbers(commonRandomNumbers);
+				return con;
 			}
 			default: {
 				throw new IllegalStateException(String.format("Unsupported heuristic kind %s",hKind));
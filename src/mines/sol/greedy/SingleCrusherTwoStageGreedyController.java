@@ -62,6 +62,7 @@ public class SingleCrusherTwoStageGreedyController extends TimerBasedController
 				ready();
 			}
 			double total = 0;
+			setScenario(0,0);
 			for (int i=0; i<numSamples; i++) {
 				reReady();
 				dispatched = 0;
@@ -172,6 +173,16 @@ public class SingleCrusherTwoStageGreedyController extends TimerBasedController
 		return currentRoute[tid];
 	}
 
+	/**
+	 * Set whether the forward simulations use common random numbers,
+	 * so that every candidate route in a decision is estimated with the same random values.
+	 *
+	 * @param	commonRandomNumbers	whether to use common random numbers.
+	 */
+	public void setCommonRandomNumbers(boolean commonRandomNumbers) {
+		ff.setCommonRandomNumbers(commonRandomNumbers);
+	}
+
 	/**
 	 * Get the index of the minimum value in an array.
 	 *
@@ -0,0 +1,113 @@
+package mines.util;
+
+import java.util.Random;
+
+/**
+ * An alias table for sampling elements with probability proportional to their weights in O(1) time,
+ * built in O(n) time by Vose's method.
+ */
+public class AliasTable {
+
+	private double[] prob;	//the probability of keeping each column rather than taking its alias.
+	private int[] alias;	//the alias of each column.
+	private int size;		//the number of elements.
+
+	private double[] scaled;	//working array of scaled weights.
+	private int[] small;		//working stack of columns below the average weight.
+	private int[] large;		//working stack of columns at or above the average weight.
+
+	/**
+	 * Create an empty table.
+	 */
+	public AliasTable() {
+		prob = new double[0];
+		alias = new int[0];
+		scaled = new double[0];
+		small = new int[0];
+		large = new int[0];
+		size = 0;
+	}
+
+	/**
+	 * Replace all elements with new weights.
+	 *
+	 * @param	weights	the weights,
+	 *					of which the first size are used.
+	 * @param	size	the number of elements.
+	 * @throws	IllegalArgumentException if any weight is negative,
+	 *			or the total weight is not positive.
+	 */
+	public void build(double[] weights, int size) {
+		if (prob.length < size) {
+			prob = new double[size];
+			alias = new int[size];
+			scaled = new double[size];
+			small = new int[size];
+			large = new int[size];
+		}
+		this.size = size;
+		double total = 0;
+		for (int i=0; i<size; i++) {
+			if (weights[i] < 0) {
+				throw new IllegalArgumentException(String.format("Non-negative weight required: %f",weights[i]));
+			}
+			total += weights[i];
+		}
+		if (!(total > 0)) {
+			throw new IllegalArgumentException(String.format("Positive total weight required: %f",total));
+		}
+		int numSmall = 0;
+		int numLarge = 0;
+		for (int i=0; i<size; i++) {
+			scaled[i] = weights[i] * size / total;
+			if (scaled[i] < 1) {
+				small[numSmall++] = i;
+			}
+			else {
+				large[numLarge++] = i;
+			}
+		}
+		while (numSmall > 0 && numLarge > 0) {
+			int s = small[--numSmall];
+			int l = large[numLarge - 1];
+			prob[s] = scaled[s];
+			alias[s] = l;
+			scaled[l] -= 1 - scaled[s];
+			if (scaled[l] < 1) {
+				numLarge--;
+				small[numSmall++] = l;
+			}
+		}
+		while (numLarge > 0) {
+			int l = large[--numLarge];
+			prob[l] = 1;
+			alias[l] = l;
+		}
+		while (numSmall > 0) {
+			int s = small[--numSmall];
+			prob[s] = 1;
+			alias[s] = s;
+		}
+	}
+
+	/**
+	 * Sample an element with probability proportional to its weight.
+	 *
+	 * @param	rng	the RNG.
+	 * @return	the element.
+	 */
+	public int sample(Random rng) {
+		int column = rng.nextInt(size);
+		return (rng.nextDouble() < prob[column] ? column : alias[column]);
+	}
+
+	/**
+	 * Get the number of elements.
+	 *
+	 * @return	the size.
+	 */
+	public int size() {
+		return size;
+	}
+
+}
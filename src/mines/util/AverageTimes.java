@@ -20,4 +20,25 @@ public final class AverageTimes implements TimeDistribution {
 		return mean;
 	}
 
+	/**
+	 * Returns this distribution,
+	 * as no random values are used.
+	 *
+	 * @return	this object.
+	 */
+	public AverageTimes split() {
+		return this;
+	}
+
+	/**
+	 * Returns this distribution,
+	 * as no random values are used.
+	 *
+	 * @param	rng	unused.
+	 * @return	this object.
+	 */
+	public AverageTimes withStream(RandomStream rng) {
+		return this;
+	}
+
 }
\ No newline at end of file
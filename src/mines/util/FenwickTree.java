@@ -0,0 +1,126 @@
+package mines.util;
+
+/**
+ * A Fenwick tree of non-negative weights,
+ * supporting weight updates and finding the element containing a point of the cumulative weight in O(log n) time.
+ */
+public class FenwickTree {
+
+	private double[] tree;		//the partial sums, indexed from 1.
+	private double[] values;	//the weight of each element.
+	private int size;			//the number of elements.
+	private int topBit;			//the highest power of 2 not greater than the size.
+
+	/**
+	 * Create an empty tree.
+	 */
+	public FenwickTree() {
+		tree = new double[1];
+		values = new double[0];
+		size = 0;
+		topBit = 0;
+	}
+
+	/**
+	 * Replace all elements with new weights in O(n) time.
+	 *
+	 * @param	weights	the weights,
+	 *					of which the first size are used.
+	 * @param	size	the number of elements.
+	 * @throws	IllegalArgumentException if any weight is negative.
+	 */
+	public void build(double[] weights, int size) {
+		if (values.length < size) {
+			tree = new double[size + 1];
+			values = new double[size];
+		}
+		this.size = size;
+		topBit = (size > 0 ? Integer.highestOneBit(size) : 0);
+		for (int i=0; i<size; i++) {
+			if (weights[i] < 0) {
+				throw new IllegalArgumentException(String.format("Non-negative weight required: %f",weights[i]));
+			}
+			values[i] = weights[i];
+			tree[i + 1] = weights[i];
+		}
+		for (int i=1; i<=size; i++) {
+			int parent = i + (i & -i);
+			if (parent <= size) {
+				tree[parent] += tree[i];
+			}
+		}
+	}
+
+	/**
+	 * Set the weight of an element in O(log n) time.
+	 *
+	 * @param	index	the element.
+	 * @param	weight	the new weight.
+	 * @throws	IllegalArgumentException if the weight is negative.
+	 */
+	public void set(int index, double weight) {
+		if (weight < 0) {
+			throw new IllegalArgumentException(String.format("Non-negative weight required: %f",weight));
+		}
+		double diff = weight - values[index];
+		values[index] = weight;
+		for (int i=index + 1; i<=size; i+=(i & -i)) {
+			tree[i] += diff;
+		}
+	}
+
+	/**
+	 * Get the weight of an element.
+	 *
+	 * @param	index	the element.
+	 * @return	the weight.
+	 */
+	public double get(int index) {
+		return values[index];
+	}
+
+	/**
+	 * Get the total weight of all elements in O(log n) time.
+	 *
+	 * @return	the total weight.
+	 */
+	public double getTotal() {
+		double total = 0;
+		for (int i=size; i>0; i-=(i & -i)) {
+			total += tree[i];
+		}
+		return total;
+	}
+
+	/**
+	 * Find the element containing a point of the cumulative weight in O(log n) time,
+	 * i.e. the first element whose cumulative weight exceeds the point,
+	 * so elements of zero weight are never found.
+	 *
+	 * @param	point	the point,
+	 *					between 0 and the total weight.
+	 * @return	the element,
+	 *			or the size if the point is not less than the total weight.
+	 */
+	public int find(double point) {
+		int index = 0;
+		for (int step=topBit; step>0; step>>=1) {
+			int next = index + step;
+			if (next <= size && tree[next] <= point) {
+				index = next;
+				point -= tree[next];
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Get the number of elements.
+	 *
+	 * @return	the size.
+	 */
+	public int size() {
+		return size;
+	}
+
+}
@@ -0,0 +1,64 @@
+package mines.util;
+
+/**
+ * 64-bit fingerprints of primitive arrays,
+ * computed as a polynomial over the elements followed by the SplitMix64 finaliser,
+ * so that arrays with equal elements always have equal fingerprints,
+ * and distinct arrays collide with probability close to 2^-64.
+ */
+public class Fingerprint {
+
+	private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;	//odd multiplier of the polynomial.
+
+	/**
+	 * Get the fingerprint of an integer array.
+	 *
+	 * @param	array	the array.
+	 * @return	the fingerprint.
+	 */
+	public static long of(int[] array) {
+		long h = array.length;
+		for (int i=0; i<array.length; i++) {
+			h = (h + array[i]) * MULTIPLIER;
+		}
+		return mix(h);
+	}
+
+	/**
+	 * Get the fingerprint of a real-valued array,
+	 * based on the bits of each element as compared by Arrays.equals.
+	 *
+	 * @param	array	the array.
+	 * @return	the fingerprint.
+	 */
+	public static long of(double[] array) {
+		long h = array.length;
+		for (int i=0; i<array.length; i++) {
+			h = (h + Double.doubleToLongBits(array[i])) * MULTIPLIER;
+		}
+		return mix(h);
+	}
+
+	/**
+	 * Get a 32-bit hash code from a fingerprint.
+	 *
+	 * @param	fingerprint	the fingerprint.
+	 * @return	the hash code.
+	 */
+	public static int toHashCode(long fingerprint) {
+		return (int) (fingerprint ^ (fingerprint >>> 32));
+	}
+
+	/**
+	 * Scramble the bits of a value with the SplitMix64 finaliser.
+	 *
+	 * @param	h	the value.
+	 * @return	the scrambled value.
+	 */
+	private static long mix(long h) {
+		h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+		h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+		return h ^ (h >>> 31);
+	}
+
+}
@@ -155,6 +155,32 @@ public class IntQueue {
 		this.size += c.size;
 	}
 
+	/**
+	 * Copy the elements of the queue into an array, in queue order.
+	 *
+	 * @param	dest	the destination array.
+	 * @param	offset	the starting index in the destination array.
+	 */
+	public void toArray(int[] dest, int offset) {
+		int first = Math.min(size,array.length - front);
+		System.arraycopy(array,front,dest,offset,first);
+		System.arraycopy(array,0,dest,offset + first,size - first);
+	}
+
+	/**
+	 * Replace the elements of the queue with values from an array.
+	 *
+	 * @param	src		the source array.
+	 * @param	offset	the starting index in the source array.
+	 * @param	length	the number of elements.
+	 */
+	public void setAll(int[] src, int offset, int length) {
+		clear();
+		ensureSize(length);
+		System.arraycopy(src,offset,array,0,length);
+		size = length;
+	}
+
 	/**
 	 * Get the number of elements in the queue.
 	 *
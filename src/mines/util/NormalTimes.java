@@ -1,17 +1,29 @@
 package mines.util;
 
-import java.util.concurrent.*;
-
 /**
  * Normal distribution.
  * Uses the Box-Muller method.
  */
 public class NormalTimes implements TimeDistribution {
 
+	private RandomStream rng;	//the random stream.
 	private double z;
 	private boolean generate;
 
+	/**
+	 * Create a distribution using a stream split from the master stream.
+	 */
 	public NormalTimes() {
+		this(new RandomStream());
+	}
+
+	/**
+	 * Create a distribution using a given stream.
+	 *
+	 * @param	rng	the random stream.
+	 */
+	public NormalTimes(RandomStream rng) {
+		this.rng = rng;
 		generate = false;
 	}
 
@@ -31,8 +43,8 @@ public class NormalTimes implements TimeDistribution {
 		}
 		generate = !generate;
 		if (generate) {
-			double u1 = ThreadLocalRandom.current().nextDouble();
-			double u2 = ThreadLocalRandom.current().nextDouble();
+			double u1 = rng.nextDouble();
+			double u2 = rng.nextDouble();
 			double z0 = Math.sqrt(-2 * Math.log(u1)) * Math.cos(2 * Math.PI * u2);
 			z = Math.sqrt(-2 * Math.log(u1)) * Math.sin(2 * Math.PI * u2);
 			return Math.max(0,z0 * stdev + mean);
@@ -42,4 +54,12 @@ public class NormalTimes implements TimeDistribution {
 		}
 	}
 
+	public NormalTimes split() {
+		return new NormalTimes(rng.split());
+	}
+
+	public NormalTimes withStream(RandomStream rng) {
+		return new NormalTimes(rng);
+	}
+
 }
\ No newline at end of file
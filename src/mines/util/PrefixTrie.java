@@ -0,0 +1,289 @@
+package mines.util;
+
+import java.util.Collection;
+import java.util.HashMap;
+
+/**
+ * A bounded cache of values keyed by a 64-bit key and a prefix of an integer sequence,
+ * stored as a trie for each key so that the value for the longest cached prefix of a sequence can be found in one pass.
+ * When the number of values exceeds the capacity,
+ * the least recently used value is evicted,
+ * and evicted values are returned so that they can be reused.
+ * Sequence elements must lie between 0 and the alphabet size - 1.
+ *
+ * @param	<V>	the type of the cached values.
+ */
+public class PrefixTrie<V> {
+
+	/**
+	 * A node of a trie,
+	 * linked into the usage order while it holds a value.
+	 */
+	private static class Node<V> {
+
+		private Node<V> parent;			//the parent node, null for a root.
+		private long key;				//the key of the trie containing this node.
+		private int symbol;				//the last element of the prefix of this node.
+		private Node<V>[] children;		//the child nodes indexed by element, null until a child is added.
+		private int numChildren;		//the number of child nodes.
+		private V value;				//the cached value, null if none.
+		private Node<V> newer;			//the next more recently used node with a value.
+		private Node<V> older;			//the next less recently used node with a value.
+
+		/**
+		 * Node constructor.
+		 *
+		 * @param	parent	the parent node, null for a root.
+		 * @param	key		the key of the trie.
+		 * @param	symbol	the last element of the prefix.
+		 */
+		public Node(Node<V> parent, long key, int symbol) {
+			this.parent = parent;
+			this.key = key;
+			this.symbol = symbol;
+		}
+	}
+
+	private int alphabetSize;	//the number of distinct sequence elements.
+	private int capacity;		//the maximum number of cached values.
+
+	private HashMap<Long,Node<V>> roots;	//the root of the trie for each key.
+	private Node<V> newest;					//the most recently used node with a value.
+	private Node<V> oldest;					//the least recently used node with a value.
+	private int size;						//the number of cached values.
+	private int lastDepth;					//the prefix length of the value found by the last search.
+
+	/**
+	 * Cache constructor.
+	 *
+	 * @param	alphabetSize	the number of distinct sequence elements.
+	 * @param	capacity		the maximum number of cached values.
+	 * @throws	IllegalArgumentException if either argument is non-positive.
+	 */
+	public PrefixTrie(int alphabetSize, int capacity) {
+		if (alphabetSize <= 0 || capacity <= 0) {
+			throw new IllegalArgumentException(String.format("Positive alphabet size and capacity required: %d %d",alphabetSize,capacity));
+		}
+		this.alphabetSize = alphabetSize;
+		this.capacity = capacity;
+		roots = new HashMap<>();
+		clear();
+	}
+
+	/**
+	 * Find the value cached for the longest prefix of a sequence,
+	 * and mark it as most recently used.
+	 *
+	 * @param	key			the key.
+	 * @param	sequence	the sequence.
+	 * @param	length		the maximum prefix length to consider.
+	 * @return	the value,
+	 *			or null if no prefix is cached.
+	 * @see	getLastDepth()
+	 */
+	public V findDeepest(long key, int[] sequence, int length) {
+		Node<V> node = roots.get(key);
+		Node<V> found = null;
+		lastDepth = -1;
+		int depth = 0;
+		while (node != null) {
+			if (node.value != null) {
+				found = node;
+				lastDepth = depth;
+			}
+			if (depth == length || node.children == null) {
+				break;
+			}
+			node = node.children[check(sequence[depth])];
+			depth++;
+		}
+		if (found == null) {
+			return null;
+		}
+		touch(found);
+		return found.value;
+	}
+
+	/**
+	 * Get the prefix length of the value found by the last search.
+	 *
+	 * @return	the prefix length,
+	 *			or -1 if no value was found.
+	 */
+	public int getLastDepth() {
+		return lastDepth;
+	}
+
+	/**
+	 * Cache a value for a prefix of a sequence,
+	 * unless a value is already cached for the prefix,
+	 * evicting the least recently used value if the capacity is exceeded.
+	 *
+	 * @param	key			the key.
+	 * @param	sequence	the sequence.
+	 * @param	depth		the prefix length.
+	 * @param	value		the value.
+	 * @return	a value no longer held by the cache,
+	 *			either the given value if the prefix was already cached or the evicted value,
+	 *			or null if none.
+	 */
+	public V put(long key, int[] sequence, int depth, V value) {
+		Node<V> node = roots.get(key);
+		if (node == null) {
+			node = new Node<>(null,key,-1);
+			roots.put(key,node);
+		}
+		for (int i=0; i<depth; i++) {
+			int symbol = check(sequence[i]);
+			if (node.children == null) {
+				//generic arrays cannot be created, but the array only ever holds nodes of this trie.
+				@SuppressWarnings("unchecked")
+				Node<V>[] children = (Node<V>[]) new Node<?>[alphabetSize];
+				node.children = children;
+			}
+			Node<V> child = node.children[symbol];
+			if (child == null) {
+				child = new Node<>(node,key,symbol);
+				node.children[symbol] = child;
+				node.numChildren++;
+			}
+			node = child;
+		}
+		if (node.value != null) {
+			touch(node);
+			return value;
+		}
+		node.value = value;
+		link(node);
+		size++;
+		if (size > capacity) {
+			Node<V> evicted = oldest;
+			V out = evicted.value;
+			unlink(evicted);
+			evicted.value = null;
+			size--;
+			prune(evicted);
+			return out;
+		}
+		return null;
+	}
+
+	/**
+	 * Remove all values,
+	 * adding them to a collection so that they can be reused.
+	 *
+	 * @param	removed	the collection to add the values to.
+	 */
+	public void clear(Collection<? super V> removed) {
+		for (Node<V> node=newest; node!=null; node=node.older) {
+			removed.add(node.value);
+		}
+		clear();
+	}
+
+	/**
+	 * Remove all values.
+	 */
+	public void clear() {
+		roots.clear();
+		newest = null;
+		oldest = null;
+		size = 0;
+		lastDepth = -1;
+	}
+
+	/**
+	 * Get the number of cached values.
+	 *
+	 * @return	the number of values.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Check that a sequence element is in the alphabet.
+	 *
+	 * @param	symbol	the element.
+	 * @return	the element.
+	 * @throws	IllegalArgumentException if the element is out of range.
+	 */
+	private int check(int symbol) {
+		if (symbol < 0 || symbol >= alphabetSize) {
+			throw new IllegalArgumentException(String.format("Sequence element out of range: %d",symbol));
+		}
+		return symbol;
+	}
+
+	/**
+	 * Mark a node with a value as most recently used.
+	 *
+	 * @param	node	the node.
+	 */
+	private void touch(Node<V> node) {
+		if (node != newest) {
+			unlink(node);
+			link(node);
+		}
+	}
+
+	/**
+	 * Add a node to the most recently used end of the usage order.
+	 *
+	 * @param	node	the node.
+	 */
+	private void link(Node<V> node) {
+		node.older = newest;
+		node.newer = null;
+		if (newest != null) {
+			newest.newer = node;
+		}
+		newest = node;
+		if (oldest == null) {
+			oldest = node;
+		}
+	}
+
+	/**
+	 * Remove a node from the usage order.
+	 *
+	 * @param	node	the node.
+	 */
+	private void unlink(Node<V> node) {
+		if (node.newer != null) {
+			node.newer.older = node.older;
+		}
+		else {
+			newest = node.older;
+		}
+		if (node.older != null) {
+			node.older.newer = node.newer;
+		}
+		else {
+			oldest = node.newer;
+		}
+		node.newer = null;
+		node.older = null;
+	}
+
+	/**
+	 * Remove a node without a value or children,
+	 * and any ancestors left without values or children.
+	 *
+	 * @param	node	the node.
+	 */
+	private void prune(Node<V> node) {
+		while (node != null && node.value == null && node.numChildren == 0) {
+			Node<V> parent = node.parent;
+			if (parent == null) {
+				roots.remove(node.key);
+			}
+			else {
+				parent.children[node.symbol] = null;
+				parent.numChildren--;
+			}
+			node = parent;
+		}
+	}
+
+}
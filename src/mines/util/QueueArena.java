@@ -0,0 +1,194 @@
+package mines.util;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A fixed number of bounded queues of primitive ints,
+ * stored as ring buffers in a single shared array.
+ * Each queue has the same capacity,
+ * rounded up to a power of two so that indexes wrap with a mask.
+ */
+public class QueueArena {
+
+	private int numQueues;	//the number of queues.
+	private int shift;		//log2 of the space reserved for each queue.
+	private int mask;		//the space reserved for each queue - 1.
+	private int capacity;	//the maximum number of elements in each queue.
+	private int[] data;		//the contents of each queue, with queue q starting at q << shift.
+	private int[] front;	//the offset of the first element of each queue.
+	private int[] size;		//the number of elements in each queue.
+
+	/**
+	 * Create a set of empty queues.
+	 *
+	 * @param	numQueues	the number of queues.
+	 * @param	capacity	the maximum number of elements in each queue.
+	 */
+	public QueueArena(int numQueues, int capacity) {
+		this.numQueues = numQueues;
+		this.capacity = capacity;
+		shift = 0;
+		while ((1 << shift) < capacity) {
+			shift++;
+		}
+		mask = (1 << shift) - 1;
+		data = new int[numQueues << shift];
+		front = new int[numQueues];
+		size = new int[numQueues];
+	}
+
+	/**
+	 * Get the number of queues.
+	 *
+	 * @return	the number of queues.
+	 */
+	public int getNumQueues() {
+		return numQueues;
+	}
+
+	/**
+	 * Append an element to the end of a queue.
+	 *
+	 * @param	q	the queue index.
+	 * @param	e	the element.
+	 * @throws	IllegalStateException if the queue is full.
+	 */
+	public void add(int q, int e) {
+		int s = size[q];
+		if (s == capacity) {
+			throw new IllegalStateException(String.format("Queue %d is full",q));
+		}
+		data[(q << shift) + ((front[q] + s) & mask)] = e;
+		size[q] = s + 1;
+	}
+
+	/**
+	 * Remove and return the first element in a queue.
+	 *
+	 * @param	q	the queue index.
+	 * @return	the front of the queue.
+	 * @throws	NoSuchElementException if the queue is empty.
+	 */
+	public int poll(int q) {
+		if (size[q] == 0) {
+			throw new NoSuchElementException(String.format("Queue %d is empty",q));
+		}
+		int f = front[q];
+		int out = data[(q << shift) + f];
+		front[q] = (f + 1) & mask;
+		size[q]--;
+		return out;
+	}
+
+	/**
+	 * Get whether a queue is empty.
+	 *
+	 * @param	q	the queue index.
+	 * @return	true if the size is 0,
+	 *			false otherwise.
+	 */
+	public boolean isEmpty(int q) {
+		return size[q] == 0;
+	}
+
+	/**
+	 * Get the number of elements in a queue.
+	 *
+	 * @param	q	the queue index.
+	 * @return	the size.
+	 */
+	public int size(int q) {
+		return size[q];
+	}
+
+	/**
+	 * Get an element from a queue.
+	 *
+	 * @param	q		the queue index.
+	 * @param	index	the index of the element.
+	 * @return	the element.
+	 * @throws	IndexOutOfBoundsException if the index is negative,
+	 *			or is greater than the size - 1.
+	 */
+	public int get(int q, int index) {
+		if (index >= 0 && index < size[q]) {
+			return data[(q << shift) + ((front[q] + index) & mask)];
+		}
+		else {
+			throw new IndexOutOfBoundsException(String.format("Index out of range: %d",index));
+		}
+	}
+
+	/**
+	 * Empty a queue.
+	 *
+	 * @param	q	the queue index.
+	 */
+	public void clear(int q) {
+		front[q] = 0;
+		size[q] = 0;
+	}
+
+	/**
+	 * Empty every queue.
+	 */
+	public void clear() {
+		for (int i=0; i<numQueues; i++) {
+			front[i] = 0;
+			size[i] = 0;
+		}
+	}
+
+	/**
+	 * Overwrite another set of queues with the same number of queues and capacity with the contents of these queues.
+	 * Only the occupied part of each queue is copied.
+	 *
+	 * @param	target	the queues to overwrite.
+	 */
+	public void copyInto(QueueArena target) {
+		for (int q=0; q<numQueues; q++) {
+			int s = size[q];
+			if (s > 0) {
+				int base = q << shift;
+				int first = Math.min(s,mask + 1 - front[q]);
+				System.arraycopy(data,base + front[q],target.data,base + front[q],first);
+				System.arraycopy(data,base,target.data,base,s - first);
+			}
+		}
+		System.arraycopy(front,0,target.front,0,numQueues);
+		System.arraycopy(size,0,target.size,0,numQueues);
+	}
+
+	/**
+	 * Copy the elements of a queue into an array, in queue order.
+	 *
+	 * @param	q		the queue index.
+	 * @param	dest	the destination array.
+	 * @param	offset	the starting index in the destination array.
+	 */
+	public void toArray(int q, int[] dest, int offset) {
+		int base = q << shift;
+		int first = Math.min(size[q],mask + 1 - front[q]);
+		System.arraycopy(data,base + front[q],dest,offset,first);
+		System.arraycopy(data,base,dest,offset + first,size[q] - first);
+	}
+
+	/**
+	 * Replace the elements of a queue with values from an array.
+	 *
+	 * @param	q		the queue index.
+	 * @param	src		the source array.
+	 * @param	offset	the starting index in the source array.
+	 * @param	length	the number of elements.
+	 * @throws	IllegalStateException if the length exceeds the capacity.
+	 */
+	public void setAll(int q, int[] src, int offset, int length) {
+		if (length > capacity) {
+			throw new IllegalStateException(String.format("Queue %d is full",q));
+		}
+		System.arraycopy(src,offset,data,q << shift,length);
+		front[q] = 0;
+		size[q] = length;
+	}
+
+}
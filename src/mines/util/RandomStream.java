@@ -0,0 +1,147 @@
+package mines.util;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * A splittable stream of random values.
+ * Streams created with the default constructor are split from a shared master stream,
+ * so once the master seed is set,
+ * every stream is reproducible provided streams are created in the same order.
+ * A thread can instead take its new streams from a thread master stream,
+ * so that the components it builds do not depend on the order in which threads create streams.
+ * Each stream is intended for use by a single component,
+ * and is not thread-safe.
+ */
+public class RandomStream extends Random {
+
+	private static final long serialVersionUID = 1L;	//the serialisation version.
+
+	private static SplittableRandom master = new SplittableRandom();	//the stream that new streams are split from.
+	private static final ThreadLocal<RandomStream> threadMaster = new ThreadLocal<>();	//the stream that new streams of each thread are split from, if set.
+
+	private SplittableRandom rng;	//the underlying generator.
+
+	/**
+	 * Create a stream split from the master stream.
+	 */
+	public RandomStream() {
+		this(splitMaster());
+	}
+
+	/**
+	 * Create a stream with a fixed seed.
+	 *
+	 * @param	seed	the seed.
+	 */
+	public RandomStream(long seed) {
+		this(new SplittableRandom(seed));
+	}
+
+	/**
+	 * Create a stream from a generator.
+	 *
+	 * @param	rng	the underlying generator.
+	 */
+	private RandomStream(SplittableRandom rng) {
+		super(0);
+		this.rng = rng;
+	}
+
+	/**
+	 * Reseed the master stream.
+	 * Should be used before any streams are created.
+	 *
+	 * @param	seed	the master seed.
+	 */
+	public static synchronized void setMasterSeed(long seed) {
+		master = new SplittableRandom(seed);
+	}
+
+	/**
+	 * Make every stream subsequently created or split by the current thread split from a thread master stream,
+	 * instead of from the master stream or the stream being split,
+	 * so that the streams depend only on the thread master stream.
+	 *
+	 * @param	stream	the thread master stream,
+	 *					or null to restore the master stream.
+	 */
+	public static void setThreadMaster(RandomStream stream) {
+		if (stream == null) {
+			threadMaster.remove();
+		}
+		else {
+			threadMaster.set(stream);
+		}
+	}
+
+	/**
+	 * Split a generator from the thread master stream if set,
+	 * or from the master stream otherwise.
+	 *
+	 * @return	a new generator.
+	 */
+	private static SplittableRandom splitMaster() {
+		RandomStream local = threadMaster.get();
+		if (local != null) {
+			return local.rng.split();
+		}
+		synchronized (RandomStream.class) {
+			return master.split();
+		}
+	}
+
+	/**
+	 * Combine a seed with a value to produce a new seed,
+	 * using the SplitMix64 finaliser,
+	 * so that seeds derived from similar values are unrelated.
+	 *
+	 * @param	seed	the seed.
+	 * @param	value	the value to combine with the seed.
+	 * @return	the combined seed.
+	 */
+	public static long mix(long seed, long value) {
+		long z = seed + (value + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Create a new stream that is independent of this stream,
+	 * advancing this stream,
+	 * or advancing the thread master stream instead if set.
+	 *
+	 * @return	a new RandomStream.
+	 * @see	setThreadMaster(RandomStream)
+	 */
+	public RandomStream split() {
+		RandomStream local = threadMaster.get();
+		return new RandomStream((local != null ? local : this).rng.split());
+	}
+
+	protected int next(int bits) {
+		return (int) (rng.nextLong() >>> (64 - bits));
+	}
+
+	public int nextInt() {
+		return rng.nextInt();
+	}
+
+	public int nextInt(int bound) {
+		return rng.nextInt(bound);
+	}
+
+	public long nextLong() {
+		return rng.nextLong();
+	}
+
+	public double nextDouble() {
+		return rng.nextDouble();
+	}
+
+	public boolean nextBoolean() {
+		return rng.nextBoolean();
+	}
+
+}
@@ -0,0 +1,32 @@
+package mines.util;
+
+/**
+ * Critical values of Student's t distribution,
+ * for confidence intervals and tests at the 95% two-sided or 97.5% one-sided level.
+ */
+public class StudentT {
+
+	/*
+	 * Upper 0.975 quantiles of Student's t distribution for 1 to 30 degrees of freedom.
+	 */
+	private static final double[] T_975 = new double[]{12.706,4.303,3.182,2.776,2.571,2.447,2.365,2.306,2.262,2.228,2.201,2.179,
+		2.160,2.145,2.131,2.120,2.110,2.101,2.093,2.086,2.080,2.074,2.069,2.064,2.060,2.056,2.052,2.048,2.045,2.042};
+	private static final double Z_975 = 1.960;	//upper 0.975 quantile of the standard normal distribution.
+
+	/**
+	 * Get the upper 0.975 quantile of Student's t distribution.
+	 * Fractional degrees of freedom are rounded down,
+	 * and the normal quantile is used for more than 30 degrees of freedom.
+	 *
+	 * @param	df	the degrees of freedom.
+	 * @return	the quantile.
+	 * @throws	IllegalArgumentException if df is less than 1.
+	 */
+	public static double quantile975(double df) {
+		if (df < 1) {
+			throw new IllegalArgumentException(String.format("At least one degree of freedom required: %f",df));
+		}
+		return (df < T_975.length + 1 ? T_975[(int) df - 1] : Z_975);
+	}
+
+}
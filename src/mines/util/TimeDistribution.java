@@ -13,5 +13,23 @@ public interface TimeDistribution {
 	 * @return	a random value.
 	 */
 	public double nextTime(double mean, double sd);
+
+	/**
+	 * Create a distribution of the same kind,
+	 * that draws from a random stream independent of this distribution.
+	 * Each simulator should use its own split distribution.
+	 *
+	 * @return	a new TimeDistribution.
+	 */
+	public TimeDistribution split();
+
+	/**
+	 * Create a distribution of the same kind,
+	 * that draws from the given random stream.
+	 *
+	 * @param	rng	the random stream.
+	 * @return	a new TimeDistribution.
+	 */
+	public TimeDistribution withStream(RandomStream rng);
 	
 }
\ No newline at end of file
@@ -1,12 +1,28 @@
 package mines.util;
 
-import java.util.concurrent.*;
-
 /**
  * Uniform distribution.
  */
 public class UniformTimes implements TimeDistribution {
 
+	private RandomStream rng;	//the random stream.
+
+	/**
+	 * Create a distribution using a stream split from the master stream.
+	 */
+	public UniformTimes() {
+		this(new RandomStream());
+	}
+
+	/**
+	 * Create a distribution using a given stream.
+	 *
+	 * @param	rng	the random stream.
+	 */
+	public UniformTimes(RandomStream rng) {
+		this.rng = rng;
+	}
+
 	/**
 	 * Generate a uniform random value with the given mean and standard deviation.
 	 *
@@ -22,7 +38,15 @@ public class UniformTimes implements TimeDistribution {
 			throw new IllegalArgumentException(String.format("Positive standard deviation required: %f",stdev));
 		}
 		double min = mean - Math.sqrt(3) * stdev;
-		return Math.max(0,mean + Math.sqrt(3) * stdev * (2 * ThreadLocalRandom.current().nextDouble() - 1));
+		return Math.max(0,mean + Math.sqrt(3) * stdev * (2 * rng.nextDouble() - 1));
+	}
+
+	public UniformTimes split() {
+		return new UniformTimes(rng.split());
+	}
+
+	public UniformTimes withStream(RandomStream rng) {
+		return new UniformTimes(rng);
 	}
 
 }
\ No newline at end of file